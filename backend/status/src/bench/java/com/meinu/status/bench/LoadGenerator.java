@@ -0,0 +1,334 @@
+package com.meinu.status.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load against the ingest and read paths:
+ * <ul>
+ * <li>N extensions POSTing heartbeats to /api/ingest/vscode (some with code)</li>
+ * <li>M browsers holding /api/status/stream and timing SSE delivery lag</li>
+ * <li>K devices polling /api/status/latest/by-key</li>
+ * </ul>
+ * Users are created through the public API (signup, API key issue) before the
+ * measured phase. Without {@code --target} the app is started locally on H2
+ * and an embedded Redis (see {@link LocalStack}).
+ *
+ * <p>Usage: {@code LoadGenerator <java> <extracted-app-dir> <h2-jar> [--option=value ...]},
+ * usually through {@code ./gradlew loadTest -Pextensions=200 -Pbrowsers=50 ...}.
+ */
+public class LoadGenerator {
+    private static final Pattern SENT_AT = Pattern.compile("\"loadSentAtMs\"\\s*:\\s*(\\d+)");
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern API_KEY = Pattern.compile("\"apiKey\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String[] LANGUAGES = {"java", "typescript", "javascript", "python", "vue", "cpp"};
+    private static final String[] BRANCHES = {"main", "develop", "feature/login", "fix/sse"};
+
+    record User(String token, String apiKey) {
+    }
+
+    /** Latency samples in microseconds plus outcome counters for one kind of client. */
+    static final class Stats {
+        private final String name;
+        private long[] samples = new long[1024];
+        private int count;
+        final LongAdder ok = new LongAdder();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(long micros) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = micros;
+        }
+
+        void error(String reason) {
+            errors.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        }
+
+        synchronized String report(double seconds, String unit) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            long errorCount = errors.values().stream().mapToLong(LongAdder::sum).sum();
+            long total = ok.sum() + errorCount;
+            return String.format("%-10s %9d %9.1f/s %7.2f%% err  p50 %s  p90 %s  p99 %s  max %s  %s", name, total,
+                    total / seconds, total == 0 ? 0 : errorCount * 100.0 / total, pct(sorted, 0.5, unit),
+                    pct(sorted, 0.9, unit), pct(sorted, 0.99, unit), pct(sorted, 1.0, unit),
+                    errors.isEmpty() ? "" : errors.toString());
+        }
+
+        private static String pct(long[] sorted, double q, String unit) {
+            if (sorted.length == 0) {
+                return "-";
+            }
+            long v = sorted[Math.max(0, (int) Math.ceil(q * sorted.length) - 1)];
+            return String.format("%.1f%s", v / 1000.0, unit);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: LoadGenerator <java> <extracted-app-dir> <h2-jar> [--extensions=N]"
+                    + " [--browsers=M] [--devices=K] [--duration-s=60] [--heartbeat-ms=5000] [--poll-ms=5000]"
+                    + " [--code-ratio=0.2] [--code-bytes=8192] [--target=http://host:port]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String[] kv = args[i].replaceFirst("^--", "").split("=", 2);
+            opts.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        int extensions = Integer.parseInt(opts.getOrDefault("extensions", "100"));
+        int browsers = Integer.parseInt(opts.getOrDefault("browsers", "20"));
+        int devices = Integer.parseInt(opts.getOrDefault("devices", "20"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("duration-s", "60")));
+        long heartbeatMs = Long.parseLong(opts.getOrDefault("heartbeat-ms", "5000"));
+        long pollMs = Long.parseLong(opts.getOrDefault("poll-ms", "5000"));
+        double codeRatio = Double.parseDouble(opts.getOrDefault("code-ratio", "0.2"));
+        int codeBytes = Integer.parseInt(opts.getOrDefault("code-bytes", "8192"));
+        String target = opts.get("target");
+
+        LocalStack stack = null;
+        if (target == null) {
+            stack = new LocalStack(args[0], Path.of(args[1]), args[2], List.of());
+            stack.awaitReady(Duration.ofMinutes(2));
+            target = stack.baseUrl();
+        }
+        try {
+            run(target, Math.max(1, extensions), browsers, devices, duration, heartbeatMs, pollMs, codeRatio,
+                    codeBytes);
+        } finally {
+            if (stack != null) {
+                stack.close();
+            }
+        }
+    }
+
+    private static void run(String target, int extensions, int browsers, int devices, Duration duration,
+            long heartbeatMs, long pollMs, double codeRatio, int codeBytes) throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1).build();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        System.out.printf("Creating %d users on %s ...%n", extensions, target);
+        List<User> users = new ArrayList<>(extensions);
+        for (int i = 0; i < extensions; i++) {
+            users.add(createUser(http, target, "load-" + runId + "-" + i + "@load.local"));
+        }
+        String code = "x".repeat(Math.max(0, codeBytes));
+
+        Stats ingest = new Stats("ingest");
+        Stats sse = new Stats("sse-lag");
+        Stats poll = new Stats("device");
+        LongAdder sseConnections = new LongAdder();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        System.out.printf("Running %d extensions, %d browsers, %d devices for %ds%n", extensions, browsers,
+                devices, duration.toSeconds());
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int b = 0; b < browsers; b++) {
+                User user = users.get(b % users.size());
+                pool.submit(() -> browser(http, target, user, deadline, sse, sseConnections));
+            }
+            for (int d = 0; d < devices; d++) {
+                User user = users.get(d % users.size());
+                pool.submit(() -> device(http, target, user, deadline, pollMs, poll));
+            }
+            for (int e = 0; e < extensions; e++) {
+                User user = users.get(e);
+                boolean withCode = e < Math.round(extensions * codeRatio);
+                pool.submit(() -> extension(http, target, user, deadline, heartbeatMs, withCode ? code : null,
+                        ingest));
+            }
+            pool.shutdown();
+            pool.awaitTermination(duration.toSeconds() + 30, TimeUnit.SECONDS);
+        }
+
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf("%-10s %9s %11s %12s%n", "client", "requests", "throughput", "errors");
+        System.out.println(ingest.report(seconds, "ms"));
+        System.out.println(poll.report(seconds, "ms"));
+        System.out.println(sse.report(seconds, "ms") + "  connections=" + sseConnections.sum());
+    }
+
+    static void extension(HttpClient http, String target, User user, long deadline, long intervalMs,
+            String code, Stats stats) {
+        Random random = ThreadLocalRandom.current();
+        long keystrokes = 0;
+        long activeMs = 0;
+        long sessionStart = System.currentTimeMillis();
+        sleep(random.nextLong(Math.max(1, intervalMs)));
+        while (System.nanoTime() < deadline) {
+            keystrokes += random.nextInt(40);
+            activeMs += intervalMs;
+            String body = payload(random, sessionStart, keystrokes, activeMs, code);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/ingest/vscode"))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .header("x-api-key", user.apiKey())
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            timed(http, request, stats);
+            sleep(intervalMs);
+        }
+    }
+
+    private static void device(HttpClient http, String target, User user, long deadline, long intervalMs,
+            Stats stats) {
+        sleep(ThreadLocalRandom.current().nextLong(Math.max(1, intervalMs)));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/status/latest/by-key"))
+                .timeout(Duration.ofSeconds(10))
+                .header("x-api-key", user.apiKey())
+                .GET()
+                .build();
+        while (System.nanoTime() < deadline) {
+            timed(http, request, stats);
+            sleep(intervalMs);
+        }
+    }
+
+    /** Holds one SSE stream (reconnecting on drop) and records now - loadSentAtMs per status event. */
+    private static void browser(HttpClient http, String target, User user, long deadline, Stats stats,
+            LongAdder connections) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/status/stream"))
+                .header("Accept", "text/event-stream")
+                .header("Authorization", "Bearer " + user.token())
+                .GET()
+                .build();
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpResponse<Stream<String>> res = http.send(request, HttpResponse.BodyHandlers.ofLines());
+                if (res.statusCode() != 200) {
+                    stats.error(String.valueOf(res.statusCode()));
+                    sleep(1000);
+                    continue;
+                }
+                connections.increment();
+                try (Stream<String> lines = res.body()) {
+                    var it = lines.iterator();
+                    while (it.hasNext() && System.nanoTime() < deadline) {
+                        String line = it.next();
+                        if (!line.startsWith("data:")) {
+                            continue;
+                        }
+                        Matcher m = SENT_AT.matcher(line);
+                        if (m.find()) {
+                            stats.record((System.currentTimeMillis() - Long.parseLong(m.group(1))) * 1000);
+                            stats.ok.increment();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                stats.error(e.getClass().getSimpleName());
+                sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    static void timed(HttpClient http, HttpRequest request, Stats stats) {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<Void> res = http.send(request, HttpResponse.BodyHandlers.discarding());
+            stats.record((System.nanoTime() - started) / 1000);
+            if (res.statusCode() == 200) {
+                stats.ok.increment();
+            } else {
+                stats.error(String.valueOf(res.statusCode()));
+            }
+        } catch (IOException e) {
+            stats.error(e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Same shape as the extension's buildPayload. */
+    private static String payload(Random random, long sessionStart, long keystrokes, long activeMs, String code) {
+        long now = System.currentTimeMillis();
+        int project = random.nextInt(3);
+        StringBuilder sb = new StringBuilder(256 + (code == null ? 0 : code.length()));
+        sb.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(now)).append('"')
+                .append(",\"workspaceRoot\":\"/home/dev/project-").append(project).append('"')
+                .append(",\"filePath\":\"/home/dev/project-").append(project).append("/src/File")
+                .append(random.nextInt(50)).append(".java\"")
+                .append(",\"languageId\":\"").append(LANGUAGES[random.nextInt(LANGUAGES.length)]).append('"')
+                .append(",\"branch\":\"").append(BRANCHES[random.nextInt(BRANCHES.length)]).append('"')
+                .append(",\"isIdle\":").append(random.nextInt(10) == 0)
+                .append(",\"idleForMs\":").append(random.nextInt(5000))
+                .append(",\"sessionMs\":").append(now - sessionStart)
+                .append(",\"sessionActiveMs\":").append(activeMs)
+                .append(",\"keystrokes\":").append(keystrokes)
+                .append(",\"vscodeVersion\":\"1.95.0\",\"extensionVersion\":\"load\"")
+                .append(",\"loadSentAtMs\":").append(now);
+        if (code != null) {
+            sb.append(",\"code\":\"").append(code).append("\",\"codeLength\":").append(code.length());
+        }
+        return sb.append('}').toString();
+    }
+
+    static User createUser(HttpClient http, String target, String email) throws Exception {
+        String signup = "{\"email\":\"" + email + "\",\"password\":\"load-test-pw\",\"nickname\":\"load\"}";
+        String body = post(http, target + "/api/auth/signup", signup, null);
+        String token = find(ACCESS_TOKEN, body, "accessToken");
+        String key = post(http, target + "/api/member/api-key/issue", "", token);
+        return new User(token, find(API_KEY, key, "apiKey"));
+    }
+
+    static String post(HttpClient http, String url, String json, String token) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            b.header("Authorization", "Bearer " + token);
+        }
+        HttpResponse<String> res = http.send(b.build(), HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) {
+            throw new IllegalStateException(url + " -> " + res.statusCode() + " " + res.body());
+        }
+        return res.body();
+    }
+
+    private static String find(Pattern pattern, String body, String what) {
+        Matcher m = pattern.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("no " + what + " in " + body);
+        }
+        return m.group(1);
+    }
+
+    static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
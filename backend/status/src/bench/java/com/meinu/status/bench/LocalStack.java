@@ -0,0 +1,112 @@
+package com.meinu.status.bench;
+
+import org.h2.tools.Server;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application from the extracted boot jar in a child JVM, backed by an
+ * in-memory H2 database (MySQL mode) and an embedded Redis owned by this
+ * process. Everything runs on the local machine.
+ */
+public class LocalStack implements AutoCloseable {
+    private static final String MAIN_CLASS = "com.meinu.status.StatusApplication";
+
+    private final Server h2;
+    private final RedisServer redis;
+    private final Process app;
+    private final String baseUrl;
+
+    public LocalStack(String java, Path appDir, String h2Jar, List<String> extraArgs) throws IOException {
+        int dbPort = freePort();
+        int redisPort = freePort();
+        int serverPort = freePort();
+        try {
+            h2 = Server.createTcpServer("-tcpPort", String.valueOf(dbPort), "-ifNotExists").start();
+        } catch (java.sql.SQLException e) {
+            throw new IOException(e);
+        }
+        redis = new RedisServer(redisPort);
+        redis.start();
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+        cmd.add("-Dspring.datasource.url=jdbc:h2:tcp://localhost:" + dbPort
+                + "/mem:status;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        cmd.add("-Dspring.datasource.username=sa");
+        cmd.add("-Dspring.datasource.password=");
+        cmd.add("-Dspring.datasource.driver-class-name=org.h2.Driver");
+        cmd.add("-Dspring.data.redis.host=localhost");
+        cmd.add("-Dspring.data.redis.port=" + redisPort);
+        cmd.add("-Dserver.port=" + serverPort);
+        cmd.add("-Dapp.id.node-id=0");
+        cmd.add("-Dlogging.level.root=WARN");
+        cmd.addAll(extraArgs);
+        cmd.add("-cp");
+        cmd.add(appJar(appDir).getFileName() + File.pathSeparator + h2Jar);
+        cmd.add(MAIN_CLASS);
+        app = new ProcessBuilder(cmd).directory(appDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(appDir.resolve("local-stack.log").toFile())
+                .start();
+        baseUrl = "http://localhost:" + serverPort;
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    /** Blocks until the server answers HTTP at all (the connector starts last). */
+    public void awaitReady(Duration timeout) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).GET().build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("application exited with " + app.exitValue()
+                        + ", see local-stack.log");
+            }
+            try {
+                http.send(health, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException ignored) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("application not ready within " + timeout);
+    }
+
+    @Override
+    public void close() throws Exception {
+        app.destroy();
+        app.waitFor();
+        redis.stop();
+        h2.stop();
+    }
+
+    static Path appJar(Path appDir) throws IOException {
+        try (var files = Files.list(appDir)) {
+            return files.filter(p -> p.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no jar in " + appDir));
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
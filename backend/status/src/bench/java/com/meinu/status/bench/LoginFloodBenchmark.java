@@ -0,0 +1,118 @@
+package com.meinu.status.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest latency with and without a concurrent login flood. Phase one runs
+ * only extensions; phase two adds attackers that log in as fast as they can
+ * with valid credentials, so every request reaches BCrypt. With hashing on its
+ * own bounded pool the ingest percentiles of both phases should match, and the
+ * surplus logins should come back as 503 instead of queueing.
+ *
+ * <p>The per-IP attempt limit is raised for the run, since every client shares
+ * the loopback address. Usage:
+ * {@code LoginFloodBenchmark <java> <extracted-app-dir> <h2-jar> [--extensions=20] [--attackers=200]
+ * [--phase-s=20] [--heartbeat-ms=1000]}, usually through {@code ./gradlew loginFloodBenchmark}.
+ */
+public class LoginFloodBenchmark {
+    private static final String PASSWORD = "load-test-pw";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: LoginFloodBenchmark <java> <extracted-app-dir> <h2-jar> [--extensions=20]"
+                    + " [--attackers=200] [--phase-s=20] [--heartbeat-ms=1000]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String[] kv = args[i].replaceFirst("^--", "").split("=", 2);
+            opts.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        int extensions = Integer.parseInt(opts.getOrDefault("extensions", "20"));
+        int attackers = Integer.parseInt(opts.getOrDefault("attackers", "200"));
+        Duration phase = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("phase-s", "20")));
+        long heartbeatMs = Long.parseLong(opts.getOrDefault("heartbeat-ms", "1000"));
+
+        try (LocalStack stack = new LocalStack(args[0], Path.of(args[1]), args[2],
+                List.of("-Dapp.auth.attempts.per-ip-max=1000000000",
+                        "-Dapp.ingest.rate-limit.permits-per-second=1000"))) {
+            stack.awaitReady(Duration.ofMinutes(2));
+            run(stack.baseUrl(), Math.max(1, extensions), attackers, phase, heartbeatMs);
+        }
+    }
+
+    private static void run(String target, int extensions, int attackers, Duration phase, long heartbeatMs)
+            throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1).build();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        System.out.printf("Creating %d users on %s ...%n", extensions, target);
+        List<LoadGenerator.User> users = new ArrayList<>(extensions);
+        List<String> emails = new ArrayList<>(extensions);
+        for (int i = 0; i < extensions; i++) {
+            String email = "flood-" + runId + "-" + i + "@load.local";
+            users.add(LoadGenerator.createUser(http, target, email));
+            emails.add(email);
+        }
+
+        LoadGenerator.Stats baseline = new LoadGenerator.Stats("ingest");
+        System.out.printf("Phase 1: %d extensions for %ds%n", extensions, phase.toSeconds());
+        runPhase(http, target, users, emails, 0, phase, heartbeatMs, baseline, null);
+
+        LoadGenerator.Stats flooded = new LoadGenerator.Stats("ingest");
+        LoadGenerator.Stats logins = new LoadGenerator.Stats("login");
+        System.out.printf("Phase 2: %d extensions + %d attackers for %ds%n", extensions, attackers,
+                phase.toSeconds());
+        runPhase(http, target, users, emails, attackers, phase, heartbeatMs, flooded, logins);
+
+        double seconds = phase.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf("%-10s %9s %11s %12s%n", "client", "requests", "throughput", "errors");
+        System.out.println("-- without flood");
+        System.out.println(baseline.report(seconds, "ms"));
+        System.out.println("-- with login flood");
+        System.out.println(flooded.report(seconds, "ms"));
+        System.out.println(logins.report(seconds, "ms"));
+    }
+
+    private static void runPhase(HttpClient http, String target, List<LoadGenerator.User> users,
+            List<String> emails, int attackers, Duration phase, long heartbeatMs, LoadGenerator.Stats ingest,
+            LoadGenerator.Stats logins) throws InterruptedException {
+        long deadline = System.nanoTime() + phase.toNanos();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LoadGenerator.User user : users) {
+                pool.submit(() -> LoadGenerator.extension(http, target, user, deadline, heartbeatMs, null, ingest));
+            }
+            for (int a = 0; a < attackers; a++) {
+                String email = emails.get(a % emails.size());
+                pool.submit(() -> attacker(http, target, email, deadline, logins));
+            }
+            pool.shutdown();
+            pool.awaitTermination(phase.toSeconds() + 30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void attacker(HttpClient http, String target, String email, long deadline,
+            LoadGenerator.Stats stats) {
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/auth/login"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            LoadGenerator.timed(http, request, stats);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.meinu.status.bench;
+
+import org.h2.tools.Server;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Time from process start to the first successful POST /api/ingest/vscode,
+ * per launch mode (plain JVM, Spring AOT, CDS, AOT + CDS). MySQL and Redis are
+ * replaced by an in-memory H2 database (MySQL mode) and an embedded Redis, both
+ * owned by this process, so the numbers only reflect the application itself.
+ *
+ * <p>Usage: {@code StartupBenchmark <java> <extracted-app-dir> <h2-jar> [runs]}.
+ * Usually run through {@code ./gradlew -Paot startupBenchmark}.
+ */
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "com.meinu.status.StatusApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private record Mode(String name, boolean aot, String archive) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: StartupBenchmark <java> <extracted-app-dir> <h2-jar> [runs]");
+            System.exit(2);
+        }
+        String java = args[0];
+        Path appDir = Path.of(args[1]);
+        String h2Jar = args[2];
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        Path appJar = LocalStack.appJar(appDir);
+
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("jvm", false, null));
+        modes.add(new Mode("aot", true, null));
+        modes.add(new Mode("cds", false, "application.jsa"));
+        modes.add(new Mode("aot+cds", true, "application-aot.jsa"));
+
+        int dbPort = LocalStack.freePort();
+        int redisPort = LocalStack.freePort();
+        Server h2 = Server.createTcpServer("-tcpPort", String.valueOf(dbPort), "-ifNotExists").start();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        try {
+            System.out.printf("%-8s %6s %8s %8s %8s%n", "mode", "runs", "min", "median", "max");
+            for (Mode mode : modes) {
+                if (mode.archive() != null && !Files.exists(appDir.resolve(mode.archive()))) {
+                    System.out.printf("%-8s skipped (%s missing, run cdsArchive)%n", mode.name(), mode.archive());
+                    continue;
+                }
+                List<Long> samples = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    samples.add(measure(java, appDir, appJar, h2Jar, mode, dbPort, redisPort, i));
+                }
+                samples.sort(null);
+                System.out.printf("%-8s %6d %6dms %6dms %6dms%n", mode.name(), runs, samples.get(0),
+                        samples.get(samples.size() / 2), samples.get(samples.size() - 1));
+            }
+        } finally {
+            redis.stop();
+            h2.stop();
+        }
+    }
+
+    private static long measure(String java, Path appDir, Path appJar, String h2Jar, Mode mode, int dbPort,
+            int redisPort, int run) throws Exception {
+        String dbUrl = "jdbc:h2:tcp://localhost:" + dbPort + "/mem:status_" + mode.name().replace('+', '_') + "_"
+                + run + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        int serverPort = LocalStack.freePort();
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+        if (mode.archive() != null) {
+            cmd.add("-XX:SharedArchiveFile=" + mode.archive());
+        }
+        if (mode.aot()) {
+            cmd.add("-Dspring.aot.enabled=true");
+        }
+        cmd.add("-Dspring.datasource.url=" + dbUrl);
+        cmd.add("-Dspring.datasource.username=sa");
+        cmd.add("-Dspring.datasource.password=");
+        cmd.add("-Dspring.datasource.driver-class-name=org.h2.Driver");
+        cmd.add("-Dspring.data.redis.host=localhost");
+        cmd.add("-Dspring.data.redis.port=" + redisPort);
+        cmd.add("-Dserver.port=" + serverPort);
+        cmd.add("-Dapp.ingest.rate-limit.enabled=false");
+        cmd.add("-Dapp.id.node-id=0");
+        cmd.add("-Dlogging.level.root=WARN");
+        // the CDS archive was dumped with the app jar alone; extra entries may only be appended
+        cmd.add("-cp");
+        cmd.add(appJar.getFileName() + File.pathSeparator + h2Jar);
+        cmd.add(MAIN_CLASS);
+
+        String apiKey = UUID.randomUUID().toString();
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest ingest = HttpRequest.newBuilder(URI.create("http://localhost:" + serverPort + "/api/ingest/vscode"))
+                .header("Content-Type", "application/json")
+                .header("x-api-key", apiKey)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"timestamp\":\"" + Instant.now() + "\",\"keystrokes\":1}"))
+                .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(cmd).directory(appDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            boolean seeded = false;
+            while (System.nanoTime() - started < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + ": application exited with " + process.exitValue());
+                }
+                // the members table only exists once Hibernate has run, so seed as soon as it does
+                if (!seeded) {
+                    seeded = seedMember(dbUrl, apiKey);
+                }
+                if (seeded && post(http, ingest)) {
+                    return Duration.ofNanos(System.nanoTime() - started).toMillis();
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(mode.name() + ": no successful ingest within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static boolean seedMember(String dbUrl, String apiKey) {
+        try (Connection c = DriverManager.getConnection(dbUrl, "sa", "");
+                PreparedStatement ps = c.prepareStatement(
+                        "insert into members (email, password_hash, nickname, api_key) values (?, ?, ?, ?)")) {
+            ps.setString(1, apiKey + "@bench.local");
+            ps.setString(2, "-");
+            ps.setString(3, "bench");
+            ps.setString(4, apiKey);
+            ps.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean post(HttpClient http, HttpRequest request) {
+        try {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.meinu.status.bench;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ingest latency while every member has a webhook on a local {@link WebhookStub},
+ * in three phases: the stub answers at once, the stub hangs past the
+ * delivery timeout, the stub answers at once again. The load generator's
+ * heartbeats flip idle and workspace often, so transitions are plentiful.
+ * Ingest percentiles should not move in phase two; deliveries time out there,
+ * circuits open, and the backlog drains in phase three.
+ *
+ * <p>Usage: {@code WebhookBenchmark <java> <extracted-app-dir> <h2-jar> [--extensions=50] [--phase-s=20]
+ * [--heartbeat-ms=1000] [--stub-delay-ms=30000]}, usually through {@code ./gradlew webhookBenchmark}.
+ */
+public class WebhookBenchmark {
+    private static final Pattern SECRET = Pattern.compile("\"secret\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: WebhookBenchmark <java> <extracted-app-dir> <h2-jar> [--extensions=50]"
+                    + " [--phase-s=20] [--heartbeat-ms=1000] [--stub-delay-ms=30000]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String[] kv = args[i].replaceFirst("^--", "").split("=", 2);
+            opts.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        int extensions = Integer.parseInt(opts.getOrDefault("extensions", "50"));
+        Duration phase = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("phase-s", "20")));
+        long heartbeatMs = Long.parseLong(opts.getOrDefault("heartbeat-ms", "1000"));
+        long stubDelayMs = Long.parseLong(opts.getOrDefault("stub-delay-ms", "30000"));
+
+        // short circuit and backoff times so the recovery fits in one phase
+        try (WebhookStub stub = new WebhookStub();
+                LocalStack stack = new LocalStack(args[0], Path.of(args[1]), args[2],
+                        List.of("-Dapp.ingest.rate-limit.permits-per-second=1000",
+                                "-Dapp.webhook.allow-private-addresses=true",
+                                "-Dapp.webhook.dispatch.poll-interval-ms=200",
+                                "-Dapp.webhook.dispatch.backoff-max-ms=5000",
+                                "-Dapp.webhook.dispatch.circuit.open-ms=2000",
+                                "-Dapp.webhook.dispatch.circuit.max-open-ms=5000"))) {
+            stack.awaitReady(Duration.ofMinutes(2));
+            run(stack.baseUrl(), stub, Math.max(1, extensions), phase, heartbeatMs, stubDelayMs);
+        }
+    }
+
+    private static void run(String target, WebhookStub stub, int extensions, Duration phase, long heartbeatMs,
+            long stubDelayMs) throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1).build();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        System.out.printf("Creating %d users with webhooks on %s ...%n", extensions, target);
+        List<LoadGenerator.User> users = new ArrayList<>(extensions);
+        for (int i = 0; i < extensions; i++) {
+            LoadGenerator.User user = LoadGenerator.createUser(http, target, "hook-" + runId + "-" + i + "@load.local");
+            String name = "m" + i;
+            String created = LoadGenerator.post(http, target + "/api/webhooks",
+                    "{\"url\":\"" + stub.url(name) + "\"}", user.token());
+            Matcher m = SECRET.matcher(created);
+            if (!m.find()) {
+                throw new IllegalStateException("no secret in " + created);
+            }
+            stub.register(name, m.group(1));
+            users.add(user);
+        }
+
+        String[] names = {"healthy", "slow stub", "recovered"};
+        long[] delays = {0, stubDelayMs, 0};
+        List<String> lines = new ArrayList<>();
+        for (int p = 0; p < names.length; p++) {
+            LoadGenerator.Stats ingest = new LoadGenerator.Stats("ingest");
+            stub.lag = new LoadGenerator.Stats("delivery");
+            stub.delayMs = delays[p];
+            long batchesBefore = stub.batches.sum();
+            long repeatsBefore = stub.repeats.sum();
+            System.out.printf("Phase %d (%s): %d extensions for %ds%n", p + 1, names[p], extensions,
+                    phase.toSeconds());
+            runPhase(http, target, users, phase, heartbeatMs, ingest);
+            double seconds = phase.toMillis() / 1000.0;
+            lines.add("-- " + names[p]);
+            lines.add(ingest.report(seconds, "ms"));
+            lines.add(stub.lag.report(seconds, "ms") + "  batches=" + (stub.batches.sum() - batchesBefore)
+                    + " repeats=" + (stub.repeats.sum() - repeatsBefore));
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %9s %11s %12s%n", "client", "requests", "throughput", "errors");
+        lines.forEach(System.out::println);
+        System.out.println("bad signatures: " + stub.badSignatures.sum());
+    }
+
+    private static void runPhase(HttpClient http, String target, List<LoadGenerator.User> users, Duration phase,
+            long heartbeatMs, LoadGenerator.Stats ingest) throws InterruptedException {
+        long deadline = System.nanoTime() + phase.toNanos();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LoadGenerator.User user : users) {
+                pool.submit(() -> LoadGenerator.extension(http, target, user, deadline, heartbeatMs, null, ingest));
+            }
+            pool.shutdown();
+            pool.awaitTermination(phase.toSeconds() + 30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.meinu.status.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Webhook receiver on a local port: {@code POST /hook/{name}} checks the
+ * signature against the secret registered for that name, records how long
+ * each event took from its transition time to its first arrival (deliveries
+ * are at least once, repeats are counted apart), and answers after
+ * {@link #delayMs} with {@link #status}. Both can be changed while it runs to
+ * play a slow or failing third party.
+ */
+public class WebhookStub implements AutoCloseable {
+    // the dispatcher's event layout: id, type, memberId, at, data
+    private static final Pattern EVENT = Pattern.compile(
+            "\"id\":\"(\\d+)\",\"type\":\"[^\"]+\",\"memberId\":\\d+,\"at\":\"([^\"]+)\"");
+
+    private final HttpServer server;
+    private final Map<String, String> secrets = new ConcurrentHashMap<>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    volatile long delayMs;
+    volatile int status = 200;
+    volatile LoadGenerator.Stats lag = new LoadGenerator.Stats("delivery");
+    final LongAdder batches = new LongAdder();
+    final LongAdder repeats = new LongAdder();
+    final LongAdder badSignatures = new LongAdder();
+
+    public WebhookStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    public String url(String name) {
+        return "http://localhost:" + server.getAddress().getPort() + "/hook/" + name;
+    }
+
+    public void register(String name, String secret) {
+        secrets.put(name, secret);
+    }
+
+    /** Answers every following delivery with {@code status} after {@code delayMs}. */
+    public void answer(int status, long delayMs) {
+        this.status = status;
+        this.delayMs = delayMs;
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    /** Distinct events received. */
+    public long events() {
+        return seen.size();
+    }
+
+    public long badSignatures() {
+        return badSignatures.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestURI().getPath().substring("/hook/".length());
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        long received = System.currentTimeMillis();
+        String secret = secrets.get(name);
+        String signature = exchange.getRequestHeaders().getFirst("X-Stat-us-Signature");
+        if (secret == null || !("sha256=" + hmacSha256(secret, body)).equals(signature)) {
+            badSignatures.increment();
+        }
+        batches.increment();
+        LoadGenerator.Stats stats = lag;
+        Matcher m = EVENT.matcher(body);
+        while (m.find()) {
+            if (seen.add(m.group(1))) {
+                stats.record((received - Instant.parse(m.group(2)).toEpochMilli()) * 1000);
+                stats.ok.increment();
+            } else {
+                repeats.increment();
+            }
+        }
+        LoadGenerator.sleep(delayMs);
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static String hmacSha256(String secret, String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.meinu.status.api.activity.controller;
+
+import com.meinu.status.api.activity.dto.response.ActivitySketchResponse;
+import com.meinu.status.api.activity.dto.response.ActivityTotalResponse;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import com.meinu.status.api.activity.service.ActivitySketchService;
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.global.common.base.BaseResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/activity")
+public class ActivityController {
+    private final ActivityIntervalService activityIntervalService;
+    private final ActivitySketchService sketchService;
+    private final MemberService memberService;
+
+    public ActivityController(ActivityIntervalService activityIntervalService, ActivitySketchService sketchService,
+            MemberService memberService) {
+        this.activityIntervalService = activityIntervalService;
+        this.sketchService = sketchService;
+        this.memberService = memberService;
+    }
+
+    /**
+     * Time spent per file, branch, language or workspace in [from, to).
+     * Defaults to today (UTC).
+     */
+    @GetMapping("/totals")
+    public ResponseEntity<BaseResponse<List<ActivityTotalResponse>>> totals(Authentication auth,
+            @RequestParam(defaultValue = "file") String by,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        Member me = memberService.getByEmail(auth.getName());
+        Instant start = from != null ? from : LocalDate.now(ZoneOffset.UTC).atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant end = to != null ? to : Instant.now();
+        return ResponseEntity.ok(BaseResponse.success(activityIntervalService.totals(me.getId(), by, start, end)));
+    }
+
+    /**
+     * Distinct files/repos and focus session length percentiles for
+     * today, this week or this month, from the per-day sketches.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<BaseResponse<ActivitySketchResponse>> summary(Authentication auth,
+            @RequestParam(defaultValue = "day") String period) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(sketchService.summary(me.getId(), period)));
+    }
+}
@@ -0,0 +1,8 @@
+package com.meinu.status.api.activity.dto.response;
+
+import java.time.LocalDate;
+
+/** Approximate activity summary; counts are HyperLogLog estimates, lengths t-digest quantiles. */
+public record ActivitySketchResponse(String period, LocalDate from, LocalDate to, long distinctFiles,
+        long distinctRepos, long focusSessions, Long p50SessionMs, Long p90SessionMs) {
+}
@@ -0,0 +1,4 @@
+package com.meinu.status.api.activity.dto.response;
+
+public record ActivityTotalResponse(String key, long durationMs, long activeMs, long keystrokes) {
+}
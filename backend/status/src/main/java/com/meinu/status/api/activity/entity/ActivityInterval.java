@@ -0,0 +1,65 @@
+package com.meinu.status.api.activity.entity;
+
+import com.meinu.status.api.member.entity.Member;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A run of consecutive heartbeats with the same state (workspace, file,
+ * language, branch, idle). Built in Redis while open and persisted on close.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "activity_intervals", indexes = {
+        @Index(name = "idx_activity_member_started", columnList = "member_id, started_at")
+})
+public class ActivityInterval {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "member_id", nullable = false)
+    private Member member;
+
+    @Column(name = "workspace_root", length = 512)
+    private String workspaceRoot;
+
+    @Column(name = "file_path", length = 1024)
+    private String filePath;
+
+    @Column(name = "language_id", length = 64)
+    private String languageId;
+
+    @Column(name = "branch", length = 255)
+    private String branch;
+
+    @Column(name = "idle", nullable = false)
+    private boolean idle;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "ended_at", nullable = false)
+    private Instant endedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    @Column(name = "active_ms", nullable = false)
+    private long activeMs;
+
+    @Column(name = "keystrokes", nullable = false)
+    private long keystrokes;
+
+    @Column(name = "heartbeats", nullable = false)
+    private int heartbeats;
+}
@@ -0,0 +1,62 @@
+package com.meinu.status.api.activity.repository;
+
+import com.meinu.status.api.activity.entity.ActivityInterval;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ActivityIntervalRepository extends JpaRepository<ActivityInterval, Long> {
+
+    interface ActivityTotal {
+        String getGroupKey();
+
+        Long getDurationMs();
+
+        Long getActiveMs();
+
+        Long getKeystrokes();
+    }
+
+    @Query("""
+            select a.filePath as groupKey, sum(a.durationMs) as durationMs, sum(a.activeMs) as activeMs,
+                   sum(a.keystrokes) as keystrokes
+            from ActivityInterval a
+            where a.member.id = :memberId and a.startedAt >= :from and a.startedAt < :to
+            group by a.filePath order by sum(a.activeMs) desc
+            """)
+    List<ActivityTotal> totalsByFile(@Param("memberId") Long memberId, @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    @Query("""
+            select a.branch as groupKey, sum(a.durationMs) as durationMs, sum(a.activeMs) as activeMs,
+                   sum(a.keystrokes) as keystrokes
+            from ActivityInterval a
+            where a.member.id = :memberId and a.startedAt >= :from and a.startedAt < :to
+            group by a.branch order by sum(a.activeMs) desc
+            """)
+    List<ActivityTotal> totalsByBranch(@Param("memberId") Long memberId, @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    @Query("""
+            select a.languageId as groupKey, sum(a.durationMs) as durationMs, sum(a.activeMs) as activeMs,
+                   sum(a.keystrokes) as keystrokes
+            from ActivityInterval a
+            where a.member.id = :memberId and a.startedAt >= :from and a.startedAt < :to
+            group by a.languageId order by sum(a.activeMs) desc
+            """)
+    List<ActivityTotal> totalsByLanguage(@Param("memberId") Long memberId, @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    @Query("""
+            select a.workspaceRoot as groupKey, sum(a.durationMs) as durationMs, sum(a.activeMs) as activeMs,
+                   sum(a.keystrokes) as keystrokes
+            from ActivityInterval a
+            where a.member.id = :memberId and a.startedAt >= :from and a.startedAt < :to
+            group by a.workspaceRoot order by sum(a.activeMs) desc
+            """)
+    List<ActivityTotal> totalsByWorkspace(@Param("memberId") Long memberId, @Param("from") Instant from,
+            @Param("to") Instant to);
+}
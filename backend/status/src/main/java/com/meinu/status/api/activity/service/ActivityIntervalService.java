@@ -0,0 +1,203 @@
+package com.meinu.status.api.activity.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.dto.response.ActivityTotalResponse;
+import com.meinu.status.api.activity.entity.ActivityInterval;
+import com.meinu.status.api.activity.repository.ActivityIntervalRepository;
+import com.meinu.status.api.activity.tracker.ActivityTracker;
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Run-length encodes heartbeats into activity intervals. The open interval of
+ * each member is kept by the {@link ActivityTracker} (a Redis hash by default)
+ * and extended in place while the state key is unchanged; closed intervals are
+ * queued there and flushed to the database in batches.
+ */
+@Service
+public class ActivityIntervalService {
+    private static final Logger log = LoggerFactory.getLogger(ActivityIntervalService.class);
+
+    /** Counter deltas derived from the extension's cumulative counters. */
+    public record Deltas(long keystrokes, long activeMs) {
+        public static final Deltas NONE = new Deltas(0L, 0L);
+    }
+
+    private final ActivityTracker tracker;
+    private final ObjectMapper objectMapper;
+    private final ActivityIntervalRepository intervalRepository;
+    private final MemberRepository memberRepository;
+
+    @Value("${app.activity.max-gap-ms:300000}")
+    private long maxGapMs;
+
+    @Value("${app.activity.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    public ActivityIntervalService(ActivityTracker tracker, ObjectMapper objectMapper,
+            ActivityIntervalRepository intervalRepository, MemberRepository memberRepository) {
+        this.tracker = tracker;
+        this.objectMapper = objectMapper;
+        this.intervalRepository = intervalRepository;
+        this.memberRepository = memberRepository;
+    }
+
+    /**
+     * Folds an ordered list of heartbeats into the member's open interval in
+     * one tracker call (a single script call on Redis). Heartbeats are placed at their client timestamp,
+     * clamped to the server clock, so buffered samples land where they belong.
+     *
+     * @return counter deltas per heartbeat, in input order
+     */
+    public List<Deltas> record(Long memberId, List<Map<String, Object>> bodies) {
+        long now = System.currentTimeMillis();
+        List<ActivityTracker.Beat> beats = new ArrayList<>(bodies.size());
+        for (Map<String, Object> body : bodies) {
+            String workspaceRoot = text(body.get("workspaceRoot"));
+            String filePath = text(body.get("filePath"));
+            String languageId = text(body.get("languageId"));
+            String branch = text(body.get("branch"));
+            boolean idle = Boolean.TRUE.equals(body.get("isIdle"));
+            beats.add(new ActivityTracker.Beat(stateKey(body), timestampMs(body.get("timestamp"), now),
+                    number(body.get("keystrokes")), number(body.get("sessionActiveMs")), workspaceRoot, filePath,
+                    languageId, branch, idle, counterKey(body.get("sessionId"), workspaceRoot)));
+        }
+        return tracker.extend(memberId, beats, maxGapMs, counterTtlMs());
+    }
+
+    /** What an interval is run-length encoded by: a heartbeat with another key starts a new interval. */
+    public static String stateKey(Map<String, Object> body) {
+        return Integer.toHexString(Objects.hash(text(body.get("workspaceRoot")), text(body.get("filePath")),
+                text(body.get("languageId")), text(body.get("branch")),
+                Boolean.TRUE.equals(body.get("isIdle")) ? "1" : "0"));
+    }
+
+    /**
+     * Which cumulative counters a heartbeat continues: its extension session,
+     * or for extensions that send none, its workspace (like the breakdowns).
+     */
+    public static String counterKey(Object sessionId, String workspaceRoot) {
+        return sessionId instanceof String s && !s.isEmpty() ? "s:" + s : "w:" + workspaceRoot;
+    }
+
+    /** How long the last counters of a session are kept for the next heartbeat's delta. */
+    public long counterTtlMs() {
+        return Math.max(maxGapMs * 2, 86_400_000L);
+    }
+
+    /** Client timestamp in epoch millis, never later than the server clock. */
+    public static long timestampMs(Object timestamp, long now) {
+        if (timestamp instanceof String s && !s.isEmpty()) {
+            try {
+                return Math.min(now, Instant.parse(s).toEpochMilli());
+            } catch (DateTimeParseException ignored) {
+                // fall through to server time
+            }
+        }
+        return now;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ActivityTotalResponse> totals(Long memberId, String by, Instant from, Instant to) {
+        List<ActivityIntervalRepository.ActivityTotal> rows = switch (by) {
+            case "file" -> intervalRepository.totalsByFile(memberId, from, to);
+            case "branch" -> intervalRepository.totalsByBranch(memberId, from, to);
+            case "language" -> intervalRepository.totalsByLanguage(memberId, from, to);
+            case "workspace" -> intervalRepository.totalsByWorkspace(memberId, from, to);
+            default -> throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        };
+        return rows.stream()
+                .map(r -> new ActivityTotalResponse(r.getGroupKey(), nz(r.getDurationMs()), nz(r.getActiveMs()),
+                        nz(r.getKeystrokes())))
+                .toList();
+    }
+
+    /**
+     * Closes intervals that stopped receiving heartbeats and writes queued
+     * intervals to MySQL. Popped entries are pushed back if the insert fails.
+     */
+    @Scheduled(fixedDelayString = "${app.activity.flush-interval-ms:10000}")
+    public void flush() {
+        try {
+            tracker.closeStale(System.currentTimeMillis() - maxGapMs, flushBatchSize);
+            List<String> batch;
+            while (!(batch = tracker.popClosed(flushBatchSize)).isEmpty()) {
+                try {
+                    persist(batch);
+                } catch (RuntimeException e) {
+                    tracker.requeueClosed(batch);
+                    throw e;
+                }
+                if (batch.size() < flushBatchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Activity flush failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void persist(List<String> batch) {
+        List<ActivityInterval> intervals = new ArrayList<>(batch.size());
+        for (String json : batch) {
+            Map<String, String> h;
+            try {
+                h = objectMapper.readValue(json, new TypeReference<Map<String, String>>() {
+                });
+            } catch (Exception e) {
+                // malformed entry: drop it rather than block the queue
+                continue;
+            }
+            long start = Long.parseLong(h.get("start"));
+            long end = Long.parseLong(h.get("end"));
+            intervals.add(ActivityInterval.builder()
+                    .member(memberRepository.getReferenceById(Long.valueOf(h.get("memberId"))))
+                    .workspaceRoot(blankToNull(h.get("workspaceRoot")))
+                    .filePath(blankToNull(h.get("filePath")))
+                    .languageId(blankToNull(h.get("languageId")))
+                    .branch(blankToNull(h.get("branch")))
+                    .idle("1".equals(h.get("idle")))
+                    .startedAt(Instant.ofEpochMilli(start))
+                    .endedAt(Instant.ofEpochMilli(end))
+                    .durationMs(Math.max(0L, end - start))
+                    .activeMs(Long.parseLong(h.getOrDefault("activeMs", "0")))
+                    .keystrokes(Long.parseLong(h.getOrDefault("keystrokes", "0")))
+                    .heartbeats(Integer.parseInt(h.getOrDefault("heartbeats", "1")))
+                    .build());
+        }
+        intervalRepository.saveAll(intervals);
+    }
+
+    private static String text(Object v) {
+        return v == null ? "" : v.toString();
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    private static long number(Object v) {
+        return v instanceof Number n ? Math.max(0L, n.longValue()) : 0L;
+    }
+
+    private static long nz(Long v) {
+        return v == null ? 0L : v;
+    }
+}
@@ -0,0 +1,152 @@
+package com.meinu.status.api.activity.service;
+
+import com.meinu.status.api.activity.dto.response.ActivitySketchResponse;
+import com.meinu.status.api.activity.sketch.TDigest;
+import com.meinu.status.api.activity.tracker.ActivityTracker;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per member and day sketches, updated on ingest:
+ * HyperLogLogs of distinct files and workspaces ({@code sketch:files:{id}:{day}},
+ * {@code sketch:repos:{id}:{day}}) and a t-digest of focus session lengths
+ * ({@code sketch:focus:{id}:{day}}). Weeks and months are answered by merging
+ * the day sketches (PFCOUNT over several keys, t-digest merge).
+ */
+@Service
+public class ActivitySketchService {
+    private static final Logger log = LoggerFactory.getLogger(ActivitySketchService.class);
+    private static final Duration SKETCH_TTL = Duration.ofDays(40);
+    private static final double COMPRESSION = 100;
+
+    private final KeyValueStore store;
+    private final ActivityTracker tracker;
+
+    @Value("${app.activity.max-gap-ms:300000}")
+    private long maxGapMs;
+
+    public ActivitySketchService(KeyValueStore store, ActivityTracker tracker) {
+        this.store = store;
+        this.tracker = tracker;
+    }
+
+    /** Queues PFADDs of the heartbeats' files and workspaces on a caller's pipeline. */
+    public void addDistinct(KeyValueStore.Pipeline pipeline, Long memberId, List<Map<String, Object>> bodies,
+            long now) {
+        Map<LocalDate, Set<String>> files = new HashMap<>();
+        Map<LocalDate, Set<String>> repos = new HashMap<>();
+        for (Map<String, Object> body : bodies) {
+            LocalDate day = dayOf(ActivityIntervalService.timestampMs(body.get("timestamp"), now));
+            if (body.get("filePath") instanceof String f && !f.isBlank()) {
+                files.computeIfAbsent(day, d -> new HashSet<>()).add(f);
+            }
+            if (body.get("workspaceRoot") instanceof String w && !w.isBlank()) {
+                repos.computeIfAbsent(day, d -> new HashSet<>()).add(w);
+            }
+        }
+        files.forEach((day, values) -> pfAdd(pipeline, key("files", memberId, day), values));
+        repos.forEach((day, values) -> pfAdd(pipeline, key("repos", memberId, day), values));
+    }
+
+    /**
+     * Advances the member's focus session and adds sessions it closed to the
+     * digest of the day they ended. A session still open is not counted yet.
+     */
+    public void recordFocus(Long memberId, List<Map<String, Object>> bodies, long now) {
+        List<ActivityTracker.FocusBeat> beats = new ArrayList<>(bodies.size());
+        for (Map<String, Object> body : bodies) {
+            beats.add(new ActivityTracker.FocusBeat(
+                    ActivityIntervalService.timestampMs(body.get("timestamp"), now),
+                    !Boolean.TRUE.equals(body.get("isIdle"))));
+        }
+        List<ActivityTracker.FocusSession> closed = tracker.advanceFocus(memberId, beats, maxGapMs,
+                Math.max(maxGapMs * 2, 86_400_000L));
+        Map<LocalDate, List<Long>> byDay = new HashMap<>();
+        for (ActivityTracker.FocusSession session : closed) {
+            byDay.computeIfAbsent(dayOf(session.endMs()), d -> new ArrayList<>()).add(session.lengthMs());
+        }
+        byDay.forEach((day, lengths) -> addToDigest(key("focus", memberId, day), lengths));
+    }
+
+    public ActivitySketchResponse summary(Long memberId, String period) {
+        LocalDate to = LocalDate.now();
+        LocalDate from = switch (period) {
+            case "day" -> to;
+            case "week" -> to.with(DayOfWeek.MONDAY);
+            case "month" -> to.withDayOfMonth(1);
+            default -> throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        };
+        List<String> fileKeys = new ArrayList<>();
+        List<String> repoKeys = new ArrayList<>();
+        List<String> focusKeys = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            fileKeys.add(key("files", memberId, d));
+            repoKeys.add(key("repos", memberId, d));
+            focusKeys.add(key("focus", memberId, d));
+        }
+        long files = store.pfCount(fileKeys);
+        long repos = store.pfCount(repoKeys);
+        TDigest digest = new TDigest(COMPRESSION);
+        for (String encoded : store.multiGet(focusKeys)) {
+            if (encoded != null) {
+                digest.merge(read(encoded));
+            }
+        }
+        boolean empty = digest.count() == 0;
+        return new ActivitySketchResponse(period, from, to, files, repos, digest.count(),
+                empty ? null : Math.round(digest.quantile(0.5)), empty ? null : Math.round(digest.quantile(0.9)));
+    }
+
+    private void addToDigest(String key, List<Long> lengths) {
+        try {
+            store.update(key, current -> {
+                TDigest digest = current != null ? read(current) : new TDigest(COMPRESSION);
+                lengths.forEach(digest::add);
+                return digest.serialize();
+            }, SKETCH_TTL);
+        } catch (IllegalStateException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Focus digest update gave up: key={} cause={}", key, e.getMessage());
+            }
+        }
+    }
+
+    private static TDigest read(String encoded) {
+        try {
+            return TDigest.deserialize(encoded);
+        } catch (RuntimeException e) {
+            // unreadable digest; start over rather than failing every update
+            return new TDigest(COMPRESSION);
+        }
+    }
+
+    private static void pfAdd(KeyValueStore.Pipeline pipeline, String key, Set<String> values) {
+        pipeline.pfAdd(key, values);
+        pipeline.expire(key, SKETCH_TTL);
+    }
+
+    private static LocalDate dayOf(long epochMs) {
+        return Instant.ofEpochMilli(epochMs).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static String key(String kind, Long memberId, LocalDate day) {
+        return "sketch:" + kind + ":" + memberId + ":" + day;
+    }
+}
@@ -0,0 +1,166 @@
+package com.meinu.status.api.activity.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Minimal merging t-digest (Dunning) for quantiles of session lengths.
+ * Centroids are merged while they span at most one unit of the k1 scale
+ * function compression/(2π)·asin(2q-1), so the digest stays under
+ * {@code compression} centroids (at most a few KB serialized) however many
+ * values were added, with the smallest centroids at the tails. Two digests
+ * merge by re-adding centroids. Not thread-safe.
+ */
+public final class TDigest {
+    private static final byte FORMAT = 1;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int size;
+    private int merged; // the first `merged` centroids are sorted and compressed
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression * 4);
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, double weight) {
+        if (size == means.length) {
+            compress();
+            if (size == means.length) {
+                means = Arrays.copyOf(means, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+        }
+        means[size] = value;
+        weights[size] = weight;
+        size++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(TDigest other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return Math.round(totalWeight);
+    }
+
+    /** Value at quantile {@code q} in [0, 1], or NaN when empty. */
+    public double quantile(double q) {
+        compress();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        // cumulative weight at the center of centroid i
+        double center = weights[0] / 2;
+        if (index <= center) {
+            return min + (means[0] - min) * (center == 0 ? 0 : index / center);
+        }
+        for (int i = 0; i < size - 1; i++) {
+            double next = center + (weights[i] + weights[i + 1]) / 2;
+            if (index <= next) {
+                return means[i] + (means[i + 1] - means[i]) * (index - center) / (next - center);
+            }
+            center = next;
+        }
+        double tail = totalWeight - center;
+        return means[size - 1] + (max - means[size - 1]) * (tail == 0 ? 0 : (index - center) / tail);
+    }
+
+    private void compress() {
+        if (merged == size) {
+            return;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(means[a], means[b]));
+        double[] outMeans = new double[means.length];
+        double[] outWeights = new double[weights.length];
+        int out = 0;
+        double curMean = means[order[0]];
+        double curWeight = weights[order[0]];
+        double before = 0;
+        double kBefore = scale(0);
+        for (int k = 1; k < size; k++) {
+            int i = order[k];
+            double proposed = curWeight + weights[i];
+            if (scale((before + proposed) / totalWeight) - kBefore <= 1) {
+                curMean += (means[i] - curMean) * weights[i] / proposed;
+                curWeight = proposed;
+            } else {
+                outMeans[out] = curMean;
+                outWeights[out] = curWeight;
+                out++;
+                before += curWeight;
+                kBefore = scale(before / totalWeight);
+                curMean = means[i];
+                curWeight = weights[i];
+            }
+        }
+        outMeans[out] = curMean;
+        outWeights[out] = curWeight;
+        out++;
+        means = outMeans;
+        weights = outWeights;
+        size = out;
+        merged = out;
+    }
+
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    /** Compact Base64 form for storage in a Redis string. */
+    public String serialize() {
+        compress();
+        ByteBuffer buf = ByteBuffer.allocate(1 + 8 * 3 + 4 + size * 16);
+        buf.put(FORMAT).putDouble(compression).putDouble(min).putDouble(max).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buf.putDouble(means[i]).putDouble(weights[i]);
+        }
+        return Base64.getEncoder().encodeToString(buf.array());
+    }
+
+    public static TDigest deserialize(String encoded) {
+        ByteBuffer buf = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+        if (buf.get() != FORMAT) {
+            throw new IllegalArgumentException("unknown t-digest format");
+        }
+        TDigest digest = new TDigest(buf.getDouble());
+        double min = buf.getDouble();
+        double max = buf.getDouble();
+        int n = buf.getInt();
+        for (int i = 0; i < n; i++) {
+            digest.add(buf.getDouble(), buf.getDouble());
+        }
+        if (n > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,47 @@
+package com.meinu.status.api.activity.tracker;
+
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+
+import java.util.List;
+
+/**
+ * Per-member state folded from heartbeats: the open activity interval (with a
+ * queue of closed ones awaiting persistence) and the current focus session.
+ * Kept in Redis by default and in memory in the {@code embedded} profile.
+ */
+public interface ActivityTracker {
+
+    /**
+     * A heartbeat as seen by the interval state machine. Counter deltas are
+     * taken against the previous beat with the same {@code counterKey}, as
+     * each extension window reports its own cumulative counters.
+     */
+    record Beat(String stateKey, long atMs, long keystrokes, long sessionActiveMs, String workspaceRoot,
+            String filePath, String languageId, String branch, boolean idle, String counterKey) {
+    }
+
+    record FocusBeat(long atMs, boolean active) {
+    }
+
+    record FocusSession(long lengthMs, long endMs) {
+    }
+
+    /**
+     * Extends or replaces the member's open interval with each beat, in order,
+     * and returns the counter deltas per beat. The last counters of a key are
+     * forgotten {@code ttlMs} after its beat, so its next beat credits nothing.
+     */
+    List<ActivityIntervalService.Deltas> extend(Long memberId, List<Beat> beats, long maxGapMs, long ttlMs);
+
+    /** Closes open intervals not extended since {@code cutoffMs}, at most {@code limit}. */
+    void closeStale(long cutoffMs, int limit);
+
+    /** Removes up to {@code limit} closed intervals (JSON objects of string values) from the queue. */
+    List<String> popClosed(int limit);
+
+    /** Puts intervals back after a failed persist. */
+    void requeueClosed(List<String> batch);
+
+    /** Advances the member's focus session and returns the sessions it closed. */
+    List<FocusSession> advanceFocus(Long memberId, List<FocusBeat> beats, long maxGapMs, long ttlMs);
+}
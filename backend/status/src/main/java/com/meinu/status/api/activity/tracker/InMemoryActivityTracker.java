@@ -0,0 +1,211 @@
+package com.meinu.status.api.activity.tracker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Same state machines as the Lua scripts in resources/redis, on in-process
+ * maps. Each member's state is updated inside {@code compute}, which gives the
+ * per-member atomicity the scripts get from Redis.
+ */
+@Component
+@Profile("embedded")
+public class InMemoryActivityTracker implements ActivityTracker {
+
+    private static final class OpenInterval {
+        String state;
+        long start;
+        long end;
+        long keystrokes;
+        long activeMs;
+        int heartbeats;
+        String workspaceRoot;
+        String filePath;
+        String languageId;
+        String branch;
+        boolean idle;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, OpenInterval> open = new ConcurrentHashMap<>();
+    // per member: counter key -> {keystrokes, activeMs, atMs} of its last beat
+    private final Map<Long, Map<String, long[]>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<String> closed = new ConcurrentLinkedDeque<>();
+    private final Map<Long, long[]> focus = new ConcurrentHashMap<>(); // {start, last}
+
+    public InMemoryActivityTracker(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<ActivityIntervalService.Deltas> extend(Long memberId, List<Beat> beats, long maxGapMs,
+            long ttlMs) {
+        List<ActivityIntervalService.Deltas> deltas = new ArrayList<>(beats.size());
+        open.compute(memberId, (id, cur) -> {
+            Map<String, long[]> last = counters.computeIfAbsent(id, k -> new HashMap<>());
+            long newest = 0;
+            for (Beat b : beats) {
+                long now = b.atMs();
+                long start = now;
+                long dks = 0;
+                long dactive = 0;
+                boolean extended = false;
+                newest = Math.max(newest, now);
+                long[] prev = last.get(b.counterKey());
+                long lastAt = now;
+                if (prev != null && now - prev[2] <= ttlMs) {
+                    // the extension reports cumulative counters; a drop means it restarted
+                    dks = b.keystrokes() >= prev[0] ? b.keystrokes() - prev[0] : b.keystrokes();
+                    dactive = b.sessionActiveMs() >= prev[1] ? b.sessionActiveMs() - prev[1] : b.sessionActiveMs();
+                    lastAt = Math.max(lastAt, prev[2]);
+                }
+                last.put(b.counterKey(), new long[] {b.keystrokes(), b.sessionActiveMs(), lastAt});
+                if (cur != null) {
+                    long lastEnd = cur.end;
+                    now = Math.max(now, lastEnd);
+                    long gap = now - lastEnd;
+                    if (cur.state.equals(b.stateKey()) && gap <= maxGapMs) {
+                        cur.end = now;
+                        cur.keystrokes += dks;
+                        cur.activeMs += dactive;
+                        cur.heartbeats++;
+                        extended = true;
+                    } else {
+                        close(id, cur);
+                        // keep the timeline contiguous unless the member was away
+                        if (gap <= maxGapMs) {
+                            start = lastEnd;
+                        }
+                    }
+                }
+                if (!extended) {
+                    cur = new OpenInterval();
+                    cur.state = b.stateKey();
+                    cur.start = start;
+                    cur.end = now;
+                    cur.keystrokes = dks;
+                    cur.activeMs = dactive;
+                    cur.heartbeats = 1;
+                    cur.workspaceRoot = b.workspaceRoot();
+                    cur.filePath = b.filePath();
+                    cur.languageId = b.languageId();
+                    cur.branch = b.branch();
+                    cur.idle = b.idle();
+                }
+                deltas.add(new ActivityIntervalService.Deltas(dks, dactive));
+            }
+            if (last.size() > 16) {
+                long cutoff = newest - ttlMs;
+                last.values().removeIf(c -> c[2] < cutoff);
+            }
+            return cur;
+        });
+        return deltas;
+    }
+
+    @Override
+    public void closeStale(long cutoffMs, int limit) {
+        int closedCount = 0;
+        for (Long memberId : open.keySet()) {
+            if (closedCount >= limit) {
+                return;
+            }
+            boolean[] didClose = new boolean[1];
+            open.computeIfPresent(memberId, (id, cur) -> {
+                if (cur.end > cutoffMs) {
+                    return cur;
+                }
+                close(id, cur);
+                didClose[0] = true;
+                return null;
+            });
+            if (didClose[0]) {
+                closedCount++;
+            }
+        }
+    }
+
+    @Override
+    public List<String> popClosed(int limit) {
+        List<String> batch = new ArrayList<>();
+        String json;
+        while (batch.size() < limit && (json = closed.pollFirst()) != null) {
+            batch.add(json);
+        }
+        return batch;
+    }
+
+    @Override
+    public void requeueClosed(List<String> batch) {
+        batch.forEach(closed::addLast);
+    }
+
+    @Override
+    public List<FocusSession> advanceFocus(Long memberId, List<FocusBeat> beats, long maxGapMs, long ttlMs) {
+        List<FocusSession> sessions = new ArrayList<>();
+        focus.compute(memberId, (id, state) -> {
+            Long start = state == null ? null : state[0];
+            long last = state == null ? 0 : state[1];
+            for (FocusBeat b : beats) {
+                if (start != null && b.atMs() - last > maxGapMs) {
+                    if (last > start) {
+                        sessions.add(new FocusSession(last - start, last));
+                    }
+                    start = null;
+                }
+                if (b.active()) {
+                    if (start == null) {
+                        start = b.atMs();
+                        last = b.atMs();
+                    } else if (b.atMs() > last) {
+                        last = b.atMs();
+                    }
+                } else if (start != null) {
+                    if (last > start) {
+                        sessions.add(new FocusSession(last - start, last));
+                    }
+                    start = null;
+                }
+            }
+            return start == null ? null : new long[] {start, last};
+        });
+        return sessions;
+    }
+
+    /** Queues the interval in the same shape activity_extend.lua produces. */
+    private void close(Long memberId, OpenInterval cur) {
+        Map<String, String> h = new LinkedHashMap<>();
+        h.put("state", cur.state);
+        h.put("start", String.valueOf(cur.start));
+        h.put("end", String.valueOf(cur.end));
+        h.put("keystrokes", String.valueOf(cur.keystrokes));
+        h.put("activeMs", String.valueOf(cur.activeMs));
+        h.put("heartbeats", String.valueOf(cur.heartbeats));
+        h.put("workspaceRoot", nz(cur.workspaceRoot));
+        h.put("filePath", nz(cur.filePath));
+        h.put("languageId", nz(cur.languageId));
+        h.put("branch", nz(cur.branch));
+        h.put("idle", cur.idle ? "1" : "0");
+        h.put("memberId", String.valueOf(memberId));
+        try {
+            closed.addLast(objectMapper.writeValueAsString(h));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -0,0 +1,120 @@
+package com.meinu.status.api.activity.tracker;
+
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/** Interval and focus state in Redis hashes, updated atomically by Lua scripts. */
+@Component
+@Profile("!embedded")
+public class RedisActivityTracker implements ActivityTracker {
+    private static final String OPEN_PREFIX = "activity:open:";
+    private static final String OPEN_INDEX = "activity:open-index";
+    private static final String COUNTERS_PREFIX = "activity:counters:";
+    private static final String CLOSED_QUEUE = "activity:closed";
+    private static final String FOCUS_STATE_PREFIX = "focus:session:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> EXTEND_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/activity_extend.lua"), List.class);
+    private static final RedisScript<Long> CLOSE_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/activity_close.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FOCUS_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/focus_session.lua"), List.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisActivityTracker(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public List<ActivityIntervalService.Deltas> extend(Long memberId, List<Beat> beats, long maxGapMs,
+            long ttlMs) {
+        List<String> args = new ArrayList<>(3 + beats.size() * 10);
+        args.add(String.valueOf(memberId));
+        args.add(String.valueOf(maxGapMs));
+        args.add(String.valueOf(ttlMs));
+        for (Beat b : beats) {
+            args.add(b.stateKey());
+            args.add(String.valueOf(b.atMs()));
+            args.add(String.valueOf(b.keystrokes()));
+            args.add(String.valueOf(b.sessionActiveMs()));
+            args.add(nz(b.workspaceRoot()));
+            args.add(nz(b.filePath()));
+            args.add(nz(b.languageId()));
+            args.add(nz(b.branch()));
+            args.add(b.idle() ? "1" : "0");
+            args.add(b.counterKey());
+        }
+        List<?> result = redis.execute(EXTEND_SCRIPT,
+                List.of(OPEN_PREFIX + memberId, CLOSED_QUEUE, OPEN_INDEX, COUNTERS_PREFIX + memberId),
+                args.toArray());
+        List<ActivityIntervalService.Deltas> deltas = new ArrayList<>(beats.size());
+        for (int i = 0; i < beats.size(); i++) {
+            if (result == null || result.size() < i * 2 + 2) {
+                deltas.add(ActivityIntervalService.Deltas.NONE);
+            } else {
+                deltas.add(new ActivityIntervalService.Deltas(((Number) result.get(i * 2)).longValue(),
+                        ((Number) result.get(i * 2 + 1)).longValue()));
+            }
+        }
+        return deltas;
+    }
+
+    @Override
+    public void closeStale(long cutoffMs, int limit) {
+        Set<String> stale = redis.opsForZSet().rangeByScore(OPEN_INDEX, Double.NEGATIVE_INFINITY, cutoffMs, 0,
+                limit);
+        if (stale == null) {
+            return;
+        }
+        for (String memberId : stale) {
+            redis.execute(CLOSE_SCRIPT, List.of(OPEN_PREFIX + memberId, CLOSED_QUEUE, OPEN_INDEX), memberId,
+                    String.valueOf(cutoffMs));
+        }
+    }
+
+    @Override
+    public List<String> popClosed(int limit) {
+        List<String> batch = redis.opsForList().leftPop(CLOSED_QUEUE, limit);
+        return batch != null ? batch : List.of();
+    }
+
+    @Override
+    public void requeueClosed(List<String> batch) {
+        redis.opsForList().rightPushAll(CLOSED_QUEUE, batch);
+    }
+
+    @Override
+    public List<FocusSession> advanceFocus(Long memberId, List<FocusBeat> beats, long maxGapMs, long ttlMs) {
+        List<String> args = new ArrayList<>(2 + beats.size() * 2);
+        args.add(String.valueOf(maxGapMs));
+        args.add(String.valueOf(ttlMs));
+        for (FocusBeat b : beats) {
+            args.add(String.valueOf(b.atMs()));
+            args.add(b.active() ? "1" : "0");
+        }
+        List<?> closed = redis.execute(FOCUS_SCRIPT, List.of(FOCUS_STATE_PREFIX + memberId), args.toArray());
+        List<FocusSession> sessions = new ArrayList<>();
+        if (closed != null) {
+            for (int i = 0; i + 1 < closed.size(); i += 2) {
+                sessions.add(new FocusSession(((Number) closed.get(i)).longValue(),
+                        ((Number) closed.get(i + 1)).longValue()));
+            }
+        }
+        return sessions;
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -3,6 +3,8 @@ package com.meinu.status.api.auth.controller;
 import com.meinu.status.api.auth.dto.request.LoginRequest;
 import com.meinu.status.api.auth.dto.request.SignupRequest;
 import com.meinu.status.api.auth.dto.response.AuthResponse;
+import com.meinu.status.api.auth.service.LoginAttemptLimiter;
+import com.meinu.status.api.auth.service.PasswordHasher;
 import com.meinu.status.api.member.entity.Member;
 import com.meinu.status.api.member.service.MemberService;
 import com.meinu.status.global.common.base.BaseException;
@@ -10,10 +12,11 @@ import com.meinu.status.global.common.base.BaseResponse;
 import com.meinu.status.global.common.base.BaseResponseStatus;
 import com.meinu.status.global.config.security.JwtProperties;
 import com.meinu.status.global.config.security.JwtService;
+import com.meinu.status.global.store.KeyValueStore;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
@@ -29,30 +32,46 @@ public class AuthController {
     private final MemberService memberService;
     private final JwtService jwtService;
     private final JwtProperties jwtProps;
-    private final StringRedisTemplate redis;
+    private final KeyValueStore store;
+    private final PasswordHasher passwordHasher;
+    private final LoginAttemptLimiter attemptLimiter;
 
     public AuthController(MemberService memberService, JwtService jwtService, JwtProperties jwtProps,
-            StringRedisTemplate redis) {
+            KeyValueStore store, PasswordHasher passwordHasher, LoginAttemptLimiter attemptLimiter) {
         this.memberService = memberService;
         this.jwtService = jwtService;
         this.jwtProps = jwtProps;
-        this.redis = redis;
+        this.store = store;
+        this.passwordHasher = passwordHasher;
+        this.attemptLimiter = attemptLimiter;
     }
 
     @PostMapping("/signup")
     public ResponseEntity<BaseResponse<AuthResponse>> signup(@Valid @RequestBody SignupRequest req,
-            HttpServletResponse res) {
-        Member m = memberService.signup(req.email(), req.password(), req.nickname());
+            HttpServletRequest request, HttpServletResponse res) {
+        attemptLimiter.check(request.getRemoteAddr(), null);
+        memberService.requireEmailAvailable(req.email());
+        String hash = passwordHasher.encode(req.password());
+        Member m = memberService.signup(req.email(), hash, req.nickname());
         return issueTokensAndRespond(m, res);
     }
 
     @PostMapping("/login")
     public ResponseEntity<BaseResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest req,
-            HttpServletResponse res) {
-        Member m = memberService.getByEmail(req.email());
-        if (!memberService.matches(req.password(), m.getPasswordHash())) {
+            HttpServletRequest request, HttpServletResponse res) {
+        attemptLimiter.check(request.getRemoteAddr(), req.email());
+        Member m;
+        try {
+            m = memberService.getByEmail(req.email());
+        } catch (BaseException e) {
+            attemptLimiter.recordFailure(req.email());
+            throw e;
+        }
+        if (!passwordHasher.matches(req.password(), m.getPasswordHash())) {
+            attemptLimiter.recordFailure(req.email());
             throw new BaseException(BaseResponseStatus.INVALID_CREDENTIALS);
         }
+        attemptLimiter.reset(req.email());
         return issueTokensAndRespond(m, res);
     }
 
@@ -65,7 +84,7 @@ public class AuthController {
         var claims = jwtService.parse(refreshToken);
         String email = claims.getSubject();
         String key = refreshKey(email);
-        String stored = redis.opsForValue().get(key);
+        String stored = store.get(key);
         if (!Objects.equals(stored, refreshToken)) {
             throw new BaseException(BaseResponseStatus.INVALID_TOKEN);
         }
@@ -80,7 +99,7 @@ public class AuthController {
             try {
                 var claims = jwtService.parse(refreshToken);
                 String email = claims.getSubject();
-                redis.delete(refreshKey(email));
+                store.delete(refreshKey(email));
             } catch (Exception ignored) {
                 // ignore parse errors during logout; cookie will be cleared regardless
             }
@@ -105,8 +124,8 @@ public class AuthController {
         claims.put("roles", m.getRoles());
         String access = jwtService.generateAccessToken(m.getEmail(), claims);
         String refresh = jwtService.generateRefreshToken(m.getEmail());
-        // store refresh in Redis
-        redis.opsForValue().set(refreshKey(m.getEmail()), refresh, Duration.ofSeconds(jwtProps.getRefreshExpSeconds()));
+        // store refresh token
+        store.set(refreshKey(m.getEmail()), refresh, Duration.ofSeconds(jwtProps.getRefreshExpSeconds()));
         // set cookie
         Cookie cookie = new Cookie("refreshToken", refresh);
         cookie.setHttpOnly(true);
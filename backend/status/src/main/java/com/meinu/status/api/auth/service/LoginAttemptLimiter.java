@@ -0,0 +1,90 @@
+package com.meinu.status.api.auth.service;
+
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Fixed-window limits checked before any password hashing: all auth attempts
+ * per client IP ({@code auth:ip:{ip}}) and failed logins per email
+ * ({@code auth:fail:{email}}). A successful login clears the email's count.
+ * When the store is unreachable the limits are skipped rather than locking
+ * everyone out.
+ */
+@Component
+public class LoginAttemptLimiter {
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptLimiter.class);
+
+    private final KeyValueStore store;
+
+    @Value("${app.auth.attempts.per-ip-max:30}")
+    private long perIpMax;
+
+    @Value("${app.auth.attempts.per-ip-window-seconds:60}")
+    private long perIpWindowSeconds;
+
+    @Value("${app.auth.attempts.per-email-max-failures:5}")
+    private long perEmailMaxFailures;
+
+    @Value("${app.auth.attempts.per-email-window-seconds:900}")
+    private long perEmailWindowSeconds;
+
+    public LoginAttemptLimiter(KeyValueStore store) {
+        this.store = store;
+    }
+
+    /** Counts an attempt from {@code ip} and rejects it if the IP or the email is over its limit. */
+    public void check(String ip, String email) {
+        try {
+            long ipAttempts = store.increment(ipKey(ip), Duration.ofSeconds(perIpWindowSeconds));
+            String failures = email == null ? null : store.get(emailKey(email));
+            if (ipAttempts > perIpMax || (failures != null && Long.parseLong(failures) >= perEmailMaxFailures)) {
+                if (log.isInfoEnabled()) {
+                    log.info("Auth attempt limited: ip={} ipAttempts={} emailFailures={}", ip, ipAttempts,
+                            failures);
+                }
+                throw new BaseException(BaseResponseStatus.TOO_MANY_LOGIN_ATTEMPTS);
+            }
+        } catch (DataAccessException e) {
+            warnUnavailable(e);
+        }
+    }
+
+    public void recordFailure(String email) {
+        try {
+            store.increment(emailKey(email), Duration.ofSeconds(perEmailWindowSeconds));
+        } catch (DataAccessException e) {
+            warnUnavailable(e);
+        }
+    }
+
+    public void reset(String email) {
+        try {
+            store.delete(emailKey(email));
+        } catch (DataAccessException e) {
+            warnUnavailable(e);
+        }
+    }
+
+    private static void warnUnavailable(DataAccessException e) {
+        if (log.isWarnEnabled()) {
+            log.warn("Auth attempt limits skipped, store unavailable: {}", e.getMessage());
+        }
+    }
+
+    private static String ipKey(String ip) {
+        return "auth:ip:" + ip;
+    }
+
+    private static String emailKey(String email) {
+        return "auth:fail:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,84 @@
+package com.meinu.status.api.ingest.dedup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Same window semantics as {@code ingest_dedup.lua}, with a BitSet per session. */
+@Component
+@Profile("embedded")
+public class InMemorySequenceDeduplicator implements SequenceDeduplicator {
+
+    private static final class Window {
+        final BitSet bits = new BitSet();
+        long head;
+        long touchedAtMs;
+    }
+
+    private final Map<String, Window> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.ingest.dedup.window:4096}")
+    private int window;
+
+    @Value("${app.ingest.dedup.ttl-ms:604800000}")
+    private long ttlMs;
+
+    @Override
+    public boolean[] markSeen(Long memberId, String sessionId, List<Long> seqs) {
+        boolean[] fresh = new boolean[seqs.size()];
+        sessions.compute(key(memberId, sessionId), (k, w) -> {
+            if (w == null) {
+                w = new Window();
+            }
+            for (int i = 0; i < fresh.length; i++) {
+                long seq = seqs.get(i);
+                if (seq > w.head) {
+                    if (seq - w.head >= window) {
+                        w.bits.clear();
+                    } else {
+                        for (long s = w.head + 1; s < seq; s++) {
+                            w.bits.clear(slot(s));
+                        }
+                    }
+                    w.bits.set(slot(seq));
+                    w.head = seq;
+                    fresh[i] = true;
+                } else if (seq > 0 && seq > w.head - window && !w.bits.get(slot(seq))) {
+                    w.bits.set(slot(seq));
+                    fresh[i] = true;
+                }
+            }
+            w.touchedAtMs = System.currentTimeMillis();
+            return w;
+        });
+        return fresh;
+    }
+
+    @Override
+    public void forget(Long memberId, String sessionId, List<Long> seqs) {
+        sessions.computeIfPresent(key(memberId, sessionId), (k, w) -> {
+            seqs.forEach(s -> w.bits.clear(slot(s)));
+            return w;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.embedded.expiry-sweep-ms:60000}")
+    void sweepExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        sessions.values().removeIf(w -> w.touchedAtMs < cutoff);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % window);
+    }
+
+    private static String key(Long memberId, String sessionId) {
+        return memberId + ":" + sessionId;
+    }
+}
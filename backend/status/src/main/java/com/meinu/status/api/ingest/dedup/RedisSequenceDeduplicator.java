@@ -0,0 +1,71 @@
+package com.meinu.status.api.ingest.dedup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One bitmap per session ({@code ingest:seen:{memberId}:{sessionId}}, bit
+ * {@code seq % window}) plus the highest number seen; a batch is checked in a
+ * single script call.
+ */
+@Component
+@Profile("!embedded")
+public class RedisSequenceDeduplicator implements SequenceDeduplicator {
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DEDUP_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/ingest_dedup.lua"), List.class);
+
+    private final StringRedisTemplate redis;
+
+    @Value("${app.ingest.dedup.window:4096}")
+    private int window;
+
+    @Value("${app.ingest.dedup.ttl-ms:604800000}")
+    private long ttlMs;
+
+    public RedisSequenceDeduplicator(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public boolean[] markSeen(Long memberId, String sessionId, List<Long> seqs) {
+        List<String> args = new ArrayList<>(seqs.size() + 2);
+        args.add(String.valueOf(window));
+        args.add(String.valueOf(ttlMs));
+        seqs.forEach(s -> args.add(String.valueOf(s)));
+        List<?> result = redis.execute(DEDUP_SCRIPT, List.of(bitsKey(memberId, sessionId),
+                headKey(memberId, sessionId)), args.toArray());
+        boolean[] fresh = new boolean[seqs.size()];
+        for (int i = 0; i < fresh.length; i++) {
+            fresh[i] = result == null || ((Number) result.get(i)).longValue() == 1;
+        }
+        return fresh;
+    }
+
+    @Override
+    public void forget(Long memberId, String sessionId, List<Long> seqs) {
+        String key = bitsKey(memberId, sessionId);
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            seqs.forEach(s -> conn.setBit(key, s % window, false));
+            return null;
+        });
+    }
+
+    private static String bitsKey(Long memberId, String sessionId) {
+        return "ingest:seen:" + memberId + ":" + sessionId;
+    }
+
+    private static String headKey(Long memberId, String sessionId) {
+        return "ingest:seen-head:" + memberId + ":" + sessionId;
+    }
+}
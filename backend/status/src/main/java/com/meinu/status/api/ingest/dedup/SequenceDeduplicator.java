@@ -0,0 +1,19 @@
+package com.meinu.status.api.ingest.dedup;
+
+import java.util.List;
+
+/**
+ * Remembers which sequence numbers of an extension session were already
+ * ingested, within a sliding window behind the highest number seen.
+ */
+public interface SequenceDeduplicator {
+
+    /**
+     * Marks the numbers as seen and reports which of them were new. Numbers
+     * older than the window count as duplicates.
+     */
+    boolean[] markSeen(Long memberId, String sessionId, List<Long> seqs);
+
+    /** Undoes {@link #markSeen} for heartbeats that could not be stored, so a retry is accepted. */
+    void forget(Long memberId, String sessionId, List<Long> seqs);
+}
@@ -0,0 +1,10 @@
+package com.meinu.status.api.ingest.dto.response;
+
+/**
+ * Pacing advice returned with every ingest. The extension should post again
+ * after {@code nextIntervalSeconds}; with {@code sendOnChange} it may skip
+ * samples in between whose state did not change, but posts a changed one right
+ * away.
+ */
+public record HeartbeatHint(int nextIntervalSeconds, boolean sendOnChange) {
+}
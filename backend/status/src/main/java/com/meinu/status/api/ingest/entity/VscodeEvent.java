@@ -17,11 +17,16 @@ import java.time.Instant;
 @Entity
 @Table(name = "vscode_events", indexes = {
         @Index(name = "idx_vscode_events_member", columnList = "member_id"),
-        @Index(name = "idx_vscode_events_created", columnList = "created_at")
+        @Index(name = "idx_vscode_events_created", columnList = "created_at"),
+        @Index(name = "idx_vscode_events_member_at", columnList = "member_id, event_at"),
+        @Index(name = "idx_vscode_events_member_lang_at", columnList = "member_id, language_id, event_at"),
+        @Index(name = "idx_vscode_events_member_ws_at", columnList = "member_id, workspace_id, event_at"),
+        @Index(name = "idx_vscode_events_member_branch_at", columnList = "member_id, branch, event_at"),
+        @Index(name = "idx_vscode_events_member_file", columnList = "member_id, file_path_hash")
 })
 public class VscodeEvent {
+    // assigned by TsidGenerator (time-ordered); older rows keep their auto-increment ids
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -33,6 +38,39 @@ public class VscodeEvent {
     @Column(name = "payload", nullable = false, columnDefinition = "LONGTEXT")
     private String payload; // raw JSON string for flexibility
 
+    // Fields extracted from the payload at ingest (or by the backfill job);
+    // event_at is null only for rows the backfill has not reached yet
+    @Column(name = "event_at")
+    private Instant eventAt;
+
+    @Column(name = "language_id", length = 64)
+    private String languageId;
+
+    @Column(name = "branch", length = 191)
+    private String branch;
+
+    // dictionary-encoded, see Workspace
+    @Column(name = "workspace_id")
+    private Long workspaceId;
+
+    // 64-bit hash of the file path; the path itself stays in the payload
+    @Column(name = "file_path_hash")
+    private Long filePathHash;
+
+    @Column(name = "idle")
+    private Boolean idle;
+
+    // cumulative counters as sent by the extension (per editor session)
+    @Column(name = "session_active_ms")
+    private Long sessionActiveMs;
+
+    @Column(name = "keystrokes")
+    private Long keystrokes;
+
+    // extension session the counters belong to; null for clients that send none
+    @Column(name = "session_id", length = 64)
+    private String sessionId;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private Instant createdAt;
@@ -0,0 +1,31 @@
+package com.meinu.status.api.ingest.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dictionary of workspace roots referenced by {@code vscode_events.workspace_id},
+ * keyed by a 64-bit hash of the path.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "workspaces", indexes = {
+        @Index(name = "uk_workspaces_path_hash", columnList = "path_hash", unique = true)
+})
+public class Workspace {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "path_hash", nullable = false)
+    private Long pathHash;
+
+    @Column(name = "path", nullable = false, length = 1024)
+    private String path;
+}
@@ -0,0 +1,28 @@
+package com.meinu.status.api.ingest.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class IngestRateLimitConfig {
+
+    @Bean
+    public IngestRateLimitFilter ingestRateLimitFilter(IngestRateLimitProperties props, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        return new IngestRateLimitFilter(props, objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IngestRateLimitFilter> ingestRateLimitFilterRegistration(
+            IngestRateLimitFilter filter) {
+        FilterRegistrationBean<IngestRateLimitFilter> bean = new FilterRegistrationBean<>(filter);
+        bean.addUrlPatterns("/api/ingest/*");
+        // right after CORS, ahead of the security chain
+        bean.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return bean;
+    }
+}
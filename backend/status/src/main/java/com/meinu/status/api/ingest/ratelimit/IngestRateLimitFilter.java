@@ -0,0 +1,132 @@
+package com.meinu.status.api.ingest.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.global.common.base.BaseResponse;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guards the ingest endpoints before any DB or Redis work: a per-api-key token
+ * bucket answers floods with 429, and a global concurrency gate answers with
+ * 503 once enough requests are in flight to saturate the connection pools.
+ * Both responses carry Retry-After.
+ *
+ * <p>Buckets are keyed by a hash of the api key from the very first request,
+ * so clients behind one NAT address never share a bucket, and a key's bucket
+ * does not change once the key is validated. The map holds a fixed-size hash
+ * per key and drops buckets once they have refilled, so made-up keys cost a
+ * bucket for a few seconds each. Only requests without a key are limited by
+ * the client address.
+ */
+public class IngestRateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(IngestRateLimitFilter.class);
+
+    private final IngestRateLimitProperties props;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRateLimiter perKeyLimiter;
+    private final Semaphore inFlight;
+    private final Counter rejectedByRate;
+    private final Counter rejectedByConcurrency;
+
+    public IngestRateLimitFilter(IngestRateLimitProperties props, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.perKeyLimiter = new TokenBucketRateLimiter(props.getPermitsPerSecond(), props.getBurst());
+        this.inFlight = new Semaphore(props.getMaxConcurrent());
+        this.rejectedByRate = Counter.builder("ingest.rejected").tag("reason", "rate-limit")
+                .register(meterRegistry);
+        this.rejectedByConcurrency = Counter.builder("ingest.rejected").tag("reason", "concurrency")
+                .register(meterRegistry);
+        Gauge.builder("ingest.inflight", this, IngestRateLimitFilter::inFlightCount).register(meterRegistry);
+        Gauge.builder("ingest.concurrency.limit", props, IngestRateLimitProperties::getMaxConcurrent)
+                .register(meterRegistry);
+        Gauge.builder("ingest.ratelimit.keys", perKeyLimiter, TokenBucketRateLimiter::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !props.isEnabled() || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String apiKey = request.getHeader("x-api-key");
+        String bucket = StringUtils.hasText(apiKey) ? "key:" + HexFormat.of().toHexDigits(EventFields.hash64(apiKey))
+                : "addr:" + request.getRemoteAddr();
+        long waitNanos = perKeyLimiter.tryAcquire(bucket);
+        if (waitNanos > 0) {
+            rejectedByRate.increment();
+            reject(response, BaseResponseStatus.TOO_MANY_REQUESTS, waitNanos);
+            return;
+        }
+        if (!acquireSlot()) {
+            rejectedByConcurrency.increment();
+            if (log.isWarnEnabled()) {
+                log.warn("Ingest shed: inFlight={} limit={}", inFlightCount(), props.getMaxConcurrent());
+            }
+            reject(response, BaseResponseStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /** Fraction of the concurrency limit currently in use, from 0.0 to 1.0. */
+    public double loadFactor() {
+        return (double) inFlightCount() / props.getMaxConcurrent();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        perKeyLimiter.evictIdle();
+    }
+
+    private int inFlightCount() {
+        return props.getMaxConcurrent() - inFlight.availablePermits();
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return inFlight.tryAcquire(props.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response, BaseResponseStatus status, long waitNanos)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(status.getCode());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getWriter(), BaseResponse.of(status));
+    }
+}
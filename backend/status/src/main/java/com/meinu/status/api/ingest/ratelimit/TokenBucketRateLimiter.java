@@ -0,0 +1,59 @@
+package com.meinu.status.api.ingest.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, implemented as GCRA: each bucket is a single
+ * "theoretical arrival time" updated with one CAS, so there is no refill thread
+ * and no per-key lock. Buckets live in a {@link ConcurrentHashMap}, whose bins
+ * already stripe contention across keys.
+ */
+public class TokenBucketRateLimiter {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0 and burst >= 1");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    }
+
+    /**
+     * Takes one permit for the key.
+     *
+     * @return 0 if the request is allowed, otherwise the nanoseconds to wait
+     *         before a permit becomes available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong tat = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long base = current - now < 0 ? now : current;
+            long ahead = base - now;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (tat.compareAndSet(current, base + emissionIntervalNanos)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have fully refilled; they are indistinguishable from a
+     * fresh bucket, so removing them never grants extra permits beyond a race.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(e -> e.getValue().get() - now < 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
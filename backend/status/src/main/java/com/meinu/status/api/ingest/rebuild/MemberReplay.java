@@ -0,0 +1,91 @@
+package com.meinu.status.api.ingest.rebuild;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One member's events folded in ingest (id) order into what ingest would have
+ * left in Redis: daily keystroke and active-time totals, the same totals per
+ * team counting only events since the member joined it, and the newest event.
+ * Deltas between the cumulative counters follow the activity tracker: they are
+ * taken against the previous event with the same counter key (the extension's
+ * session), a drop means the extension restarted and the sample counts in
+ * full, and a key's last values are forgotten {@code counterTtlMs} after its
+ * event.
+ */
+final class MemberReplay {
+    private final long counterTtlMs;
+    private final ZoneId zone;
+    private final Map<Long, Long> joinedAtMsByTeam;
+    private final Map<String, long[]> lastByKey = new HashMap<>(); // {keystrokes, activeMs, atMs}
+    private final Map<LocalDate, long[]> perDay = new TreeMap<>();
+    private final Map<Long, Map<LocalDate, long[]>> perTeamDay = new HashMap<>();
+    private long newestId;
+    private long newestAtMs = Long.MIN_VALUE;
+    private long events;
+
+    MemberReplay(long counterTtlMs, ZoneId zone, Map<Long, Instant> joinedAtByTeam) {
+        this.counterTtlMs = counterTtlMs;
+        this.zone = zone;
+        this.joinedAtMsByTeam = new HashMap<>();
+        joinedAtByTeam.forEach((teamId, at) -> joinedAtMsByTeam.put(teamId, at == null ? 0L : at.toEpochMilli()));
+    }
+
+    void accept(long id, long atMs, String counterKey, long keystrokes, long activeMs) {
+        events++;
+        long[] prev = lastByKey.get(counterKey);
+        long lastAt = atMs;
+        if (prev != null && atMs - prev[2] <= counterTtlMs) {
+            long dks = keystrokes >= prev[0] ? keystrokes - prev[0] : keystrokes;
+            long dactive = activeMs >= prev[1] ? activeMs - prev[1] : activeMs;
+            lastAt = Math.max(lastAt, prev[2]);
+            if (dks > 0 || dactive > 0) {
+                LocalDate day = Instant.ofEpochMilli(atMs).atZone(zone).toLocalDate();
+                add(perDay, day, dks, dactive);
+                joinedAtMsByTeam.forEach((teamId, joinedAtMs) -> {
+                    if (atMs >= joinedAtMs) {
+                        add(perTeamDay.computeIfAbsent(teamId, t -> new TreeMap<>()), day, dks, dactive);
+                    }
+                });
+            }
+        }
+        lastByKey.put(counterKey, new long[] {keystrokes, activeMs, lastAt});
+        // ingest keeps the latest timestamp; the later event wins ties
+        if (atMs >= newestAtMs) {
+            newestAtMs = atMs;
+            newestId = id;
+        }
+    }
+
+    private static void add(Map<LocalDate, long[]> sums, LocalDate day, long keystrokes, long activeMs) {
+        long[] acc = sums.computeIfAbsent(day, d -> new long[2]);
+        acc[0] += keystrokes;
+        acc[1] += activeMs;
+    }
+
+    /** Keystrokes and active ms per day, in day order. */
+    Map<LocalDate, long[]> perDay() {
+        return perDay;
+    }
+
+    /** {@link #perDay()} per current team, from the time the member joined it. */
+    Map<Long, Map<LocalDate, long[]>> perTeamDay() {
+        return perTeamDay;
+    }
+
+    long newestId() {
+        return newestId;
+    }
+
+    long newestAtMs() {
+        return newestAtMs;
+    }
+
+    long events() {
+        return events;
+    }
+}
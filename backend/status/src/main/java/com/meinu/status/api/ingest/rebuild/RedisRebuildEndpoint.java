@@ -0,0 +1,41 @@
+package com.meinu.status.api.ingest.rebuild;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/rebuild}: GET shows the progress of this node's current or
+ * last Redis rebuild, POST starts one (resuming from the checkpoint if a run
+ * was interrupted). Not exposed unless added to
+ * {@code management.endpoints.web.exposure.include}; callers need
+ * {@code ROLE_ADMIN} (see the security config's actuator rule).
+ */
+@Component
+@Profile("!embedded")
+@Endpoint(id = "rebuild")
+public class RedisRebuildEndpoint {
+    private final RedisRebuildService rebuildService;
+
+    public RedisRebuildEndpoint(RedisRebuildService rebuildService) {
+        this.rebuildService = rebuildService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> progress() {
+        Map<String, Object> progress = rebuildService.progress();
+        return progress != null ? progress : Map.of("running", rebuildService.running());
+    }
+
+    @WriteOperation
+    public Map<String, Object> start() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("started", rebuildService.start());
+        return out;
+    }
+}
@@ -0,0 +1,501 @@
+package com.meinu.status.api.ingest.rebuild;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.api.presence.service.OfflineDetectionService;
+import com.meinu.status.api.presence.service.PresenceService;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.team.service.LeaderboardService;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the Redis state derived from heartbeats out of vscode_events after
+ * Redis was flushed or replaced: latest snapshots, the daily
+ * {@code metrics:*} counters, team leaderboards and presence.
+ *
+ * <p>Members are split into chunks of consecutive ids that are replayed in
+ * parallel; each member's events are streamed in id order with keyset pages
+ * and folded by {@link MemberReplay}, and a chunk's writes go out in one
+ * pipeline. Every write is idempotent (counters and scores are set, snapshots
+ * only created where none exists), so the job can be stopped and rerun at any
+ * point. Finished chunks advance a checkpoint in Redis that a restarted run
+ * resumes from.
+ *
+ * <p>A marker key without expiry records that Redis holds (or was rebuilt to)
+ * the state of the event log. Nodes check it at startup and periodically: it
+ * going missing after they saw it, an interrupted run's checkpoint, or a Redis
+ * without any snapshot or counter starts a run. A Redis that already has data
+ * but no marker, i.e. the first deploy of this job, only gets the marker.
+ * One node runs at a time: the run holds {@code rebuild:lock} under a token of
+ * its own, renews it with every finished chunk and stops writing once it is
+ * held by someone else.
+ *
+ * <p>Counters of a member who sends heartbeats while its own chunk is being
+ * written can lose the increments made between its select and its write.
+ * Refresh tokens are not in the event log and cannot be rebuilt; those users
+ * sign in again.
+ */
+@Service
+@Profile("!embedded")
+public class RedisRebuildService {
+    private static final Logger log = LoggerFactory.getLogger(RedisRebuildService.class);
+    private static final String DONE_KEY = "rebuild:done";
+    private static final String CHECKPOINT_KEY = "rebuild:checkpoint";
+    private static final String LOCK_KEY = "rebuild:lock";
+    private static final Duration CHECKPOINT_TTL = Duration.ofDays(7);
+    private static final String SELECT_EVENTS = "select id, event_at, keystrokes, session_active_ms, created_at,"
+            + " case when event_at is null then payload end,"
+            + " json_unquote(json_extract(payload, '$.sessionId')),"
+            + " json_unquote(json_extract(payload, '$.workspaceRoot'))"
+            + " from vscode_events where member_id = ? and id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final KeyValueStore store;
+    private final StatusSnapshotService snapshotService;
+    private final LeaderboardService leaderboardService;
+    private final PresenceService presenceService;
+    private final OfflineDetectionService offlineDetectionService;
+    private final TeamService teamService;
+    private final ActivityIntervalService activityIntervalService;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean markerSeen;
+    private volatile Progress progress;
+
+    @Value("${app.ingest.rebuild.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingest.rebuild.members-per-chunk:50}")
+    private int membersPerChunk;
+
+    @Value("${app.ingest.rebuild.page-size:5000}")
+    private int pageSize;
+
+    @Value("${app.ingest.rebuild.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.ingest.rebuild.progress-interval-ms:10000}")
+    private long progressIntervalMs;
+
+    @Value("${app.ingest.rebuild.lock-ttl-ms:600000}")
+    private long lockTtlMs;
+
+    @Value("${app.ingest.snapshot-ttl-seconds:86400}")
+    private long snapshotTtlSeconds;
+
+    @Value("${app.presence.retention-ms:604800000}")
+    private long presenceRetentionMs;
+
+    @Value("${app.presence.offline.enabled:true}")
+    private boolean offlineEnabled;
+
+    @Value("${app.presence.offline.max-grace-ms:900000}")
+    private long maxGraceMs;
+
+    /** Counters of the current or last run on this node. */
+    static final class Progress {
+        final long startedAtMs = System.currentTimeMillis();
+        final long resumedAfter;
+        final int members;
+        final AtomicLong membersDone = new AtomicLong();
+        final AtomicLong events = new AtomicLong();
+        final AtomicLong failedChunks = new AtomicLong();
+        final String lockToken;
+        volatile boolean lockLost;
+        volatile long checkpoint;
+        volatile long finishedAtMs;
+        volatile long loggedAtMs = startedAtMs;
+
+        Progress(long resumedAfter, int members, String lockToken) {
+            this.resumedAfter = resumedAfter;
+            this.members = members;
+            this.lockToken = lockToken;
+            this.checkpoint = resumedAfter;
+        }
+    }
+
+    private record Chunk(int index, List<Long> memberIds) {
+    }
+
+    private record Row(long id, Timestamp eventAt, long keystrokes, long activeMs, Timestamp createdAt,
+            String payload, String sessionId, String workspaceRoot) {
+    }
+
+    public RedisRebuildService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, KeyValueStore store,
+            StatusSnapshotService snapshotService, LeaderboardService leaderboardService,
+            PresenceService presenceService, OfflineDetectionService offlineDetectionService,
+            TeamService teamService, ActivityIntervalService activityIntervalService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.store = store;
+        this.snapshotService = snapshotService;
+        this.leaderboardService = leaderboardService;
+        this.presenceService = presenceService;
+        this.offlineDetectionService = offlineDetectionService;
+        this.teamService = teamService;
+        this.activityIntervalService = activityIntervalService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        check();
+    }
+
+    /** Starts a run if Redis lost its state; see the class comment. */
+    @Scheduled(fixedDelayString = "${app.ingest.rebuild.check-interval-ms:60000}",
+            initialDelayString = "${app.ingest.rebuild.check-interval-ms:60000}")
+    public void check() {
+        if (!enabled || running.get()) {
+            return;
+        }
+        try {
+            if (store.get(DONE_KEY) != null) {
+                markerSeen = true;
+                return;
+            }
+            boolean cold = markerSeen || store.get(CHECKPOINT_KEY) != null
+                    || (!store.hasKeyWithPrefix("status:snap:") && !store.hasKeyWithPrefix("metrics:"));
+            if (!cold) {
+                // Redis kept its data from before this job existed; later losses are caught by the marker
+                store.pipeline(pipeline -> pipeline.set(DONE_KEY, Instant.now().toString()));
+                markerSeen = true;
+                if (log.isInfoEnabled()) {
+                    log.info("Rebuild marker set, Redis already holds status data");
+                }
+                return;
+            }
+            if (start() && log.isInfoEnabled()) {
+                log.info("Rebuild started: Redis lost its state");
+            }
+        } catch (RuntimeException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Rebuild check skipped, Redis unavailable: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Starts a run on a background thread; false if one is already running on this or another node. */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        String token = UUID.randomUUID().toString();
+        boolean locked = false;
+        try {
+            locked = store.setIfAbsent(LOCK_KEY, token, Duration.ofMillis(lockTtlMs));
+        } finally {
+            if (!locked) {
+                running.set(false);
+            }
+        }
+        if (!locked) {
+            return false;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                rebuild(token);
+            } catch (RuntimeException e) {
+                if (log.isErrorEnabled()) {
+                    log.error("Rebuild failed: {}", e.getMessage(), e);
+                }
+            } finally {
+                try {
+                    store.deleteIfEquals(LOCK_KEY, token);
+                } finally {
+                    running.set(false);
+                }
+            }
+        }, "redis-rebuild");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public boolean running() {
+        return running.get();
+    }
+
+    /** The current or last run on this node, or null if there was none. */
+    public Map<String, Object> progress() {
+        Progress p = progress;
+        if (p == null) {
+            return null;
+        }
+        long now = p.finishedAtMs > 0 ? p.finishedAtMs : System.currentTimeMillis();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("running", p.finishedAtMs == 0);
+        out.put("startedAt", Instant.ofEpochMilli(p.startedAtMs).toString());
+        out.put("resumedAfterMemberId", p.resumedAfter);
+        out.put("checkpointMemberId", p.checkpoint);
+        out.put("members", p.members);
+        out.put("membersDone", p.membersDone.get());
+        out.put("events", p.events.get());
+        out.put("failedChunks", p.failedChunks.get());
+        out.put("elapsedMs", now - p.startedAtMs);
+        Long etaMs = etaMs(p, now);
+        if (etaMs != null) {
+            out.put("etaMs", etaMs);
+        }
+        return out;
+    }
+
+    private void rebuild(String lockToken) {
+        String saved = store.get(CHECKPOINT_KEY);
+        long after = saved == null ? 0L : Long.parseLong(saved);
+        List<Long> memberIds = jdbcTemplate.queryForList("select id from members where id > ? order by id",
+                Long.class, after);
+        List<Chunk> chunks = new ArrayList<>();
+        for (int from = 0; from < memberIds.size(); from += membersPerChunk) {
+            chunks.add(new Chunk(chunks.size(),
+                    memberIds.subList(from, Math.min(memberIds.size(), from + membersPerChunk))));
+        }
+        Progress p = new Progress(after, memberIds.size(), lockToken);
+        progress = p;
+        if (log.isInfoEnabled()) {
+            log.info("Rebuild start: members={} afterMemberId={} chunks={} parallelism={}", memberIds.size(),
+                    after, chunks.size(), parallelism);
+        }
+        boolean[] finished = new boolean[chunks.size()];
+        int[] next = new int[1];
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                futures.add(pool.submit(() -> {
+                    if (p.lockLost) {
+                        throw new IllegalStateException("rebuild lock taken over");
+                    }
+                    rebuildChunk(chunk, p);
+                    advance(chunks, finished, next, chunk.index(), p);
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    p.failedChunks.incrementAndGet();
+                    if (log.isWarnEnabled()) {
+                        log.warn("Rebuild chunk failed: {}", e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        p.finishedAtMs = System.currentTimeMillis();
+        if (p.failedChunks.get() == 0) {
+            store.pipeline(pipeline -> pipeline.set(DONE_KEY, Instant.now().toString()));
+            store.delete(CHECKPOINT_KEY);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Rebuild done: members={} events={} failedChunks={} elapsedMs={}", p.membersDone.get(),
+                    p.events.get(), p.failedChunks.get(), p.finishedAtMs - p.startedAtMs);
+        }
+    }
+
+    /**
+     * Renews the lock and moves the checkpoint past every chunk finished
+     * without a gap before it. A lock that expired and was taken in between
+     * stops the run: the chunk counts as failed and the checkpoint is left to
+     * the new holder.
+     */
+    private synchronized void advance(List<Chunk> chunks, boolean[] finished, int[] next, int index, Progress p) {
+        if (p.lockLost || !store.expireIfEquals(LOCK_KEY, p.lockToken, Duration.ofMillis(lockTtlMs))) {
+            if (!p.lockLost && log.isWarnEnabled()) {
+                log.warn("Rebuild stopping: lock expired and was taken over");
+            }
+            p.lockLost = true;
+            throw new IllegalStateException("rebuild lock taken over");
+        }
+        finished[index] = true;
+        int before = next[0];
+        while (next[0] < finished.length && finished[next[0]]) {
+            next[0]++;
+        }
+        if (next[0] > before) {
+            List<Long> ids = chunks.get(next[0] - 1).memberIds();
+            p.checkpoint = ids.get(ids.size() - 1);
+            store.set(CHECKPOINT_KEY, String.valueOf(p.checkpoint), CHECKPOINT_TTL);
+        }
+        long now = System.currentTimeMillis();
+        if (now - p.loggedAtMs >= progressIntervalMs && log.isInfoEnabled()) {
+            p.loggedAtMs = now;
+            log.info("Rebuild progress: members={}/{} events={} checkpoint={} etaMs={}", p.membersDone.get(),
+                    p.members, p.events.get(), p.checkpoint, etaMs(p, now));
+        }
+    }
+
+    private void rebuildChunk(Chunk chunk, Progress p) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        long now = System.currentTimeMillis();
+        Map<Long, MemberReplay> replays = new LinkedHashMap<>();
+        for (Long memberId : chunk.memberIds()) {
+            MemberReplay replay = replay(memberId, teamService.joinedAtOf(memberId), utc);
+            if (replay.events() > 0) {
+                replays.put(memberId, replay);
+            }
+            p.events.addAndGet(replay.events());
+        }
+        Map<Long, String> newest = newestPayloads(replays, now);
+        Map<Long, String> versions = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now();
+        store.pipeline(pipeline -> replays.forEach((memberId, replay) -> {
+            replay.perDay().forEach((day, sums) -> {
+                if (sums[0] > 0) {
+                    pipeline.set(String.format("metrics:keystrokes:%d:%s", memberId, day), String.valueOf(sums[0]));
+                }
+                if (sums[1] > 0) {
+                    pipeline.set(String.format("metrics:activeMs:%d:%s", memberId, day), String.valueOf(sums[1]));
+                }
+            });
+            leaderboardService.restore(pipeline, memberId, replay.perTeamDay(), today);
+            String json = newest.get(memberId);
+            if (json != null) {
+                restoreSnapshot(pipeline, memberId, json, replay, now, versions);
+            }
+        }));
+        // recently active members are watched for going offline as if their last heartbeat had just arrived here
+        versions.forEach((memberId, version) ->
+                offlineDetectionService.heartbeat(memberId, version, replays.get(memberId).newestAtMs(), 0L));
+        p.membersDone.addAndGet(chunk.memberIds().size());
+    }
+
+    private void restoreSnapshot(KeyValueStore.Pipeline pipeline, Long memberId, String json, MemberReplay replay,
+            long now, Map<Long, String> versions) {
+        Map<String, Object> payload = parse(json);
+        if (payload.isEmpty()) {
+            return;
+        }
+        long atMs = replay.newestAtMs();
+        boolean offline = offlineEnabled && now - atMs > maxGraceMs;
+        try {
+            String version = snapshotService.restoreLatest(pipeline, memberId, json, payload,
+                    offline ? Instant.ofEpochMilli(atMs + maxGraceMs) : null);
+            if (!offline && offlineEnabled) {
+                offlineDetectionService.claim(pipeline, memberId);
+                versions.put(memberId, version);
+            }
+        } catch (JsonProcessingException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Rebuild skipped snapshot: memberId={} cause={}", memberId, e.getMessage());
+            }
+            return;
+        }
+        if (now - atMs <= presenceRetentionMs) {
+            presenceService.touch(pipeline, memberId, Boolean.TRUE.equals(payload.get("isIdle")), atMs);
+        }
+    }
+
+    private MemberReplay replay(Long memberId, Map<Long, Instant> joinedAtByTeam, Calendar utc) {
+        MemberReplay replay = new MemberReplay(activityIntervalService.counterTtlMs(), ZoneId.systemDefault(),
+                joinedAtByTeam);
+        long afterId = 0;
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(SELECT_EVENTS,
+                    (rs, i) -> new Row(rs.getLong(1), rs.getTimestamp(2, utc), rs.getLong(3), rs.getLong(4),
+                            rs.getTimestamp(5, utc), rs.getString(6), jsonText(rs.getString(7)),
+                            jsonText(rs.getString(8))),
+                    memberId, afterId, pageSize);
+            for (Row row : rows) {
+                if (row.eventAt() != null) {
+                    replay.accept(row.id(), row.eventAt().getTime(),
+                            ActivityIntervalService.counterKey(row.sessionId(), nz(row.workspaceRoot())),
+                            row.keystrokes(), row.activeMs());
+                } else {
+                    // not reached by the column backfill yet
+                    Instant createdAt = row.createdAt() != null ? row.createdAt().toInstant() : Instant.now();
+                    Map<String, Object> body = parse(row.payload());
+                    EventFields f = EventFields.from(body, createdAt);
+                    Object root = body.get("workspaceRoot");
+                    String counterKey = ActivityIntervalService.counterKey(body.get("sessionId"),
+                            root == null ? "" : root.toString());
+                    replay.accept(row.id(), f.eventAt().toEpochMilli(), counterKey, orZero(f.keystrokes()),
+                            orZero(f.sessionActiveMs()));
+                }
+            }
+            if (rows.size() < pageSize) {
+                return replay;
+            }
+            afterId = rows.get(rows.size() - 1).id();
+        }
+    }
+
+    /** Payloads of the newest events of members whose snapshot would not have expired yet. */
+    private Map<Long, String> newestPayloads(Map<Long, MemberReplay> replays, long now) {
+        List<Long> ids = replays.values().stream()
+                .filter(r -> now - r.newestAtMs() < snapshotTtlSeconds * 1000)
+                .map(MemberReplay::newestId)
+                .toList();
+        Map<Long, String> out = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return out;
+        }
+        String in = String.join(",", ids.stream().map(id -> "?").toList());
+        jdbcTemplate.query("select member_id, payload from vscode_events where id in (" + in + ")",
+                rs -> {
+                    out.put(rs.getLong(1), rs.getString(2));
+                }, ids.toArray());
+        return out;
+    }
+
+    private static Long etaMs(Progress p, long now) {
+        long done = p.membersDone.get();
+        if (done == 0 || p.finishedAtMs > 0) {
+            return p.finishedAtMs > 0 ? 0L : null;
+        }
+        return (now - p.startedAtMs) * (p.members - done) / done;
+    }
+
+    // json_unquote turns a JSON null into the text "null"
+    private static String jsonText(String value) {
+        return value == null || "null".equals(value) ? null : value;
+    }
+
+    private static String nz(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private Map<String, Object> parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+}
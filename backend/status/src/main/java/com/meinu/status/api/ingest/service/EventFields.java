@@ -0,0 +1,63 @@
+package com.meinu.status.api.ingest.service;
+
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Columns extracted from a heartbeat payload. Shared by ingest and the
+ * backfill of rows stored before the columns existed.
+ */
+public record EventFields(Instant eventAt, String languageId, String branch, String workspaceRoot,
+        Long filePathHash, Boolean idle, Long sessionActiveMs, Long keystrokes, String sessionId) {
+
+    private static final int LANGUAGE_MAX = 64;
+    private static final int BRANCH_MAX = 191;
+    private static final int SESSION_MAX = 64;
+
+    /** @param receivedAt server time; client timestamps are clamped to it */
+    public static EventFields from(Map<String, Object> body, Instant receivedAt) {
+        long at = ActivityIntervalService.timestampMs(body.get("timestamp"), receivedAt.toEpochMilli());
+        String filePath = text(body.get("filePath"));
+        return new EventFields(
+                Instant.ofEpochMilli(at),
+                truncate(text(body.get("languageId")), LANGUAGE_MAX),
+                truncate(text(body.get("branch")), BRANCH_MAX),
+                text(body.get("workspaceRoot")),
+                filePath == null ? null : hash64(filePath),
+                body.get("isIdle") instanceof Boolean b ? b : null,
+                number(body.get("sessionActiveMs")),
+                number(body.get("keystrokes")),
+                truncate(text(body.get("sessionId")), SESSION_MAX));
+    }
+
+    /** First 8 bytes of SHA-256; stable across JVMs, unlike String.hashCode. */
+    public static long hash64(String value) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (d[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String text(Object value) {
+        return value instanceof String s && !s.isBlank() ? s : null;
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+
+    private static Long number(Object value) {
+        return value instanceof Number n ? n.longValue() : null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.meinu.status.api.ingest.service;
+
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Picks the heartbeats of a batch that go into the event log. The activity
+ * intervals already record how long each state lasted, so a heartbeat that
+ * only extends the open interval is left out. Kept are heartbeats that carry
+ * code (code search points at their rows), change the interval state or the
+ * extension session, or are the first of a checkpoint period. The checkpoint
+ * bounds how much counter growth a breakdown attributes to the next stored
+ * row, and how old the newest stored row can be when snapshots are restored.
+ */
+public final class EventSampler {
+
+    private EventSampler() {
+    }
+
+    /**
+     * @param previous     the heartbeat before the batch (the stored snapshot), or null
+     * @param checkpointMs period of which the first heartbeat is always kept; 0 or less keeps all
+     * @return per heartbeat, in input order, whether it is stored
+     */
+    public static boolean[] stored(Map<String, Object> previous, List<Map<String, Object>> bodies,
+            long checkpointMs, long now) {
+        boolean[] stored = new boolean[bodies.size()];
+        Map<String, Object> before = previous;
+        for (int i = 0; i < bodies.size(); i++) {
+            Map<String, Object> body = bodies.get(i);
+            stored[i] = checkpointMs <= 0 || before == null || body.get("code") instanceof String
+                    || !ActivityIntervalService.stateKey(body).equals(ActivityIntervalService.stateKey(before))
+                    || !Objects.equals(body.get("sessionId"), before.get("sessionId"))
+                    || period(body, checkpointMs, now) != period(before, checkpointMs, now);
+            before = body;
+        }
+        return stored;
+    }
+
+    private static long period(Map<String, Object> body, long checkpointMs, long now) {
+        return Math.floorDiv(ActivityIntervalService.timestampMs(body.get("timestamp"), now), checkpointMs);
+    }
+}
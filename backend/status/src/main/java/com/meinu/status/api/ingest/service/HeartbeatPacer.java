@@ -0,0 +1,61 @@
+package com.meinu.status.api.ingest.service;
+
+import com.meinu.status.api.ingest.dto.response.HeartbeatHint;
+import com.meinu.status.api.ingest.ratelimit.IngestRateLimitFilter;
+import com.meinu.status.api.status.watch.StatusWatchRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Picks the next heartbeat interval: near real time while someone watches an
+ * active member, backing off to minutes for idle, unwatched editors, and
+ * stretched further when the ingest concurrency gate fills up.
+ */
+@Service
+public class HeartbeatPacer {
+    private final StatusWatchRegistry watchRegistry;
+    private final IngestRateLimitFilter rateLimitFilter;
+
+    @Value("${app.ingest.pacing.watched-active-seconds:10}")
+    private int watchedActiveSeconds;
+
+    @Value("${app.ingest.pacing.watched-idle-seconds:30}")
+    private int watchedIdleSeconds;
+
+    @Value("${app.ingest.pacing.unwatched-active-seconds:60}")
+    private int unwatchedActiveSeconds;
+
+    @Value("${app.ingest.pacing.unwatched-idle-seconds:180}")
+    private int unwatchedIdleSeconds;
+
+    @Value("${app.ingest.pacing.max-interval-seconds:270}")
+    private int maxIntervalSeconds;
+
+    // above this load factor intervals grow linearly up to max-load-multiplier at full load
+    @Value("${app.ingest.pacing.load-threshold:0.5}")
+    private double loadThreshold;
+
+    @Value("${app.ingest.pacing.max-load-multiplier:4}")
+    private double maxLoadMultiplier;
+
+    public HeartbeatPacer(StatusWatchRegistry watchRegistry, IngestRateLimitFilter rateLimitFilter) {
+        this.watchRegistry = watchRegistry;
+        this.rateLimitFilter = rateLimitFilter;
+    }
+
+    public HeartbeatHint hint(Long memberId, boolean idle) {
+        boolean watched = watchRegistry.isWatched(memberId);
+        int base;
+        if (watched) {
+            base = idle ? watchedIdleSeconds : watchedActiveSeconds;
+        } else {
+            base = idle ? unwatchedIdleSeconds : unwatchedActiveSeconds;
+        }
+        double load = rateLimitFilter.loadFactor();
+        double multiplier = load <= loadThreshold ? 1.0
+                : 1.0 + (maxLoadMultiplier - 1.0) * (load - loadThreshold) / (1.0 - loadThreshold);
+        int next = (int) Math.min(maxIntervalSeconds, Math.round(base * multiplier));
+        // a watched, active member is streamed as is; everyone else only needs changes promptly
+        return new HeartbeatHint(next, !watched || idle);
+    }
+}
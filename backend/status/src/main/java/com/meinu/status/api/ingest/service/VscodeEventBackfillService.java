@@ -0,0 +1,148 @@
+package com.meinu.status.api.ingest.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.ingest.store.JdbcEventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the extracted columns of vscode_events rows stored before they
+ * existed (event_at is null). The id range is split into fixed-size chunks
+ * that are parsed and updated in parallel; each chunk is one select and one
+ * batched update, so the job can be stopped and resumed at any point.
+ */
+@Service
+@Profile("!embedded")
+public class VscodeEventBackfillService {
+    private static final Logger log = LoggerFactory.getLogger(VscodeEventBackfillService.class);
+    private static final String UPDATE_EVENT = "update vscode_events set event_at = ?, language_id = ?, branch = ?,"
+            + " workspace_id = ?, file_path_hash = ?, idle = ?, session_active_ms = ?, keystrokes = ?, session_id = ?"
+            + " where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final WorkspaceDictionary workspaceDictionary;
+
+    @Value("${app.ingest.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingest.backfill.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.ingest.backfill.parallelism:4}")
+    private int parallelism;
+
+    private record Row(long id, String payload, Timestamp createdAt) {
+    }
+
+    public VscodeEventBackfillService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            WorkspaceDictionary workspaceDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.workspaceDictionary = workspaceDictionary;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::backfill, "vscode-events-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Runs the backfill to completion and returns the number of updated rows. */
+    public long backfill() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "select min(id) as lo, max(id) as hi from vscode_events where event_at is null");
+        if (range.get("lo") == null) {
+            return 0;
+        }
+        long lo = ((Number) range.get("lo")).longValue();
+        long hi = ((Number) range.get("hi")).longValue();
+        if (log.isInfoEnabled()) {
+            log.info("Backfill start: ids {}..{} chunkSize={} parallelism={}", lo, hi, chunkSize, parallelism);
+        }
+        long started = System.currentTimeMillis();
+        AtomicLong updated = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (long from = lo; from <= hi; from += chunkSize) {
+                long start = from;
+                long end = Math.min(hi, from + chunkSize - 1);
+                chunks.add(pool.submit(() -> updated.addAndGet(backfillChunk(start, end))));
+            }
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (Exception e) {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Backfill chunk failed: {}", e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Backfill done: rows={} elapsedMs={}", updated.get(), System.currentTimeMillis() - started);
+        }
+        return updated.get();
+    }
+
+    private int backfillChunk(long fromId, long toId) {
+        List<Row> rows = jdbcTemplate.query(
+                "select id, payload, created_at from vscode_events where id between ? and ? and event_at is null",
+                (rs, i) -> new Row(rs.getLong(1), rs.getString(2), rs.getTimestamp(3)), fromId, toId);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        List<EventFields> fields = new ArrayList<>(rows.size());
+        List<Long> workspaceIds = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Instant createdAt = row.createdAt() != null ? row.createdAt().toInstant() : Instant.now();
+            EventFields f = EventFields.from(parse(row.payload()), createdAt);
+            fields.add(f);
+            workspaceIds.add(workspaceDictionary.idOf(f.workspaceRoot()));
+        }
+        List<Integer> indexes = IntStream.range(0, rows.size()).boxed().toList();
+        jdbcTemplate.batchUpdate(UPDATE_EVENT, indexes, indexes.size(), (ps, i) -> {
+            JdbcEventStore.bindFields(ps, 1, fields.get(i), workspaceIds.get(i), utc);
+            ps.setLong(10, rows.get(i).id());
+        });
+        return rows.size();
+    }
+
+    private Map<String, Object> parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (Exception e) {
+            // unparsable rows still get event_at (from created_at) so they are not picked up again
+            return Map.of();
+        }
+    }
+}
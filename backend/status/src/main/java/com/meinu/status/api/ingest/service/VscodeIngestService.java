@@ -0,0 +1,390 @@
+package com.meinu.status.api.ingest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import com.meinu.status.api.activity.service.ActivitySketchService;
+import com.meinu.status.api.ingest.dedup.SequenceDeduplicator;
+import com.meinu.status.api.ingest.store.EventStore;
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.presence.service.OfflineDetectionService;
+import com.meinu.status.api.presence.service.PresenceService;
+import com.meinu.status.api.search.service.CodeSearchService;
+import com.meinu.status.api.status.dto.response.StatusPatch;
+import com.meinu.status.api.status.longpoll.StatusLongPollRegistry;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.api.team.service.LeaderboardService;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.api.webhook.service.WebhookNotifier;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.jfr.IngestEvent;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Ingest pipeline shared by the single and batch endpoints: one append to the
+ * event store, one pipelined round of key-value writes and one SSE broadcast of
+ * the newest state, regardless of how many heartbeats arrive. Only the
+ * heartbeats {@link EventSampler} picks are appended; the rest just extend the
+ * open activity interval.
+ */
+@Service
+public class VscodeIngestService {
+    private static final Logger log = LoggerFactory.getLogger(VscodeIngestService.class);
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    /** Field of a patch heartbeat naming the snapshot version it applies to. */
+    public static final String PATCH_OF = "patchOf";
+
+    private final MemberService memberService;
+    private final ObjectMapper objectMapper;
+    private final EventStore eventStore;
+    private final KeyValueStore store;
+    private final SseEmitterRegistry sseRegistry;
+    private final StatusSnapshotService snapshotService;
+    private final ActivityIntervalService activityIntervalService;
+    private final StatusLongPollRegistry longPollRegistry;
+    private final TeamService teamService;
+    private final LeaderboardService leaderboardService;
+    private final ActivitySketchService sketchService;
+    private final SequenceDeduplicator deduplicator;
+    private final CodeSearchService codeSearchService;
+    private final PresenceService presenceService;
+    private final OfflineDetectionService offlineDetectionService;
+    private final WebhookNotifier webhookNotifier;
+
+    @Value("${app.ingest.event-checkpoint-ms:300000}")
+    private long eventCheckpointMs;
+
+    public VscodeIngestService(MemberService memberService, ObjectMapper objectMapper,
+            EventStore eventStore, KeyValueStore store,
+            SseEmitterRegistry sseRegistry, StatusSnapshotService snapshotService,
+            ActivityIntervalService activityIntervalService, StatusLongPollRegistry longPollRegistry,
+            TeamService teamService, LeaderboardService leaderboardService, ActivitySketchService sketchService,
+            SequenceDeduplicator deduplicator, CodeSearchService codeSearchService,
+            PresenceService presenceService, OfflineDetectionService offlineDetectionService,
+            WebhookNotifier webhookNotifier) {
+        this.memberService = memberService;
+        this.objectMapper = objectMapper;
+        this.eventStore = eventStore;
+        this.store = store;
+        this.sseRegistry = sseRegistry;
+        this.snapshotService = snapshotService;
+        this.activityIntervalService = activityIntervalService;
+        this.longPollRegistry = longPollRegistry;
+        this.teamService = teamService;
+        this.leaderboardService = leaderboardService;
+        this.sketchService = sketchService;
+        this.deduplicator = deduplicator;
+        this.codeSearchService = codeSearchService;
+        this.presenceService = presenceService;
+        this.offlineDetectionService = offlineDetectionService;
+        this.webhookNotifier = webhookNotifier;
+    }
+
+    public Member authenticate(String apiKey) {
+        return memberService.getByApiKey(apiKey);
+    }
+
+    /**
+     * The full heartbeat a patch heartbeat stands for: the current snapshot with
+     * the patch's fields applied, a null value removing the field. Fails with
+     * 409 unless the patch's {@link #PATCH_OF} is the current snapshot version,
+     * upon which the extension sends the full heartbeat instead.
+     */
+    public Map<String, Object> expandPatch(Long memberId, Map<String, Object> patch) {
+        VersionedSnapshot base = snapshotService.getLatestVersioned(memberId);
+        if (!(patch.get(PATCH_OF) instanceof String version) || base.version().isEmpty()
+                || !version.equals(base.version())) {
+            throw new BaseException(BaseResponseStatus.SNAPSHOT_PATCH_CONFLICT);
+        }
+        Map<String, Object> full = new LinkedHashMap<>(base.payload());
+        for (Map.Entry<String, Object> e : patch.entrySet()) {
+            if (PATCH_OF.equals(e.getKey())) {
+                continue;
+            }
+            if (e.getValue() == null) {
+                full.remove(e.getKey());
+            } else {
+                full.put(e.getKey(), e.getValue());
+            }
+        }
+        return full;
+    }
+
+    /**
+     * Ingests heartbeats in client order. Heartbeats carrying a
+     * {@code sessionId}/{@code seq} pair that was already ingested (client
+     * retries) are acknowledged and dropped. The newest remaining heartbeat
+     * becomes the member's current state unless a later one is already stored.
+     * Returns the version of that new state, or null if nothing became current.
+     * Each call is recorded as an {@link IngestEvent} when it takes longer than
+     * the event's threshold.
+     *
+     * @param advisedIntervalMs the heartbeat interval this response advises the
+     *                          client, which the offline deadline allows for
+     */
+    public String ingest(Member member, List<Map<String, Object>> requested, long advisedIntervalMs) {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        try {
+            return ingest(member, requested, advisedIntervalMs, event);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private String ingest(Member member, List<Map<String, Object>> requested, long advisedIntervalMs,
+            IngestEvent event) {
+        event.memberId = member.getId();
+        event.heartbeats = requested.size();
+        Fresh fresh = dropDuplicates(member.getId(), requested);
+        List<Map<String, Object>> bodies = fresh.bodies();
+        event.duplicates = requested.size() - bodies.size();
+        if (bodies.isEmpty()) {
+            if (log.isDebugEnabled() && !requested.isEmpty()) {
+                log.debug("Ingest: memberId={} duplicates={} (all dropped)", member.getId(), requested.size());
+            }
+            return null;
+        }
+        List<String> jsons = bodies.stream().map(this::toJson).toList();
+        event.payloadBytes = jsons.stream().mapToLong(String::length).sum();
+        long now = System.currentTimeMillis();
+        VersionedSnapshot previous = previous(member.getId());
+        boolean[] sampled = EventSampler.stored(previous == null ? null : previous.payload(), bodies,
+                eventCheckpointMs, now);
+        List<Map<String, Object>> storedBodies = new ArrayList<>(bodies.size());
+        List<String> storedJsons = new ArrayList<>(bodies.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            if (sampled[i]) {
+                storedBodies.add(bodies.get(i));
+                storedJsons.add(jsons.get(i));
+            }
+        }
+        List<Long> eventIds = List.of();
+        long phaseStart = System.nanoTime();
+        try {
+            if (!storedBodies.isEmpty()) {
+                eventIds = eventStore.append(member.getId(), storedBodies, storedJsons, Instant.now());
+            }
+        } catch (RuntimeException e) {
+            // let the client's retry through
+            fresh.seqsBySession().forEach((sessionId, seqs) -> forget(member.getId(), sessionId, seqs));
+            throw e;
+        } finally {
+            event.dbTime = System.nanoTime() - phaseStart;
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Ingest: memberId={} email={} events={} stored={} duplicates={} payloadSize={} bytes",
+                    member.getId(), member.getEmail(), jsons.size(), eventIds.size(), event.duplicates,
+                    event.payloadBytes);
+        }
+
+        codeSearchService.index(member.getId(), storedBodies, eventIds, now);
+        int newestIndex = newestIndex(bodies, now);
+        Map<String, Object> newest = bodies.get(newestIndex);
+        String newestJson = jsons.get(newestIndex);
+        phaseStart = System.nanoTime();
+        boolean current = isCurrent(previous, newest, now);
+        VersionedSnapshot latest = new VersionedSnapshot(StatusSnapshotService.versionOf(newestJson), newest);
+        // Write latest snapshot and daily counters into the key-value store (fast path)
+        try {
+            if (current) {
+                snapshotService.cacheLatest(member.getId(), newestJson, newest);
+            }
+            writeCounters(member.getId(), bodies, current ? latest : null, newestJson, previous, advisedIntervalMs);
+        } catch (Exception ignored) {
+            // Redis optional path: don't fail ingest if Redis is unavailable
+        }
+        event.redisTime = System.nanoTime() - phaseStart;
+        event.current = current;
+        if (!current) {
+            // a late upload (e.g. an offline buffer) must not roll the live status back
+            return null;
+        }
+        // Notify SSE subscribers of what changed (non-blocking best-effort)
+        phaseStart = System.nanoTime();
+        try {
+            sseRegistry.send(member.getId(), StatusPatch.between(previous, latest));
+            if (log.isDebugEnabled()) {
+                log.debug("Ingest: SSE broadcast queued for memberId={}", member.getId());
+            }
+        } catch (Exception ignored) {
+            // ignore: SSE is best-effort; if client disconnected, nothing else to do
+        }
+        // Wake parked long-poll requests of device clients
+        longPollRegistry.publish(member.getId(), latest);
+        event.sseTime = System.nanoTime() - phaseStart;
+        notifyWebhooks(member.getId(), previous, newest);
+        return latest.version();
+    }
+
+    /**
+     * Queues webhook events for the status change in the outbox; delivery
+     * happens elsewhere. Skipped when the previous snapshot could not be read,
+     * since every heartbeat would then look like a fresh start.
+     */
+    private void notifyWebhooks(Long memberId, VersionedSnapshot previous, Map<String, Object> newest) {
+        if (previous == null) {
+            return;
+        }
+        try {
+            webhookNotifier.snapshotChanged(memberId, previous, newest, Instant.now());
+        } catch (RuntimeException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Webhook events not queued: memberId={} cause={}", memberId, e.getMessage());
+            }
+        }
+    }
+
+    /** @param newest the snapshot to store, or null when the batch is older than the stored one */
+    private void writeCounters(Long memberId, List<Map<String, Object>> bodies, VersionedSnapshot newest,
+            String newestJson, VersionedSnapshot previous, long advisedIntervalMs) {
+        // The extension sends cumulative counters, so daily metrics are
+        // incremented by the deltas computed while extending activity intervals
+        List<ActivityIntervalService.Deltas> deltas = activityIntervalService.record(memberId, bodies);
+        long now = System.currentTimeMillis();
+        sketchService.recordFocus(memberId, bodies, now);
+        Map<LocalDate, long[]> perDay = new TreeMap<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            long at = ActivityIntervalService.timestampMs(bodies.get(i).get("timestamp"), now);
+            LocalDate day = Instant.ofEpochMilli(at).atZone(ZoneId.systemDefault()).toLocalDate();
+            long[] sums = perDay.computeIfAbsent(day, d -> new long[2]);
+            sums[0] += deltas.get(i).keystrokes();
+            sums[1] += deltas.get(i).activeMs();
+        }
+        List<Long> teamIds = teamService.teamIdsOf(memberId);
+        store.pipeline(pipeline -> {
+            if (newest != null) {
+                snapshotService.writeLatest(pipeline, memberId, newestJson, newest.payload(), previous);
+                presenceService.touch(pipeline, memberId, Boolean.TRUE.equals(newest.payload().get("isIdle")), now);
+                offlineDetectionService.claim(pipeline, memberId);
+            }
+            sketchService.addDistinct(pipeline, memberId, bodies, now);
+            perDay.forEach((day, sums) -> {
+                if (sums[0] > 0) {
+                    pipeline.incrBy(String.format("metrics:keystrokes:%d:%s", memberId, day), sums[0]);
+                }
+                if (sums[1] > 0) {
+                    pipeline.incrBy(String.format("metrics:activeMs:%d:%s", memberId, day), sums[1]);
+                }
+                leaderboardService.increment(pipeline, memberId, teamIds, day, sums[0], sums[1]);
+            });
+        });
+        if (newest != null) {
+            offlineDetectionService.heartbeat(memberId, newest.version(), now, advisedIntervalMs);
+        }
+    }
+
+    private record Fresh(List<Map<String, Object>> bodies, Map<String, List<Long>> seqsBySession) {
+    }
+
+    private Fresh dropDuplicates(Long memberId, List<Map<String, Object>> bodies) {
+        Map<String, List<Integer>> indexesBySession = new LinkedHashMap<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            Map<String, Object> body = bodies.get(i);
+            if (body.get("sessionId") instanceof String sessionId && SESSION_ID.matcher(sessionId).matches()
+                    && body.get("seq") instanceof Number) {
+                indexesBySession.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(i);
+            }
+        }
+        if (indexesBySession.isEmpty()) {
+            return new Fresh(bodies, Map.of());
+        }
+        boolean[] duplicate = new boolean[bodies.size()];
+        Map<String, List<Long>> marked = new LinkedHashMap<>();
+        try {
+            indexesBySession.forEach((sessionId, indexes) -> {
+                List<Long> seqs = indexes.stream()
+                        .map(i -> ((Number) bodies.get(i).get("seq")).longValue())
+                        .toList();
+                boolean[] isNew = deduplicator.markSeen(memberId, sessionId, seqs);
+                List<Long> kept = new ArrayList<>(seqs.size());
+                for (int j = 0; j < isNew.length; j++) {
+                    if (isNew[j]) {
+                        kept.add(seqs.get(j));
+                    } else {
+                        duplicate[indexes.get(j)] = true;
+                    }
+                }
+                marked.put(sessionId, kept);
+            });
+        } catch (DataAccessException e) {
+            // without the dedup store a retry may be stored twice, which beats losing it
+            if (log.isWarnEnabled()) {
+                log.warn("Ingest dedup skipped: memberId={} cause={}", memberId, e.getMessage());
+            }
+        }
+        List<Map<String, Object>> fresh = new ArrayList<>(bodies.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            if (!duplicate[i]) {
+                fresh.add(bodies.get(i));
+            }
+        }
+        return new Fresh(fresh, marked);
+    }
+
+    private void forget(Long memberId, String sessionId, List<Long> seqs) {
+        try {
+            deduplicator.forget(memberId, sessionId, seqs);
+        } catch (DataAccessException ignored) {
+            // the retry will be treated as a duplicate; nothing more to do here
+        }
+    }
+
+    /** Index of the heartbeat with the latest timestamp; the later element wins ties. */
+    private static int newestIndex(List<Map<String, Object>> bodies, long now) {
+        int newest = 0;
+        long newestAt = Long.MIN_VALUE;
+        for (int i = 0; i < bodies.size(); i++) {
+            long at = ActivityIntervalService.timestampMs(bodies.get(i).get("timestamp"), now);
+            if (at >= newestAt) {
+                newestAt = at;
+                newest = i;
+            }
+        }
+        return newest;
+    }
+
+    /** The stored snapshot, or null if it cannot be read. */
+    private VersionedSnapshot previous(Long memberId) {
+        try {
+            return snapshotService.getLatestVersioned(memberId);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** False when the stored snapshot is newer than {@code newest}. */
+    private static boolean isCurrent(VersionedSnapshot previous, Map<String, Object> newest, long now) {
+        Object latest = previous == null ? null : previous.payload().get("timestamp");
+        return latest == null || ActivityIntervalService.timestampMs(newest.get("timestamp"), now)
+                >= ActivityIntervalService.timestampMs(latest, now);
+    }
+
+    private String toJson(Map<String, Object> body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            // fallback to toString
+            return body.toString();
+        }
+    }
+}
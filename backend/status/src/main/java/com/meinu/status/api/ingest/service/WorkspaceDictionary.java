@@ -0,0 +1,55 @@
+package com.meinu.status.api.ingest.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps workspace roots to ids in the {@code workspaces} table. Ids never
+ * change once assigned, so they are cached for the life of the process.
+ */
+@Component
+@Profile("!embedded")
+public class WorkspaceDictionary {
+    private static final int CACHE_MAX = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+
+    public WorkspaceDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Id of the workspace, inserting it on first sight; null for a null path. */
+    public Long idOf(String path) {
+        if (path == null) {
+            return null;
+        }
+        Long cached = ids.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        long hash = EventFields.hash64(path);
+        Long id = find(hash);
+        if (id == null) {
+            // concurrent inserts of the same path race on the unique hash; the loser is ignored
+            jdbcTemplate.update("insert ignore into workspaces (path_hash, path) values (?, ?)", hash, path);
+            id = find(hash);
+        }
+        if (ids.size() >= CACHE_MAX) {
+            ids.clear();
+        }
+        ids.put(path, id);
+        return id;
+    }
+
+    private Long find(long hash) {
+        List<Long> found = jdbcTemplate.queryForList("select id from workspaces where path_hash = ?", Long.class,
+                hash);
+        return found.isEmpty() ? null : found.get(0);
+    }
+}
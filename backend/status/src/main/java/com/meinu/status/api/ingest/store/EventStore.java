@@ -0,0 +1,41 @@
+package com.meinu.status.api.ingest.store;
+
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.api.status.dto.response.HistoryEvent;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable log of raw heartbeats. MySQL by default; an append-only file log in
+ * the {@code embedded} profile.
+ */
+public interface EventStore {
+
+    /**
+     * Stores heartbeats in client order; {@code jsons} are the serialized
+     * {@code bodies}. Returns the event ids in the same order.
+     */
+    List<Long> append(Long memberId, List<Map<String, Object>> bodies, List<String> jsons, Instant receivedAt);
+
+    /**
+     * Up to {@code limit} of the member's events in id order, which is the
+     * order they were received: those after {@code afterId}, or when it is
+     * null, those received at or after {@code from}. The last id of a page is
+     * the {@code afterId} of the next.
+     */
+    List<HistoryEvent> history(Long memberId, Long afterId, Instant from, int limit);
+
+    /** Raw payloads of the member's events by id; unknown ids are left out. */
+    Map<Long, String> payloads(Long memberId, Collection<Long> ids);
+
+    /**
+     * Active time and keystrokes per group between {@code from} (inclusive) and
+     * {@code to} (exclusive), largest active time first.
+     *
+     * @param by one of {@code language}, {@code branch} or {@code workspace}
+     */
+    List<BreakdownResponse> breakdown(Long memberId, String by, Instant from, Instant to);
+}
@@ -0,0 +1,180 @@
+package com.meinu.status.api.ingest.store;
+
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.api.ingest.service.WorkspaceDictionary;
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.api.status.dto.response.HistoryEvent;
+import com.meinu.status.global.id.TsidGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+/**
+ * Events in {@code vscode_events}: one multi-row insert per ingest call, and
+ * breakdowns aggregated in SQL over the extracted columns. Ids come from
+ * {@link TsidGenerator}, so id order is time order and history is paged by id
+ * ({@code member_id = ? and id > ?}) on the member index, which holds the id;
+ * rows stored before that kept their auto-increment ids, which are all below
+ * the generated range and only reached by paging from id 0.
+ */
+@Component
+@Profile("!embedded")
+public class JdbcEventStore implements EventStore {
+    private static final String INSERT_EVENT = "insert into vscode_events (id, member_id, payload, created_at,"
+            + " event_at, language_id, branch, workspace_id, file_path_hash, idle, session_active_ms, keystrokes,"
+            + " session_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_HISTORY = "select e.id, coalesce(e.event_at, e.created_at), w.path,"
+            + " e.language_id, e.branch, e.idle, e.session_active_ms, e.keystrokes"
+            + " from vscode_events e left join workspaces w on w.id = e.workspace_id"
+            + " where e.member_id = ? and e.id > ? order by e.id limit ?";
+
+    // The extension sends cumulative per-session counters. Each heartbeat is
+    // credited with the increase since the previous heartbeat of the same
+    // session (of the same workspace for clients that send no session id, like
+    // ActivityIntervalService.counterKey); a drop means a new session, so the
+    // value itself counts.
+    private static final String BREAKDOWN = """
+            select %2$s as group_key, sum(t.active_delta) as active_ms, sum(t.ks_delta) as keystrokes,
+                   count(*) as heartbeats
+            from (
+                select e.%1$s as group_id,
+                       case when lag(e.session_active_ms) over w is null then 0
+                            when e.session_active_ms < lag(e.session_active_ms) over w then e.session_active_ms
+                            else e.session_active_ms - lag(e.session_active_ms) over w end as active_delta,
+                       case when lag(e.keystrokes) over w is null then 0
+                            when e.keystrokes < lag(e.keystrokes) over w then e.keystrokes
+                            else e.keystrokes - lag(e.keystrokes) over w end as ks_delta
+                from vscode_events e
+                where e.member_id = ? and e.event_at >= ? and e.event_at < ?
+                window w as (partition by e.session_id, case when e.session_id is null then e.workspace_id end
+                             order by e.event_at, e.id)
+            ) t
+            %3$s
+            group by %2$s
+            order by active_ms desc
+            """;
+
+    // by -> (column, group expression, join); only these values reach the SQL
+    private static final Map<String, String> SQL_BY = Map.of(
+            "language", BREAKDOWN.formatted("language_id", "t.group_id", ""),
+            "branch", BREAKDOWN.formatted("branch", "t.group_id", ""),
+            "workspace", BREAKDOWN.formatted("workspace_id", "w.path",
+                    "left join workspaces w on w.id = t.group_id"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WorkspaceDictionary workspaceDictionary;
+    private final TsidGenerator idGenerator;
+
+    public JdbcEventStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            WorkspaceDictionary workspaceDictionary, TsidGenerator idGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.workspaceDictionary = workspaceDictionary;
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public List<Long> append(Long memberId, List<Map<String, Object>> bodies, List<String> jsons,
+            Instant receivedAt) {
+        // bind like Hibernate does for Instant columns (UTC calendar)
+        Timestamp now = Timestamp.from(receivedAt);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        List<EventFields> fields = bodies.stream().map(b -> EventFields.from(b, receivedAt)).toList();
+        List<Long> workspaceIds = fields.stream().map(f -> workspaceDictionary.idOf(f.workspaceRoot())).toList();
+        // ids are known up front, so the batch needs no generated keys and the
+        // driver can rewrite it into one multi-row insert
+        List<Long> ids = jsons.stream().map(j -> idGenerator.next()).toList();
+        transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(INSERT_EVENT,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, ids.get(i));
+                        ps.setLong(2, memberId);
+                        ps.setString(3, jsons.get(i));
+                        ps.setTimestamp(4, now, utc);
+                        bindFields(ps, 5, fields.get(i), workspaceIds.get(i), utc);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return jsons.size();
+                    }
+                }));
+        return ids;
+    }
+
+    @Override
+    public List<HistoryEvent> history(Long memberId, Long afterId, Instant from, int limit) {
+        long after = afterId != null ? afterId : TsidGenerator.lowerBound(from) - 1;
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        return jdbcTemplate.query(SELECT_HISTORY, (rs, i) -> new HistoryEvent(rs.getLong(1),
+                        rs.getTimestamp(2, utc).toInstant(), rs.getString(3), rs.getString(4), rs.getString(5),
+                        rs.getObject(6, Boolean.class), rs.getObject(7, Long.class), rs.getObject(8, Long.class)),
+                memberId, after, limit);
+    }
+
+    @Override
+    public Map<Long, String> payloads(Long memberId, Collection<Long> ids) {
+        Map<Long, String> out = new HashMap<>();
+        if (ids.isEmpty()) {
+            return out;
+        }
+        String in = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        Object[] args = new Object[ids.size() + 1];
+        args[0] = memberId;
+        int i = 1;
+        for (Long id : ids) {
+            args[i++] = id;
+        }
+        jdbcTemplate.query("select id, payload from vscode_events where member_id = ? and id in (" + in + ")",
+                rs -> {
+                    out.put(rs.getLong(1), rs.getString(2));
+                }, args);
+        return out;
+    }
+
+    /** Binds the extracted columns in INSERT_EVENT order, starting at {@code index}. */
+    public static void bindFields(PreparedStatement ps, int index, EventFields f, Long workspaceId, Calendar utc)
+            throws SQLException {
+        ps.setTimestamp(index, Timestamp.from(f.eventAt()), utc);
+        ps.setString(index + 1, f.languageId());
+        ps.setString(index + 2, f.branch());
+        ps.setObject(index + 3, workspaceId, Types.BIGINT);
+        ps.setObject(index + 4, f.filePathHash(), Types.BIGINT);
+        ps.setObject(index + 5, f.idle(), Types.BOOLEAN);
+        ps.setObject(index + 6, f.sessionActiveMs(), Types.BIGINT);
+        ps.setObject(index + 7, f.keystrokes(), Types.BIGINT);
+        ps.setString(index + 8, f.sessionId());
+    }
+
+    @Override
+    public List<BreakdownResponse> breakdown(Long memberId, String by, Instant from, Instant to) {
+        String sql = SQL_BY.get(by);
+        if (sql == null) {
+            throw new IllegalArgumentException("unknown breakdown: " + by);
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        return jdbcTemplate.query(sql, ps -> {
+            ps.setLong(1, memberId);
+            ps.setTimestamp(2, Timestamp.from(from), utc);
+            ps.setTimestamp(3, Timestamp.from(to), utc);
+        }, (rs, i) -> new BreakdownResponse(rs.getString("group_key"), rs.getLong("active_ms"),
+                rs.getLong("keystrokes"), rs.getLong("heartbeats")));
+    }
+}
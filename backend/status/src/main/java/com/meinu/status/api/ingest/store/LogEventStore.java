@@ -0,0 +1,314 @@
+package com.meinu.status.api.ingest.store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.api.status.dto.response.HistoryEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Append-only event log for the {@code embedded} profile: one JSON line per
+ * heartbeat in {@code events/YYYY-MM-DD.jsonl} (UTC day received). An event id
+ * is the file's epoch day in the high bits and the line's byte offset in the
+ * low 40 bits, so id order is the order events were received and a history
+ * page resumes by seeking to the last id's line. Breakdowns scan the files of
+ * the requested range and apply the same per-session delta rule as the SQL
+ * in {@link JdbcEventStore}.
+ */
+@Component
+@Profile("embedded")
+public class LogEventStore implements EventStore {
+    private static final Logger log = LoggerFactory.getLogger(LogEventStore.class);
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final Map<String, Function<EventFields, String>> KEY_BY = Map.of(
+            "language", EventFields::languageId,
+            "branch", EventFields::branch,
+            "workspace", EventFields::workspaceRoot);
+
+    private record Line(Long memberId, long receivedAtMs, Map<String, Object> payload) {
+    }
+
+    private record Event(EventFields fields, long seq) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private LocalDate openDay;
+    private BufferedWriter writer;
+    private long offset;
+
+    public LogEventStore(ObjectMapper objectMapper, @Value("${app.embedded.data-dir:./data}") String dataDir)
+            throws IOException {
+        this.objectMapper = objectMapper;
+        this.dir = Path.of(dataDir, "events");
+        Files.createDirectories(dir);
+    }
+
+    @Override
+    public synchronized List<Long> append(Long memberId, List<Map<String, Object>> bodies, List<String> jsons,
+            Instant receivedAt) {
+        try {
+            LocalDate day = receivedAt.atZone(ZoneOffset.UTC).toLocalDate();
+            if (!day.equals(openDay)) {
+                close();
+                Path path = file(day);
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                offset = Files.size(path);
+                openDay = day;
+            }
+            long at = receivedAt.toEpochMilli();
+            long dayBits = day.toEpochDay() << OFFSET_BITS;
+            List<Long> ids = new ArrayList<>(jsons.size());
+            for (String json : jsons) {
+                String line = "{\"m\":" + memberId + ",\"r\":" + at + ",\"p\":" + json + "}\n";
+                ids.add(dayBits | offset);
+                writer.write(line);
+                offset += line.getBytes(StandardCharsets.UTF_8).length;
+            }
+            writer.flush();
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<HistoryEvent> history(Long memberId, Long afterId, Instant from, int limit) {
+        LocalDate day = afterId != null ? LocalDate.ofEpochDay(afterId >>> OFFSET_BITS)
+                : from.atZone(ZoneOffset.UTC).toLocalDate();
+        long start = afterId != null ? afterId & OFFSET_MASK : 0L;
+        long fromMs = afterId != null ? Long.MIN_VALUE : from.toEpochMilli();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        boolean skipFirst = afterId != null;
+        List<HistoryEvent> out = new ArrayList<>();
+        for (; !day.isAfter(today) && out.size() < limit; day = day.plusDays(1)) {
+            readHistory(day, start, skipFirst, memberId, fromMs, limit, out);
+            start = 0;
+            skipFirst = false;
+        }
+        return out;
+    }
+
+    /**
+     * Adds the member's events of one day file from byte {@code start} on;
+     * with {@code skipFirst} the line at {@code start}, the previous page's
+     * last event, is passed over.
+     */
+    private void readHistory(LocalDate day, long start, boolean skipFirst, Long memberId, long fromMs, int limit,
+            List<HistoryEvent> out) {
+        Path path = file(day);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long dayBits = day.toEpochDay() << OFFSET_BITS;
+        byte[] prefix = ("{\"m\":" + memberId + ",").getBytes(StandardCharsets.UTF_8);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            if (start > Files.size(path)) {
+                return;
+            }
+            in.skipNBytes(start);
+            long offset = start;
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            boolean skip = skipFirst;
+            int b;
+            while (out.size() < limit && (b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                long lineStart = offset;
+                byte[] bytes = line.toByteArray();
+                offset += bytes.length + 1;
+                line.reset();
+                if (skip) {
+                    skip = false;
+                    continue;
+                }
+                if (!startsWith(bytes, prefix)) {
+                    continue;
+                }
+                Line parsed = parse(new String(bytes, StandardCharsets.UTF_8));
+                if (parsed == null || !Objects.equals(parsed.memberId(), memberId)
+                        || parsed.receivedAtMs() < fromMs) {
+                    continue;
+                }
+                EventFields f = EventFields.from(parsed.payload(), Instant.ofEpochMilli(parsed.receivedAtMs()));
+                out.add(new HistoryEvent(dayBits | lineStart, f.eventAt(), f.workspaceRoot(), f.languageId(),
+                        f.branch(), f.idle(), f.sessionActiveMs(), f.keystrokes()));
+            }
+            // a last line without its newline is still being written and is left for the next page
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    @Override
+    public Map<Long, String> payloads(Long memberId, Collection<Long> ids) {
+        Map<Long, String> out = new HashMap<>();
+        for (Long id : ids) {
+            Path path = file(LocalDate.ofEpochDay(id >>> OFFSET_BITS));
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "r")) {
+                raf.seek(id & OFFSET_MASK);
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                int b;
+                while ((b = raf.read()) != -1 && b != '\n') {
+                    line.write(b);
+                }
+                Map<String, Object> raw = objectMapper.readValue(line.toByteArray(),
+                        new TypeReference<Map<String, Object>>() {
+                        });
+                if (raw.get("m") instanceof Number m && m.longValue() == memberId) {
+                    out.put(id, objectMapper.writeValueAsString(raw.get("p")));
+                }
+            } catch (IOException e) {
+                // an id that does not point at a line start
+                if (log.isDebugEnabled()) {
+                    log.debug("Skipping unreadable event id={}: {}", id, e.getMessage());
+                }
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<BreakdownResponse> breakdown(Long memberId, String by, Instant from, Instant to) {
+        Function<EventFields, String> keyOf = KEY_BY.get(by);
+        if (keyOf == null) {
+            throw new IllegalArgumentException("unknown breakdown: " + by);
+        }
+        // event_at never exceeds the receive time, so files before `from` can be
+        // skipped; one extra day after `to` catches late uploads
+        List<Event> events = new ArrayList<>();
+        LocalDate last = to.atZone(ZoneOffset.UTC).toLocalDate().plusDays(1);
+        for (LocalDate day = from.atZone(ZoneOffset.UTC).toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            readDay(day, memberId, from, to, events);
+        }
+        events.sort(Comparator.comparing((Event e) -> e.fields().eventAt()).thenComparingLong(Event::seq));
+
+        Map<String, long[]> prevByCounter = new HashMap<>();
+        Map<String, long[]> sums = new LinkedHashMap<>();
+        for (Event event : events) {
+            EventFields f = event.fields();
+            String counterKey = ActivityIntervalService.counterKey(f.sessionId(), f.workspaceRoot());
+            long[] prev = prevByCounter.get(counterKey);
+            long[] acc = sums.computeIfAbsent(keyOf.apply(f), k -> new long[3]);
+            if (prev != null) {
+                acc[0] += delta(prev[0], f.sessionActiveMs());
+                acc[1] += delta(prev[1], f.keystrokes());
+            }
+            acc[2]++;
+            prevByCounter.put(counterKey, new long[]{
+                    f.sessionActiveMs() == null ? -1 : f.sessionActiveMs(),
+                    f.keystrokes() == null ? -1 : f.keystrokes()});
+        }
+        List<BreakdownResponse> out = new ArrayList<>(sums.size());
+        sums.forEach((key, acc) -> out.add(new BreakdownResponse(key, acc[0], acc[1], acc[2])));
+        out.sort(Comparator.comparingLong(BreakdownResponse::activeMs).reversed());
+        return out;
+    }
+
+    // -1 stands for a missing previous value, which like SQL's null credits nothing
+    private static long delta(long prev, Long current) {
+        if (prev < 0 || current == null) {
+            return 0;
+        }
+        return current < prev ? current : current - prev;
+    }
+
+    private void readDay(LocalDate day, Long memberId, Instant from, Instant to, List<Event> out) {
+        Path path = file(day);
+        if (!Files.exists(path)) {
+            return;
+        }
+        String prefix = "{\"m\":" + memberId + ",";
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                if (!text.startsWith(prefix)) {
+                    continue;
+                }
+                Line line = parse(text);
+                if (line == null || !Objects.equals(line.memberId(), memberId)) {
+                    continue;
+                }
+                EventFields f = EventFields.from(line.payload(), Instant.ofEpochMilli(line.receivedAtMs()));
+                if (!f.eventAt().isBefore(from) && f.eventAt().isBefore(to)) {
+                    out.add(new Event(f, out.size()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Line parse(String text) {
+        try {
+            Map<String, Object> raw = objectMapper.readValue(text, new TypeReference<Map<String, Object>>() {
+            });
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = raw.get("p") instanceof Map<?, ?> p ? (Map<String, Object>) p : Map.of();
+            return new Line(((Number) raw.get("m")).longValue(), ((Number) raw.get("r")).longValue(), payload);
+        } catch (Exception e) {
+            // a torn last line after a crash
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping unreadable event line: {}", e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private Path file(LocalDate day) {
+        return dir.resolve(day + ".jsonl");
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            openDay = null;
+        }
+    }
+}
@@ -4,32 +4,38 @@ import com.meinu.status.api.member.entity.Member;
 import com.meinu.status.api.member.repository.MemberRepository;
 import com.meinu.status.global.common.base.BaseException;
 import com.meinu.status.global.common.base.BaseResponseStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.meinu.status.global.jfr.ApiKeyLookupEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Optional;
 import java.util.Set;
 
 @Service
 @Transactional
 public class MemberService {
     private final MemberRepository memberRepository;
-    private final PasswordEncoder passwordEncoder;
 
-    public MemberService(MemberRepository memberRepository, PasswordEncoder passwordEncoder) {
+    public MemberService(MemberRepository memberRepository) {
         this.memberRepository = memberRepository;
-        this.passwordEncoder = passwordEncoder;
     }
 
-    public Member signup(String email, String rawPassword, String nickname) {
+    /** Cheap pre-check so duplicate signups are refused before the password is hashed. */
+    @Transactional(readOnly = true)
+    public void requireEmailAvailable(String email) {
         if (memberRepository.existsByEmail(email))
             throw new BaseException(BaseResponseStatus.EMAIL_ALREADY_EXISTS);
-        String hash = passwordEncoder.encode(rawPassword);
+    }
+
+    /** @param passwordHash already encoded, see {@code PasswordHasher} */
+    public Member signup(String email, String passwordHash, String nickname) {
+        requireEmailAvailable(email);
         Member m = Member.builder()
                 .email(email)
-                .passwordHash(hash)
+                .passwordHash(passwordHash)
                 .nickname(nickname)
                 .roles(Set.of("ROLE_USER"))
                 .build();
@@ -42,9 +48,19 @@ public class MemberService {
                 .orElseThrow(() -> new BaseException(BaseResponseStatus.MEMBER_NOT_FOUND));
     }
 
+    /** The member an x-api-key header belongs to; 401 when it is missing or unknown. */
     @Transactional(readOnly = true)
-    public boolean matches(String rawPassword, String hash) {
-        return passwordEncoder.matches(rawPassword, hash);
+    public Member getByApiKey(String apiKey) {
+        if (!StringUtils.hasText(apiKey)) {
+            throw new BaseException(BaseResponseStatus.API_KEY_REQUIRED);
+        }
+        ApiKeyLookupEvent event = new ApiKeyLookupEvent();
+        event.begin();
+        Optional<Member> member = memberRepository.findByApiKey(apiKey);
+        event.found = member.isPresent();
+        event.memberId = member.map(Member::getId).orElse(0L);
+        event.commit();
+        return member.orElseThrow(() -> new BaseException(BaseResponseStatus.API_KEY_INVALID));
     }
 
     public String issueNewApiKey(Member member) {
@@ -0,0 +1,49 @@
+package com.meinu.status.api.presence.controller;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.presence.dto.response.PresenceResponse;
+import com.meinu.status.api.presence.service.PresenceService;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.common.base.BaseResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+    private static final int MAX_LIMIT = 500;
+
+    private final PresenceService presenceService;
+    private final TeamService teamService;
+    private final MemberService memberService;
+
+    public PresenceController(PresenceService presenceService, TeamService teamService,
+            MemberService memberService) {
+        this.presenceService = presenceService;
+        this.teamService = teamService;
+        this.memberService = memberService;
+    }
+
+    /**
+     * Online and idle members sharing a team with the caller, or with
+     * {@code teamId} the whole team including offline members (team members
+     * only).
+     */
+    @GetMapping
+    public ResponseEntity<BaseResponse<PresenceResponse>> presence(Authentication auth,
+            @RequestParam(required = false) Long teamId,
+            @RequestParam(defaultValue = "100") int limit) {
+        Member me = memberService.getByEmail(auth.getName());
+        if (teamId == null) {
+            return ResponseEntity.ok(BaseResponse.success(
+                    presenceService.online(me.getId(), Math.max(1, Math.min(limit, MAX_LIMIT)))));
+        }
+        teamService.requireMember(teamId, me.getId());
+        return ResponseEntity.ok(BaseResponse.success(presenceService.team(teamId)));
+    }
+}
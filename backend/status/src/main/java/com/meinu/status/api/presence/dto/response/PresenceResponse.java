@@ -0,0 +1,11 @@
+package com.meinu.status.api.presence.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+/** @param teamId null for the global list, which only contains online and idle members */
+public record PresenceResponse(Long teamId, long online, long idle, List<Entry> members) {
+
+    public record Entry(Long memberId, String nickname, String state, Instant lastSeenAt) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.meinu.status.api.presence.service;
+
+import com.meinu.status.api.presence.timer.HashedTimerWheel;
+import com.meinu.status.api.status.dto.response.StatusPatch;
+import com.meinu.status.api.status.longpoll.StatusLongPollRegistry;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.api.webhook.service.WebhookNotifier;
+import com.meinu.status.global.store.KeyValueStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notices members whose extension stopped sending (laptop closed, network
+ * gone) and marks their snapshot offline instead of letting viewers see the
+ * last status until it expires.
+ *
+ * <p>Every current heartbeat reschedules the member's deadline on a hashed
+ * timing wheel: the receive time plus a grace of a few heartbeat intervals.
+ * The interval is the longer of the one just advised to the client and the one
+ * estimated from the gaps between this member's ingests, so a client told to
+ * back off (nobody watching, ingest under load) is not declared offline while
+ * the estimate catches up.
+ * The ingesting node also claims the member in {@code presence:owner:{id}}, so
+ * of several nodes holding a deadline only the one that saw the latest
+ * heartbeat acts on it. The snapshot is only replaced if it is still the one
+ * the deadline was scheduled for.
+ *
+ * <p>Deadlines live only in the memory of the node that took the heartbeat.
+ * Members of a node that stopped, or restarted, are found by
+ * {@link #sweepOrphans} instead.
+ */
+@Service
+public class OfflineDetectionService {
+    private static final Logger log = LoggerFactory.getLogger(OfflineDetectionService.class);
+    private static final String OWNER_KEY_PREFIX = "presence:owner:";
+    private static final List<String> OFFLINE_FIELD = List.of("isOffline");
+
+    /** What this node last saw of a member. */
+    private record Tracked(String version, long lastSeenMs, long intervalMs, long advisedMs) {
+        long graceBasisMs() {
+            return Math.max(intervalMs, advisedMs);
+        }
+    }
+
+    private final KeyValueStore store;
+    private final StatusSnapshotService snapshotService;
+    private final SseEmitterRegistry sseRegistry;
+    private final StatusLongPollRegistry longPollRegistry;
+    private final WebhookNotifier webhookNotifier;
+    private final PresenceService presenceService;
+    private final long tickMs;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Tracked> tracked = new ConcurrentHashMap<>();
+    private final HashedTimerWheel<Long> wheel;
+    private final ScheduledExecutorService ticker;
+    // where the sweeps after startup have got to; -1 once they caught up
+    private volatile long catchUpFromMs;
+
+    @Value("${app.presence.offline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.presence.offline.default-interval-ms:60000}")
+    private long defaultIntervalMs;
+
+    @Value("${app.presence.offline.grace-multiplier:3}")
+    private double graceMultiplier;
+
+    @Value("${app.presence.offline.min-grace-ms:30000}")
+    private long minGraceMs;
+
+    @Value("${app.presence.offline.max-grace-ms:900000}")
+    private long maxGraceMs;
+
+    @Value("${app.presence.offline.sweep-batch-size:1000}")
+    private int sweepBatchSize;
+
+    public OfflineDetectionService(KeyValueStore store, StatusSnapshotService snapshotService,
+            SseEmitterRegistry sseRegistry, StatusLongPollRegistry longPollRegistry, WebhookNotifier webhookNotifier,
+            PresenceService presenceService, @Value("${app.presence.offline.tick-ms:1000}") long tickMs,
+            @Value("${app.presence.offline.wheel-slots:512}") int wheelSlots) {
+        this.store = store;
+        this.snapshotService = snapshotService;
+        this.sseRegistry = sseRegistry;
+        this.longPollRegistry = longPollRegistry;
+        this.webhookNotifier = webhookNotifier;
+        this.presenceService = presenceService;
+        this.tickMs = tickMs;
+        this.wheel = new HashedTimerWheel<>(tickMs, wheelSlots, System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offline-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queues this node's claim on the member's deadline on the ingest pipeline. */
+    public void claim(KeyValueStore.Pipeline pipeline, Long memberId) {
+        if (enabled) {
+            pipeline.set(OWNER_KEY_PREFIX + memberId, nodeId, Duration.ofMillis(maxGraceMs * 2));
+        }
+    }
+
+    /**
+     * Reschedules the member's deadline after its snapshot became {@code version}.
+     *
+     * @param advisedMs the interval the client was told to send its next heartbeat
+     *                  after, or 0 when none was advised (e.g. a replay)
+     */
+    public void heartbeat(Long memberId, String version, long now, long advisedMs) {
+        if (!enabled) {
+            return;
+        }
+        Tracked next = tracked.compute(memberId, (id, prev) -> {
+            long interval = prev == null ? defaultIntervalMs : prev.intervalMs();
+            if (prev != null) {
+                long gap = now - prev.lastSeenMs();
+                // batches flushed back to back and breaks longer than any grace say nothing about the cadence
+                if (gap >= 1000 && gap <= maxGraceMs) {
+                    interval = (interval * 3 + gap) / 4;
+                }
+            }
+            return new Tracked(version, now, interval, advisedMs);
+        });
+        wheel.schedule(memberId, now + grace(next.graceBasisMs()));
+    }
+
+    private long grace(long intervalMs) {
+        return Math.max(minGraceMs, Math.min(maxGraceMs, (long) (intervalMs * graceMultiplier)));
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<Long> due;
+        try {
+            due = wheel.expire(now);
+        } catch (RuntimeException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Offline wheel tick failed: {}", e.getMessage());
+            }
+            return;
+        }
+        for (Long memberId : due) {
+            Tracked[] expired = new Tracked[1];
+            tracked.computeIfPresent(memberId, (id, t) -> {
+                if (t.lastSeenMs() + grace(t.graceBasisMs()) > now) {
+                    return t; // a heartbeat rescheduled it after the wheel let go
+                }
+                expired[0] = t;
+                return null;
+            });
+            if (expired[0] != null) {
+                expire(memberId, expired[0]);
+            }
+        }
+    }
+
+    private void expire(Long memberId, Tracked t) {
+        try {
+            if (!Objects.equals(store.get(OWNER_KEY_PREFIX + memberId), nodeId)) {
+                return; // a later heartbeat went to another node, which holds the live deadline
+            }
+            markOffline(memberId, t.version(), t.lastSeenMs());
+        } catch (Exception e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Offline marking failed: memberId={} cause={}", memberId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Marks offline the members no node holds a deadline for. Any live
+     * deadline fires within the max grace of the last heartbeat, so a member
+     * last seen longer ago than that (and a couple of ticks) whose snapshot is
+     * not offline has lost its node. After that, members are only looked at
+     * until twice the max grace, except by the sweeps after startup, which
+     * page through everyone seen within the retention to also pick up those
+     * orphaned while every node was down. Every node sweeps; the version check
+     * of markOffline lets only one announce it.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.offline.sweep-interval-ms:60000}",
+            initialDelayString = "${app.presence.offline.sweep-interval-ms:60000}")
+    public void sweepOrphans() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long cutoff = now - maxGraceMs - 2 * tickMs;
+        long from = catchUpFromMs < 0 ? cutoff - maxGraceMs : catchUpFromMs;
+        try {
+            Map<Long, Long> seen = presenceService.lastSeenBetween(from, cutoff, sweepBatchSize);
+            int marked = 0;
+            long last = from;
+            for (Map.Entry<Long, Long> e : seen.entrySet()) {
+                if (sweep(e.getKey(), cutoff)) {
+                    marked++;
+                }
+                last = e.getValue();
+            }
+            if (catchUpFromMs >= 0) {
+                // members sharing the last millisecond are looked at again, which is harmless
+                catchUpFromMs = seen.size() < sweepBatchSize ? -1 : Math.max(last, from + 1);
+            }
+            if (log.isInfoEnabled() && marked > 0) {
+                log.info("Offline sweep: marked={} orphaned members", marked);
+            }
+        } catch (Exception e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Offline sweep failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean sweep(Long memberId, long cutoff) {
+        VersionedSnapshot snapshot = snapshotService.getLatestFields(memberId, OFFLINE_FIELD);
+        if (snapshot.version().isEmpty() || Boolean.TRUE.equals(snapshot.payload().get("isOffline"))) {
+            return false;
+        }
+        // read after the snapshot: a heartbeat since then moved it past the cutoff
+        Long lastSeenMs = presenceService.lastSeenMs(memberId);
+        if (lastSeenMs == null || lastSeenMs > cutoff) {
+            return false;
+        }
+        return markOffline(memberId, snapshot.version(), lastSeenMs);
+    }
+
+    private boolean markOffline(Long memberId, String version, long lastSeenMs) {
+        Instant at = Instant.now();
+        StatusPatch offline = snapshotService.markOffline(memberId, version, at);
+        if (offline == null) {
+            return false;
+        }
+        store.delete(OWNER_KEY_PREFIX + memberId);
+        if (log.isInfoEnabled()) {
+            log.info("Offline: memberId={} lastSeenAt={}", memberId, Instant.ofEpochMilli(lastSeenMs));
+        }
+        sseRegistry.send(memberId, offline);
+        // served from the near cache markOffline just filled
+        longPollRegistry.publish(memberId, snapshotService.getLatestVersioned(memberId));
+        webhookNotifier.wentOffline(memberId, at);
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,166 @@
+package com.meinu.status.api.presence.service;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.presence.dto.response.PresenceResponse;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Who is online, from two sorted sets updated on ingest: {@code presence:seen}
+ * (member to last heartbeat time) and {@code presence:idle} (members whose
+ * latest heartbeat was idle). A member is online or idle while last seen
+ * within the online window, offline after. Listing the online members a viewer
+ * may see, or a team view, is two ZMSCOREs over the viewer's teammates or the
+ * team's roster. Entries older than the retention are trimmed periodically.
+ */
+@Service
+public class PresenceService {
+    private static final Logger log = LoggerFactory.getLogger(PresenceService.class);
+    private static final String SEEN_KEY = "presence:seen";
+    private static final String IDLE_KEY = "presence:idle";
+    public static final String ONLINE = "online";
+    public static final String IDLE = "idle";
+    public static final String OFFLINE = "offline";
+
+    private final KeyValueStore store;
+    private final MemberRepository memberRepository;
+    private final TeamService teamService;
+
+    @Value("${app.presence.online-window-ms:300000}")
+    private long onlineWindowMs;
+
+    @Value("${app.presence.retention-ms:604800000}")
+    private long retentionMs;
+
+    public PresenceService(KeyValueStore store, MemberRepository memberRepository, TeamService teamService) {
+        this.store = store;
+        this.memberRepository = memberRepository;
+        this.teamService = teamService;
+    }
+
+    /** Queues the presence update for a member's newest heartbeat on a caller's pipeline. */
+    public void touch(KeyValueStore.Pipeline pipeline, Long memberId, boolean idle, long now) {
+        String member = String.valueOf(memberId);
+        pipeline.zAdd(SEEN_KEY, member, now);
+        if (idle) {
+            pipeline.zAdd(IDLE_KEY, member, now);
+        } else {
+            pipeline.zRem(IDLE_KEY, member);
+        }
+    }
+
+    /**
+     * Members last seen within [fromMs, toMs] with when, longest ago first, at
+     * most {@code limit}.
+     */
+    public Map<Long, Long> lastSeenBetween(long fromMs, long toMs, int limit) {
+        Map<Long, Long> out = new LinkedHashMap<>();
+        store.zRangeByScore(SEEN_KEY, fromMs, toMs, limit)
+                .forEach(m -> out.put(Long.valueOf(m.member()), (long) m.score()));
+        return out;
+    }
+
+    /** When the member's newest heartbeat arrived, or null if not within the retention. */
+    public Long lastSeenMs(Long memberId) {
+        Double seen = store.zScore(SEEN_KEY, String.valueOf(memberId));
+        return seen == null ? null : seen.longValue();
+    }
+
+    /**
+     * Online and idle members among the viewer and those sharing a team with
+     * them, most recently seen first.
+     */
+    public PresenceResponse online(Long viewerId, int limit) {
+        List<Long> candidates = List.copyOf(teamService.teammateIdsOf(viewerId));
+        List<Double> scores = store.zScores(SEEN_KEY, candidates.stream().map(String::valueOf).toList());
+        long cutoff = System.currentTimeMillis() - onlineWindowMs;
+        List<Long> ids = new ArrayList<>();
+        List<Double> lastSeen = new ArrayList<>();
+        IntStream.range(0, candidates.size())
+                .filter(i -> scores.get(i) != null && scores.get(i) >= cutoff)
+                .boxed()
+                .sorted(Comparator.comparing((Integer i) -> scores.get(i)).reversed())
+                .limit(limit)
+                .forEach(i -> {
+                    ids.add(candidates.get(i));
+                    lastSeen.add(scores.get(i));
+                });
+        List<Double> idle = store.zScores(IDLE_KEY, ids.stream().map(String::valueOf).toList());
+        return response(null, ids, lastSeen, idle, cutoff);
+    }
+
+    /** Every member of the team with its state; online first, then idle, then offline. */
+    public PresenceResponse team(Long teamId) {
+        List<Long> ids = teamService.memberIdsOf(teamId);
+        List<String> members = ids.stream().map(String::valueOf).toList();
+        long cutoff = System.currentTimeMillis() - onlineWindowMs;
+        return response(teamId, ids, store.zScores(SEEN_KEY, members), store.zScores(IDLE_KEY, members), cutoff);
+    }
+
+    private PresenceResponse response(Long teamId, List<Long> ids, List<Double> lastSeen, List<Double> idle,
+            long cutoff) {
+        Map<Long, String> nicknames = memberRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Member::getId, Member::getNickname, (a, b) -> a));
+        List<PresenceResponse.Entry> entries = new ArrayList<>(ids.size());
+        long online = 0;
+        long idleCount = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            Double seen = lastSeen.get(i);
+            String state;
+            if (seen == null || seen < cutoff) {
+                state = OFFLINE;
+            } else if (idle.get(i) != null) {
+                state = IDLE;
+                idleCount++;
+            } else {
+                state = ONLINE;
+                online++;
+            }
+            entries.add(new PresenceResponse.Entry(ids.get(i), nicknames.get(ids.get(i)), state,
+                    seen == null ? null : Instant.ofEpochMilli(seen.longValue())));
+        }
+        entries.sort(Comparator.comparingInt((PresenceResponse.Entry e) -> rank(e.state()))
+                .thenComparing(PresenceResponse.Entry::lastSeenAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return new PresenceResponse(teamId, online, idleCount, entries);
+    }
+
+    private static int rank(String state) {
+        return switch (state) {
+            case ONLINE -> 0;
+            case IDLE -> 1;
+            default -> 2;
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.trim-interval-ms:60000}")
+    public void trim() {
+        long now = System.currentTimeMillis();
+        try {
+            long seen = store.zRemRangeByScore(SEEN_KEY, Double.NEGATIVE_INFINITY, now - retentionMs);
+            // idle flags only matter while the member counts as present
+            long idle = store.zRemRangeByScore(IDLE_KEY, Double.NEGATIVE_INFINITY, now - onlineWindowMs);
+            if (log.isDebugEnabled() && (seen > 0 || idle > 0)) {
+                log.debug("Presence trimmed: seen={} idle={}", seen, idle);
+            }
+        } catch (Exception e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Presence trim failed: {}", e.getMessage());
+            }
+        }
+    }
+}
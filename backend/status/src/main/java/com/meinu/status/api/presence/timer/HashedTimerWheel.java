@@ -0,0 +1,86 @@
+package com.meinu.status.api.presence.timer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashed timing wheel of one deadline per key. A deadline lands in slot
+ * {@code (deadline / tickMs) mod slots}; rescheduling a key moves it between
+ * two slots, so scheduling and cancelling are O(1) however many keys are
+ * pending. Each tick visits one slot, and keys due in a later revolution stay
+ * where they are until their deadline has passed.
+ */
+public final class HashedTimerWheel<K> {
+
+    private record Timeout(long deadlineMs, int slot) {
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final List<Set<K>> slots;
+    private final Map<K, Timeout> timeouts = new HashMap<>();
+    private long cursor; // next tick to expire
+
+    /** @param slots rounded up to a power of two */
+    public HashedTimerWheel(long tickMs, int slots, long nowMs) {
+        if (tickMs <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("tickMs and slots must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.slots.add(new HashSet<>());
+        }
+        this.cursor = nowMs / tickMs;
+    }
+
+    /** Sets the key's deadline, replacing any pending one. */
+    public synchronized void schedule(K key, long deadlineMs) {
+        // an overdue deadline goes into the next slot to expire
+        int slot = (int) (Math.max(deadlineMs / tickMs, cursor) & mask);
+        Timeout old = timeouts.put(key, new Timeout(deadlineMs, slot));
+        if (old != null && old.slot() != slot) {
+            slots.get(old.slot()).remove(key);
+        }
+        slots.get(slot).add(key);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Timeout old = timeouts.remove(key);
+        if (old == null) {
+            return false;
+        }
+        slots.get(old.slot()).remove(key);
+        return true;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    /** Removes and returns the keys whose deadline is at or before {@code nowMs}. */
+    public synchronized List<K> expire(long nowMs) {
+        List<K> due = new ArrayList<>();
+        // only ticks that have fully passed, so nothing in them is still ahead of now
+        while ((cursor + 1) * tickMs <= nowMs) {
+            Iterator<K> it = slots.get((int) (cursor & mask)).iterator();
+            while (it.hasNext()) {
+                K key = it.next();
+                if (timeouts.get(key).deadlineMs() <= nowMs) {
+                    it.remove();
+                    timeouts.remove(key);
+                    due.add(key);
+                }
+            }
+            cursor++;
+        }
+        return due;
+    }
+}
@@ -0,0 +1,38 @@
+package com.meinu.status.api.search.controller;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.search.dto.response.CodeSearchHit;
+import com.meinu.status.api.search.service.CodeSearchService;
+import com.meinu.status.global.common.base.BaseResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+public class CodeSearchController {
+    private static final int MAX_LIMIT = 100;
+
+    private final CodeSearchService codeSearchService;
+    private final MemberService memberService;
+
+    public CodeSearchController(CodeSearchService codeSearchService, MemberService memberService) {
+        this.codeSearchService = codeSearchService;
+        this.memberService = memberService;
+    }
+
+    /** Events whose code snapshot contained {@code q} (3+ characters, case-insensitive), newest first. */
+    @GetMapping("/code")
+    public ResponseEntity<BaseResponse<List<CodeSearchHit>>> code(Authentication auth, @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        Member me = memberService.getByEmail(auth.getName());
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(BaseResponse.success(codeSearchService.search(me.getId(), q, k)));
+    }
+}
@@ -0,0 +1,6 @@
+package com.meinu.status.api.search.dto.response;
+
+import java.time.Instant;
+
+public record CodeSearchHit(long eventId, Instant timestamp, String filePath) {
+}
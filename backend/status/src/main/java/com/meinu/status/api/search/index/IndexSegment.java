@@ -0,0 +1,209 @@
+package com.meinu.status.api.search.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of indexed code snapshots: a document table (event id, time,
+ * file path) and for every trigram the ascending ordinals of the documents
+ * containing it. Written once as a file and only replaced by compaction.
+ */
+public final class IndexSegment {
+    private static final int MAGIC = 0x53545849; // "STXI"
+    private static final int FORMAT = 1;
+
+    final long[] eventIds;
+    final long[] atMs;
+    final String[] filePaths;
+    private final Map<Long, int[]> postings;
+
+    IndexSegment(long[] eventIds, long[] atMs, String[] filePaths, Map<Long, int[]> postings) {
+        this.eventIds = eventIds;
+        this.atMs = atMs;
+        this.filePaths = filePaths;
+        this.postings = postings;
+    }
+
+    public int size() {
+        return eventIds.length;
+    }
+
+    public long eventId(int doc) {
+        return eventIds[doc];
+    }
+
+    public long atMs(int doc) {
+        return atMs[doc];
+    }
+
+    public String filePath(int doc) {
+        return filePaths[doc];
+    }
+
+    /** Documents containing every trigram, ascending. */
+    public int[] match(long[] trigrams) {
+        int[][] lists = new int[trigrams.length][];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+        }
+        return intersect(lists);
+    }
+
+    static int[] intersect(int[][] lists) {
+        if (lists.length == 0) {
+            return new int[0];
+        }
+        for (int[] list : lists) {
+            if (list == null || list.length == 0) {
+                return new int[0];
+            }
+        }
+        // start from the rarest trigram so the candidate set shrinks fastest
+        int[][] sorted = lists.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(l -> l.length));
+        int[] acc = sorted[0];
+        for (int k = 1; k < sorted.length && acc.length > 0; k++) {
+            int[] next = sorted[k];
+            int[] out = new int[acc.length];
+            int n = 0;
+            for (int i = 0, j = 0; i < acc.length && j < next.length; ) {
+                if (acc[i] == next[j]) {
+                    out[n++] = acc[i];
+                    i++;
+                    j++;
+                } else if (acc[i] < next[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            acc = Arrays.copyOf(out, n);
+        }
+        return acc;
+    }
+
+    /** Concatenates the segments in order; ordinals of later segments are shifted. */
+    public static IndexSegment merge(List<IndexSegment> segments) {
+        int total = segments.stream().mapToInt(IndexSegment::size).sum();
+        long[] eventIds = new long[total];
+        long[] atMs = new long[total];
+        String[] filePaths = new String[total];
+        Map<Long, List<int[]>> parts = new HashMap<>();
+        int base = 0;
+        for (IndexSegment s : segments) {
+            System.arraycopy(s.eventIds, 0, eventIds, base, s.size());
+            System.arraycopy(s.atMs, 0, atMs, base, s.size());
+            System.arraycopy(s.filePaths, 0, filePaths, base, s.size());
+            int shift = base;
+            s.postings.forEach((t, docs) -> {
+                int[] shifted = new int[docs.length];
+                for (int i = 0; i < docs.length; i++) {
+                    shifted[i] = docs[i] + shift;
+                }
+                parts.computeIfAbsent(t, k -> new ArrayList<>()).add(shifted);
+            });
+            base += s.size();
+        }
+        Map<Long, int[]> postings = new HashMap<>(parts.size() * 2);
+        parts.forEach((t, lists) -> {
+            int[] all = new int[lists.stream().mapToInt(l -> l.length).sum()];
+            int n = 0;
+            for (int[] l : lists) {
+                System.arraycopy(l, 0, all, n, l.length);
+                n += l.length;
+            }
+            postings.put(t, all);
+        });
+        return new IndexSegment(eventIds, atMs, filePaths, postings);
+    }
+
+    /** Writes to a temporary file first so a crash never leaves a torn segment. */
+    public void write(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++) {
+                out.writeLong(eventIds[i]);
+                out.writeLong(atMs[i]);
+                out.writeUTF(filePaths[i] == null ? "" : filePaths[i]);
+            }
+            long[] terms = postings.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            out.writeInt(terms.length);
+            for (long t : terms) {
+                int[] docs = postings.get(t);
+                out.writeLong(t);
+                writeVarInt(out, docs.length);
+                int prev = 0;
+                for (int d : docs) {
+                    writeVarInt(out, d - prev);
+                    prev = d;
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static IndexSegment read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                throw new IOException("not an index segment: " + path);
+            }
+            int n = in.readInt();
+            long[] eventIds = new long[n];
+            long[] atMs = new long[n];
+            String[] filePaths = new String[n];
+            for (int i = 0; i < n; i++) {
+                eventIds[i] = in.readLong();
+                atMs[i] = in.readLong();
+                String p = in.readUTF();
+                filePaths[i] = p.isEmpty() ? null : p;
+            }
+            int terms = in.readInt();
+            Map<Long, int[]> postings = new HashMap<>(terms * 2);
+            for (int k = 0; k < terms; k++) {
+                long t = in.readLong();
+                int[] docs = new int[readVarInt(in)];
+                int prev = 0;
+                for (int i = 0; i < docs.length; i++) {
+                    prev += readVarInt(in);
+                    docs[i] = prev;
+                }
+                postings.put(t, docs);
+            }
+            return new IndexSegment(eventIds, atMs, filePaths, postings);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.meinu.status.api.search.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Mutable in-memory segment receiving new snapshots until it is flushed. */
+public final class SegmentBuilder {
+
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private long[] eventIds = new long[16];
+    private long[] atMs = new long[16];
+    private String[] filePaths = new String[16];
+    private int size;
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    public int size() {
+        return size;
+    }
+
+    public void add(long eventId, long at, String filePath, long[] trigrams) {
+        if (size == eventIds.length) {
+            eventIds = Arrays.copyOf(eventIds, size * 2);
+            atMs = Arrays.copyOf(atMs, size * 2);
+            filePaths = Arrays.copyOf(filePaths, size * 2);
+        }
+        int doc = size++;
+        eventIds[doc] = eventId;
+        atMs[doc] = at;
+        filePaths[doc] = filePath;
+        for (long t : trigrams) {
+            postings.computeIfAbsent(t, k -> new IntList()).add(doc);
+        }
+    }
+
+    /** Same contract as {@link IndexSegment#match}, ordinals of this builder. */
+    public int[] match(long[] trigrams) {
+        int[][] lists = new int[trigrams.length][];
+        for (int i = 0; i < trigrams.length; i++) {
+            IntList list = postings.get(trigrams[i]);
+            lists[i] = list == null ? null : list.toArray();
+        }
+        return IndexSegment.intersect(lists);
+    }
+
+    public long eventId(int doc) {
+        return eventIds[doc];
+    }
+
+    public long atMs(int doc) {
+        return atMs[doc];
+    }
+
+    public String filePath(int doc) {
+        return filePaths[doc];
+    }
+
+    public IndexSegment build() {
+        Map<Long, int[]> frozen = new HashMap<>(postings.size() * 2);
+        postings.forEach((t, list) -> frozen.put(t, list.toArray()));
+        return new IndexSegment(Arrays.copyOf(eventIds, size), Arrays.copyOf(atMs, size),
+                Arrays.copyOf(filePaths, size), frozen);
+    }
+}
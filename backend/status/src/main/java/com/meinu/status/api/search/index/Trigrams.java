@@ -0,0 +1,36 @@
+package com.meinu.status.api.search.index;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/** Case-insensitive character trigrams packed into longs (three 16-bit chars). */
+public final class Trigrams {
+
+    private Trigrams() {
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Distinct trigrams of the normalized text, sorted. */
+    public static long[] of(String normalized) {
+        int n = normalized.length() - 2;
+        if (n <= 0) {
+            return new long[0];
+        }
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = ((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2);
+        }
+        Arrays.sort(out);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || out[i] != out[i - 1]) {
+                out[distinct++] = out[i];
+            }
+        }
+        return Arrays.copyOf(out, distinct);
+    }
+}
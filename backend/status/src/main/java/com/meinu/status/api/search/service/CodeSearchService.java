@@ -0,0 +1,328 @@
+package com.meinu.status.api.search.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.activity.service.ActivityIntervalService;
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.api.ingest.store.EventStore;
+import com.meinu.status.api.search.dto.response.CodeSearchHit;
+import com.meinu.status.api.search.index.IndexSegment;
+import com.meinu.status.api.search.index.SegmentBuilder;
+import com.meinu.status.api.search.index.Trigrams;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-member trigram index over the {@code code} snapshots sent by the
+ * extension, answering "which events had a file containing X", newest first.
+ *
+ * <p>Snapshots are indexed off the request thread into an in-memory segment
+ * that is flushed to {@code {index-dir}/{memberId}/seg-N.idx} once it is large
+ * enough or on the periodic flush; a member's segments are merged into one when
+ * there are too many. A snapshot whose content hash equals the previous one of
+ * the same file is skipped, so index size follows edits rather than heartbeats.
+ * Trigram matches are only candidates and are confirmed against the stored
+ * payload before they are returned.
+ */
+@Service
+public class CodeSearchService {
+    private static final Logger log = LoggerFactory.getLogger(CodeSearchService.class);
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final int LAST_HASHES_PER_MEMBER = 1024;
+
+    private record Snapshot(long eventId, long atMs, String filePath, String code) {
+    }
+
+    private record Candidate(long eventId, long atMs, String filePath) {
+    }
+
+    private static final class MemberIndex {
+        final Path dir;
+        final List<Path> files = new ArrayList<>();
+        List<IndexSegment> loaded; // null until searched, dropped again when idle
+        SegmentBuilder live = new SegmentBuilder();
+        int nextSegment;
+        long lastSearchedMs;
+        final Map<String, Long> lastHashByFile = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > LAST_HASHES_PER_MEMBER;
+            }
+        };
+
+        MemberIndex(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    private final EventStore eventStore;
+    private final ObjectMapper objectMapper;
+    private final Path root;
+    private final ThreadPoolExecutor indexer;
+    private final Map<Long, MemberIndex> members = new ConcurrentHashMap<>();
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.segment-max-docs:256}")
+    private int segmentMaxDocs;
+
+    @Value("${app.search.max-segments:8}")
+    private int maxSegments;
+
+    @Value("${app.search.max-candidates:500}")
+    private int maxCandidates;
+
+    @Value("${app.search.idle-unload-ms:600000}")
+    private long idleUnloadMs;
+
+    public CodeSearchService(EventStore eventStore, ObjectMapper objectMapper,
+            @Value("${app.search.index-dir:./data/code-index}") String indexDir,
+            @Value("${app.search.queue-capacity:1000}") int queueCapacity) {
+        this.eventStore = eventStore;
+        this.objectMapper = objectMapper;
+        this.root = Path.of(indexDir);
+        this.indexer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "code-indexer");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Queues the code snapshots among freshly stored heartbeats for indexing. */
+    public void index(Long memberId, List<Map<String, Object>> bodies, List<Long> eventIds, long now) {
+        if (!enabled || eventIds.size() != bodies.size()) {
+            return;
+        }
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            Map<String, Object> body = bodies.get(i);
+            if (body.get("code") instanceof String code && code.length() >= 3) {
+                snapshots.add(new Snapshot(eventIds.get(i),
+                        ActivityIntervalService.timestampMs(body.get("timestamp"), now),
+                        body.get("filePath") instanceof String p ? p : null, code));
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            indexer.execute(() -> indexNow(memberId, snapshots));
+        } catch (RejectedExecutionException e) {
+            // the snapshot stays searchable once the file is edited again
+            if (log.isWarnEnabled()) {
+                log.warn("Code index queue full, skipped: memberId={} snapshots={}", memberId, snapshots.size());
+            }
+        }
+    }
+
+    private void indexNow(Long memberId, List<Snapshot> snapshots) {
+        MemberIndex m = member(memberId);
+        synchronized (m) {
+            for (Snapshot s : snapshots) {
+                long hash = EventFields.hash64(s.code());
+                Long previous = m.lastHashByFile.put(s.filePath() == null ? "" : s.filePath(), hash);
+                if (previous != null && previous == hash) {
+                    continue;
+                }
+                m.live.add(s.eventId(), s.atMs(), s.filePath(), Trigrams.of(Trigrams.normalize(s.code())));
+            }
+            if (m.live.size() >= segmentMaxDocs) {
+                flush(m);
+            }
+        }
+    }
+
+    /** Newest events whose code contained {@code query} (case-insensitive), at most {@code limit}. */
+    public List<CodeSearchHit> search(Long memberId, String query, int limit) {
+        String needle = query == null ? "" : Trigrams.normalize(query);
+        if (needle.length() < 3) {
+            throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        }
+        long[] trigrams = Trigrams.of(needle);
+        List<Candidate> candidates = new ArrayList<>();
+        MemberIndex m = member(memberId);
+        synchronized (m) {
+            m.lastSearchedMs = System.currentTimeMillis();
+            for (IndexSegment segment : loaded(m)) {
+                for (int doc : segment.match(trigrams)) {
+                    candidates.add(new Candidate(segment.eventId(doc), segment.atMs(doc), segment.filePath(doc)));
+                }
+            }
+            for (int doc : m.live.match(trigrams)) {
+                candidates.add(new Candidate(m.live.eventId(doc), m.live.atMs(doc), m.live.filePath(doc)));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::atMs).reversed());
+
+        // confirm newest candidates first against the stored payloads
+        List<CodeSearchHit> hits = new ArrayList<>(limit);
+        int checked = 0;
+        int chunk = Math.max(limit * 2, 16);
+        while (hits.size() < limit && checked < candidates.size() && checked < maxCandidates) {
+            List<Candidate> batch = candidates.subList(checked, Math.min(candidates.size(), checked + chunk));
+            checked += batch.size();
+            Map<Long, String> payloads = eventStore.payloads(memberId,
+                    batch.stream().map(Candidate::eventId).toList());
+            for (Candidate c : batch) {
+                String code = code(payloads.get(c.eventId()));
+                if (code != null && Trigrams.normalize(code).contains(needle)) {
+                    hits.add(new CodeSearchHit(c.eventId(), Instant.ofEpochMilli(c.atMs()), c.filePath()));
+                    if (hits.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    /** Flushes live segments, merges members with too many segments and unloads idle ones. */
+    @Scheduled(fixedDelayString = "${app.search.flush-interval-ms:30000}")
+    public void maintain() {
+        long now = System.currentTimeMillis();
+        for (MemberIndex m : members.values()) {
+            synchronized (m) {
+                try {
+                    flush(m);
+                    if (m.files.size() > maxSegments) {
+                        compact(m);
+                    }
+                } catch (UncheckedIOException e) {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Code index maintenance failed: dir={} cause={}", m.dir, e.getMessage());
+                    }
+                }
+                if (m.loaded != null && now - m.lastSearchedMs > idleUnloadMs) {
+                    m.loaded = null;
+                }
+            }
+        }
+    }
+
+    private void flush(MemberIndex m) {
+        if (m.live.size() == 0) {
+            return;
+        }
+        IndexSegment segment = m.live.build();
+        Path path = m.dir.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, m.nextSegment++, SEGMENT_SUFFIX));
+        try {
+            Files.createDirectories(m.dir);
+            segment.write(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        m.files.add(path);
+        if (m.loaded != null) {
+            m.loaded.add(segment);
+        }
+        m.live = new SegmentBuilder();
+    }
+
+    private void compact(MemberIndex m) {
+        IndexSegment merged = IndexSegment.merge(loaded(m));
+        List<Path> old = List.copyOf(m.files);
+        Path path = m.dir.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, m.nextSegment++, SEGMENT_SUFFIX));
+        try {
+            merged.write(path);
+            for (Path p : old) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        m.files.clear();
+        m.files.add(path);
+        m.loaded = new ArrayList<>(List.of(merged));
+        if (log.isInfoEnabled()) {
+            log.info("Code index compacted: dir={} segments={} docs={}", m.dir, old.size(), merged.size());
+        }
+    }
+
+    private List<IndexSegment> loaded(MemberIndex m) {
+        if (m.loaded == null) {
+            List<IndexSegment> segments = new ArrayList<>(m.files.size());
+            for (Path p : m.files) {
+                try {
+                    segments.add(IndexSegment.read(p));
+                } catch (IOException e) {
+                    if (log.isWarnEnabled()) {
+                        log.warn("Skipping unreadable index segment {}: {}", p, e.getMessage());
+                    }
+                }
+            }
+            m.loaded = segments;
+        }
+        return m.loaded;
+    }
+
+    private MemberIndex member(Long memberId) {
+        return members.computeIfAbsent(memberId, id -> {
+            MemberIndex m = new MemberIndex(root.resolve(String.valueOf(id)));
+            if (Files.isDirectory(m.dir)) {
+                try (Stream<Path> files = Files.list(m.dir)) {
+                    files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    }).sorted().forEach(m.files::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (!m.files.isEmpty()) {
+                    String last = m.files.get(m.files.size() - 1).getFileName().toString();
+                    m.nextSegment = Integer.parseInt(last.substring(SEGMENT_PREFIX.length(),
+                            last.length() - SEGMENT_SUFFIX.length())) + 1;
+                }
+            }
+            return m;
+        });
+    }
+
+    private String code(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            JsonNode code = objectMapper.readTree(payload).get("code");
+            return code != null && code.isTextual() ? code.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        indexer.shutdown();
+        indexer.awaitTermination(10, TimeUnit.SECONDS);
+        for (MemberIndex m : members.values()) {
+            synchronized (m) {
+                flush(m);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.meinu.status.api.status.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process LRU cache of the latest status snapshot per member.
+ * Bounded both by entry count and by an approximate byte budget, because a
+ * snapshot may carry the full source of the active file.
+ *
+ * <p>Every entry carries a sequence from {@link #nextSequence()}: a writer
+ * takes one when it caches what it just wrote, a reader before it looks at
+ * the cache and goes to Redis. A put never replaces an entry with a higher
+ * sequence, so a reader that loaded the hash before a concurrent write cannot
+ * put the older snapshot back over the writer's. Marking an entry stale gives
+ * it a new sequence for the same reason. An invalidation of a member that is
+ * not cached leaves no entry to compare against, so new entries are only
+ * added with a sequence above the latest such invalidation.
+ */
+public class SnapshotNearCache {
+
+    public record Entry(Map<String, Object> payload, String version, long weight, long loadedAtMs, boolean stale,
+            long sequence) {
+        Entry asStale(long sequence) {
+            return new Entry(payload, version, weight, loadedAtMs, true, sequence);
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong sequence = new AtomicLong();
+    private long totalBytes;
+    private long uncachedInvalidation;
+
+    public SnapshotNearCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Rough heap footprint of a snapshot: the UTF-16 JSON text plus the parsed
+     * map, which is of the same order.
+     */
+    public static long weigh(String json) {
+        return weigh(json.length());
+    }
+
+    /** {@link #weigh(String)} of a snapshot whose JSON is {@code chars} long. */
+    public static long weigh(long chars) {
+        return 128L + chars * 4L;
+    }
+
+    public long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    public synchronized Entry get(Long memberId) {
+        return entries.get(memberId);
+    }
+
+    /** Caches the entry unless the current one has a higher sequence. */
+    public synchronized void put(Long memberId, Entry entry) {
+        Entry current = entries.get(memberId);
+        if (current != null ? current.sequence() > entry.sequence() : uncachedInvalidation > entry.sequence()) {
+            return;
+        }
+        if (entry.weight() > maxBytes) {
+            // too large to be worth caching; drop any older copy so it is not served
+            remove(memberId);
+            return;
+        }
+        Entry old = entries.put(memberId, entry);
+        if (old != null) {
+            totalBytes -= old.weight();
+        }
+        totalBytes += entry.weight();
+        evictIfNeeded();
+    }
+
+    public synchronized void markStale(Long memberId) {
+        Entry e = entries.get(memberId);
+        if (e != null) {
+            entries.put(memberId, e.asStale(nextSequence()));
+        } else {
+            // a load that started before this may have read what the invalidation replaced
+            uncachedInvalidation = nextSequence();
+        }
+    }
+
+    /** Drops the entry unless it has a higher sequence than {@code sequence}. */
+    public synchronized void remove(Long memberId, long sequence) {
+        Entry current = entries.get(memberId);
+        if (current != null && current.sequence() <= sequence) {
+            remove(memberId);
+        }
+    }
+
+    public synchronized void remove(Long memberId) {
+        Entry old = entries.remove(memberId);
+        if (old != null) {
+            totalBytes -= old.weight();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+            totalBytes -= it.next().getValue().weight();
+            it.remove();
+        }
+    }
+}
@@ -1,52 +1,88 @@
 package com.meinu.status.api.status.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.meinu.status.api.member.entity.Member;
 import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.api.status.dto.response.HistoryPage;
+import com.meinu.status.api.status.service.StatusBreakdownService;
+import com.meinu.status.api.status.service.StatusHistoryService;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
 import com.meinu.status.global.common.base.BaseResponse;
-import com.meinu.status.global.common.base.BaseResponseStatus;
-import org.springframework.http.HttpStatus;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/status")
 public class StatusController {
-    private final StringRedisTemplate redis;
-    private final ObjectMapper objectMapper;
+    private final StatusSnapshotService snapshotService;
+    private final StatusBreakdownService breakdownService;
+    private final StatusHistoryService historyService;
     private final MemberService memberService;
 
-    public StatusController(StringRedisTemplate redis, ObjectMapper objectMapper, MemberService memberService) {
-        this.redis = redis;
-        this.objectMapper = objectMapper;
+    public StatusController(StatusSnapshotService snapshotService, StatusBreakdownService breakdownService,
+            StatusHistoryService historyService, MemberService memberService) {
+        this.snapshotService = snapshotService;
+        this.breakdownService = breakdownService;
+        this.historyService = historyService;
         this.memberService = memberService;
     }
 
+    /**
+     * Own latest status, or only the listed {@code fields} of it. The version
+     * "patch" events of the stream apply to is in the X-Status-Version header.
+     */
     @GetMapping("/latest")
-    public ResponseEntity<BaseResponse<Map<String, Object>>> latest(Authentication auth) {
+    public ResponseEntity<BaseResponse<Map<String, Object>>> latest(Authentication auth,
+            @RequestParam(required = false) List<String> fields) {
         Member me = memberService.getByEmail(auth.getName());
-        String key = "status:latest:" + me.getId();
-        String json = redis.opsForValue().get(key);
-        if (!StringUtils.hasText(json)) {
-            return ResponseEntity.ok(BaseResponse.success(Collections.emptyMap()));
-        }
-        try {
-            Map<String, Object> payload = objectMapper.readValue(json, new TypeReference<>() {
-            });
-            return ResponseEntity.ok(BaseResponse.success(payload));
-        } catch (Exception e) {
-            // JSON 파싱 실패 시 서버 오류로 반환
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(BaseResponse.of(BaseResponseStatus.SERVER_ERROR));
-        }
+        VersionedSnapshot snapshot = fields == null || fields.isEmpty()
+                ? snapshotService.getLatestVersioned(me.getId())
+                : snapshotService.getLatestFields(me.getId(), fields);
+        return ResponseEntity.ok()
+                .header(StatusPublicController.VERSION_HEADER, snapshot.version())
+                .body(BaseResponse.success(snapshot.payload()));
+    }
+
+    /**
+     * Active time per language, workspace or branch in [from, to).
+     * Defaults to the current month (UTC).
+     */
+    @GetMapping("/breakdown")
+    public ResponseEntity<BaseResponse<List<BreakdownResponse>>> breakdown(Authentication auth,
+            @RequestParam(defaultValue = "language") String by,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        Member me = memberService.getByEmail(auth.getName());
+        Instant start = from != null ? from
+                : LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant end = to != null ? to : Instant.now();
+        return ResponseEntity.ok(BaseResponse.success(breakdownService.breakdown(me.getId(), by, start, end)));
+    }
+
+    /**
+     * Own heartbeats in the order they were received, {@code limit} at a time:
+     * from {@code from} (default: the last 24 hours), then from the
+     * {@code nextAfter} of the previous page passed as {@code after}.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<BaseResponse<HistoryPage>> history(Authentication auth,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(defaultValue = "100") int limit) {
+        Member me = memberService.getByEmail(auth.getName());
+        Instant start = from != null ? from : Instant.now().minus(Duration.ofDays(1));
+        return ResponseEntity.ok(BaseResponse.success(historyService.history(me.getId(), after, start, limit)));
     }
 }
@@ -1,65 +1,112 @@
 package com.meinu.status.api.status.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.meinu.status.api.member.entity.Member;
-import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.status.longpoll.StatusLongPollRegistry;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import com.meinu.status.api.status.watch.StatusWatchRegistry;
 import com.meinu.status.global.common.base.BaseResponse;
-import com.meinu.status.global.common.base.BaseResponseStatus;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/status")
 public class StatusPublicController {
-    private final StringRedisTemplate redis;
-    private final ObjectMapper objectMapper;
-    private final MemberRepository memberRepository;
+    public static final String VERSION_HEADER = "X-Status-Version";
+    private static final long MAX_WAIT_MS = 60_000L;
 
-    public StatusPublicController(StringRedisTemplate redis, ObjectMapper objectMapper,
-            MemberRepository memberRepository) {
-        this.redis = redis;
-        this.objectMapper = objectMapper;
-        this.memberRepository = memberRepository;
+    private final StatusSnapshotService snapshotService;
+    private final MemberService memberService;
+    private final StatusLongPollRegistry longPollRegistry;
+    private final StatusWatchRegistry watchRegistry;
+
+    public StatusPublicController(StatusSnapshotService snapshotService, MemberService memberService,
+            StatusLongPollRegistry longPollRegistry, StatusWatchRegistry watchRegistry) {
+        this.snapshotService = snapshotService;
+        this.memberService = memberService;
+        this.longPollRegistry = longPollRegistry;
+        this.watchRegistry = watchRegistry;
     }
 
     /**
      * Latest status by API key for device clients (e.g., ESP32). Secured by
-     * x-api-key header.
+     * x-api-key header. With {@code fields} only those fields are read and
+     * returned, which spares a display the {@code code} it never shows.
      */
     @GetMapping("/latest/by-key")
     public ResponseEntity<BaseResponse<Map<String, Object>>> latestByKey(
-            @RequestHeader(value = "x-api-key", required = false) String apiKey) {
-        if (!StringUtils.hasText(apiKey)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(BaseResponse.of(BaseResponseStatus.API_KEY_REQUIRED));
-        }
-        Member member = memberRepository.findByApiKey(apiKey).orElse(null);
-        if (member == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(BaseResponse.of(BaseResponseStatus.API_KEY_INVALID));
-        }
-        String key = "status:latest:" + member.getId();
-        String json = redis.opsForValue().get(key);
-        if (!StringUtils.hasText(json)) {
-            return ResponseEntity.ok(BaseResponse.success(Collections.emptyMap()));
+            @RequestHeader(value = "x-api-key", required = false) String apiKey,
+            @RequestParam(required = false) List<String> fields) {
+        Member member = authenticate(apiKey);
+        watchRegistry.markWatched(member.getId());
+        return versioned(latest(member.getId(), fields));
+    }
+
+    /**
+     * Long-poll variant of {@link #latestByKey}: answers immediately if the
+     * current version differs from {@code version}, otherwise parks the request
+     * until the next ingest for this member or until {@code timeoutMs}, then
+     * answers 304. The version is returned in the X-Status-Version header.
+     * {@code fields} works as for {@link #latestByKey}; the version still
+     * covers the whole snapshot, so a change to an unrequested field also
+     * completes the wait.
+     */
+    @GetMapping("/latest/by-key/wait")
+    public DeferredResult<ResponseEntity<BaseResponse<Map<String, Object>>>> waitByKey(
+            @RequestHeader(value = "x-api-key", required = false) String apiKey,
+            @RequestParam(defaultValue = "") String version,
+            @RequestParam(defaultValue = "30000") long timeoutMs,
+            @RequestParam(required = false) List<String> fields) {
+        Member member = authenticate(apiKey);
+        watchRegistry.markWatched(member.getId());
+        VersionedSnapshot current = latest(member.getId(), fields);
+        if (!current.version().equals(version)) {
+            DeferredResult<ResponseEntity<BaseResponse<Map<String, Object>>>> done = new DeferredResult<>();
+            done.setResult(versioned(current));
+            return done;
         }
+        long timeout = Math.max(1_000L, Math.min(timeoutMs, MAX_WAIT_MS));
+        ResponseEntity<BaseResponse<Map<String, Object>>> notModified = ResponseEntity
+                .status(HttpStatus.NOT_MODIFIED).header(VERSION_HEADER, version).build();
+        DeferredResult<ResponseEntity<BaseResponse<Map<String, Object>>>> result = longPollRegistry
+                .register(member.getId(), timeout, notModified, s -> versioned(
+                        fields == null || fields.isEmpty() ? s : StatusSnapshotService.fieldsOf(s, fields)));
+        // re-check: an ingest may have landed between the first read and registering
         try {
-            Map<String, Object> payload = objectMapper.readValue(json, new TypeReference<>() {
-            });
-            return ResponseEntity.ok(BaseResponse.success(payload));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(BaseResponse.of(BaseResponseStatus.SERVER_ERROR));
+            VersionedSnapshot latest = latest(member.getId(), fields);
+            if (!latest.version().equals(version)) {
+                result.setResult(versioned(latest));
+            }
+        } catch (Exception ignored) {
+            // keep waiting; the next ingest or the timeout completes the request
         }
+        return result;
+    }
+
+    private VersionedSnapshot latest(Long memberId, List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return snapshotService.getLatestFields(memberId, fields);
+        }
+        return snapshotService.getLatestVersioned(memberId);
+    }
+
+    private Member authenticate(String apiKey) {
+        return memberService.getByApiKey(apiKey);
+    }
+
+    private ResponseEntity<BaseResponse<Map<String, Object>>> versioned(VersionedSnapshot snapshot) {
+        return ResponseEntity.ok()
+                .header(VERSION_HEADER, snapshot.version())
+                .body(BaseResponse.success(snapshot.payload()));
     }
 }
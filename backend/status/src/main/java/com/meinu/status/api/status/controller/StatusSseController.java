@@ -4,26 +4,53 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.meinu.status.api.member.entity.Member;
 import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.status.dto.response.TeammateStatus;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
 import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/status")
 public class StatusSseController {
     private static final Logger log = LoggerFactory.getLogger(StatusSseController.class);
+    private static final long TIMEOUT_MS = 30 * 60 * 1000L;
     private final SseEmitterRegistry registry;
     private final MemberService memberService;
+    private final TeamService teamService;
+    private final StatusSnapshotService snapshotService;
+
+    @Value("${app.status.stream.max-topic-members:200}")
+    private int maxTopicMembers;
 
-    public StatusSseController(SseEmitterRegistry registry, MemberService memberService) {
+    public StatusSseController(SseEmitterRegistry registry, MemberService memberService, TeamService teamService,
+            StatusSnapshotService snapshotService) {
         this.registry = registry;
         this.memberService = memberService;
+        this.teamService = teamService;
+        this.snapshotService = snapshotService;
     }
 
+    /**
+     * Own status changes as "patch" events, to be applied on top of the
+     * version {@code /latest} returned.
+     */
     @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter stream(Authentication auth) {
         Member me = memberService.getByEmail(auth.getName());
@@ -31,6 +58,42 @@ public class StatusSseController {
             log.info("SSE connect: memberId={} email={}", me.getId(), me.getEmail());
         }
         // 30분 타임아웃
-        return registry.register(me.getId(), 30 * 60 * 1000L);
+        return registry.register(me.getId(), TIMEOUT_MS);
+    }
+
+    /**
+     * One stream for many members: everyone in {@code teamId} and/or the listed
+     * {@code members} (teammates only). Starts with a "snapshot" event holding
+     * the current {@code {version, payload}} of all of them, then "patch" events
+     * of {@code {memberId, patch}}. Both only carry the {@link TeammateStatus}
+     * fields, never file paths or code.
+     */
+    @GetMapping(path = "/stream/topic", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter topic(Authentication auth,
+            @RequestParam(required = false) Long teamId,
+            @RequestParam(required = false) List<Long> members) {
+        Member me = memberService.getByEmail(auth.getName());
+        Set<Long> publishers = new LinkedHashSet<>();
+        if (teamId != null) {
+            teamService.requireMember(teamId, me.getId());
+            publishers.addAll(teamService.memberIdsOf(teamId));
+        }
+        if (members != null && !members.isEmpty()) {
+            teamService.requireVisible(me.getId(), members);
+            publishers.addAll(members);
+        }
+        if (publishers.isEmpty() || publishers.size() > maxTopicMembers) {
+            throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("SSE topic connect: memberId={} teamId={} publishers={}", me.getId(), teamId,
+                    publishers.size());
+        }
+        // subscribe before reading the snapshot so no update falls in between
+        SseEmitter emitter = registry.subscribe(publishers, TIMEOUT_MS);
+        Map<Long, VersionedSnapshot> snapshot = new LinkedHashMap<>();
+        snapshotService.getLatestMany(publishers).forEach((id, s) -> snapshot.put(id, TeammateStatus.of(s)));
+        registry.sendTo(emitter, "snapshot", snapshot);
+        return emitter;
     }
 }
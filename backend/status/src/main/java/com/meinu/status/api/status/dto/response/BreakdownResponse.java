@@ -0,0 +1,4 @@
+package com.meinu.status.api.status.dto.response;
+
+public record BreakdownResponse(String key, long activeMs, long keystrokes, long heartbeats) {
+}
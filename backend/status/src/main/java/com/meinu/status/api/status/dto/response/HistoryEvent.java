@@ -0,0 +1,8 @@
+package com.meinu.status.api.status.dto.response;
+
+import java.time.Instant;
+
+/** One stored heartbeat, as its extracted columns; null where the heartbeat lacked the field. */
+public record HistoryEvent(long id, Instant at, String workspaceRoot, String languageId, String branch, Boolean idle,
+        Long sessionActiveMs, Long keystrokes) {
+}
@@ -0,0 +1,7 @@
+package com.meinu.status.api.status.dto.response;
+
+import java.util.List;
+
+/** @param nextAfter id to pass as {@code after} for the next page; null on the last page */
+public record HistoryPage(List<HistoryEvent> events, Long nextAfter) {
+}
@@ -0,0 +1,37 @@
+package com.meinu.status.api.status.dto.response;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Change from snapshot {@code base} to snapshot {@code version}: fields in
+ * {@code set} were added or changed, fields in {@code unset} removed. A null
+ * {@code base} means {@code set} is the whole snapshot. Clients holding another
+ * version than {@code base} reload instead of applying it.
+ */
+public record StatusPatch(String version, String base, Map<String, Object> set, List<String> unset) {
+
+    public static StatusPatch between(VersionedSnapshot previous, VersionedSnapshot next) {
+        if (previous == null || previous.version().isEmpty()) {
+            return new StatusPatch(next.version(), null, next.payload(), List.of());
+        }
+        Map<String, Object> set = new LinkedHashMap<>();
+        next.payload().forEach((field, value) -> {
+            if (!Objects.equals(previous.payload().get(field), value)) {
+                set.put(field, value);
+            }
+        });
+        List<String> unset = new ArrayList<>();
+        previous.payload().keySet().forEach(field -> {
+            if (!next.payload().containsKey(field)) {
+                unset.add(field);
+            }
+        });
+        return new StatusPatch(next.version(), previous.version(), set, unset);
+    }
+}
@@ -0,0 +1,64 @@
+package com.meinu.status.api.status.dto.response;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a member's status shows to others: the workspace name (not its path),
+ * language, branch, idle/offline state and counters. File paths, code and
+ * client details stay with the member's own stream.
+ */
+public final class TeammateStatus {
+    public static final String WORKSPACE = "workspace";
+    private static final String WORKSPACE_ROOT = "workspaceRoot";
+    private static final Set<String> SHARED = Set.of("timestamp", "languageId", "branch", "isIdle", "idleForMs",
+            "isOffline", "offlineAt", "sessionMs", "sessionActiveMs", "keystrokes");
+
+    private TeammateStatus() {
+    }
+
+    /** The shared fields of a snapshot, under the snapshot's own version. */
+    public static VersionedSnapshot of(VersionedSnapshot snapshot) {
+        return new VersionedSnapshot(snapshot.version(), of(snapshot.payload()));
+    }
+
+    public static Map<String, Object> of(Map<String, Object> payload) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        payload.forEach((field, value) -> {
+            if (WORKSPACE_ROOT.equals(field)) {
+                out.put(WORKSPACE, value instanceof String root ? workspaceName(root) : null);
+            } else if (SHARED.contains(field)) {
+                out.put(field, value);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * The shared part of a patch. Versions are kept, so a patch that changed
+     * only private fields still moves a subscriber to the new version.
+     */
+    public static StatusPatch of(StatusPatch patch) {
+        List<String> unset = new ArrayList<>();
+        for (String field : patch.unset()) {
+            if (WORKSPACE_ROOT.equals(field)) {
+                unset.add(WORKSPACE);
+            } else if (SHARED.contains(field)) {
+                unset.add(field);
+            }
+        }
+        return new StatusPatch(patch.version(), patch.base(), of(patch.set()), unset);
+    }
+
+    /** Last path segment of a workspace root, either separator. */
+    public static String workspaceName(String root) {
+        String trimmed = root.replaceAll("[/\\\\]+$", "");
+        int sep = Math.max(trimmed.lastIndexOf('/'), trimmed.lastIndexOf('\\'));
+        return sep < 0 ? trimmed : trimmed.substring(sep + 1);
+    }
+}
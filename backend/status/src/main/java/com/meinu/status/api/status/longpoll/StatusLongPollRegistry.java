@@ -0,0 +1,60 @@
+package com.meinu.status.api.status.longpoll;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parked long-poll requests per member. Requests are held as
+ * {@link DeferredResult}s (no thread while waiting) and completed from the
+ * ingest path right next to the SSE broadcast, or by their timeout.
+ */
+@Component
+public class StatusLongPollRegistry {
+    private static final Logger log = LoggerFactory.getLogger(StatusLongPollRegistry.class);
+    private final Map<Long, Set<Consumer<VersionedSnapshot>>> waitersByMember = new ConcurrentHashMap<>();
+
+    public <T> DeferredResult<T> register(Long memberId, long timeoutMs, T timeoutResult,
+            Function<VersionedSnapshot, T> onChange) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMs, timeoutResult);
+        Consumer<VersionedSnapshot> waiter = snapshot -> result.setResult(onChange.apply(snapshot));
+        waitersByMember.compute(memberId, (k, set) -> {
+            Set<Consumer<VersionedSnapshot>> s = set != null ? set : ConcurrentHashMap.newKeySet();
+            s.add(waiter);
+            return s;
+        });
+        result.onCompletion(() -> remove(memberId, waiter));
+        return result;
+    }
+
+    public void publish(Long memberId, VersionedSnapshot snapshot) {
+        Set<Consumer<VersionedSnapshot>> waiters = waitersByMember.remove(memberId);
+        if (waiters == null)
+            return;
+        if (log.isDebugEnabled()) {
+            log.debug("Long-poll wake: memberId={} waiters={}", memberId, waiters.size());
+        }
+        for (Consumer<VersionedSnapshot> w : waiters) {
+            w.accept(snapshot);
+        }
+    }
+
+    public boolean hasWaiters(Long memberId) {
+        return waitersByMember.containsKey(memberId);
+    }
+
+    private void remove(Long memberId, Consumer<VersionedSnapshot> waiter) {
+        waitersByMember.computeIfPresent(memberId, (k, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
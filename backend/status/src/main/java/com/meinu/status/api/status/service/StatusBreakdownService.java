@@ -0,0 +1,36 @@
+package com.meinu.status.api.status.service;
+
+import com.meinu.status.api.ingest.store.EventStore;
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Active time and keystrokes per language, workspace or branch, aggregated by
+ * the {@link EventStore} over the extracted event columns. Runs read-only so
+ * it is served by a replica when read routing is configured.
+ */
+@Service
+public class StatusBreakdownService {
+    private static final Set<String> BY = Set.of("language", "branch", "workspace");
+
+    private final EventStore eventStore;
+
+    public StatusBreakdownService(EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BreakdownResponse> breakdown(Long memberId, String by, Instant from, Instant to) {
+        if (!BY.contains(by)) {
+            throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        }
+        return eventStore.breakdown(memberId, by, from, to);
+    }
+}
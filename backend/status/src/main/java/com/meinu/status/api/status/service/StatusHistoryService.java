@@ -0,0 +1,35 @@
+package com.meinu.status.api.status.service;
+
+import com.meinu.status.api.ingest.store.EventStore;
+import com.meinu.status.api.status.dto.response.HistoryEvent;
+import com.meinu.status.api.status.dto.response.HistoryPage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A member's stored heartbeats, paged by event id (keyset): ids are
+ * time-ordered, so a page continues after the last id of the previous one
+ * without counting rows. Runs read-only so it is served by a replica when read
+ * routing is configured.
+ */
+@Service
+public class StatusHistoryService {
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final EventStore eventStore;
+
+    public StatusHistoryService(EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    @Transactional(readOnly = true)
+    public HistoryPage history(Long memberId, Long after, Instant from, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<HistoryEvent> events = eventStore.history(memberId, after, from, size);
+        Long nextAfter = events.size() < size ? null : events.get(events.size() - 1).id();
+        return new HistoryPage(events, nextAfter);
+    }
+}
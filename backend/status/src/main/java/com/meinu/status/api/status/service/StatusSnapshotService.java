@@ -0,0 +1,430 @@
+package com.meinu.status.api.status.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.ingest.service.EventFields;
+import com.meinu.status.api.status.cache.SnapshotNearCache;
+import com.meinu.status.api.status.dto.response.StatusPatch;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the latest status snapshot, stored as a hash
+ * ({@code status:snap:{id}}) with one JSON-encoded field per snapshot field and
+ * the version in {@code _v}. Values of {@code compress-min-bytes} or more (in
+ * practice {@code code}) are gzip-compressed, and a write leaves such a field
+ * untouched when it did not change, so a heartbeat that only moves the
+ * timestamp does not resend the file. Readers can fetch a subset of fields.
+ *
+ * <p>Reads are served from a bounded near cache; writers publish the member id
+ * on {@link #INVALIDATION_CHANNEL} so other nodes drop their copy. Cached
+ * entries are also revalidated after a short age in case an invalidation was
+ * missed while the subscription was reconnecting.
+ */
+@Service
+public class StatusSnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(StatusSnapshotService.class);
+    public static final String INVALIDATION_CHANNEL = "status:invalidate";
+    private static final String KEY_PREFIX = "status:snap:";
+    private static final String VERSION_FIELD = "_v";
+    private static final String COMPRESSED_PREFIX = "gz:";
+
+    private final KeyValueStore store;
+    private final ObjectMapper objectMapper;
+    private final SnapshotNearCache cache;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * A snapshot with its opaque version, a hash of the JSON it was written
+     * from. Every heartbeat changes at least its timestamp, so equal versions
+     * mean the client already has the current status.
+     */
+    public record VersionedSnapshot(String version, Map<String, Object> payload) {
+        public static final VersionedSnapshot EMPTY = new VersionedSnapshot("", Collections.emptyMap());
+    }
+
+    @Value("${app.ingest.snapshot-ttl-seconds:86400}")
+    private long snapshotTtlSeconds;
+
+    @Value("${app.status.cache.revalidate-after-ms:30000}")
+    private long revalidateAfterMs;
+
+    @Value("${app.status.snapshot.compress-min-bytes:1024}")
+    private int compressMinBytes;
+
+    public StatusSnapshotService(KeyValueStore store, ObjectMapper objectMapper,
+            @Value("${app.status.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.status.cache.max-bytes:67108864}") long maxBytes) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.cache = new SnapshotNearCache(maxEntries, maxBytes);
+        store.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+    }
+
+    /**
+     * Latest snapshot for a member, or an empty map if none exists. When Redis
+     * is unreachable the last cached copy is returned, even if stale.
+     */
+    public Map<String, Object> getLatest(Long memberId) {
+        return getLatestVersioned(memberId).payload();
+    }
+
+    public VersionedSnapshot getLatestVersioned(Long memberId) {
+        // taken before the cache is checked, so a write cached after this point wins over what is loaded here
+        long sequence = cache.nextSequence();
+        SnapshotNearCache.Entry cached = cache.get(memberId);
+        long now = System.currentTimeMillis();
+        if (fresh(cached, now)) {
+            return new VersionedSnapshot(cached.version(), cached.payload());
+        }
+        Map<String, String> hash;
+        try {
+            hash = store.hGetAll(key(memberId));
+        } catch (DataAccessException e) {
+            if (cached == null) {
+                throw e;
+            }
+            if (log.isWarnEnabled()) {
+                log.warn("Snapshot read fell back to near cache: memberId={} cause={}", memberId, e.getMessage());
+            }
+            return new VersionedSnapshot(cached.version(), cached.payload());
+        }
+        SnapshotNearCache.Entry loaded = decode(hash, now, sequence);
+        if (loaded == null) {
+            cache.remove(memberId, sequence);
+            return VersionedSnapshot.EMPTY;
+        }
+        cache.put(memberId, loaded);
+        return new VersionedSnapshot(loaded.version(), loaded.payload());
+    }
+
+    /**
+     * Only the given fields of the latest snapshot, read with one HMGET unless a
+     * fresh near cache entry has them. Fields the snapshot lacks are left out.
+     */
+    public VersionedSnapshot getLatestFields(Long memberId, Collection<String> fields) {
+        Set<String> wanted = new LinkedHashSet<>(fields);
+        wanted.remove(VERSION_FIELD);
+        SnapshotNearCache.Entry cached = cache.get(memberId);
+        if (fresh(cached, System.currentTimeMillis())) {
+            return new VersionedSnapshot(cached.version(), project(cached.payload(), wanted));
+        }
+        List<String> names = new ArrayList<>(wanted.size() + 1);
+        names.add(VERSION_FIELD);
+        names.addAll(wanted);
+        List<String> values;
+        try {
+            values = store.hMGet(key(memberId), names);
+        } catch (DataAccessException e) {
+            if (cached == null) {
+                throw e;
+            }
+            if (log.isWarnEnabled()) {
+                log.warn("Snapshot read fell back to near cache: memberId={} cause={}", memberId, e.getMessage());
+            }
+            return new VersionedSnapshot(cached.version(), project(cached.payload(), wanted));
+        }
+        if (values.get(0) == null) {
+            return VersionedSnapshot.EMPTY;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (int i = 1; i < names.size(); i++) {
+            if (values.get(i) != null) {
+                payload.put(names.get(i), readValue(unpack(values.get(i))));
+            }
+        }
+        return new VersionedSnapshot(values.get(0), Collections.unmodifiableMap(payload));
+    }
+
+    /**
+     * Latest snapshots of several members in one round trip: fresh near cache
+     * entries are used as is and the rest are fetched with pipelined HGETALLs.
+     * Members without a snapshot are left out.
+     */
+    public Map<Long, VersionedSnapshot> getLatestMany(Collection<Long> memberIds) {
+        Map<Long, VersionedSnapshot> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long sequence = cache.nextSequence();
+        for (Long memberId : memberIds) {
+            SnapshotNearCache.Entry cached = cache.get(memberId);
+            if (fresh(cached, now)) {
+                result.put(memberId, new VersionedSnapshot(cached.version(), cached.payload()));
+            } else {
+                misses.add(memberId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+        List<Map<String, String>> hashes;
+        try {
+            hashes = store.hGetAll(misses.stream().map(StatusSnapshotService::key).toList());
+        } catch (DataAccessException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Snapshot multi-get fell back to near cache: members={} cause={}", misses.size(),
+                        e.getMessage());
+            }
+            hashes = null;
+        }
+        for (int i = 0; i < misses.size(); i++) {
+            Long memberId = misses.get(i);
+            SnapshotNearCache.Entry loaded = hashes == null ? null : decode(hashes.get(i), now, sequence);
+            if (loaded != null) {
+                cache.put(memberId, loaded);
+                result.put(memberId, new VersionedSnapshot(loaded.version(), loaded.payload()));
+            } else if (hashes == null) {
+                SnapshotNearCache.Entry cached = cache.get(memberId);
+                if (cached != null) {
+                    result.put(memberId, new VersionedSnapshot(cached.version(), cached.payload()));
+                }
+            } else {
+                cache.remove(memberId, sequence);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 64 bits of SHA-256 over the snapshot JSON, as 16 hex digits. Clients only
+     * compare versions for equality, so a collision would hide a real change;
+     * String.hashCode's 32 bits made that likely over many snapshots.
+     */
+    public static String versionOf(String json) {
+        return HexFormat.of().toHexDigits(EventFields.hash64(json));
+    }
+
+    /**
+     * Stores a new snapshot. The local cache is updated first so this node keeps
+     * serving the newest status even if the Redis write below fails.
+     */
+    public void saveLatest(Long memberId, String json, Map<String, Object> payload, VersionedSnapshot previous) {
+        cacheLatest(memberId, json, payload);
+        store.pipeline(pipeline -> writeLatest(pipeline, memberId, json, payload, previous));
+    }
+
+    /** Updates only this node's near cache; pair with {@link #writeLatest}. */
+    public void cacheLatest(Long memberId, String json, Map<String, Object> payload) {
+        cache.put(memberId, new SnapshotNearCache.Entry(Collections.unmodifiableMap(payload), versionOf(json),
+                SnapshotNearCache.weigh(json), System.currentTimeMillis(), false, cache.nextSequence()));
+    }
+
+    /**
+     * Queues the snapshot write and the invalidation message on a caller's
+     * pipeline. Large fields equal to those of {@code previous}, the snapshot
+     * this one replaces (null if unknown), are kept as stored instead of being
+     * sent again; should {@code previous} turn out to be outdated, the stored
+     * version is marked and every node reloads, so the next write repairs it.
+     */
+    public void writeLatest(KeyValueStore.Pipeline pipeline, Long memberId, String json, Map<String, Object> payload,
+            VersionedSnapshot previous) {
+        boolean known = previous != null && !previous.version().isEmpty();
+        Map<String, String> values = new HashMap<>();
+        List<String> kept = new ArrayList<>();
+        payload.forEach((field, value) -> {
+            if (known && value instanceof String s && s.length() >= compressMinBytes
+                    && s.equals(previous.payload().get(field))) {
+                kept.add(field);
+            } else {
+                values.put(field, pack(value));
+            }
+        });
+        values.put(VERSION_FIELD, versionOf(json));
+        // "*" is no node's id, so a conflict also drops the writer's own copy
+        KeyValueStore.HashGuard guard = new KeyValueStore.HashGuard(VERSION_FIELD,
+                known ? previous.version() : "", INVALIDATION_CHANNEL, "*:" + memberId);
+        pipeline.hReplace(key(memberId), values, kept, guard, Duration.ofSeconds(snapshotTtlSeconds));
+        pipeline.publish(INVALIDATION_CHANNEL, nodeId + ":" + memberId);
+    }
+
+    /**
+     * Queues a snapshot rebuilt from the event log that is only written if the
+     * member has no snapshot, so a heartbeat ingested meanwhile is never
+     * replaced by an older one. With {@code offlineAt} set it is stored already
+     * marked offline, as {@link #markOffline} would have left it. Returns the
+     * version it is stored under if written.
+     */
+    public String restoreLatest(KeyValueStore.Pipeline pipeline, Long memberId, String json,
+            Map<String, Object> payload, Instant offlineAt) throws JsonProcessingException {
+        if (offlineAt != null) {
+            payload = new LinkedHashMap<>(payload);
+            payload.put("isOffline", true);
+            payload.put("isIdle", true);
+            payload.put("offlineAt", offlineAt.toString());
+            json = objectMapper.writeValueAsString(payload);
+        }
+        Map<String, String> values = new HashMap<>();
+        payload.forEach((field, value) -> values.put(field, pack(value)));
+        String version = versionOf(json);
+        values.put(VERSION_FIELD, version);
+        pipeline.hSetIf(key(memberId), VERSION_FIELD, "", values, Duration.ofSeconds(snapshotTtlSeconds));
+        pipeline.publish(INVALIDATION_CHANNEL, "*:" + memberId);
+        return version;
+    }
+
+    /**
+     * Marks the stored snapshot offline ({@code isOffline}, {@code offlineAt},
+     * and {@code isIdle} for clients that predate the flag) if it is still the
+     * one with {@code expectedVersion}. Returns the change, or null when a newer
+     * heartbeat replaced the snapshot or it has expired.
+     */
+    public StatusPatch markOffline(Long memberId, String expectedVersion, Instant at) {
+        SnapshotNearCache.Entry current = decode(store.hGetAll(key(memberId)), System.currentTimeMillis(), 0L);
+        if (current == null || !current.version().equals(expectedVersion)) {
+            return null;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>(current.payload());
+        Map<String, Object> offline = new LinkedHashMap<>();
+        offline.put("isOffline", true);
+        offline.put("isIdle", true);
+        offline.put("offlineAt", at.toString());
+        payload.putAll(offline);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>();
+        offline.forEach((field, value) -> values.put(field, pack(value)));
+        values.put(VERSION_FIELD, versionOf(json));
+        if (!store.hSetIf(key(memberId), VERSION_FIELD, expectedVersion, values,
+                Duration.ofSeconds(snapshotTtlSeconds))) {
+            return null;
+        }
+        cacheLatest(memberId, json, payload);
+        store.publish(INVALIDATION_CHANNEL, nodeId + ":" + memberId);
+        return StatusPatch.between(new VersionedSnapshot(current.version(), current.payload()),
+                new VersionedSnapshot(versionOf(json), payload));
+    }
+
+    private void onInvalidation(String body) {
+        int sep = body.lastIndexOf(':');
+        if (sep <= 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        try {
+            cache.markStale(Long.parseLong(body.substring(sep + 1)));
+        } catch (NumberFormatException ignored) {
+            // not one of ours
+        }
+    }
+
+    private boolean fresh(SnapshotNearCache.Entry cached, long now) {
+        return cached != null && !cached.stale() && now - cached.loadedAtMs() < revalidateAfterMs;
+    }
+
+    /** The given fields of a snapshot, under the full snapshot's version. */
+    public static VersionedSnapshot fieldsOf(VersionedSnapshot snapshot, Collection<String> fields) {
+        return new VersionedSnapshot(snapshot.version(), project(snapshot.payload(), new LinkedHashSet<>(fields)));
+    }
+
+    private static Map<String, Object> project(Map<String, Object> payload, Set<String> fields) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        fields.forEach(f -> {
+            if (payload.containsKey(f)) {
+                out.put(f, payload.get(f));
+            }
+        });
+        return Collections.unmodifiableMap(out);
+    }
+
+    /**
+     * Near cache entry of a stored hash, or null if there is none.
+     *
+     * @param sequence the cache sequence taken before the hash was read
+     */
+    private SnapshotNearCache.Entry decode(Map<String, String> hash, long now, long sequence) {
+        String version = hash.get(VERSION_FIELD);
+        if (version == null) {
+            return null;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        long chars = 0;
+        for (Map.Entry<String, String> e : hash.entrySet()) {
+            if (VERSION_FIELD.equals(e.getKey())) {
+                continue;
+            }
+            String json = unpack(e.getValue());
+            chars += e.getKey().length() + json.length() + 4;
+            payload.put(e.getKey(), readValue(json));
+        }
+        return new SnapshotNearCache.Entry(Collections.unmodifiableMap(payload), version,
+                SnapshotNearCache.weigh(chars), now, false, sequence);
+    }
+
+    /** JSON of a field value, gzip-compressed once it reaches {@code compress-min-bytes}. */
+    private String pack(Object value) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new BaseException(BaseResponseStatus.SERVER_ERROR);
+        }
+        if (json.length() < compressMinBytes) {
+            return json;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length() / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return COMPRESSED_PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    // plain JSON never starts with "gz:"
+    private static String unpack(String stored) {
+        if (!stored.startsWith(COMPRESSED_PREFIX)) {
+            return stored;
+        }
+        byte[] bytes = Base64.getDecoder().decode(stored.substring(COMPRESSED_PREFIX.length()));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Object readValue(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Object>() {
+            });
+        } catch (Exception e) {
+            throw new BaseException(BaseResponseStatus.SERVER_ERROR);
+        }
+    }
+
+    private static String key(Long memberId) {
+        return KEY_PREFIX + memberId;
+    }
+}
@@ -1,5 +1,10 @@
 package com.meinu.status.api.status.sse;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.status.dto.response.StatusPatch;
+import com.meinu.status.api.status.dto.response.TeammateStatus;
+import com.meinu.status.global.jfr.SseBroadcastEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -7,15 +12,36 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Open SSE streams. A member's own stream is keyed by the member id; topic
+ * streams (a team wall, a set of followed members) are indexed under every
+ * publisher they follow, so one status update reaches all interested streams
+ * in O(subscribers). A broadcast is serialized once for all its receivers and
+ * recorded as an {@link SseBroadcastEvent}.
+ */
 @Component
 public class SseEmitterRegistry {
     private static final Logger log = LoggerFactory.getLogger(SseEmitterRegistry.class);
     private final Map<Long, List<SseEmitter>> emittersByMember = new ConcurrentHashMap<>();
+    private final Map<Long, Set<SseEmitter>> subscribersByPublisher = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    /** Patch event of a topic stream; carries the publisher id and only the {@link TeammateStatus} fields. */
+    public record TopicEvent(Long memberId, StatusPatch patch) {
+    }
+
+    public SseEmitterRegistry(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     public SseEmitter register(Long memberId, Long timeoutMs) {
         SseEmitter emitter = new SseEmitter(timeoutMs);
@@ -35,21 +61,118 @@ public class SseEmitterRegistry {
         return emitter;
     }
 
-    public void send(Long memberId, Object data) {
+    /**
+     * Opens a stream following the given publishers. The caller is expected to
+     * have checked access and to send the initial state.
+     */
+    public SseEmitter subscribe(Collection<Long> publisherIds, Long timeoutMs) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        List<Long> publishers = List.copyOf(publisherIds);
+        for (Long publisherId : publishers) {
+            // compute, not computeIfAbsent().add(): unsubscribe may drop an empty set concurrently
+            subscribersByPublisher.compute(publisherId, (id, set) -> {
+                Set<SseEmitter> s = set != null ? set : ConcurrentHashMap.newKeySet();
+                s.add(emitter);
+                return s;
+            });
+        }
+        Runnable unsubscribe = () -> publishers.forEach(id -> unsubscribe(id, emitter));
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        if (log.isInfoEnabled()) {
+            log.info("SSE subscribe: publishers={} totalPublishers={}", publishers.size(),
+                    subscribersByPublisher.size());
+        }
+        return emitter;
+    }
+
+    /** Sends a named event to a single emitter; broken emitters are completed. */
+    public boolean sendTo(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Sends a change of a member's status as a "patch" event to its own streams
+     * and, cut down to the {@link TeammateStatus} fields, to every topic stream
+     * following it.
+     */
+    public void send(Long memberId, StatusPatch patch) {
+        sendEvent(memberId, "patch", patch);
+        Set<SseEmitter> subscribers = subscribersByPublisher.get(memberId);
+        if (subscribers == null)
+            return;
+        broadcast(memberId, "patch", new TopicEvent(memberId, TeammateStatus.of(patch)), subscribers);
+    }
+
+    public void sendEvent(Long memberId, String eventName, Object data) {
         List<SseEmitter> list = emittersByMember.get(memberId);
         if (list == null)
             return;
         if (log.isDebugEnabled()) {
-            log.debug("SSE send: memberId={} receivers={}", memberId, list.size());
+            log.debug("SSE send: memberId={} event={} receivers={}", memberId, eventName, list.size());
+        }
+        broadcast(memberId, eventName, data, list);
+    }
+
+    private void broadcast(Long memberId, String eventName, Object data, Collection<SseEmitter> receivers) {
+        SseBroadcastEvent event = new SseBroadcastEvent();
+        event.begin();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("SSE event not serializable: memberId={} event={} cause={}", memberId, eventName,
+                        e.getMessage());
+            }
+            return;
         }
-        for (SseEmitter em : list) {
-            try {
-                em.send(SseEmitter.event().name("status").data(data, MediaType.APPLICATION_JSON));
-            } catch (IOException e) {
-                // drop broken emitter
-                em.completeWithError(e);
+        int failures = 0;
+        for (SseEmitter em : receivers) {
+            // a String body is written as is, not serialized again per receiver
+            if (!sendTo(em, eventName, json)) {
+                failures++;
             }
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.memberId = memberId;
+            event.eventName = eventName;
+            event.receivers = receivers.size();
+            event.failures = failures;
+            event.bytes = (long) json.getBytes(StandardCharsets.UTF_8).length * (receivers.size() - failures);
+            event.commit();
+        }
+    }
+
+    public boolean hasEmitters(Long memberId) {
+        return emittersByMember.containsKey(memberId);
+    }
+
+    /** True if the member's own stream or any topic stream following it is open on this node. */
+    public boolean isWatched(Long memberId) {
+        return emittersByMember.containsKey(memberId) || subscribersByPublisher.containsKey(memberId);
+    }
+
+    /** Members with an open own or topic stream on this node. */
+    public Set<Long> watchedMembers() {
+        Set<Long> ids = new HashSet<>(emittersByMember.keySet());
+        ids.addAll(subscribersByPublisher.keySet());
+        return ids;
+    }
+
+    private void unsubscribe(Long publisherId, SseEmitter emitter) {
+        subscribersByPublisher.computeIfPresent(publisherId, (id, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
     }
 
     private void remove(Long memberId, SseEmitter emitter) {
@@ -0,0 +1,94 @@
+package com.meinu.status.api.status.watch;
+
+import com.meinu.status.api.status.longpoll.StatusLongPollRegistry;
+import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Whether anyone is looking at a member's status: an SSE stream or parked
+ * long-poll on this node, or a recent device poll or stream on any node. The
+ * cross-node part is {@code status:watched:{id}}, a short-lived key refreshed
+ * by device polls and, for open streams, by a periodic sweep.
+ */
+@Component
+public class StatusWatchRegistry {
+    private static final Logger log = LoggerFactory.getLogger(StatusWatchRegistry.class);
+    private static final String KEY_PREFIX = "status:watched:";
+
+    private final KeyValueStore store;
+    private final SseEmitterRegistry sseRegistry;
+    private final StatusLongPollRegistry longPollRegistry;
+    private final Map<Long, Long> lastMarkedMs = new ConcurrentHashMap<>();
+
+    @Value("${app.ingest.pacing.watch-ttl-ms:90000}")
+    private long watchTtlMs;
+
+    public StatusWatchRegistry(KeyValueStore store, SseEmitterRegistry sseRegistry,
+            StatusLongPollRegistry longPollRegistry) {
+        this.store = store;
+        this.sseRegistry = sseRegistry;
+        this.longPollRegistry = longPollRegistry;
+    }
+
+    /** Records a device poll; written through at most every third of the TTL per member. */
+    public void markWatched(Long memberId) {
+        long now = System.currentTimeMillis();
+        Long last = lastMarkedMs.get(memberId);
+        if (last != null && now - last < watchTtlMs / 3) {
+            return;
+        }
+        lastMarkedMs.put(memberId, now);
+        try {
+            store.set(key(memberId), "1", Duration.ofMillis(watchTtlMs));
+        } catch (DataAccessException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Watch mark failed: memberId={} cause={}", memberId, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isWatched(Long memberId) {
+        if (sseRegistry.isWatched(memberId) || longPollRegistry.hasWaiters(memberId)) {
+            return true;
+        }
+        try {
+            return store.get(key(memberId)) != null;
+        } catch (DataAccessException e) {
+            // unknown: keep the member near real time rather than slowing a watched one down
+            return true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ingest.pacing.watch-refresh-ms:30000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        lastMarkedMs.values().removeIf(at -> now - at >= watchTtlMs);
+        Set<Long> streamed = sseRegistry.watchedMembers();
+        if (streamed.isEmpty()) {
+            return;
+        }
+        Duration ttl = Duration.ofMillis(watchTtlMs);
+        try {
+            store.pipeline(pipeline -> streamed.forEach(id -> pipeline.set(key(id), "1", ttl)));
+        } catch (DataAccessException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Watch refresh failed: members={} cause={}", streamed.size(), e.getMessage());
+            }
+        }
+    }
+
+    private static String key(Long memberId) {
+        return KEY_PREFIX + memberId;
+    }
+}
@@ -0,0 +1,45 @@
+package com.meinu.status.api.team.controller;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.team.dto.response.LeaderboardResponse;
+import com.meinu.status.api.team.service.LeaderboardService;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.common.base.BaseResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/teams/{teamId}/leaderboard")
+public class LeaderboardController {
+    private static final int MAX_K = 100;
+
+    private final LeaderboardService leaderboardService;
+    private final TeamService teamService;
+    private final MemberService memberService;
+
+    public LeaderboardController(LeaderboardService leaderboardService, TeamService teamService,
+            MemberService memberService) {
+        this.leaderboardService = leaderboardService;
+        this.teamService = teamService;
+        this.memberService = memberService;
+    }
+
+    @GetMapping
+    public ResponseEntity<BaseResponse<LeaderboardResponse>> leaderboard(Authentication auth,
+            @PathVariable Long teamId,
+            @RequestParam(defaultValue = LeaderboardService.METRIC_ACTIVE_MS) String metric,
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam(defaultValue = "10") int k) {
+        Member me = memberService.getByEmail(auth.getName());
+        teamService.requireMember(teamId, me.getId());
+        int limit = Math.max(1, Math.min(k, MAX_K));
+        return ResponseEntity.ok(BaseResponse.success(
+                leaderboardService.leaderboard(teamId, me.getId(), metric, period, limit)));
+    }
+}
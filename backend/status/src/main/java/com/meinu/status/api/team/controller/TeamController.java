@@ -0,0 +1,71 @@
+package com.meinu.status.api.team.controller;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.team.dto.request.CreateTeamRequest;
+import com.meinu.status.api.team.dto.request.InviteTeamMemberRequest;
+import com.meinu.status.api.team.dto.response.TeamInvitationResponse;
+import com.meinu.status.api.team.dto.response.TeamResponse;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.global.common.base.BaseResponse;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/teams")
+public class TeamController {
+    private final TeamService teamService;
+    private final MemberService memberService;
+
+    public TeamController(TeamService teamService, MemberService memberService) {
+        this.teamService = teamService;
+        this.memberService = memberService;
+    }
+
+    @PostMapping
+    public ResponseEntity<BaseResponse<TeamResponse>> create(Authentication auth,
+            @Valid @RequestBody CreateTeamRequest req) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(teamService.create(me, req.name())));
+    }
+
+    @GetMapping
+    public ResponseEntity<BaseResponse<List<TeamResponse>>> myTeams(Authentication auth) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(teamService.teamsOf(me.getId())));
+    }
+
+    /** Invites a member by email; they join once they accept. Team owner only. */
+    @PostMapping("/{teamId}/invitations")
+    public ResponseEntity<BaseResponse<Void>> invite(Authentication auth, @PathVariable Long teamId,
+            @Valid @RequestBody InviteTeamMemberRequest req) {
+        Member me = memberService.getByEmail(auth.getName());
+        teamService.invite(teamId, me, req.email());
+        return ResponseEntity.ok(BaseResponse.of(BaseResponseStatus.SUCCESS));
+    }
+
+    @GetMapping("/invitations")
+    public ResponseEntity<BaseResponse<List<TeamInvitationResponse>>> myInvitations(Authentication auth) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(teamService.invitationsOf(me.getId())));
+    }
+
+    @PostMapping("/invitations/{invitationId}/accept")
+    public ResponseEntity<BaseResponse<Void>> accept(Authentication auth, @PathVariable Long invitationId) {
+        Member me = memberService.getByEmail(auth.getName());
+        teamService.accept(invitationId, me);
+        return ResponseEntity.ok(BaseResponse.of(BaseResponseStatus.SUCCESS));
+    }
+
+    @DeleteMapping("/invitations/{invitationId}")
+    public ResponseEntity<BaseResponse<Void>> decline(Authentication auth, @PathVariable Long invitationId) {
+        Member me = memberService.getByEmail(auth.getName());
+        teamService.decline(invitationId, me);
+        return ResponseEntity.ok(BaseResponse.of(BaseResponseStatus.SUCCESS));
+    }
+}
@@ -0,0 +1,8 @@
+package com.meinu.status.api.team.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record CreateTeamRequest(
+        @NotBlank @Size(min = 1, max = 100) String name) {
+}
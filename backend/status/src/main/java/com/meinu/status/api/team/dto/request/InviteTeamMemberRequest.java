@@ -0,0 +1,8 @@
+package com.meinu.status.api.team.dto.request;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+
+public record InviteTeamMemberRequest(
+        @Email @NotBlank String email) {
+}
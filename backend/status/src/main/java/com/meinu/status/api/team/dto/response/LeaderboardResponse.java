@@ -0,0 +1,9 @@
+package com.meinu.status.api.team.dto.response;
+
+import java.util.List;
+
+public record LeaderboardResponse(Long teamId, String metric, String period, List<Entry> top, Entry me) {
+
+    public record Entry(long rank, Long memberId, String nickname, long score) {
+    }
+}
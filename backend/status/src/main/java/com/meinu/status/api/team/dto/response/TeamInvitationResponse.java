@@ -0,0 +1,6 @@
+package com.meinu.status.api.team.dto.response;
+
+import java.time.Instant;
+
+public record TeamInvitationResponse(Long id, Long teamId, String teamName, Instant invitedAt) {
+}
@@ -0,0 +1,4 @@
+package com.meinu.status.api.team.dto.response;
+
+public record TeamResponse(Long id, String name, Long ownerId) {
+}
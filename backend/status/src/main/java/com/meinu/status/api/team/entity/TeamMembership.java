@@ -0,0 +1,38 @@
+package com.meinu.status.api.team.entity;
+
+import com.meinu.status.api.member.entity.Member;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "team_members", indexes = {
+        @Index(name = "uk_team_member", columnList = "team_id, member_id", unique = true),
+        @Index(name = "idx_team_members_member", columnList = "member_id")
+})
+public class TeamMembership {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "team_id", nullable = false)
+    private Team team;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "member_id", nullable = false)
+    private Member member;
+
+    @CreationTimestamp
+    @Column(name = "joined_at", updatable = false)
+    private Instant joinedAt;
+}
@@ -0,0 +1,18 @@
+package com.meinu.status.api.team.repository;
+
+import com.meinu.status.api.team.entity.TeamInvitation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TeamInvitationRepository extends JpaRepository<TeamInvitation, Long> {
+    boolean existsByTeamIdAndMemberId(Long teamId, Long memberId);
+
+    Optional<TeamInvitation> findByIdAndMemberId(Long id, Long memberId);
+
+    @Query("select ti from TeamInvitation ti join fetch ti.team where ti.member.id = :memberId")
+    List<TeamInvitation> findWithTeamByMemberId(@Param("memberId") Long memberId);
+}
@@ -0,0 +1,27 @@
+package com.meinu.status.api.team.repository;
+
+import com.meinu.status.api.team.entity.TeamMembership;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface TeamMembershipRepository extends JpaRepository<TeamMembership, Long> {
+    boolean existsByTeamIdAndMemberId(Long teamId, Long memberId);
+
+    List<TeamMembership> findByMemberId(Long memberId);
+
+    @Query("select tm.team.id from TeamMembership tm where tm.member.id = :memberId")
+    List<Long> findTeamIdsByMemberId(@Param("memberId") Long memberId);
+
+    @Query("select tm.member.id from TeamMembership tm where tm.team.id = :teamId")
+    List<Long> findMemberIdsByTeamId(@Param("teamId") Long teamId);
+
+    @Query("select distinct other.member.id from TeamMembership mine, TeamMembership other"
+            + " where mine.member.id = :memberId and other.team.id = mine.team.id")
+    List<Long> findTeammateIdsByMemberId(@Param("memberId") Long memberId);
+
+    @Query("select tm from TeamMembership tm join fetch tm.team where tm.member.id = :memberId")
+    List<TeamMembership> findWithTeamByMemberId(@Param("memberId") Long memberId);
+}
@@ -0,0 +1,7 @@
+package com.meinu.status.api.team.repository;
+
+import com.meinu.status.api.team.entity.Team;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+}
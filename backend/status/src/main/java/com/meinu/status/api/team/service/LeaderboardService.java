@@ -0,0 +1,214 @@
+package com.meinu.status.api.team.service;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.api.team.dto.response.LeaderboardResponse;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Team leaderboards on Redis sorted sets, one per team, metric and period
+ * ({@code lb:{teamId}:{metric}:d:2025-01-31} / {@code ...:w:2025-W05}).
+ * Ingest adds ZINCRBYs to its pipeline; reads are ZREVRANGE/ZREVRANK. Keys
+ * expire on their own once the period is over.
+ */
+@Service
+public class LeaderboardService {
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+    public static final String METRIC_KEYSTROKES = "keystrokes";
+    public static final String METRIC_ACTIVE_MS = "activeMs";
+    private static final Duration DAY_TTL = Duration.ofDays(8);
+    private static final Duration WEEK_TTL = Duration.ofDays(35);
+
+    private final KeyValueStore store;
+    private final MemberRepository memberRepository;
+    private final TeamService teamService;
+    private final SseEmitterRegistry sseRegistry;
+    private final Set<Long> dirtyTeams = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.leaderboard.push-top-k:10}")
+    private int pushTopK;
+
+    public LeaderboardService(KeyValueStore store, MemberRepository memberRepository, TeamService teamService,
+            SseEmitterRegistry sseRegistry) {
+        this.store = store;
+        this.memberRepository = memberRepository;
+        this.teamService = teamService;
+        this.sseRegistry = sseRegistry;
+    }
+
+    /**
+     * Queues leaderboard increments for one member and day on a caller's
+     * pipeline, for the day and its ISO week.
+     */
+    public void increment(KeyValueStore.Pipeline pipeline, Long memberId, Collection<Long> teamIds, LocalDate day,
+            long keystrokes, long activeMs) {
+        if (teamIds.isEmpty() || (keystrokes <= 0 && activeMs <= 0)) {
+            return;
+        }
+        String member = String.valueOf(memberId);
+        for (Long teamId : teamIds) {
+            for (String period : List.of(dayPeriod(day), weekPeriod(day))) {
+                Duration ttl = period.startsWith("d:") ? DAY_TTL : WEEK_TTL;
+                if (keystrokes > 0) {
+                    String key = key(teamId, METRIC_KEYSTROKES, period);
+                    pipeline.zIncrBy(key, member, keystrokes);
+                    pipeline.expire(key, ttl);
+                }
+                if (activeMs > 0) {
+                    String key = key(teamId, METRIC_ACTIVE_MS, period);
+                    pipeline.zIncrBy(key, member, activeMs);
+                    pipeline.expire(key, ttl);
+                }
+            }
+            dirtyTeams.add(teamId);
+        }
+    }
+
+    /**
+     * Queues one member's scores rebuilt from daily totals per team, for the
+     * periods whose keys would still exist on {@code today}. Scores are set
+     * rather than incremented, so repeating a restore is harmless.
+     */
+    public void restore(KeyValueStore.Pipeline pipeline, Long memberId, Map<Long, Map<LocalDate, long[]>> perTeamDay,
+            LocalDate today) {
+        String member = String.valueOf(memberId);
+        perTeamDay.forEach((teamId, perDay) -> {
+            Map<String, long[]> perPeriod = new HashMap<>();
+            perDay.forEach((day, sums) -> {
+                if (day.isAfter(today.minusDays(DAY_TTL.toDays()))) {
+                    add(perPeriod, dayPeriod(day), sums);
+                }
+                if (day.isAfter(today.minusDays(WEEK_TTL.toDays()))) {
+                    add(perPeriod, weekPeriod(day), sums);
+                }
+            });
+            perPeriod.forEach((period, sums) -> {
+                Duration ttl = period.startsWith("d:") ? DAY_TTL : WEEK_TTL;
+                if (sums[0] > 0) {
+                    String key = key(teamId, METRIC_KEYSTROKES, period);
+                    pipeline.zAdd(key, member, sums[0]);
+                    pipeline.expire(key, ttl);
+                }
+                if (sums[1] > 0) {
+                    String key = key(teamId, METRIC_ACTIVE_MS, period);
+                    pipeline.zAdd(key, member, sums[1]);
+                    pipeline.expire(key, ttl);
+                }
+            });
+            dirtyTeams.add(teamId);
+        });
+    }
+
+    private static void add(Map<String, long[]> perPeriod, String period, long[] sums) {
+        long[] acc = perPeriod.computeIfAbsent(period, p -> new long[2]);
+        acc[0] += sums[0];
+        acc[1] += sums[1];
+    }
+
+    /** Top K and the caller's own rank; O(log N + K). */
+    public LeaderboardResponse leaderboard(Long teamId, Long meId, String metric, String periodType, int k) {
+        if (!METRIC_KEYSTROKES.equals(metric) && !METRIC_ACTIVE_MS.equals(metric)) {
+            throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        }
+        LocalDate today = LocalDate.now();
+        String period = switch (periodType) {
+            case "day" -> dayPeriod(today);
+            case "week" -> weekPeriod(today);
+            default -> throw new BaseException(BaseResponseStatus.INVALID_REQUEST);
+        };
+        String key = key(teamId, metric, period);
+        List<KeyValueStore.ScoredMember> tuples = store.zRevRange(key, k);
+        List<Long> ids = tuples.stream().map(t -> Long.valueOf(t.member())).toList();
+        Map<Long, String> nicknames = nicknames(ids, meId);
+        List<LeaderboardResponse.Entry> top = new ArrayList<>(ids.size());
+        long rank = 1;
+        for (KeyValueStore.ScoredMember t : tuples) {
+            Long id = Long.valueOf(t.member());
+            top.add(new LeaderboardResponse.Entry(rank++, id, nicknames.get(id), score(t.score())));
+        }
+        LeaderboardResponse.Entry me = null;
+        if (meId != null) {
+            Long myRank = store.zRevRank(key, String.valueOf(meId));
+            Double myScore = store.zScore(key, String.valueOf(meId));
+            if (myRank != null) {
+                me = new LeaderboardResponse.Entry(myRank + 1, meId, nicknames.get(meId), score(myScore));
+            }
+        }
+        return new LeaderboardResponse(teamId, metric, period, top, me);
+    }
+
+    /**
+     * Pushes today's boards of teams that changed since the last run, so a busy
+     * team costs at most one SSE event per interval per viewer.
+     */
+    @Scheduled(fixedDelayString = "${app.leaderboard.push-interval-ms:5000}")
+    public void pushDirty() {
+        if (dirtyTeams.isEmpty()) {
+            return;
+        }
+        List<Long> teams = new ArrayList<>(dirtyTeams);
+        dirtyTeams.removeAll(teams);
+        for (Long teamId : teams) {
+            try {
+                List<Long> viewers = teamService.memberIdsOf(teamId).stream()
+                        .filter(sseRegistry::hasEmitters)
+                        .toList();
+                if (viewers.isEmpty()) {
+                    continue;
+                }
+                LeaderboardResponse board = leaderboard(teamId, null, METRIC_ACTIVE_MS, "day", pushTopK);
+                viewers.forEach(id -> sseRegistry.sendEvent(id, "leaderboard", board));
+            } catch (Exception e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Leaderboard push failed: teamId={} cause={}", teamId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Map<Long, String> nicknames(List<Long> ids, Long meId) {
+        List<Long> all = new ArrayList<>(ids);
+        if (meId != null) {
+            all.add(meId);
+        }
+        return memberRepository.findAllById(all).stream()
+                .collect(Collectors.toMap(Member::getId, Member::getNickname, (a, b) -> a));
+    }
+
+    private static long score(Double score) {
+        return score == null ? 0L : score.longValue();
+    }
+
+    private static String key(Long teamId, String metric, String period) {
+        return "lb:" + teamId + ":" + metric + ":" + period;
+    }
+
+    private static String dayPeriod(LocalDate day) {
+        return "d:" + day;
+    }
+
+    private static String weekPeriod(LocalDate day) {
+        return String.format("w:%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR),
+                day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+}
@@ -0,0 +1,234 @@
+package com.meinu.status.api.team.service;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.team.dto.response.TeamInvitationResponse;
+import com.meinu.status.api.team.dto.response.TeamResponse;
+import com.meinu.status.api.team.entity.Team;
+import com.meinu.status.api.team.entity.TeamInvitation;
+import com.meinu.status.api.team.entity.TeamMembership;
+import com.meinu.status.api.team.repository.TeamInvitationRepository;
+import com.meinu.status.api.team.repository.TeamMembershipRepository;
+import com.meinu.status.api.team.repository.TeamRepository;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Teams and memberships. Team members see each other's presence, leaderboard
+ * standing and live status, so nobody is added by someone else: the owner
+ * invites by email and the member joins by accepting. A member's team ids are read on every ingest, so
+ * they are kept in memory for up to {@code app.team.cache.ttl-ms}; a
+ * membership change drops the member's entry here and, over
+ * {@link #INVALIDATION_CHANNEL}, on the other nodes once it is committed.
+ */
+@Service
+@Transactional
+public class TeamService {
+    public static final String INVALIDATION_CHANNEL = "team:invalidate";
+
+    private record Cached(List<Long> teamIds, long loadedAtMs) {
+    }
+
+    private final TeamRepository teamRepository;
+    private final TeamMembershipRepository membershipRepository;
+    private final TeamInvitationRepository invitationRepository;
+    private final MemberRepository memberRepository;
+    private final KeyValueStore store;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Cached> teamIdsByMember = new ConcurrentHashMap<>();
+
+    @Value("${app.team.cache.ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    public TeamService(TeamRepository teamRepository, TeamMembershipRepository membershipRepository,
+            TeamInvitationRepository invitationRepository, MemberRepository memberRepository, KeyValueStore store) {
+        this.teamRepository = teamRepository;
+        this.membershipRepository = membershipRepository;
+        this.invitationRepository = invitationRepository;
+        this.memberRepository = memberRepository;
+        this.store = store;
+        store.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+    }
+
+    public TeamResponse create(Member owner, String name) {
+        Team team = teamRepository.save(Team.builder().name(name).owner(owner).build());
+        membershipRepository.save(TeamMembership.builder().team(team).member(owner).build());
+        invalidateAfterCommit(owner.getId());
+        return new TeamResponse(team.getId(), team.getName(), owner.getId());
+    }
+
+    /** Invites a member by email; only the team owner may. */
+    public void invite(Long teamId, Member requester, String email) {
+        Team team = teamRepository.findById(teamId)
+                .orElseThrow(() -> new BaseException(BaseResponseStatus.TEAM_NOT_FOUND));
+        if (!team.getOwner().getId().equals(requester.getId())) {
+            throw new BaseException(BaseResponseStatus.NOT_TEAM_OWNER);
+        }
+        Member member = memberRepository.findByEmail(email)
+                .orElseThrow(() -> new BaseException(BaseResponseStatus.MEMBER_NOT_FOUND));
+        if (membershipRepository.existsByTeamIdAndMemberId(teamId, member.getId())) {
+            throw new BaseException(BaseResponseStatus.ALREADY_TEAM_MEMBER);
+        }
+        if (invitationRepository.existsByTeamIdAndMemberId(teamId, member.getId())) {
+            throw new BaseException(BaseResponseStatus.ALREADY_INVITED);
+        }
+        invitationRepository.save(TeamInvitation.builder().team(team).member(member).build());
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeamInvitationResponse> invitationsOf(Long memberId) {
+        return invitationRepository.findWithTeamByMemberId(memberId).stream()
+                .map(i -> new TeamInvitationResponse(i.getId(), i.getTeam().getId(), i.getTeam().getName(),
+                        i.getCreatedAt()))
+                .toList();
+    }
+
+    /** Joins the team of one of the member's own invitations. */
+    public void accept(Long invitationId, Member member) {
+        TeamInvitation invitation = invitationRepository.findByIdAndMemberId(invitationId, member.getId())
+                .orElseThrow(() -> new BaseException(BaseResponseStatus.INVITATION_NOT_FOUND));
+        invitationRepository.delete(invitation);
+        if (!membershipRepository.existsByTeamIdAndMemberId(invitation.getTeam().getId(), member.getId())) {
+            membershipRepository.save(TeamMembership.builder().team(invitation.getTeam()).member(member).build());
+            invalidateAfterCommit(member.getId());
+        }
+    }
+
+    public void decline(Long invitationId, Member member) {
+        TeamInvitation invitation = invitationRepository.findByIdAndMemberId(invitationId, member.getId())
+                .orElseThrow(() -> new BaseException(BaseResponseStatus.INVITATION_NOT_FOUND));
+        invitationRepository.delete(invitation);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeamResponse> teamsOf(Long memberId) {
+        return membershipRepository.findWithTeamByMemberId(memberId).stream()
+                .map(TeamMembership::getTeam)
+                .map(t -> new TeamResponse(t.getId(), t.getName(), t.getOwner().getId()))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> teamIdsOf(Long memberId) {
+        long now = System.currentTimeMillis();
+        Cached cached = teamIdsByMember.get(memberId);
+        if (cached != null && now - cached.loadedAtMs() < cacheTtlMs) {
+            return cached.teamIds();
+        }
+        List<Long> teamIds = List.copyOf(membershipRepository.findTeamIdsByMemberId(memberId));
+        teamIdsByMember.put(memberId, new Cached(teamIds, now));
+        return teamIds;
+    }
+
+    /** Drops expired entries, so the cache holds only members seen within the TTL. */
+    @Scheduled(fixedDelayString = "${app.team.cache.ttl-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        teamIdsByMember.values().removeIf(c -> now - c.loadedAtMs() >= cacheTtlMs);
+    }
+
+    /**
+     * Drops the member's cached team ids on every node once the membership
+     * change is committed, so no node reloads the old rows in between.
+     */
+    private void invalidateAfterCommit(Long memberId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(memberId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(memberId);
+            }
+        });
+    }
+
+    private void invalidate(Long memberId) {
+        teamIdsByMember.remove(memberId);
+        try {
+            store.publish(INVALIDATION_CHANNEL, nodeId + ":" + memberId);
+        } catch (RuntimeException ignored) {
+            // other nodes reload after the TTL
+        }
+    }
+
+    private void onInvalidation(String body) {
+        int sep = body.lastIndexOf(':');
+        if (sep <= 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        try {
+            teamIdsByMember.remove(Long.parseLong(body.substring(sep + 1)));
+        } catch (NumberFormatException ignored) {
+            // not one of ours
+        }
+    }
+
+    /** Team id -> when the member joined it, for the member's current teams. */
+    @Transactional(readOnly = true)
+    public Map<Long, Instant> joinedAtOf(Long memberId) {
+        Map<Long, Instant> joined = new HashMap<>();
+        membershipRepository.findByMemberId(memberId)
+                .forEach(m -> joined.put(m.getTeam().getId(), m.getJoinedAt()));
+        return joined;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> memberIdsOf(Long teamId) {
+        return membershipRepository.findMemberIdsByTeamId(teamId);
+    }
+
+    /** The member and everyone sharing at least one team with them. */
+    @Transactional(readOnly = true)
+    public Set<Long> teammateIdsOf(Long memberId) {
+        Set<Long> ids = new HashSet<>(membershipRepository.findTeammateIdsByMemberId(memberId));
+        ids.add(memberId);
+        return ids;
+    }
+
+    /**
+     * Throws unless every member is the viewer or shares at least one team
+     * with the viewer.
+     */
+    @Transactional(readOnly = true)
+    public void requireVisible(Long viewerId, Collection<Long> memberIds) {
+        Set<Long> viewerTeams = new HashSet<>(teamIdsOf(viewerId));
+        for (Long memberId : memberIds) {
+            if (memberId.equals(viewerId)) {
+                continue;
+            }
+            if (teamIdsOf(memberId).stream().noneMatch(viewerTeams::contains)) {
+                throw new BaseException(BaseResponseStatus.NOT_TEAM_MEMBER);
+            }
+        }
+    }
+
+    /** Throws unless the member belongs to the team. */
+    @Transactional(readOnly = true)
+    public void requireMember(Long teamId, Long memberId) {
+        if (!teamRepository.existsById(teamId)) {
+            throw new BaseException(BaseResponseStatus.TEAM_NOT_FOUND);
+        }
+        if (!teamIdsOf(memberId).contains(teamId)) {
+            throw new BaseException(BaseResponseStatus.NOT_TEAM_MEMBER);
+        }
+    }
+}
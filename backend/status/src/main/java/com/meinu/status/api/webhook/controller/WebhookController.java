@@ -0,0 +1,47 @@
+package com.meinu.status.api.webhook.controller;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.service.MemberService;
+import com.meinu.status.api.webhook.dto.request.CreateWebhookRequest;
+import com.meinu.status.api.webhook.dto.response.WebhookResponse;
+import com.meinu.status.api.webhook.service.WebhookService;
+import com.meinu.status.global.common.base.BaseResponse;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/webhooks")
+public class WebhookController {
+    private final WebhookService webhookService;
+    private final MemberService memberService;
+
+    public WebhookController(WebhookService webhookService, MemberService memberService) {
+        this.webhookService = webhookService;
+        this.memberService = memberService;
+    }
+
+    @PostMapping
+    public ResponseEntity<BaseResponse<WebhookResponse>> create(Authentication auth,
+            @Valid @RequestBody CreateWebhookRequest req) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(webhookService.create(me, req.url(), req.events())));
+    }
+
+    @GetMapping
+    public ResponseEntity<BaseResponse<List<WebhookResponse>>> myWebhooks(Authentication auth) {
+        Member me = memberService.getByEmail(auth.getName());
+        return ResponseEntity.ok(BaseResponse.success(webhookService.webhooksOf(me.getId())));
+    }
+
+    @DeleteMapping("/{webhookId}")
+    public ResponseEntity<BaseResponse<Void>> delete(Authentication auth, @PathVariable Long webhookId) {
+        Member me = memberService.getByEmail(auth.getName());
+        webhookService.delete(me.getId(), webhookId);
+        return ResponseEntity.ok(BaseResponse.of(BaseResponseStatus.SUCCESS));
+    }
+}
@@ -0,0 +1,47 @@
+package com.meinu.status.api.webhook.dispatch;
+
+/**
+ * Per-endpoint breaker, local to this node. After {@code failureThreshold}
+ * consecutive failed deliveries it opens for {@code openMs}, doubling with
+ * every reopening up to {@code maxOpenMs}. Once that passes, the next delivery
+ * is the trial: success closes it, failure opens it again right away.
+ */
+final class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openMs;
+    private final long maxOpenMs;
+    private int failures;
+    private int opened;
+    private long openUntilMs;
+
+    CircuitBreaker(int failureThreshold, long openMs, long maxOpenMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.maxOpenMs = maxOpenMs;
+    }
+
+    synchronized boolean allows(long now) {
+        return now >= openUntilMs;
+    }
+
+    synchronized long openUntilMs() {
+        return openUntilMs;
+    }
+
+    synchronized void success() {
+        failures = 0;
+        opened = 0;
+        openUntilMs = 0;
+    }
+
+    /** Returns true when this failure opened the circuit. */
+    synchronized boolean failure(long now) {
+        if (++failures < failureThreshold) {
+            return false;
+        }
+        long cooldown = openMs << Math.min(opened, 20);
+        openUntilMs = now + Math.min(maxOpenMs, cooldown);
+        opened++;
+        return true;
+    }
+}
@@ -0,0 +1,330 @@
+package com.meinu.status.api.webhook.dispatch;
+
+import com.meinu.status.api.webhook.entity.WebhookEndpoint;
+import com.meinu.status.api.webhook.outbox.WebhookOutbox;
+import com.meinu.status.api.webhook.repository.WebhookEndpointRepository;
+import com.meinu.status.api.webhook.service.WebhookUrlPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers the outbox. Every poll leases up to {@code batch-size} due events
+ * per endpoint and POSTs them as one {@code {"events":[...]}} body, signed
+ * with the endpoint's secret in {@value #SIGNATURE_HEADER}. Deliveries run on
+ * {@code concurrency} threads of their own with at most one batch in flight
+ * per endpoint, so a slow endpoint holds one thread for at most the request
+ * timeout and ingest never waits on any of it.
+ *
+ * <p>A failed batch is retried with exponential backoff and jitter until
+ * {@code max-attempts}, then kept as dead. Consecutive failures open the
+ * endpoint's {@link CircuitBreaker}; while it is open its events are pushed
+ * back in the outbox instead of being attempted.
+ *
+ * <p>The HTTP client resolves hosts through {@link WebhookUrlPolicy#resolveHost},
+ * so every new connection goes to addresses checked in that same lookup and
+ * a DNS answer that changed since registration cannot point a delivery into
+ * the private network.
+ */
+@Component
+public class WebhookDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+    public static final String SIGNATURE_HEADER = "X-Stat-us-Signature";
+    public static final String DELIVERY_HEADER = "X-Stat-us-Delivery";
+
+    private final WebhookOutbox outbox;
+    private final WebhookEndpointRepository endpointRepository;
+    private final WebhookUrlPolicy urlPolicy;
+    private final CloseableHttpClient http;
+    private final ThreadPoolExecutor senders;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong leases = new AtomicLong();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<Long, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+    private final Counter delivered;
+    private final Counter failed;
+
+    @Value("${app.webhook.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.webhook.dispatch.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.webhook.dispatch.claim-limit:500}")
+    private int claimLimit;
+
+    @Value("${app.webhook.dispatch.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.webhook.dispatch.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    @Value("${app.webhook.dispatch.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.webhook.dispatch.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${app.webhook.dispatch.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.webhook.dispatch.circuit.failure-threshold:5}")
+    private int circuitFailureThreshold;
+
+    @Value("${app.webhook.dispatch.circuit.open-ms:30000}")
+    private long circuitOpenMs;
+
+    @Value("${app.webhook.dispatch.circuit.max-open-ms:600000}")
+    private long circuitMaxOpenMs;
+
+    @Value("${app.webhook.dispatch.dead-retention-hours:168}")
+    private long deadRetentionHours;
+
+    public WebhookDispatcher(WebhookOutbox outbox, WebhookEndpointRepository endpointRepository,
+            WebhookUrlPolicy urlPolicy, MeterRegistry meterRegistry,
+            @Value("${app.webhook.dispatch.concurrency:4}") int concurrency,
+            @Value("${app.webhook.dispatch.connect-timeout-ms:2000}") long connectTimeoutMs) {
+        this.outbox = outbox;
+        this.endpointRepository = endpointRepository;
+        this.urlPolicy = urlPolicy;
+        // redirects are not followed, so a 3xx cannot point a delivery somewhere unchecked
+        this.http = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDnsResolver(new SystemDefaultDnsResolver() {
+                            @Override
+                            public InetAddress[] resolve(String host) throws UnknownHostException {
+                                return urlPolicy.resolveHost(host);
+                            }
+                        })
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs)).build())
+                        .setMaxConnTotal(concurrency)
+                        .setMaxConnPerRoute(concurrency)
+                        .build())
+                .evictIdleConnections(TimeValue.ofMinutes(1))
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build();
+        AtomicInteger seq = new AtomicInteger();
+        // no queue: a batch is only leased when a thread is free to send it
+        this.senders = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "webhook-sender-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        senders.prestartAllCoreThreads();
+        this.delivered = Counter.builder("webhook.deliveries").tag("outcome", "delivered").register(meterRegistry);
+        this.failed = Counter.builder("webhook.deliveries").tag("outcome", "failed").register(meterRegistry);
+        Gauge.builder("webhook.senders.active", senders, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("webhook.circuits.open", circuits, c -> c.values().stream()
+                .filter(b -> !b.allows(System.currentTimeMillis())).count()).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook.dispatch.poll-interval-ms:1000}")
+    public void dispatch() {
+        if (!enabled || senders.getActiveCount() >= senders.getMaximumPoolSize()) {
+            return;
+        }
+        try {
+            dispatchDue();
+        } catch (DataAccessException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Webhook dispatch poll failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void dispatchDue() {
+        Instant now = Instant.now();
+        Map<Long, List<Long>> idsByEndpoint = new LinkedHashMap<>();
+        for (WebhookOutbox.Due due : outbox.due(now, claimLimit)) {
+            idsByEndpoint.computeIfAbsent(due.endpointId(), k -> new ArrayList<>()).add(due.id());
+        }
+        if (idsByEndpoint.isEmpty()) {
+            return;
+        }
+        Map<Long, WebhookEndpoint> endpoints = endpointRepository.findByIdIn(idsByEndpoint.keySet()).stream()
+                .collect(Collectors.toMap(WebhookEndpoint::getId, Function.identity()));
+        for (Map.Entry<Long, List<Long>> e : idsByEndpoint.entrySet()) {
+            long endpointId = e.getKey();
+            WebhookEndpoint endpoint = endpoints.get(endpointId);
+            if (endpoint == null) {
+                outbox.discard(endpointId); // deleted since
+                continue;
+            }
+            CircuitBreaker circuit = circuit(endpointId);
+            if (!circuit.allows(now.toEpochMilli())) {
+                outbox.postpone(endpointId, Instant.ofEpochMilli(circuit.openUntilMs()));
+                continue;
+            }
+            if (inFlight.contains(endpointId)) {
+                continue;
+            }
+            if (senders.getActiveCount() >= senders.getMaximumPoolSize()) {
+                return;
+            }
+            List<Long> ids = e.getValue().subList(0, Math.min(batchSize, e.getValue().size()));
+            String owner = nodeId + ":" + leases.incrementAndGet();
+            List<WebhookOutbox.Leased> batch = outbox.lease(ids, owner, now.plusMillis(leaseMs), now);
+            if (batch.isEmpty()) {
+                continue; // another node got there first
+            }
+            inFlight.add(endpointId);
+            try {
+                senders.execute(() -> deliver(endpoint, owner, batch));
+            } catch (RejectedExecutionException ex) {
+                inFlight.remove(endpointId);
+                outbox.release(owner);
+                return;
+            }
+        }
+    }
+
+    private void deliver(WebhookEndpoint endpoint, String owner, List<WebhookOutbox.Leased> batch) {
+        try {
+            String error = send(endpoint, batch);
+            long now = System.currentTimeMillis();
+            CircuitBreaker circuit = circuit(endpoint.getId());
+            if (error == null) {
+                circuit.success();
+                outbox.delivered(owner);
+                delivered.increment(batch.size());
+                return;
+            }
+            failed.increment(batch.size());
+            boolean opened = circuit.failure(now);
+            int attempts = batch.stream().mapToInt(WebhookOutbox.Leased::attempts).max().orElse(0) + 1;
+            outbox.failed(owner, error, Instant.ofEpochMilli(now + backoffMs(attempts)), maxAttempts);
+            if (log.isWarnEnabled()) {
+                log.warn("Webhook delivery failed: endpointId={} events={} attempt={} error={}{}", endpoint.getId(),
+                        batch.size(), attempts, error, opened ? " (circuit open)" : "");
+            }
+        } catch (DataAccessException e) {
+            // the lease runs out and the batch is sent again
+            if (log.isWarnEnabled()) {
+                log.warn("Webhook outbox update failed: endpointId={} cause={}", endpoint.getId(), e.getMessage());
+            }
+        } finally {
+            inFlight.remove(endpoint.getId());
+        }
+    }
+
+    /** Null on a 2xx answer, otherwise what went wrong. */
+    private String send(WebhookEndpoint endpoint, List<WebhookOutbox.Leased> batch) {
+        String body = batch.stream().map(WebhookOutbox.Leased::payload)
+                .collect(Collectors.joining(",", "{\"events\":[", "]}"));
+        HttpPost request = new HttpPost(endpoint.getUrl());
+        request.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(requestTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(requestTimeoutMs))
+                .build());
+        request.setHeader(SIGNATURE_HEADER, "sha256=" + hmacSha256(endpoint.getSecret(), body));
+        request.setHeader(DELIVERY_HEADER, Long.toString(batch.get(0).id()));
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        try {
+            int status = http.execute(request, response -> {
+                EntityUtils.consume(response.getEntity());
+                return response.getCode();
+            });
+            return status >= 200 && status < 300 ? null : "HTTP " + status;
+        } catch (IllegalArgumentException e) {
+            return "invalid URL";
+        } catch (IOException e) {
+            return e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        }
+    }
+
+    /** Half of the exponential delay fixed, half random, so endpoints coming back are not hit in step. */
+    private long backoffMs(int attempts) {
+        long delay = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempts - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private CircuitBreaker circuit(long endpointId) {
+        return circuits.computeIfAbsent(endpointId,
+                id -> new CircuitBreaker(circuitFailureThreshold, circuitOpenMs, circuitMaxOpenMs));
+    }
+
+    private static String hmacSha256(String secret, String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Drops dead events past their retention and breakers of endpoints that went quiet. */
+    @Scheduled(fixedDelayString = "${app.webhook.dispatch.purge-interval-ms:3600000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        circuits.entrySet().removeIf(e -> e.getValue().allows(now) && !inFlight.contains(e.getKey()));
+        try {
+            int purged = outbox.purgeDead(Instant.ofEpochMilli(now).minus(Duration.ofHours(deadRetentionHours)));
+            if (purged > 0 && log.isInfoEnabled()) {
+                log.info("Webhook outbox purged: dead={}", purged);
+            }
+        } catch (DataAccessException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Webhook outbox purge failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        http.close(CloseMode.GRACEFUL);
+    }
+}
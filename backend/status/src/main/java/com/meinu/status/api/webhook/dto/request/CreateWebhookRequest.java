@@ -0,0 +1,12 @@
+package com.meinu.status.api.webhook.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** @param events transition types to deliver; null or empty for all */
+public record CreateWebhookRequest(
+        @NotBlank @Size(max = 1024) String url,
+        List<String> events) {
+}
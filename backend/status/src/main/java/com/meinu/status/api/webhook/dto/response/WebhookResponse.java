@@ -0,0 +1,6 @@
+package com.meinu.status.api.webhook.dto.response;
+
+import java.util.List;
+
+public record WebhookResponse(Long id, String url, List<String> events, String secret) {
+}
@@ -0,0 +1,47 @@
+package com.meinu.status.api.webhook.entity;
+
+import com.meinu.status.api.member.entity.Member;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * A URL a member's status transitions are POSTed to, signed with
+ * {@code secret}. {@code events} is a comma-separated list of transition
+ * types; null subscribes to all of them.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "webhook_endpoints", indexes = {
+        @Index(name = "idx_webhook_endpoints_member", columnList = "member_id")
+})
+public class WebhookEndpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "member_id", nullable = false)
+    private Member member;
+
+    @Column(name = "url", nullable = false, length = 1024)
+    private String url;
+
+    @Column(name = "secret", nullable = false, length = 64)
+    private String secret;
+
+    @Column(name = "events", length = 255)
+    private String events;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,67 @@
+package com.meinu.status.api.webhook.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One transition waiting to be delivered to one endpoint. Rows are written on
+ * the ingest path and read, leased and deleted by the dispatcher through
+ * {@link com.meinu.status.api.webhook.outbox.WebhookOutbox}; this entity only
+ * defines the table. No foreign keys, so deleting an endpoint or member never
+ * waits on the outbox.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "webhook_outbox", indexes = {
+        @Index(name = "idx_webhook_outbox_due", columnList = "dead, next_attempt_at"),
+        @Index(name = "idx_webhook_outbox_endpoint", columnList = "endpoint_id"),
+        @Index(name = "idx_webhook_outbox_lease", columnList = "lease_owner")
+})
+public class WebhookOutboxEntry {
+    // assigned by TsidGenerator, so id order is enqueue order
+    @Id
+    private Long id;
+
+    @Column(name = "endpoint_id", nullable = false)
+    private Long endpointId;
+
+    @Column(name = "member_id", nullable = false)
+    private Long memberId;
+
+    @Column(name = "type", nullable = false, length = 32)
+    private String type;
+
+    // the event as delivered, JSON
+    @Column(name = "payload", nullable = false, length = 4096)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "last_error", length = 255)
+    private String lastError;
+
+    // gave up after max-attempts; kept until dead-retention-hours for inspection
+    @Column(name = "dead", nullable = false)
+    private boolean dead;
+}
@@ -0,0 +1,175 @@
+package com.meinu.status.api.webhook.outbox;
+
+import com.meinu.status.global.id.TsidGenerator;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Durable queue of webhook deliveries in {@code webhook_outbox}, in the same
+ * database as everything else. Rows are claimed by writing a per-claim lease
+ * owner and expiry onto them, so several nodes can dispatch from the table: a
+ * row is sent by whoever leased it, and a node that dies mid-delivery only
+ * delays it until the lease runs out. Delivery is at least once.
+ */
+@Component
+public class WebhookOutbox {
+    private static final String INSERT = "insert into webhook_outbox (id, endpoint_id, member_id, type, payload,"
+            + " created_at, next_attempt_at, attempts, dead) values (?, ?, ?, ?, ?, ?, ?, 0, false)";
+    private static final String DUE = "select id, endpoint_id from webhook_outbox"
+            + " where dead = false and next_attempt_at <= ? and (lease_until is null or lease_until < ?)"
+            + " order by next_attempt_at, id limit ?";
+    private static final String LEASE = "update webhook_outbox set lease_owner = ?, lease_until = ?"
+            + " where id in (%s) and dead = false and (lease_until is null or lease_until < ?)";
+    private static final String LEASED = "select id, attempts, payload from webhook_outbox"
+            + " where lease_owner = ? order by id";
+    // dead is assigned before attempts: MySQL evaluates SET left to right with
+    // the values already assigned, H2 with the old ones; this order reads the
+    // old count on both
+    private static final String FAILED = "update webhook_outbox set dead = (attempts + 1 >= ?),"
+            + " attempts = attempts + 1, next_attempt_at = ?, last_error = ?, lease_owner = null, lease_until = null"
+            + " where lease_owner = ?";
+
+    /** A transition for one endpoint, {@code payload} being built once its id is known. */
+    public record NewEntry(Long endpointId, Long memberId, String type, LongFunction<String> payload) {
+    }
+
+    public record Due(long id, long endpointId) {
+    }
+
+    public record Leased(long id, int attempts, String payload) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TsidGenerator idGenerator;
+
+    public WebhookOutbox(JdbcTemplate jdbcTemplate, TsidGenerator idGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = idGenerator;
+    }
+
+    public void append(List<NewEntry> entries, Instant at) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(at);
+        Calendar utc = utc();
+        List<Long> ids = entries.stream().map(e -> idGenerator.next()).toList();
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                NewEntry e = entries.get(i);
+                ps.setLong(1, ids.get(i));
+                ps.setLong(2, e.endpointId());
+                ps.setLong(3, e.memberId());
+                ps.setString(4, e.type());
+                ps.setString(5, e.payload().apply(ids.get(i)));
+                ps.setTimestamp(6, now, utc);
+                ps.setTimestamp(7, now, utc);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    /** Unleased live rows whose next attempt is due, oldest first. */
+    public List<Due> due(Instant now, int limit) {
+        Timestamp ts = Timestamp.from(now);
+        Calendar utc = utc();
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DUE);
+            ps.setTimestamp(1, ts, utc);
+            ps.setTimestamp(2, ts, utc);
+            ps.setInt(3, limit);
+            return ps;
+        }, (rs, i) -> new Due(rs.getLong(1), rs.getLong(2)));
+    }
+
+    /** Leases those of {@code ids} nobody else holds to {@code owner}, returning them in id order. */
+    public List<Leased> lease(Collection<Long> ids, String owner, Instant until, Instant now) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Calendar utc = utc();
+        String in = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        List<Long> idList = new ArrayList<>(ids);
+        int updated = jdbcTemplate.update(LEASE.formatted(in), ps -> {
+            ps.setString(1, owner);
+            ps.setTimestamp(2, Timestamp.from(until), utc);
+            for (int i = 0; i < idList.size(); i++) {
+                ps.setLong(3 + i, idList.get(i));
+            }
+            ps.setTimestamp(3 + idList.size(), Timestamp.from(now), utc);
+        });
+        if (updated == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query(LEASED, (rs, i) -> new Leased(rs.getLong(1), rs.getInt(2), rs.getString(3)),
+                owner);
+    }
+
+    public void delivered(String owner) {
+        jdbcTemplate.update("delete from webhook_outbox where lease_owner = ?", owner);
+    }
+
+    /**
+     * Schedules the next attempt of the rows leased to {@code owner}, or gives
+     * up on them once they have failed {@code maxAttempts} times.
+     */
+    public void failed(String owner, String error, Instant nextAttemptAt, int maxAttempts) {
+        jdbcTemplate.update(FAILED, ps -> {
+            ps.setInt(1, maxAttempts);
+            ps.setTimestamp(2, Timestamp.from(nextAttemptAt), utc());
+            ps.setString(3, error.length() > 255 ? error.substring(0, 255) : error);
+            ps.setString(4, owner);
+        });
+    }
+
+    /** Gives the rows leased to {@code owner} back without counting an attempt. */
+    public void release(String owner) {
+        jdbcTemplate.update("update webhook_outbox set lease_owner = null, lease_until = null where lease_owner = ?",
+                owner);
+    }
+
+    /** Moves the endpoint's due rows to {@code until}, e.g. while its circuit is open. */
+    public void postpone(long endpointId, Instant until) {
+        Calendar utc = utc();
+        jdbcTemplate.update("update webhook_outbox set next_attempt_at = ? where endpoint_id = ? and dead = false"
+                + " and next_attempt_at < ? and lease_owner is null", ps -> {
+                    ps.setTimestamp(1, Timestamp.from(until), utc);
+                    ps.setLong(2, endpointId);
+                    ps.setTimestamp(3, Timestamp.from(until), utc);
+                });
+    }
+
+    /** Drops everything queued for an endpoint that no longer exists. */
+    public void discard(long endpointId) {
+        jdbcTemplate.update("delete from webhook_outbox where endpoint_id = ?", endpointId);
+    }
+
+    /** Deletes dead rows created before {@code before}; returns how many. */
+    public int purgeDead(Instant before) {
+        return jdbcTemplate.update("delete from webhook_outbox where dead = true and created_at < ?", ps ->
+                ps.setTimestamp(1, Timestamp.from(before), utc()));
+    }
+
+    // bind like Hibernate does for Instant columns
+    private static Calendar utc() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
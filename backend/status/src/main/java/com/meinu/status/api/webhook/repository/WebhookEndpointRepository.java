@@ -0,0 +1,20 @@
+package com.meinu.status.api.webhook.repository;
+
+import com.meinu.status.api.webhook.entity.WebhookEndpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface WebhookEndpointRepository extends JpaRepository<WebhookEndpoint, Long> {
+    List<WebhookEndpoint> findByMemberIdOrderByIdAsc(Long memberId);
+
+    Optional<WebhookEndpoint> findByIdAndMemberId(Long id, Long memberId);
+
+    long countByMemberId(Long memberId);
+
+    // unlike findAllById not read-only, so it reads the primary: the dispatcher
+    // drops the outbox rows of endpoints it does not find
+    List<WebhookEndpoint> findByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,69 @@
+package com.meinu.status.api.webhook.service;
+
+import com.meinu.status.api.status.dto.response.TeammateStatus;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A change of a member's status worth telling a webhook about, derived by
+ * comparing the stored snapshot with the one replacing it. Only the workspace
+ * name, language and branch are passed on; file paths and code never leave.
+ */
+public record StatusTransition(String type, Long memberId, Instant at, Map<String, Object> data) {
+    public static final String CODING_STARTED = "coding.started";
+    public static final String CODING_IDLE = "coding.idle";
+    public static final String WORKSPACE_SWITCHED = "workspace.switched";
+    public static final String OFFLINE = "offline";
+    public static final List<String> TYPES = List.of(CODING_STARTED, CODING_IDLE, WORKSPACE_SWITCHED, OFFLINE);
+
+    /**
+     * Transitions from {@code previous} (empty version: no snapshot) to
+     * {@code next}: started coding after being away, idle or offline; went idle
+     * while coding; opened another workspace while online.
+     */
+    public static List<StatusTransition> between(Long memberId, VersionedSnapshot previous,
+            Map<String, Object> next, Instant at) {
+        Map<String, Object> prev = previous.version().isEmpty() ? null : previous.payload();
+        boolean wasOnline = prev != null && !Boolean.TRUE.equals(prev.get("isOffline"));
+        boolean wasActive = wasOnline && !Boolean.TRUE.equals(prev.get("isIdle"));
+        boolean isIdle = Boolean.TRUE.equals(next.get("isIdle"));
+        Map<String, Object> data = describe(next);
+        List<StatusTransition> out = new ArrayList<>(2);
+        if (wasOnline && next.get("workspaceRoot") instanceof String root
+                && prev.get("workspaceRoot") instanceof String prevRoot && !Objects.equals(root, prevRoot)) {
+            Map<String, Object> switched = new LinkedHashMap<>(data);
+            switched.put("previousWorkspace", TeammateStatus.workspaceName(prevRoot));
+            out.add(new StatusTransition(WORKSPACE_SWITCHED, memberId, at, switched));
+        }
+        if (!isIdle && !wasActive) {
+            out.add(new StatusTransition(CODING_STARTED, memberId, at, data));
+        } else if (isIdle && wasActive) {
+            out.add(new StatusTransition(CODING_IDLE, memberId, at, data));
+        }
+        return out;
+    }
+
+    public static StatusTransition offline(Long memberId, Instant at) {
+        return new StatusTransition(OFFLINE, memberId, at, Map.of());
+    }
+
+    private static Map<String, Object> describe(Map<String, Object> snapshot) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (snapshot.get("workspaceRoot") instanceof String root) {
+            data.put("workspace", TeammateStatus.workspaceName(root));
+        }
+        if (snapshot.get("languageId") instanceof String language) {
+            data.put("languageId", language);
+        }
+        if (snapshot.get("branch") instanceof String branch) {
+            data.put("branch", branch);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+package com.meinu.status.api.webhook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import com.meinu.status.api.webhook.outbox.WebhookOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns status changes into outbox rows, one per transition and subscribed
+ * endpoint. It runs on the ingest path, so it never talks to an endpoint: most
+ * heartbeats change nothing and cost a comparison; a transition costs a cached
+ * endpoint lookup and, when someone listens, one batched insert. Delivery is
+ * left to the dispatcher.
+ */
+@Service
+public class WebhookNotifier {
+    private final WebhookService webhookService;
+    private final WebhookOutbox outbox;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.webhook.enabled:true}")
+    private boolean enabled;
+
+    public WebhookNotifier(WebhookService webhookService, WebhookOutbox outbox, ObjectMapper objectMapper) {
+        this.webhookService = webhookService;
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Called once {@code next} replaced {@code previous} as the member's current snapshot. */
+    public void snapshotChanged(Long memberId, VersionedSnapshot previous, Map<String, Object> next, Instant at) {
+        if (enabled) {
+            enqueue(memberId, StatusTransition.between(memberId, previous, next, at), at);
+        }
+    }
+
+    public void wentOffline(Long memberId, Instant at) {
+        if (enabled) {
+            enqueue(memberId, List.of(StatusTransition.offline(memberId, at)), at);
+        }
+    }
+
+    private void enqueue(Long memberId, List<StatusTransition> transitions, Instant at) {
+        if (transitions.isEmpty()) {
+            return;
+        }
+        List<WebhookService.Target> targets = webhookService.targetsOf(memberId);
+        List<WebhookOutbox.NewEntry> entries = new ArrayList<>();
+        for (StatusTransition t : transitions) {
+            for (WebhookService.Target target : targets) {
+                if (target.wants(t.type())) {
+                    entries.add(new WebhookOutbox.NewEntry(target.id(), memberId, t.type(), id -> toJson(id, t)));
+                }
+            }
+        }
+        outbox.append(entries, at);
+    }
+
+    // the id is a string: event ids exceed what a JavaScript number holds exactly
+    private String toJson(long id, StatusTransition t) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", Long.toString(id));
+        event.put("type", t.type());
+        event.put("memberId", t.memberId());
+        event.put("at", t.at().toString());
+        event.put("data", t.data());
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
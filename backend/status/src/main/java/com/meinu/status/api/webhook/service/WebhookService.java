@@ -0,0 +1,116 @@
+package com.meinu.status.api.webhook.service;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.webhook.dto.response.WebhookResponse;
+import com.meinu.status.api.webhook.entity.WebhookEndpoint;
+import com.meinu.status.api.webhook.outbox.WebhookOutbox;
+import com.meinu.status.api.webhook.repository.WebhookEndpointRepository;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Transactional
+public class WebhookService {
+    /** An endpoint as the ingest path needs it; empty {@code events} means all. */
+    public record Target(Long id, Set<String> events) {
+        public boolean wants(String type) {
+            return events.isEmpty() || events.contains(type);
+        }
+    }
+
+    private record Cached(List<Target> targets, long loadedAtMs) {
+    }
+
+    private final WebhookEndpointRepository endpointRepository;
+    private final WebhookOutbox outbox;
+    private final WebhookUrlPolicy urlPolicy;
+
+    // member id -> endpoints; read on every transition, so kept in memory,
+    // dropped when this node changes them and reloaded after cache-ms when
+    // another node may have
+    private final Map<Long, Cached> targetsByMember = new ConcurrentHashMap<>();
+
+    @Value("${app.webhook.max-per-member:5}")
+    private int maxPerMember;
+
+    @Value("${app.webhook.endpoint-cache-ms:60000}")
+    private long cacheMs;
+
+    public WebhookService(WebhookEndpointRepository endpointRepository, WebhookOutbox outbox,
+            WebhookUrlPolicy urlPolicy) {
+        this.endpointRepository = endpointRepository;
+        this.outbox = outbox;
+        this.urlPolicy = urlPolicy;
+    }
+
+    public WebhookResponse create(Member owner, String url, List<String> events) {
+        if (endpointRepository.countByMemberId(owner.getId()) >= maxPerMember) {
+            throw new BaseException(BaseResponseStatus.WEBHOOK_LIMIT_EXCEEDED);
+        }
+        if (!urlPolicy.allowed(url)) {
+            throw new BaseException(BaseResponseStatus.WEBHOOK_URL_NOT_ALLOWED);
+        }
+        Set<String> types = events == null ? Set.of() : new LinkedHashSet<>(events);
+        if (!StatusTransition.TYPES.containsAll(types)) {
+            throw new BaseException(BaseResponseStatus.WEBHOOK_EVENT_UNKNOWN);
+        }
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        WebhookEndpoint endpoint = endpointRepository.save(WebhookEndpoint.builder()
+                .member(owner)
+                .url(url)
+                .secret(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes))
+                .events(types.isEmpty() ? null : String.join(",", types))
+                .build());
+        targetsByMember.remove(owner.getId());
+        return toResponse(endpoint);
+    }
+
+    @Transactional(readOnly = true)
+    public List<WebhookResponse> webhooksOf(Long memberId) {
+        return endpointRepository.findByMemberIdOrderByIdAsc(memberId).stream().map(WebhookService::toResponse)
+                .toList();
+    }
+
+    public void delete(Long memberId, Long webhookId) {
+        WebhookEndpoint endpoint = endpointRepository.findByIdAndMemberId(webhookId, memberId)
+                .orElseThrow(() -> new BaseException(BaseResponseStatus.WEBHOOK_NOT_FOUND));
+        endpointRepository.delete(endpoint);
+        outbox.discard(endpoint.getId());
+        targetsByMember.remove(memberId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Target> targetsOf(Long memberId) {
+        long now = System.currentTimeMillis();
+        Cached cached = targetsByMember.get(memberId);
+        if (cached != null && now - cached.loadedAtMs() < cacheMs) {
+            return cached.targets();
+        }
+        List<Target> targets = endpointRepository.findByMemberIdOrderByIdAsc(memberId).stream()
+                .map(e -> new Target(e.getId(), events(e)))
+                .toList();
+        targetsByMember.put(memberId, new Cached(targets, now));
+        return targets;
+    }
+
+    private static Set<String> events(WebhookEndpoint endpoint) {
+        return endpoint.getEvents() == null ? Set.of() : Set.of(endpoint.getEvents().split(","));
+    }
+
+    private static WebhookResponse toResponse(WebhookEndpoint e) {
+        List<String> events = e.getEvents() == null ? List.of() : List.of(e.getEvents().split(","));
+        return new WebhookResponse(e.getId(), e.getUrl(), events, e.getSecret());
+    }
+}
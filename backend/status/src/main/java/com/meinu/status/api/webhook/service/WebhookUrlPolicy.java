@@ -0,0 +1,67 @@
+package com.meinu.status.api.webhook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Which URLs webhooks may point at: http(s) with a host that resolves, and
+ * unless {@code app.webhook.allow-private-addresses} is set, only to public
+ * addresses, so members cannot make the server call into its own network.
+ * Checked on registration and again on every delivery connection, since DNS
+ * can change in between: the dispatcher's HTTP client resolves hosts through
+ * {@link #resolveHost}, so it connects to exactly the addresses checked.
+ */
+@Component
+public class WebhookUrlPolicy {
+    private final boolean allowPrivateAddresses;
+
+    public WebhookUrlPolicy(@Value("${app.webhook.allow-private-addresses:false}") boolean allowPrivateAddresses) {
+        this.allowPrivateAddresses = allowPrivateAddresses;
+    }
+
+    public boolean allowed(String url) {
+        return resolve(url) != null;
+    }
+
+    /** The addresses the URL's host resolves to, or null if the URL is not allowed. */
+    public InetAddress[] resolve(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())
+                || uri.getHost() == null) {
+            return null;
+        }
+        try {
+            return resolveHost(uri.getHost());
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /** The addresses {@code host} resolves to; fails like an unknown host if any of them is not allowed. */
+    public InetAddress[] resolveHost(String host) throws UnknownHostException {
+        InetAddress[] addresses = InetAddress.getAllByName(host);
+        if (!allowPrivateAddresses && Arrays.stream(addresses).anyMatch(WebhookUrlPolicy::isPrivate)) {
+            throw new UnknownHostException(host + " resolves to a private address");
+        }
+        return addresses;
+    }
+
+    private static boolean isPrivate(InetAddress a) {
+        return a.isLoopbackAddress() || a.isSiteLocalAddress() || a.isLinkLocalAddress() || a.isAnyLocalAddress()
+                || a.isMulticastAddress()
+                // IPv6 unique local fc00::/7
+                || a instanceof Inet6Address && (a.getAddress()[0] & 0xfe) == 0xfc;
+    }
+}
@@ -12,16 +12,37 @@ public enum BaseResponseStatus {
     NOT_FOUND(false, HttpStatus.NOT_FOUND.value(), "리소스를 찾을 수 없습니다."),
     CONFLICT(false, HttpStatus.CONFLICT.value(), "충돌이 발생했습니다."),
     SERVER_ERROR(false, HttpStatus.INTERNAL_SERVER_ERROR.value(), "서버 오류가 발생했습니다."),
+    TOO_MANY_REQUESTS(false, HttpStatus.TOO_MANY_REQUESTS.value(), "요청이 너무 많습니다. 잠시 후 다시 시도해주세요."),
+    SERVICE_UNAVAILABLE(false, HttpStatus.SERVICE_UNAVAILABLE.value(), "서버가 혼잡합니다. 잠시 후 다시 시도해주세요."),
 
     // Auth/Member
     EMAIL_ALREADY_EXISTS(false, HttpStatus.CONFLICT.value(), "이미 가입된 이메일입니다."),
     MEMBER_NOT_FOUND(false, HttpStatus.NOT_FOUND.value(), "회원 정보를 찾을 수 없습니다."),
     INVALID_CREDENTIALS(false, HttpStatus.UNAUTHORIZED.value(), "이메일 또는 비밀번호가 올바르지 않습니다."),
+    TOO_MANY_LOGIN_ATTEMPTS(false, HttpStatus.TOO_MANY_REQUESTS.value(), "로그인 시도가 너무 많습니다. 잠시 후 다시 시도해주세요."),
     INVALID_TOKEN(false, HttpStatus.UNAUTHORIZED.value(), "유효하지 않은 토큰입니다."),
     TOKEN_EXPIRED(false, HttpStatus.UNAUTHORIZED.value(), "토큰이 만료되었습니다."),
     REFRESH_TOKEN_NOT_FOUND(false, HttpStatus.UNAUTHORIZED.value(), "리프레시 토큰이 없습니다."),
     API_KEY_REQUIRED(false, HttpStatus.UNAUTHORIZED.value(), "API 키가 필요합니다."),
     API_KEY_INVALID(false, HttpStatus.UNAUTHORIZED.value(), "유효하지 않은 API 키입니다."),
+
+    // Team
+    TEAM_NOT_FOUND(false, HttpStatus.NOT_FOUND.value(), "팀을 찾을 수 없습니다."),
+    NOT_TEAM_MEMBER(false, HttpStatus.FORBIDDEN.value(), "팀 멤버만 접근할 수 있습니다."),
+    NOT_TEAM_OWNER(false, HttpStatus.FORBIDDEN.value(), "팀 소유자만 변경할 수 있습니다."),
+    ALREADY_TEAM_MEMBER(false, HttpStatus.CONFLICT.value(), "이미 팀에 속한 회원입니다."),
+    ALREADY_INVITED(false, HttpStatus.CONFLICT.value(), "이미 초대한 회원입니다."),
+    INVITATION_NOT_FOUND(false, HttpStatus.NOT_FOUND.value(), "초대를 찾을 수 없습니다."),
+
+    // Ingest
+    SNAPSHOT_PATCH_CONFLICT(false, HttpStatus.CONFLICT.value(), "패치의 기준 상태가 최신이 아닙니다. 전체 상태를 다시 보내주세요."),
+    INVALID_COMPRESSED_BODY(false, HttpStatus.BAD_REQUEST.value(), "압축된 요청 본문을 해제할 수 없습니다."),
+
+    // Webhook
+    WEBHOOK_NOT_FOUND(false, HttpStatus.NOT_FOUND.value(), "웹훅을 찾을 수 없습니다."),
+    WEBHOOK_URL_NOT_ALLOWED(false, HttpStatus.BAD_REQUEST.value(), "허용되지 않는 웹훅 주소입니다."),
+    WEBHOOK_EVENT_UNKNOWN(false, HttpStatus.BAD_REQUEST.value(), "알 수 없는 웹훅 이벤트입니다."),
+    WEBHOOK_LIMIT_EXCEEDED(false, HttpStatus.CONFLICT.value(), "등록할 수 있는 웹훅 수를 초과했습니다."),
     ;
 
     private final boolean isSuccess;
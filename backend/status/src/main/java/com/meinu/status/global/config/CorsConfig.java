@@ -35,7 +35,7 @@ public class CorsConfig {
         cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         // Be permissive for headers during development to avoid preflight failures
         cfg.setAllowedHeaders(List.of("*"));
-        cfg.setExposedHeaders(List.of("Authorization", "Set-Cookie"));
+        cfg.setExposedHeaders(List.of("Authorization", "Set-Cookie", "X-Status-Version"));
         cfg.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
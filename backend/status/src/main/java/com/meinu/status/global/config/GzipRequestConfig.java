@@ -0,0 +1,191 @@
+package com.meinu.status.global.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.global.common.base.BaseResponse;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Accepts gzip-compressed request bodies (Content-Encoding: gzip) on the ingest
+ * endpoints, with a cap on the decompressed size. A body without a valid gzip
+ * header is rejected with 400 here; corruption further in surfaces while the
+ * body is parsed, which {@code GlobalExceptionHandler} also answers with 400.
+ */
+@Configuration
+public class GzipRequestConfig {
+
+    @Value("${app.ingest.max-decompressed-bytes:16777216}")
+    private long maxDecompressedBytes;
+
+    @Bean
+    public FilterRegistrationBean<GzipRequestFilter> gzipRequestFilterRegistration(ObjectMapper objectMapper) {
+        FilterRegistrationBean<GzipRequestFilter> bean = new FilterRegistrationBean<>(
+                new GzipRequestFilter(maxDecompressedBytes, objectMapper));
+        bean.addUrlPatterns("/api/ingest/*");
+        // after rate limiting so rejected requests are never inflated
+        bean.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return bean;
+    }
+
+    static class GzipRequestFilter extends OncePerRequestFilter {
+        private final long maxBytes;
+        private final ObjectMapper objectMapper;
+
+        GzipRequestFilter(long maxBytes, ObjectMapper objectMapper) {
+            this.maxBytes = maxBytes;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+            String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+            return encoding == null || !encoding.toLowerCase().contains("gzip");
+        }
+
+        @Override
+        protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                @NonNull FilterChain filterChain) throws ServletException, IOException {
+            GzipRequestWrapper wrapped;
+            try {
+                wrapped = new GzipRequestWrapper(request, maxBytes);
+            } catch (ZipException | EOFException e) {
+                // not gzip, or cut off inside the header
+                response.setStatus(BaseResponseStatus.INVALID_COMPRESSED_BODY.getCode());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                objectMapper.writeValue(response.getWriter(),
+                        BaseResponse.of(BaseResponseStatus.INVALID_COMPRESSED_BODY));
+                return;
+            }
+            filterChain.doFilter(wrapped, response);
+        }
+    }
+
+    static class GzipRequestWrapper extends HttpServletRequestWrapper {
+        private final ServletInputStream stream;
+
+        GzipRequestWrapper(HttpServletRequest request, long maxBytes) throws IOException {
+            super(request);
+            this.stream = new BoundedServletInputStream(new GZIPInputStream(request.getInputStream()), maxBytes);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return stream;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1L;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return null;
+            }
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+    }
+
+    static class BoundedServletInputStream extends ServletInputStream {
+        private final InputStream in;
+        private final long maxBytes;
+        private long read;
+        private boolean finished;
+
+        BoundedServletInputStream(InputStream in, long maxBytes) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = in.read(buf, off, len);
+            if (n < 0) {
+                finished = true;
+            } else {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            read += n;
+            if (read > maxBytes) {
+                throw new IOException("Decompressed request body exceeds " + maxBytes + " bytes");
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            // the GZIPInputStream wraps the container stream, so readiness cannot be signalled
+            throw new IllegalStateException("Gzip request bodies can only be read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
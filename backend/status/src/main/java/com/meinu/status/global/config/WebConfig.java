@@ -23,6 +23,7 @@ public class WebConfig implements WebMvcConfigurer {
     private static final String HDR_ACCEPT = "Accept";
     private static final String HDR_SET_COOKIE = "Set-Cookie";
     private static final String HDR_LAST_EVENT_ID = "Last-Event-ID";
+    private static final String HDR_X_STATUS_VERSION = "X-Status-Version";
 
     private static final String[] COMMON_ALLOWED_HEADERS = new String[] {
             HDR_AUTHORIZATION, HDR_CONTENT_TYPE, HDR_X_API_KEY, HDR_X_REQUESTED_WITH, HDR_ACCEPT
@@ -33,7 +34,7 @@ public class WebConfig implements WebMvcConfigurer {
     };
 
     private static final String[] COMMON_EXPOSED_HEADERS = new String[] {
-            HDR_AUTHORIZATION, HDR_SET_COOKIE
+            HDR_AUTHORIZATION, HDR_SET_COOKIE, HDR_X_STATUS_VERSION
     };
 
     @Override
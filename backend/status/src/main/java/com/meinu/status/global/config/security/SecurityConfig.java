@@ -9,6 +9,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.http.HttpMethod;
 import org.springframework.context.annotation.Bean;
@@ -25,15 +26,26 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Configuration
 public class SecurityConfig {
 
     private final JwtService jwtService;
+    private final Set<String> adminEmails;
 
-    public SecurityConfig(JwtService jwtService) {
+    /** @param adminEmails comma-separated; these members get ROLE_ADMIN on top of their token's roles */
+    public SecurityConfig(JwtService jwtService, @Value("${app.admin-emails:}") String adminEmails) {
         this.jwtService = jwtService;
+        this.adminEmails = StringUtils.commaDelimitedListToSet(adminEmails).stream()
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .map(e -> e.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     @Bean
@@ -47,11 +59,14 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/api/status/latest/by-key").permitAll()
+                        .requestMatchers("/api/status/latest/by-key", "/api/status/latest/by-key/wait").permitAll()
                         .requestMatchers("/api/status/stream").authenticated()
-                        .requestMatchers("/api/ingest/vscode").permitAll() // secured by x-api-key
+                        .requestMatchers("/api/ingest/vscode", "/api/ingest/vscode/batch").permitAll() // secured by x-api-key
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        // metrics, JFR dumps and Redis rebuilds are operator tools
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
-                .addFilterBefore(new JwtAuthFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new JwtAuthFilter(jwtService, adminEmails), UsernamePasswordAuthenticationFilter.class)
                 .exceptionHandling(ex -> ex.authenticationEntryPoint((req, res, ex2) -> {
                     res.setStatus(HttpStatus.UNAUTHORIZED.value());
                     res.setContentType("application/json");
@@ -60,12 +75,20 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Authenticates by access token. ROLE_ADMIN is also granted here to the
+     * members in {@code app.admin-emails}, so adding one applies to tokens
+     * already issued.
+     */
     static class JwtAuthFilter extends OncePerRequestFilter {
+        private static final String ROLE_ADMIN = "ROLE_ADMIN";
         private final JwtService jwtService;
+        private final Set<String> adminEmails;
         private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
-        JwtAuthFilter(JwtService jwtService) {
+        JwtAuthFilter(JwtService jwtService, Set<String> adminEmails) {
             this.jwtService = jwtService;
+            this.adminEmails = adminEmails;
         }
 
         @Override
@@ -106,7 +129,10 @@ public class SecurityConfig {
                 var claims = jwtService.parse(token);
                 String sub = claims.getSubject();
                 @SuppressWarnings("unchecked")
-                var roles = (List<String>) claims.getOrDefault("roles", List.of("ROLE_USER"));
+                var roles = new ArrayList<>((List<String>) claims.getOrDefault("roles", List.of("ROLE_USER")));
+                if (sub != null && adminEmails.contains(sub.toLowerCase(Locale.ROOT)) && !roles.contains(ROLE_ADMIN)) {
+                    roles.add(ROLE_ADMIN);
+                }
                 var authorities = roles.stream().map(SimpleGrantedAuthority::new).toList();
                 var authToken = new UsernamePasswordAuthenticationToken(sub, null, authorities);
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -0,0 +1,78 @@
+package com.meinu.status.global.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Periodically checks each replica and keeps it in read routing only while it
+ * answers and its replication delay is within the limit. The delay is read
+ * from the lag query's {@code Seconds_Behind_Source} column (MySQL
+ * {@code SHOW REPLICA STATUS}); no row means the server is not replicating and
+ * counts as no delay, a null delay (replication stopped) as unavailable. With
+ * a blank query only connectivity is checked.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final ReadWriteRoutingDataSource routing;
+
+    @Value("${app.datasource.replica-lag-query:SHOW REPLICA STATUS}")
+    private String lagQuery;
+
+    @Value("${app.datasource.replica-max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    public ReplicaLagMonitor(ReadWriteRoutingDataSource routing, MeterRegistry meterRegistry) {
+        this.routing = routing;
+        Gauge.builder("db.replicas.available", routing, ReadWriteRoutingDataSource::availableReplicas)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica-check-interval-ms:5000}")
+    public void check() {
+        for (Map.Entry<String, DataSource> replica : routing.replicas().entrySet()) {
+            boolean ok;
+            String reason;
+            try {
+                Long lag = lagSeconds(replica.getValue());
+                ok = lag != null && lag <= maxLagSeconds;
+                reason = lag == null ? "replication stopped" : "lag " + lag + "s";
+            } catch (SQLException e) {
+                ok = false;
+                reason = e.getMessage();
+            }
+            routing.setAvailable(replica.getKey(), ok);
+            if (!ok && log.isWarnEnabled()) {
+                log.warn("Replica {} excluded from reads: {}", replica.getKey(), reason);
+            }
+        }
+    }
+
+    private Long lagSeconds(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (!StringUtils.hasText(lagQuery)) {
+                return conn.isValid(2) ? 0L : null;
+            }
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    return 0L;
+                }
+                long lag = rs.getLong(LAG_COLUMN);
+                return rs.wasNull() ? null : lag;
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.meinu.status.global.common.base.BaseException;
 import com.meinu.status.global.common.base.BaseResponse;
 import com.meinu.status.global.common.base.BaseResponseStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -22,6 +23,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(BaseResponse.of(BaseResponseStatus.INVALID_REQUEST));
     }
 
+    /** Malformed JSON, or a compressed body that turns out corrupt or too large while it is read. */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<BaseResponse<Void>> handleUnreadable(HttpMessageNotReadableException e) {
+        return ResponseEntity.badRequest().body(BaseResponse.of(BaseResponseStatus.INVALID_REQUEST));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<BaseResponse<Void>> handleOther(Exception e) {
         return ResponseEntity.status(500).body(BaseResponse.of(BaseResponseStatus.SERVER_ERROR));
@@ -0,0 +1,140 @@
+package com.meinu.status.global.id;
+
+import com.meinu.status.global.store.KeyValueStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Time-sortable 64-bit ids: 41 bits of milliseconds since {@link #EPOCH}
+ * (good for ~69 years), a 10-bit node id and a 12-bit per-millisecond
+ * sequence. Ids from one node are strictly increasing; across nodes they are
+ * ordered by millisecond. When the clock steps back or a millisecond's
+ * sequence runs out, the generator keeps counting on from its last timestamp
+ * instead of waiting.
+ *
+ * <p>Two nodes sharing a node id would generate the same ids. Unless one is
+ * configured, the node id is leased from the key-value store: a shared cursor
+ * picks where to start looking, the first free {@code id:node:{n}} is taken
+ * with SET NX and a TTL, and the lease is renewed well before it expires. If a
+ * renewal finds the lease gone (the store was unreachable for longer than the
+ * TTL), another node may hold it by now, so a fresh one is leased.
+ */
+@Component
+public class TsidGenerator {
+    private static final Logger log = LoggerFactory.getLogger(TsidGenerator.class);
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final String LEASE_PREFIX = "id:node:";
+    private static final String CURSOR_KEY = "id:node-cursor";
+    private static final Duration CURSOR_TTL = Duration.ofDays(1);
+
+    private final KeyValueStore store;
+    private final boolean leased;
+    private final String token = UUID.randomUUID().toString();
+    private final Duration leaseTtl;
+    private long node;
+    private long lastMs = -1;
+    private long sequence;
+
+    /**
+     * @param nodeId 0-1023, unique per running instance; negative leases one
+     *               from the key-value store
+     */
+    public TsidGenerator(@Value("${app.id.node-id:-1}") long nodeId, KeyValueStore store,
+            @Value("${app.id.lease-ttl-ms:60000}") long leaseTtlMs) {
+        if (nodeId > MAX_NODE) {
+            throw new IllegalStateException("app.id.node-id must be at most " + MAX_NODE);
+        }
+        this.store = store;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMs);
+        this.leased = nodeId < 0;
+        this.node = leased ? lease() : nodeId;
+    }
+
+    public synchronized long next() {
+        long ms = System.currentTimeMillis() - EPOCH.toEpochMilli();
+        if (ms > lastMs) {
+            lastMs = ms;
+            sequence = 0;
+        } else if (++sequence > SEQUENCE_MASK) {
+            lastMs++;
+            sequence = 0;
+        }
+        return lastMs << TIME_SHIFT | node << SEQUENCE_BITS | sequence;
+    }
+
+    public synchronized long nodeId() {
+        return node;
+    }
+
+    /** Smallest id that could have been generated at {@code at}, for id range queries by time. */
+    public static long lowerBound(Instant at) {
+        return Math.max(0, at.toEpochMilli() - EPOCH.toEpochMilli()) << TIME_SHIFT;
+    }
+
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> TIME_SHIFT) + EPOCH.toEpochMilli());
+    }
+
+    @Scheduled(fixedDelayString = "${app.id.lease-renew-ms:15000}")
+    public void renewLease() {
+        if (!leased) {
+            return;
+        }
+        long current = nodeId();
+        try {
+            if (store.expireIfEquals(LEASE_PREFIX + current, token, leaseTtl)) {
+                return;
+            }
+            long next = lease();
+            synchronized (this) {
+                node = next;
+            }
+            if (log.isWarnEnabled()) {
+                log.warn("Node id lease {} was lost, switched to node id {}", current, next);
+            }
+        } catch (RuntimeException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Node id lease {} not renewed: {}", current, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (!leased) {
+            return;
+        }
+        try {
+            store.deleteIfEquals(LEASE_PREFIX + nodeId(), token);
+        } catch (RuntimeException ignored) {
+            // the lease expires on its own
+        }
+    }
+
+    private long lease() {
+        long start = store.increment(CURSOR_KEY, CURSOR_TTL);
+        for (long i = 0; i <= MAX_NODE; i++) {
+            long candidate = Math.floorMod(start + i, MAX_NODE + 1);
+            if (store.setIfAbsent(LEASE_PREFIX + candidate, token, leaseTtl)) {
+                if (log.isInfoEnabled()) {
+                    log.info("Leased node id {}", candidate);
+                }
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("All " + (MAX_NODE + 1) + " node ids are leased; set app.id.node-id");
+    }
+}
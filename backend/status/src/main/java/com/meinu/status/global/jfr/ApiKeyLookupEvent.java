@@ -0,0 +1,23 @@
+package com.meinu.status.global.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Member lookup behind the x-api-key header of device and extension requests. */
+@Name("com.meinu.status.ApiKeyLookup")
+@Label("API Key Lookup")
+@Category({"Stat-us", "Auth"})
+@Threshold("5 ms")
+@StackTrace(false)
+public class ApiKeyLookupEvent extends Event {
+    @Label("Found")
+    public boolean found;
+
+    /** 0 when no member has the key. */
+    @Label("Member Id")
+    public long memberId;
+}
@@ -0,0 +1,84 @@
+package com.meinu.status.global.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Optional always-on flight recording with the JDK's low-overhead "default"
+ * settings plus this application's events, kept on disk for
+ * {@code max-age-minutes} or {@code max-size-mb}, whichever is reached first.
+ * A latency spike can then be looked at next to GC, I/O and lock events after
+ * the fact. The recording is written to {@code dump-dir} on exit and on demand
+ * through the {@code jfr} actuator endpoint.
+ */
+@Component
+public class ContinuousRecording {
+    private static final Logger log = LoggerFactory.getLogger(ContinuousRecording.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path dumpDir;
+    private final Recording recording; // null when disabled
+
+    public ContinuousRecording(@Value("${app.jfr.continuous.enabled:false}") boolean enabled,
+            @Value("${app.jfr.continuous.max-age-minutes:60}") long maxAgeMinutes,
+            @Value("${app.jfr.continuous.max-size-mb:250}") long maxSizeMb,
+            @Value("${app.jfr.dump-dir:./data/jfr}") String dumpDir) throws IOException, ParseException {
+        this.dumpDir = Path.of(dumpDir);
+        if (!enabled || !FlightRecorder.isAvailable()) {
+            this.recording = null;
+            return;
+        }
+        Files.createDirectories(this.dumpDir);
+        Recording r = new Recording(Configuration.getConfiguration("default"));
+        r.setName("stat-us");
+        r.setToDisk(true);
+        r.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        r.setMaxSize(maxSizeMb * 1024 * 1024);
+        r.setDestination(this.dumpDir.resolve("stat-us-exit.jfr"));
+        r.setDumpOnExit(true);
+        r.start();
+        this.recording = r;
+        if (log.isInfoEnabled()) {
+            log.info("Continuous flight recording started: maxAge={}m maxSize={}MB dumpDir={}", maxAgeMinutes,
+                    maxSizeMb, this.dumpDir.toAbsolutePath());
+        }
+    }
+
+    public boolean running() {
+        return recording != null;
+    }
+
+    public Duration maxAge() {
+        return recording == null ? Duration.ZERO : recording.getMaxAge();
+    }
+
+    public long maxSize() {
+        return recording == null ? 0 : recording.getMaxSize();
+    }
+
+    /** Writes what the recording currently holds to a new file in the dump dir; null when not running. */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        Path file = dumpDir.resolve("stat-us-" + FILE_TIME.format(LocalDateTime.now()) + ".jfr");
+        recording.dump(file);
+        if (log.isInfoEnabled()) {
+            log.info("Flight recording dumped: {} ({} bytes)", file.toAbsolutePath(), Files.size(file));
+        }
+        return file;
+    }
+}
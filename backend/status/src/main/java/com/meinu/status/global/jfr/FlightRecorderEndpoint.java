@@ -0,0 +1,49 @@
+package com.meinu.status.global.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/jfr}: GET shows the continuous recording, POST dumps it to a
+ * file on this node. Not exposed unless added to
+ * {@code management.endpoints.web.exposure.include}; callers need
+ * {@code ROLE_ADMIN}.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+    private final ContinuousRecording recording;
+
+    public FlightRecorderEndpoint(ContinuousRecording recording) {
+        this.recording = recording;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("running", recording.running());
+        if (recording.running()) {
+            out.put("maxAge", recording.maxAge().toString());
+            out.put("maxSizeBytes", recording.maxSize());
+        }
+        return out;
+    }
+
+    @WriteOperation
+    public Map<String, Object> dump() throws IOException {
+        Path file = recording.dump();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("running", file != null);
+        if (file != null) {
+            out.put("file", file.toAbsolutePath().toString());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,49 @@
+package com.meinu.status.global.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/** One call of the ingest pipeline, with the time spent in each backend. */
+@Name("com.meinu.status.Ingest")
+@Label("Ingest")
+@Category({"Stat-us", "Ingest"})
+@Description("Heartbeats of one ingest request: event store append, key-value writes and SSE broadcast")
+@Threshold("10 ms")
+@StackTrace(false)
+public class IngestEvent extends Event {
+    @Label("Member Id")
+    public long memberId;
+
+    @Label("Heartbeats")
+    public int heartbeats;
+
+    @Label("Duplicates")
+    public int duplicates;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    public long payloadBytes;
+
+    @Label("Became Current")
+    public boolean current;
+
+    @Label("Event Store Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long dbTime;
+
+    @Label("Key-Value Store Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long redisTime;
+
+    @Label("SSE Time")
+    @Description("SSE broadcast and long-poll wake-ups")
+    @Timespan(Timespan.NANOSECONDS)
+    public long sseTime;
+}
@@ -0,0 +1,23 @@
+package com.meinu.status.global.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Signature and claims check of one access or refresh token. */
+@Name("com.meinu.status.JwtVerification")
+@Label("JWT Verification")
+@Category({"Stat-us", "Auth"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+    @Label("Valid")
+    public boolean valid;
+
+    /** Exception class of a rejected token, e.g. ExpiredJwtException. */
+    @Label("Failure")
+    public String failure;
+}
@@ -0,0 +1,33 @@
+package com.meinu.status.global.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** One event sent to every SSE stream interested in a member. */
+@Name("com.meinu.status.SseBroadcast")
+@Label("SSE Broadcast")
+@Category({"Stat-us", "SSE"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class SseBroadcastEvent extends Event {
+    @Label("Member Id")
+    public long memberId;
+
+    @Label("Event Name")
+    public String eventName;
+
+    @Label("Receivers")
+    public int receivers;
+
+    @Label("Failures")
+    public int failures;
+
+    @Label("Bytes Written")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
@@ -0,0 +1,448 @@
+package com.meinu.status.global.store;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single-node stand-in for Redis. Keys expire lazily on access and in a
+ * periodic sweep. Sorted sets keep a score map next to a tree ordered like
+ * Redis (score, then member), hashes are immutable maps replaced on every
+ * write, and "HyperLogLogs" are exact sets, which is fine at the scale this
+ * profile targets.
+ */
+@Component
+@Profile("embedded")
+public class InMemoryKeyValueStore implements KeyValueStore {
+
+    private static final class Entry {
+        final Object value; // String, Map<String, String> (hash), ZSet or Set<String> (pf)
+        final long expiresAtMs; // 0 = no expiry
+
+        Entry(Object value, long expiresAtMs) {
+            this.value = value;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        boolean expired(long now) {
+            return expiresAtMs != 0 && expiresAtMs <= now;
+        }
+    }
+
+    private static final Comparator<ScoredMember> ZSET_ORDER = Comparator.comparingDouble(ScoredMember::score)
+            .thenComparing(ScoredMember::member, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final class ZSet {
+        private final Map<String, Double> scores = new HashMap<>();
+        private final NavigableSet<ScoredMember> order = new TreeSet<>(ZSET_ORDER);
+
+        synchronized void add(String member, double score) {
+            Double old = scores.put(member, score);
+            if (old != null) {
+                order.remove(new ScoredMember(member, old));
+            }
+            order.add(new ScoredMember(member, score));
+        }
+
+        synchronized void incr(String member, double delta) {
+            Double old = scores.get(member);
+            add(member, old == null ? delta : old + delta);
+        }
+
+        synchronized void remove(String member) {
+            Double old = scores.remove(member);
+            if (old != null) {
+                order.remove(new ScoredMember(member, old));
+            }
+        }
+
+        synchronized Double score(String member) {
+            return scores.get(member);
+        }
+
+        synchronized List<ScoredMember> revRange(int limit) {
+            return order.descendingSet().stream().limit(Math.max(0, limit)).toList();
+        }
+
+        synchronized Long revRank(String member) {
+            Double score = scores.get(member);
+            return score == null ? null : (long) order.tailSet(new ScoredMember(member, score), false).size();
+        }
+
+        // members with min <= score <= max; a null member sorts before every real one
+        private NavigableSet<ScoredMember> byScore(double min, double max) {
+            ScoredMember low = new ScoredMember(null, min);
+            return max == Double.POSITIVE_INFINITY ? order.tailSet(low, true)
+                    : order.subSet(low, true, new ScoredMember(null, Math.nextUp(max)), false);
+        }
+
+        synchronized List<ScoredMember> rangeByScore(double min, double max, int limit) {
+            return byScore(min, max).stream().limit(Math.max(0, limit)).toList();
+        }
+
+        synchronized long removeRangeByScore(double min, double max) {
+            NavigableSet<ScoredMember> range = byScore(min, max);
+            long n = range.size();
+            range.forEach(m -> scores.remove(m.member()));
+            range.clear();
+            return n;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final Pipeline direct = new DirectPipeline();
+
+    @Override
+    public String get(String key) {
+        return live(key) instanceof String s ? s : null;
+    }
+
+    @Override
+    public List<String> multiGet(List<String> keys) {
+        List<String> out = new ArrayList<>(keys.size());
+        keys.forEach(k -> out.add(get(k)));
+        return out;
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        entries.put(key, new Entry(value, expiresAt(ttl)));
+    }
+
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, Duration ttl) {
+        long now = System.currentTimeMillis();
+        boolean[] set = new boolean[1];
+        entries.compute(key, (k, e) -> {
+            if (e != null && !e.expired(now)) {
+                return e;
+            }
+            set[0] = true;
+            return new Entry(value, expiresAt(ttl));
+        });
+        return set[0];
+    }
+
+    @Override
+    public boolean expireIfEquals(String key, String value, Duration ttl) {
+        long now = System.currentTimeMillis();
+        boolean[] renewed = new boolean[1];
+        entries.computeIfPresent(key, (k, e) -> {
+            if (e.expired(now) || !value.equals(e.value)) {
+                return e;
+            }
+            renewed[0] = true;
+            return new Entry(value, expiresAt(ttl));
+        });
+        return renewed[0];
+    }
+
+    @Override
+    public boolean deleteIfEquals(String key, String value) {
+        long now = System.currentTimeMillis();
+        boolean[] deleted = new boolean[1];
+        entries.computeIfPresent(key, (k, e) -> {
+            if (e.expired(now) || !value.equals(e.value)) {
+                return e;
+            }
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public long increment(String key, Duration window) {
+        long now = System.currentTimeMillis();
+        Entry next = entries.compute(key, (k, e) -> {
+            boolean live = e != null && !e.expired(now) && e.value instanceof String;
+            long current = live ? Long.parseLong((String) e.value) : 0L;
+            return new Entry(String.valueOf(current + 1), live ? e.expiresAtMs : expiresAt(window));
+        });
+        return Long.parseLong((String) next.value);
+    }
+
+    @Override
+    public void update(String key, UnaryOperator<String> update, Duration ttl) {
+        long now = System.currentTimeMillis();
+        entries.compute(key, (k, e) -> {
+            String current = e == null || e.expired(now) || !(e.value instanceof String s) ? null : s;
+            String next = update.apply(current);
+            return next == null ? e : new Entry(next, expiresAt(ttl));
+        });
+    }
+
+    @Override
+    public Map<String, String> hGetAll(String key) {
+        Map<String, String> hash = hash(key);
+        return hash == null ? Map.of() : hash;
+    }
+
+    @Override
+    public List<Map<String, String>> hGetAll(List<String> keys) {
+        List<Map<String, String>> out = new ArrayList<>(keys.size());
+        keys.forEach(k -> out.add(hGetAll(k)));
+        return out;
+    }
+
+    @Override
+    public List<String> hMGet(String key, List<String> fields) {
+        Map<String, String> hash = hGetAll(key);
+        List<String> out = new ArrayList<>(fields.size());
+        fields.forEach(f -> out.add(hash.get(f)));
+        return out;
+    }
+
+    @Override
+    public boolean hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl) {
+        long now = System.currentTimeMillis();
+        boolean[] set = new boolean[1];
+        entries.compute(key, (k, e) -> {
+            Map<String, String> current = liveHash(e, now);
+            String held = current == null ? "" : current.getOrDefault(field, "");
+            if (!held.equals(expected)) {
+                return e;
+            }
+            Map<String, String> next = current == null ? new HashMap<>() : new HashMap<>(current);
+            next.putAll(values);
+            set[0] = true;
+            return new Entry(Map.copyOf(next), expiresAt(ttl));
+        });
+        return set[0];
+    }
+
+    @Override
+    public List<ScoredMember> zRevRange(String key, int limit) {
+        ZSet z = zset(key);
+        return z == null ? List.of() : z.revRange(limit);
+    }
+
+    @Override
+    public List<ScoredMember> zRangeByScore(String key, double min, double max, int limit) {
+        ZSet z = zset(key);
+        return z == null ? List.of() : z.rangeByScore(min, max, limit);
+    }
+
+    @Override
+    public Long zRevRank(String key, String member) {
+        ZSet z = zset(key);
+        return z == null ? null : z.revRank(member);
+    }
+
+    @Override
+    public Double zScore(String key, String member) {
+        ZSet z = zset(key);
+        return z == null ? null : z.score(member);
+    }
+
+    @Override
+    public List<Double> zScores(String key, List<String> members) {
+        ZSet z = zset(key);
+        List<Double> out = new ArrayList<>(members.size());
+        members.forEach(m -> out.add(z == null ? null : z.score(m)));
+        return out;
+    }
+
+    @Override
+    public long zRemRangeByScore(String key, double min, double max) {
+        ZSet z = zset(key);
+        return z == null ? 0 : z.removeRangeByScore(min, max);
+    }
+
+    @Override
+    public boolean hasKeyWithPrefix(String prefix) {
+        long now = System.currentTimeMillis();
+        return entries.entrySet().stream().anyMatch(e -> e.getKey().startsWith(prefix) && !e.getValue().expired(now));
+    }
+
+    @Override
+    public long pfCount(List<String> keys) {
+        Set<String> union = new HashSet<>();
+        for (String key : keys) {
+            if (live(key) instanceof Set<?> set) {
+                set.forEach(v -> union.add((String) v));
+            }
+        }
+        return union.size();
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        listeners.getOrDefault(channel, List.of()).forEach(l -> l.accept(message));
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /** Writes are applied immediately; there is no round trip to save. */
+    @Override
+    public void pipeline(Consumer<Pipeline> writes) {
+        writes.accept(direct);
+    }
+
+    @Scheduled(fixedDelayString = "${app.embedded.expiry-sweep-ms:60000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().expired(now));
+    }
+
+    private final class DirectPipeline implements Pipeline {
+        @Override
+        public void set(String key, String value, Duration ttl) {
+            InMemoryKeyValueStore.this.set(key, value, ttl);
+        }
+
+        @Override
+        public void set(String key, String value) {
+            entries.put(key, new Entry(value, 0L));
+        }
+
+        @Override
+        public void hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl) {
+            InMemoryKeyValueStore.this.hSetIf(key, field, expected, values, ttl);
+        }
+
+        @Override
+        public void hReplace(String key, Map<String, String> values, Collection<String> kept, HashGuard guard,
+                Duration ttl) {
+            long now = System.currentTimeMillis();
+            boolean[] stale = new boolean[1];
+            entries.compute(key, (k, e) -> {
+                Map<String, String> current = liveHash(e, now);
+                Map<String, String> next = new HashMap<>(values);
+                if (current != null) {
+                    kept.forEach(f -> {
+                        String v = current.get(f);
+                        if (v != null) {
+                            next.put(f, v);
+                        }
+                    });
+                }
+                boolean intact = current != null && Objects.equals(current.get(guard.field()), guard.expected());
+                stale[0] = !intact && !kept.isEmpty();
+                if (stale[0]) {
+                    next.put(guard.field(), "~" + values.get(guard.field()));
+                }
+                return new Entry(Map.copyOf(next), expiresAt(ttl));
+            });
+            if (stale[0]) {
+                publish(guard.channel(), guard.message());
+            }
+        }
+
+        @Override
+        public void incrBy(String key, long delta) {
+            long now = System.currentTimeMillis();
+            entries.compute(key, (k, e) -> {
+                boolean live = e != null && !e.expired(now) && e.value instanceof String;
+                long current = live ? Long.parseLong((String) e.value) : 0L;
+                return new Entry(String.valueOf(current + delta), live ? e.expiresAtMs : 0L);
+            });
+        }
+
+        @Override
+        public void zIncrBy(String key, String member, double delta) {
+            long now = System.currentTimeMillis();
+            entries.compute(key, (k, e) -> {
+                Entry target = e != null && !e.expired(now) && e.value instanceof ZSet ? e : new Entry(new ZSet(), 0L);
+                ((ZSet) target.value).incr(member, delta);
+                return target;
+            });
+        }
+
+        @Override
+        public void zAdd(String key, String member, double score) {
+            long now = System.currentTimeMillis();
+            entries.compute(key, (k, e) -> {
+                Entry target = e != null && !e.expired(now) && e.value instanceof ZSet ? e : new Entry(new ZSet(), 0L);
+                ((ZSet) target.value).add(member, score);
+                return target;
+            });
+        }
+
+        @Override
+        public void zRem(String key, String member) {
+            ZSet z = zset(key);
+            if (z != null) {
+                z.remove(member);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void pfAdd(String key, Collection<String> values) {
+            long now = System.currentTimeMillis();
+            entries.compute(key, (k, e) -> {
+                Entry target = e != null && !e.expired(now) && e.value instanceof Set
+                        ? e : new Entry(ConcurrentHashMap.newKeySet(), 0L);
+                ((Set<String>) target.value).addAll(values);
+                return target;
+            });
+        }
+
+        @Override
+        public void expire(String key, Duration ttl) {
+            entries.computeIfPresent(key, (k, e) -> new Entry(e.value, expiresAt(ttl)));
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            InMemoryKeyValueStore.this.publish(channel, message);
+        }
+    }
+
+    private Object live(String key) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (e.expired(System.currentTimeMillis())) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> hash(String key) {
+        return live(key) instanceof Map<?, ?> m ? (Map<String, String>) m : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> liveHash(Entry e, long now) {
+        return e != null && !e.expired(now) && e.value instanceof Map<?, ?> m ? (Map<String, String>) m : null;
+    }
+
+    private ZSet zset(String key) {
+        return live(key) instanceof ZSet z ? z : null;
+    }
+
+    private static long expiresAt(Duration ttl) {
+        return ttl == null ? 0L : System.currentTimeMillis() + ttl.toMillis();
+    }
+}
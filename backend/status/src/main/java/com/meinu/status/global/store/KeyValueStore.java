@@ -0,0 +1,142 @@
+package com.meinu.status.global.store;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The small subset of Redis the application relies on: strings with TTL,
+ * counters, hashes, sorted sets, distinct-count sets and pub/sub. Backed by
+ * Redis by default and by in-process maps in the {@code embedded} profile.
+ */
+public interface KeyValueStore {
+
+    record ScoredMember(String member, double score) {
+    }
+
+    String get(String key);
+
+    /** Values in key order; null for missing keys. */
+    List<String> multiGet(List<String> keys);
+
+    void set(String key, String value, Duration ttl);
+
+    void delete(String key);
+
+    /** Sets the value only if the key is absent; returns whether it did. */
+    boolean setIfAbsent(String key, String value, Duration ttl);
+
+    /**
+     * Sets a new TTL only while the key holds {@code value}; returns whether
+     * it did. With {@link #setIfAbsent} and {@link #deleteIfEquals} this makes
+     * a lease whose owner is identified by a token.
+     */
+    boolean expireIfEquals(String key, String value, Duration ttl);
+
+    /** Deletes the key only while it holds {@code value}; returns whether it did. */
+    boolean deleteIfEquals(String key, String value);
+
+    /**
+     * Increments a counter and returns the new value. The TTL starts when the
+     * counter is created and is not extended by later increments.
+     */
+    long increment(String key, Duration window);
+
+    /**
+     * Atomically replaces a value with {@code update.apply(current)} (current
+     * is null when absent). Returning null leaves the value as it is. The
+     * function may run more than once.
+     */
+    void update(String key, UnaryOperator<String> update, Duration ttl);
+
+    /** All fields of a hash; empty when absent. */
+    Map<String, String> hGetAll(String key);
+
+    /** {@link #hGetAll(String)} of several hashes in one round trip, in key order. */
+    List<Map<String, String>> hGetAll(List<String> keys);
+
+    /** Values of the given fields in order; null for absent ones. */
+    List<String> hMGet(String key, List<String> fields);
+
+    /**
+     * Atomically sets {@code values} and the TTL only if {@code field} of the
+     * hash currently holds {@code expected}; returns whether it did. An absent
+     * field (or hash) matches an empty {@code expected}.
+     */
+    boolean hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl);
+
+    /** Highest scores first, at most {@code limit}. */
+    List<ScoredMember> zRevRange(String key, int limit);
+
+    /** 0-based rank from the top, or null if absent. */
+    Long zRevRank(String key, String member);
+
+    Double zScore(String key, String member);
+
+    /** Scores of several members in order; null for absent ones. */
+    List<Double> zScores(String key, List<String> members);
+
+    /** Members with a score in [min, max], lowest first, at most {@code limit}. */
+    List<ScoredMember> zRangeByScore(String key, double min, double max, int limit);
+
+    /** Removes members with a score in [min, max] and returns how many there were. */
+    long zRemRangeByScore(String key, double min, double max);
+
+    /** Whether any key starts with {@code prefix}; a keyspace scan, for rare checks only. */
+    boolean hasKeyWithPrefix(String prefix);
+
+    /** Approximate number of distinct values added to the union of the keys. */
+    long pfCount(List<String> keys);
+
+    void publish(String channel, String message);
+
+    void subscribe(String channel, Consumer<String> listener);
+
+    /** Queues writes and sends them in one round trip where the backend supports it. */
+    void pipeline(Consumer<Pipeline> writes);
+
+    /**
+     * Version check of {@link Pipeline#hReplace}: {@code expected} is the
+     * value of {@code field} the kept fields were read with. If the hash held
+     * something else and fields were kept, they may belong to another writer;
+     * the new guard value is then stored with a {@code ~} prefix and
+     * {@code message} is published on {@code channel} so readers reload.
+     */
+    record HashGuard(String field, String expected, String channel, String message) {
+    }
+
+    interface Pipeline {
+        void set(String key, String value, Duration ttl);
+
+        /** Sets a value without expiry, like the daily counters {@link #incrBy} creates. */
+        void set(String key, String value);
+
+        /** {@link KeyValueStore#hSetIf} without its result. */
+        void hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl);
+
+        /**
+         * Replaces a hash with {@code values} plus the {@code kept} fields it
+         * already holds, dropping every other field, and sets its TTL.
+         * {@code values} must include the guard field; see {@link HashGuard}.
+         */
+        void hReplace(String key, Map<String, String> values, Collection<String> kept, HashGuard guard,
+                Duration ttl);
+
+        void incrBy(String key, long delta);
+
+        void zIncrBy(String key, String member, double delta);
+
+        void zAdd(String key, String member, double score);
+
+        void zRem(String key, String member);
+
+        void pfAdd(String key, Collection<String> values);
+
+        void expire(String key, Duration ttl);
+
+        void publish(String channel, String message);
+    }
+}
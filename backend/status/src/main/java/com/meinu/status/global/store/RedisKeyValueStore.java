@@ -0,0 +1,331 @@
+package com.meinu.status.global.store;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+@Component
+@Profile("!embedded")
+public class RedisKeyValueStore implements KeyValueStore {
+    private static final int UPDATE_ATTEMPTS = 5;
+    private static final RedisScript<Long> INCR_WINDOW_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/incr_window.lua"), Long.class);
+    private static final RedisScript<Long> HREPLACE_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/hreplace.lua"), Long.class);
+    private static final RedisScript<Long> HSET_IF_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/hset_if.lua"), Long.class);
+    private static final RedisScript<Long> EXPIRE_IF_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/expire_if.lua"), Long.class);
+    private static final RedisScript<Long> DELETE_IF_SCRIPT = RedisScript
+            .of(new ClassPathResource("redis/delete_if.lua"), Long.class);
+
+    private final StringRedisTemplate redis;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public RedisKeyValueStore(StringRedisTemplate redis, RedisMessageListenerContainer listenerContainer) {
+        this.redis = redis;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @Override
+    public String get(String key) {
+        return redis.opsForValue().get(key);
+    }
+
+    @Override
+    public List<String> multiGet(List<String> keys) {
+        List<String> values = redis.opsForValue().multiGet(keys);
+        return values != null ? values : new ArrayList<>(Collections.nCopies(keys.size(), null));
+    }
+
+    @Override
+    public void set(String key, String value, Duration ttl) {
+        redis.opsForValue().set(key, value, ttl);
+    }
+
+    @Override
+    public void delete(String key) {
+        redis.delete(key);
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, Duration ttl) {
+        return Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public boolean expireIfEquals(String key, String value, Duration ttl) {
+        Long renewed = redis.execute(EXPIRE_IF_SCRIPT, List.of(key), value, String.valueOf(ttl.toMillis()));
+        return renewed != null && renewed == 1L;
+    }
+
+    @Override
+    public boolean deleteIfEquals(String key, String value) {
+        Long deleted = redis.execute(DELETE_IF_SCRIPT, List.of(key), value);
+        return deleted != null && deleted == 1L;
+    }
+
+    @Override
+    public long increment(String key, Duration window) {
+        Long n = redis.execute(INCR_WINDOW_SCRIPT, List.of(key), String.valueOf(window.toMillis()));
+        return n == null ? 0 : n;
+    }
+
+    /** WATCH/MULTI/EXEC, retried when another client changed the key in between. */
+    @Override
+    public void update(String key, UnaryOperator<String> update, Duration ttl) {
+        boolean[] unchanged = new boolean[1];
+        for (int attempt = 0; attempt < UPDATE_ATTEMPTS; attempt++) {
+            List<Object> result = redis.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public List<Object> execute(RedisOperations operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = operations;
+                    ops.watch(key);
+                    String next = update.apply(ops.opsForValue().get(key));
+                    if (next == null) {
+                        ops.unwatch();
+                        unchanged[0] = true;
+                        return List.of();
+                    }
+                    ops.multi();
+                    ops.opsForValue().set(key, next, ttl);
+                    return ops.exec();
+                }
+            });
+            if (unchanged[0] || result != null && !result.isEmpty()) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Concurrent updates kept conflicting: key=" + key);
+    }
+
+    @Override
+    public Map<String, String> hGetAll(String key) {
+        Map<String, String> entries = redis.<String, String>opsForHash().entries(key);
+        return entries != null ? entries : Map.of();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Map<String, String>> hGetAll(List<String> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            keys.forEach(conn::hGetAll);
+            return null;
+        });
+        List<Map<String, String>> out = new ArrayList<>(keys.size());
+        results.forEach(r -> out.add(r instanceof Map<?, ?> m ? (Map<String, String>) m : Map.of()));
+        return out;
+    }
+
+    @Override
+    public List<String> hMGet(String key, List<String> fields) {
+        if (fields.isEmpty()) {
+            return List.of();
+        }
+        List<String> values = redis.<String, String>opsForHash().multiGet(key, fields);
+        return values != null ? values : new ArrayList<>(Collections.nCopies(fields.size(), null));
+    }
+
+    @Override
+    public boolean hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl) {
+        List<String> args = hSetIfArgs(field, expected, values, ttl);
+        Long set = redis.execute(HSET_IF_SCRIPT, List.of(key), args.toArray());
+        return set != null && set == 1L;
+    }
+
+    private static List<String> hSetIfArgs(String field, String expected, Map<String, String> values, Duration ttl) {
+        List<String> args = new ArrayList<>(3 + values.size() * 2);
+        args.add(field);
+        args.add(expected);
+        args.add(String.valueOf(ttl.toMillis()));
+        values.forEach((f, v) -> {
+            args.add(f);
+            args.add(v);
+        });
+        return args;
+    }
+
+    @Override
+    public List<ScoredMember> zRevRange(String key, int limit) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redis.opsForZSet()
+                .reverseRangeWithScores(key, 0, Math.max(0, limit - 1));
+        List<ScoredMember> out = new ArrayList<>();
+        if (tuples != null) {
+            tuples.forEach(t -> out.add(new ScoredMember(t.getValue(), t.getScore() == null ? 0 : t.getScore())));
+        }
+        return out;
+    }
+
+    @Override
+    public List<ScoredMember> zRangeByScore(String key, double min, double max, int limit) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redis.opsForZSet()
+                .rangeByScoreWithScores(key, min, max, 0, Math.max(0, limit));
+        List<ScoredMember> out = new ArrayList<>();
+        if (tuples != null) {
+            tuples.forEach(t -> out.add(new ScoredMember(t.getValue(), t.getScore() == null ? 0 : t.getScore())));
+        }
+        return out;
+    }
+
+    @Override
+    public Long zRevRank(String key, String member) {
+        return redis.opsForZSet().reverseRank(key, member);
+    }
+
+    @Override
+    public Double zScore(String key, String member) {
+        return redis.opsForZSet().score(key, member);
+    }
+
+    @Override
+    public List<Double> zScores(String key, List<String> members) {
+        if (members.isEmpty()) {
+            return List.of();
+        }
+        List<Double> scores = redis.opsForZSet().score(key, members.toArray());
+        return scores != null ? scores : new ArrayList<>(Collections.nCopies(members.size(), null));
+    }
+
+    @Override
+    public long zRemRangeByScore(String key, double min, double max) {
+        Long removed = redis.opsForZSet().removeRangeByScore(key, min, max);
+        return removed == null ? 0 : removed;
+    }
+
+    @Override
+    public boolean hasKeyWithPrefix(String prefix) {
+        try (Cursor<String> keys = redis.scan(ScanOptions.scanOptions().match(prefix + "*").count(1000).build())) {
+            return keys.hasNext();
+        }
+    }
+
+    @Override
+    public long pfCount(List<String> keys) {
+        // PFCOUNT of several keys counts their union
+        Long count = redis.opsForHyperLogLog().size(keys.toArray(String[]::new));
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        redis.convertAndSend(channel, message);
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+
+    @Override
+    public void pipeline(Consumer<Pipeline> writes) {
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            writes.accept(new ConnectionPipeline((StringRedisConnection) connection));
+            return null;
+        });
+    }
+
+    private record ConnectionPipeline(StringRedisConnection conn) implements Pipeline {
+        @Override
+        public void set(String key, String value, Duration ttl) {
+            conn.setEx(key, ttl.toSeconds(), value);
+        }
+
+        @Override
+        public void set(String key, String value) {
+            conn.set(key, value);
+        }
+
+        @Override
+        public void hSetIf(String key, String field, String expected, Map<String, String> values, Duration ttl) {
+            List<String> args = hSetIfArgs(field, expected, values, ttl);
+            args.add(0, key);
+            conn.eval(HSET_IF_SCRIPT.getScriptAsString(), ReturnType.INTEGER, 1, args.toArray(String[]::new));
+        }
+
+        @Override
+        public void hReplace(String key, Map<String, String> values, Collection<String> kept, HashGuard guard,
+                Duration ttl) {
+            List<String> args = new ArrayList<>(8 + values.size() * 2 + kept.size());
+            args.add(key);
+            args.add(guard.field());
+            args.add(guard.expected() == null ? "" : guard.expected());
+            args.add(String.valueOf(ttl.toMillis()));
+            args.add(guard.channel());
+            args.add(guard.message());
+            args.add(String.valueOf(values.size()));
+            values.forEach((f, v) -> {
+                args.add(f);
+                args.add(v);
+            });
+            args.addAll(kept);
+            // plain EVAL: a NOSCRIPT reply could not be retried inside the pipeline
+            conn.eval(HREPLACE_SCRIPT.getScriptAsString(), ReturnType.INTEGER, 1, args.toArray(String[]::new));
+        }
+
+        @Override
+        public void incrBy(String key, long delta) {
+            conn.incrBy(key, delta);
+        }
+
+        @Override
+        public void zIncrBy(String key, String member, double delta) {
+            conn.zIncrBy(key, delta, member);
+        }
+
+        @Override
+        public void zAdd(String key, String member, double score) {
+            conn.zAdd(key, score, member);
+        }
+
+        @Override
+        public void zRem(String key, String member) {
+            conn.zRem(key, member);
+        }
+
+        @Override
+        public void pfAdd(String key, Collection<String> values) {
+            conn.pfAdd(key, values.toArray(String[]::new));
+        }
+
+        @Override
+        public void expire(String key, Duration ttl) {
+            conn.expire(key, ttl.toSeconds());
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            conn.publish(channel, message);
+        }
+    }
+}
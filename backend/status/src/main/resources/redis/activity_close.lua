@@ -0,0 +1,17 @@
+-- Closes the member's open interval if it has not been extended since the cutoff.
+-- KEYS[1] open interval hash, KEYS[2] closed interval list, KEYS[3] open index zset
+-- ARGV: memberId, cutoffMs
+local last = redis.call('HGET', KEYS[1], 'end')
+if last and tonumber(last) > tonumber(ARGV[2]) then
+  return 0
+end
+if last then
+  local h = redis.call('HGETALL', KEYS[1])
+  local closed = {}
+  for i = 1, #h, 2 do closed[h[i]] = h[i + 1] end
+  closed['memberId'] = ARGV[1]
+  redis.call('RPUSH', KEYS[2], cjson.encode(closed))
+  redis.call('DEL', KEYS[1])
+end
+redis.call('ZREM', KEYS[3], ARGV[1])
+return 1
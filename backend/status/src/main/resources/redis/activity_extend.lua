@@ -0,0 +1,92 @@
+-- Folds an ordered list of heartbeats into the member's open activity interval.
+-- The interval is extended in place while the state key is unchanged, and closed
+-- (queued on the closed list) when the state changes or the member was silent
+-- for longer than max gap.
+-- Counter deltas are taken against the previous heartbeat with the same counter
+-- key (the extension's session, one per window), since every window reports its
+-- own cumulative counters; the last values per key live in a separate hash as
+-- 'keystrokes:activeMs:atMs' and are forgotten ttlMs after their heartbeat.
+-- KEYS[1] open interval hash, KEYS[2] closed interval list, KEYS[3] open index zset,
+-- KEYS[4] last counters hash
+-- ARGV[1] memberId, ARGV[2] maxGapMs, ARGV[3] ttlMs, then 10 values per heartbeat:
+--   stateKey, atMs, keystrokes, sessionActiveMs, workspaceRoot, filePath, languageId, branch, idle, counterKey
+-- Returns { keystrokes delta, active ms delta } per heartbeat, flattened.
+local maxGap = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+local out = {}
+local newest = 0
+
+local function close_open()
+  local h = redis.call('HGETALL', KEYS[1])
+  local closed = {}
+  for i = 1, #h, 2 do closed[h[i]] = h[i + 1] end
+  closed['memberId'] = ARGV[1]
+  redis.call('RPUSH', KEYS[2], cjson.encode(closed))
+  redis.call('DEL', KEYS[1])
+end
+
+for i = 4, #ARGV, 10 do
+  local stateKey = ARGV[i]
+  local now = tonumber(ARGV[i + 1])
+  local ks = tonumber(ARGV[i + 2])
+  local active = tonumber(ARGV[i + 3])
+  local start = now
+  local dks, dactive = 0, 0
+  local extended = false
+  if now > newest then newest = now end
+
+  local lastAt = ARGV[i + 1]
+  local prev = redis.call('HGET', KEYS[4], ARGV[i + 9])
+  if prev then
+    local ksLast, activeLast, at = string.match(prev, '^(%d+):(%d+):(%d+)$')
+    if at and now - tonumber(at) <= ttl then
+      ksLast, activeLast = tonumber(ksLast), tonumber(activeLast)
+      -- the extension reports cumulative counters; a drop means it restarted
+      if ks >= ksLast then dks = ks - ksLast else dks = ks end
+      if active >= activeLast then dactive = active - activeLast else dactive = active end
+      if tonumber(at) > now then lastAt = at end
+    end
+  end
+  redis.call('HSET', KEYS[4], ARGV[i + 9], ARGV[i + 2] .. ':' .. ARGV[i + 3] .. ':' .. lastAt)
+
+  local cur = redis.call('HMGET', KEYS[1], 'state', 'end')
+  if cur[1] then
+    local last = tonumber(cur[2])
+    if now < last then now = last end
+    local gap = now - last
+    if cur[1] == stateKey and gap <= maxGap then
+      redis.call('HSET', KEYS[1], 'end', now)
+      redis.call('HINCRBY', KEYS[1], 'keystrokes', dks)
+      redis.call('HINCRBY', KEYS[1], 'activeMs', dactive)
+      redis.call('HINCRBY', KEYS[1], 'heartbeats', 1)
+      extended = true
+    else
+      close_open()
+      -- keep the timeline contiguous unless the member was away
+      if gap <= maxGap then start = last end
+    end
+  end
+
+  if not extended then
+    redis.call('HSET', KEYS[1], 'state', stateKey, 'start', start, 'end', now,
+      'keystrokes', dks, 'activeMs', dactive, 'heartbeats', 1, 'workspaceRoot', ARGV[i + 4],
+      'filePath', ARGV[i + 5], 'languageId', ARGV[i + 6], 'branch', ARGV[i + 7], 'idle', ARGV[i + 8])
+  end
+  out[#out + 1] = dks
+  out[#out + 1] = dactive
+  redis.call('ZADD', KEYS[3], now, ARGV[1])
+end
+
+redis.call('PEXPIRE', KEYS[1], ARGV[3])
+-- drop keys of sessions that ended long ago once a few have piled up
+if redis.call('HLEN', KEYS[4]) > 16 then
+  local h = redis.call('HGETALL', KEYS[4])
+  for j = 1, #h, 2 do
+    local at = string.match(h[j + 1], ':(%d+)$')
+    if not at or newest - tonumber(at) > ttl then
+      redis.call('HDEL', KEYS[4], h[j])
+    end
+  end
+end
+redis.call('PEXPIRE', KEYS[4], ARGV[3])
+return out
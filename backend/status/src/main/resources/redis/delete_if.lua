@@ -0,0 +1,7 @@
+-- Deletes KEYS[1] only while it holds ARGV[1] (a lease owner's token), so a
+-- lease that expired and was taken over is left to its new owner.
+-- Returns 1 when deleted, 0 otherwise.
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+return redis.call('DEL', KEYS[1])
@@ -0,0 +1,7 @@
+-- Renews the expiry of KEYS[1] only while it holds ARGV[1] (a lease owner's token).
+-- ARGV: value, ttl ms. Returns 1 when renewed, 0 otherwise.
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,46 @@
+-- Tracks the member's current focus session (consecutive non-idle heartbeats
+-- without a gap longer than maxGapMs) and returns the sessions it closed.
+-- KEYS[1] focus session hash {start, last}
+-- ARGV: maxGapMs, ttlMs, then per heartbeat: atMs, active (1/0)
+-- Returns a flat list of (lengthMs, endMs) per closed session.
+local maxGap = tonumber(ARGV[1])
+local ttl = tonumber(ARGV[2])
+local state = redis.call('HMGET', KEYS[1], 'start', 'last')
+local start = state[1] and tonumber(state[1]) or nil
+local last = state[2] and tonumber(state[2]) or nil
+local closed = {}
+
+local function close()
+  if start and last > start then
+    closed[#closed + 1] = last - start
+    closed[#closed + 1] = last
+  end
+  start = nil
+  last = nil
+end
+
+for i = 3, #ARGV, 2 do
+  local at = tonumber(ARGV[i])
+  local active = ARGV[i + 1] == '1'
+  if start and at - last > maxGap then
+    close()
+  end
+  if active then
+    if not start then
+      start = at
+      last = at
+    elseif at > last then
+      last = at
+    end
+  elseif start then
+    close()
+  end
+end
+
+if start then
+  redis.call('HSET', KEYS[1], 'start', start, 'last', last)
+  redis.call('PEXPIRE', KEYS[1], ttl)
+else
+  redis.call('DEL', KEYS[1])
+end
+return closed
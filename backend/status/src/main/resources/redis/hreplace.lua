@@ -0,0 +1,34 @@
+-- Replaces a hash with the given fields plus the listed fields it already holds.
+-- KEYS[1] hash
+-- ARGV[1] guard field, ARGV[2] expected guard value, ARGV[3] ttl ms,
+-- ARGV[4] conflict channel, ARGV[5] conflict message, ARGV[6] number n of field/value pairs,
+-- ARGV[7 .. 6 + 2n] field/value pairs, the rest: names of fields to keep as stored.
+-- If the guard did not hold the expected value and fields were kept, they may
+-- belong to another writer: the new guard value gets a '~' prefix and the
+-- conflict message is published. Returns 1 if the guard held, 0 otherwise.
+local key = KEYS[1]
+local intact = redis.call('HGET', key, ARGV[1]) == ARGV[2]
+local last = 6 + 2 * tonumber(ARGV[6])
+local stale = not intact and last < #ARGV
+local wanted = {}
+for i = last + 1, #ARGV do
+    wanted[ARGV[i]] = true
+end
+for i = 7, last, 2 do
+    local value = ARGV[i + 1]
+    if stale and ARGV[i] == ARGV[1] then
+        value = '~' .. value
+    end
+    wanted[ARGV[i]] = true
+    redis.call('HSET', key, ARGV[i], value)
+end
+for _, field in ipairs(redis.call('HKEYS', key)) do
+    if not wanted[field] then
+        redis.call('HDEL', key, field)
+    end
+end
+redis.call('PEXPIRE', key, ARGV[3])
+if stale then
+    redis.call('PUBLISH', ARGV[4], ARGV[5])
+end
+return intact and 1 or 0
@@ -0,0 +1,12 @@
+-- Sets hash fields only while a guard field holds the expected value.
+-- KEYS[1] hash; ARGV[1] guard field, ARGV[2] expected value, ARGV[3] ttl ms,
+-- ARGV[4..] field/value pairs. Returns 1 when set, 0 otherwise.
+-- An absent field holds '' (HGET returns false for it).
+if (redis.call('HGET', KEYS[1], ARGV[1]) or '') ~= ARGV[2] then
+    return 0
+end
+for i = 4, #ARGV, 2 do
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[3])
+return 1
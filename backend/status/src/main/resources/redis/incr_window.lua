@@ -0,0 +1,7 @@
+-- Fixed-window counter: increments KEYS[1] and starts its expiry on creation.
+-- ARGV: windowMs
+local n = redis.call('INCR', KEYS[1])
+if n == 1 then
+    redis.call('PEXPIRE', KEYS[1], ARGV[1])
+end
+return n
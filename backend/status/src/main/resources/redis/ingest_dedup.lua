@@ -0,0 +1,33 @@
+-- Sliding-window duplicate detection for one extension session.
+-- KEYS[1] bitmap (bit seq % window set when seq was seen), KEYS[2] highest seq seen
+-- ARGV: window, ttlMs, then the sequence numbers in request order
+-- Returns 1 per sequence number seen for the first time, 0 for duplicates and for
+-- numbers that already fell out of the window.
+local window = tonumber(ARGV[1])
+local hi = tonumber(redis.call('GET', KEYS[2]) or '0')
+local out = {}
+for i = 3, #ARGV do
+    local seq = tonumber(ARGV[i])
+    local fresh = 0
+    if seq > hi then
+        -- slots between the old and the new head belong to unseen numbers now
+        if seq - hi >= window then
+            redis.call('DEL', KEYS[1])
+        else
+            for s = hi + 1, seq - 1 do
+                redis.call('SETBIT', KEYS[1], s % window, 0)
+            end
+        end
+        redis.call('SETBIT', KEYS[1], seq % window, 1)
+        hi = seq
+        fresh = 1
+    elseif seq > 0 and seq > hi - window then
+        if redis.call('SETBIT', KEYS[1], seq % window, 1) == 0 then
+            fresh = 1
+        end
+    end
+    out[#out + 1] = fresh
+end
+redis.call('SET', KEYS[2], hi, 'PX', ARGV[2])
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return out
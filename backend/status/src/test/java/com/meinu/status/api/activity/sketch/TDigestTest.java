@@ -0,0 +1,130 @@
+package com.meinu.status.api.activity.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TDigestTest {
+    private static final double COMPRESSION = 100;
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    private static TDigest digestOf(double[] values) {
+        TDigest digest = new TDigest(COMPRESSION);
+        for (double v : values) {
+            digest.add(v);
+        }
+        return digest;
+    }
+
+    /** The fraction of {@code sorted} below {@code value}, i.e. the quantile the estimate actually hit. */
+    private static double rank(double[] sorted, double value) {
+        int i = Arrays.binarySearch(sorted, value);
+        return (i < 0 ? -i - 1 : i) / (double) sorted.length;
+    }
+
+    private static void assertAccurate(double[] values, TDigest digest) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double error = Math.abs(rank(sorted, digest.quantile(q)) - q);
+            // k1 centroids span about pi*sqrt(q(1-q))/compression, smallest at the tails
+            double allowed = 0.001 + Math.PI * Math.sqrt(q * (1 - q)) / COMPRESSION;
+            assertTrue(error <= allowed, "q=" + q + " rank error " + error + " > " + allowed);
+        }
+    }
+
+    private static double[] uniform(Random random, int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextDouble() * 3_600_000;
+        }
+        return values;
+    }
+
+    private static double[] exponential(Random random, int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = -Math.log(1 - random.nextDouble()) * 600_000;
+        }
+        return values;
+    }
+
+    @Test
+    void quantilesOfAUniformDistribution() {
+        double[] values = uniform(new Random(1), 100_000);
+
+        assertAccurate(values, digestOf(values));
+    }
+
+    @Test
+    void quantilesOfASkewedDistribution() {
+        double[] values = exponential(new Random(2), 100_000);
+
+        assertAccurate(values, digestOf(values));
+    }
+
+    @Test
+    void mergedDaysMatchOneDigestOverAllTheData() {
+        Random random = new Random(3);
+        double[][] days = new double[7][];
+        for (int d = 0; d < days.length; d++) {
+            days[d] = d % 2 == 0 ? exponential(random, 5_000 + d * 1_000) : uniform(random, 2_000);
+        }
+        double[] all = Arrays.stream(days).flatMapToDouble(Arrays::stream).toArray();
+
+        TDigest week = new TDigest(COMPRESSION);
+        for (double[] day : days) {
+            // as stored per day and read back for a range query
+            week.merge(TDigest.deserialize(digestOf(day).serialize()));
+        }
+        TDigest single = digestOf(all);
+
+        assertEquals(all.length, week.count());
+        assertEquals(single.quantile(0), week.quantile(0));
+        assertEquals(single.quantile(1), week.quantile(1));
+        assertAccurate(all, week);
+        double[] sorted = all.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double apart = Math.abs(rank(sorted, week.quantile(q)) - rank(sorted, single.quantile(q)));
+            assertTrue(apart <= 0.01, "q=" + q + " merged and single digests " + apart + " apart");
+        }
+    }
+
+    @Test
+    void serializedDigestAnswersTheSame() {
+        TDigest digest = digestOf(exponential(new Random(4), 10_000));
+
+        TDigest copy = TDigest.deserialize(digest.serialize());
+
+        assertEquals(digest.count(), copy.count());
+        for (double q : QUANTILES) {
+            assertEquals(digest.quantile(q), copy.quantile(q), 1e-6);
+        }
+    }
+
+    @Test
+    void emptyAndSingleValueDigests() {
+        TDigest digest = new TDigest(COMPRESSION);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+
+        digest.add(42);
+        assertEquals(42, digest.quantile(0.01));
+        assertEquals(42, digest.quantile(0.99));
+        assertEquals(1, digest.count());
+    }
+
+    @Test
+    void sizeStaysBoundedHoweverManyValuesAreAdded() {
+        TDigest digest = digestOf(uniform(new Random(5), 500_000));
+
+        // 1 format byte, compression, min, max, count, then 16 bytes per centroid
+        int bytes = Base64.getDecoder().decode(digest.serialize()).length;
+        assertTrue(bytes <= 1 + 28 + COMPRESSION * 16, "serialized " + bytes + " bytes");
+    }
+}
@@ -0,0 +1,55 @@
+package com.meinu.status.api.auth.service;
+
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.InMemoryKeyValueStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginAttemptLimiterTest {
+    private final LoginAttemptLimiter limiter = new LoginAttemptLimiter(new InMemoryKeyValueStore());
+
+    LoginAttemptLimiterTest() {
+        ReflectionTestUtils.setField(limiter, "perIpMax", 3L);
+        ReflectionTestUtils.setField(limiter, "perIpWindowSeconds", 60L);
+        ReflectionTestUtils.setField(limiter, "perEmailMaxFailures", 2L);
+        ReflectionTestUtils.setField(limiter, "perEmailWindowSeconds", 900L);
+    }
+
+    private void assertLimited(String ip, String email) {
+        BaseException e = assertThrows(BaseException.class, () -> limiter.check(ip, email));
+        assertEquals(BaseResponseStatus.TOO_MANY_LOGIN_ATTEMPTS, e.getStatus());
+    }
+
+    @Test
+    void anAddressIsLimitedAfterItsAttempts() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("10.0.0.1", "user" + i + "@example.com");
+        }
+
+        assertLimited("10.0.0.1", "other@example.com");
+        assertDoesNotThrow(() -> limiter.check("10.0.0.2", "other@example.com"));
+    }
+
+    @Test
+    void anEmailIsLimitedAfterFailuresFromAnyAddress() {
+        limiter.recordFailure("User@Example.com");
+        limiter.recordFailure("user@example.com ");
+
+        assertLimited("10.0.0.9", "user@example.com");
+    }
+
+    @Test
+    void aSuccessfulLoginClearsTheFailures() {
+        limiter.recordFailure("user@example.com");
+        limiter.recordFailure("user@example.com");
+
+        limiter.reset("USER@example.com");
+
+        assertDoesNotThrow(() -> limiter.check("10.0.0.1", "user@example.com"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.meinu.status.api.ingest.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class InMemorySequenceDeduplicatorTest {
+    private static final int WINDOW = 8;
+
+    private final InMemorySequenceDeduplicator dedup = new InMemorySequenceDeduplicator();
+
+    InMemorySequenceDeduplicatorTest() {
+        ReflectionTestUtils.setField(dedup, "window", WINDOW);
+        ReflectionTestUtils.setField(dedup, "ttlMs", 60_000L);
+    }
+
+    private boolean[] mark(Long... seqs) {
+        return dedup.markSeen(1L, "s", List.of(seqs));
+    }
+
+    @Test
+    void retriedBatchIsDuplicate() {
+        assertArrayEquals(new boolean[] {true, true, true}, mark(1L, 2L, 3L));
+        assertArrayEquals(new boolean[] {false, false, false}, mark(1L, 2L, 3L));
+    }
+
+    @Test
+    void duplicateWithinOneBatch() {
+        assertArrayEquals(new boolean[] {true, false, true}, mark(1L, 1L, 2L));
+    }
+
+    @Test
+    void lateNumbersInsideTheWindowAreAccepted() {
+        assertArrayEquals(new boolean[] {true}, mark(5L));
+        assertArrayEquals(new boolean[] {true, true}, mark(3L, 4L));
+        assertArrayEquals(new boolean[] {false}, mark(4L));
+    }
+
+    @Test
+    void numbersBehindTheWindowAreDuplicates() {
+        mark(20L);
+        // head 20, window 8: 13..20 are tracked
+        assertArrayEquals(new boolean[] {false, true}, mark(12L, 13L));
+    }
+
+    @Test
+    void slotsAreReusedAfterWrapAround() {
+        mark(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        // 9 and 10 share slots with 1 and 2
+        assertArrayEquals(new boolean[] {true, true}, mark(9L, 10L));
+        // 8 was skipped when the head moved from 7 to 9
+        assertArrayEquals(new boolean[] {true}, mark(8L));
+        assertArrayEquals(new boolean[] {false, false}, mark(3L, 9L));
+        assertArrayEquals(new boolean[] {true}, mark(11L));
+        // 3 is now behind the window, even though its slot belongs to 11
+        assertArrayEquals(new boolean[] {false}, mark(3L));
+    }
+
+    @Test
+    void jumpOfAWholeWindowForgetsEverySlot() {
+        mark(1L, 2L, 3L);
+        assertArrayEquals(new boolean[] {true}, mark(1L + WINDOW + 2));
+        // 9 shares slot 1 with the seen 1, which must not make it look seen
+        assertArrayEquals(new boolean[] {true, true}, mark(9L, 4L));
+        assertArrayEquals(new boolean[] {false}, mark(3L));
+    }
+
+    @Test
+    void forgottenNumbersAreAcceptedAgain() {
+        mark(1L, 2L, 3L);
+        dedup.forget(1L, "s", List.of(2L));
+        assertArrayEquals(new boolean[] {false, true, false}, mark(1L, 2L, 3L));
+    }
+
+    @Test
+    void sessionsAreIndependent() {
+        mark(1L, 2L);
+        assertArrayEquals(new boolean[] {true, true}, dedup.markSeen(1L, "other", List.of(1L, 2L)));
+        assertArrayEquals(new boolean[] {true, true}, dedup.markSeen(2L, "s", List.of(1L, 2L)));
+    }
+}
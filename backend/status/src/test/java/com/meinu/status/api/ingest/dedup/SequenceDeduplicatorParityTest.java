@@ -0,0 +1,106 @@
+package com.meinu.status.api.ingest.dedup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the same sequence numbers through {@code ingest_dedup.lua} on an
+ * embedded Redis and through the in-memory deduplicator of the embedded
+ * profile, which must answer alike. Skipped where no Redis binary can start.
+ */
+class SequenceDeduplicatorParityTest {
+    private static final int WINDOW = 16;
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory connections;
+    private static RedisSequenceDeduplicator redis;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        try {
+            server = new RedisServer(port);
+            server.start();
+        } catch (Exception e) {
+            server = null; // no binary for this platform
+        }
+        assumeTrue(server != null, "embedded Redis unavailable");
+        connections = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connections.afterPropertiesSet();
+        connections.start();
+        redis = new RedisSequenceDeduplicator(new StringRedisTemplate(connections));
+        configure(redis);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (connections != null) {
+            connections.destroy();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private static void configure(SequenceDeduplicator dedup) {
+        ReflectionTestUtils.setField(dedup, "window", WINDOW);
+        ReflectionTestUtils.setField(dedup, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void luaAndJavaAgreeOnRandomBatches() {
+        InMemorySequenceDeduplicator memory = new InMemorySequenceDeduplicator();
+        configure(memory);
+        Random random = new Random(42);
+        String session = "parity-" + System.nanoTime();
+        long head = 0;
+        for (int round = 0; round < 500; round++) {
+            List<Long> seqs = new ArrayList<>();
+            int n = 1 + random.nextInt(5);
+            for (int i = 0; i < n; i++) {
+                long seq = switch (random.nextInt(4)) {
+                    case 0 -> head + 1 + random.nextInt(3); // the usual next few
+                    case 1 -> head - random.nextInt(2 * WINDOW); // retries and late ones, some behind the window
+                    case 2 -> head + WINDOW + random.nextInt(WINDOW); // a jump past the whole window
+                    default -> head + random.nextInt(WINDOW);
+                };
+                seqs.add(Math.max(1, seq));
+                head = Math.max(head, seq);
+            }
+            boolean[] expected = memory.markSeen(1L, session, seqs);
+            assertArrayEquals(expected, redis.markSeen(1L, session, seqs), () -> "seqs " + seqs);
+            if (random.nextInt(10) == 0) {
+                List<Long> failed = seqs.subList(0, 1);
+                memory.forget(1L, session, failed);
+                redis.forget(1L, session, failed);
+            }
+        }
+    }
+
+    @Test
+    void luaHandlesAJumpOfExactlyOneWindow() {
+        String session = "jump-" + System.nanoTime();
+        redis.markSeen(1L, session, List.of(1L, 2L, 3L));
+        boolean[] fresh = redis.markSeen(1L, session, List.of(3L + WINDOW, 1L + WINDOW, 3L));
+        assertArrayEquals(new boolean[] {true, true, false}, fresh, () -> Arrays.toString(fresh));
+    }
+}
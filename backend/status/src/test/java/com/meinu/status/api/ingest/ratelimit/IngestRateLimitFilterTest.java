@@ -0,0 +1,57 @@
+package com.meinu.status.api.ingest.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class IngestRateLimitFilterTest {
+    private final IngestRateLimitFilter filter;
+
+    IngestRateLimitFilterTest() {
+        IngestRateLimitProperties props = new IngestRateLimitProperties();
+        props.setPermitsPerSecond(0.1);
+        props.setBurst(1);
+        filter = new IngestRateLimitFilter(props, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    private MockHttpServletResponse send(String apiKey, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ingest/vscode");
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("x-api-key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void keysBehindOneAddressGetTheirOwnBuckets() throws Exception {
+        assertEquals(200, send("key-a", "10.0.0.1").getStatus());
+        assertEquals(200, send("key-b", "10.0.0.1").getStatus());
+        assertEquals(200, send("key-c", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void aKeyIsLimitedFromItsFirstRequestWhateverTheAddress() throws Exception {
+        assertEquals(200, send("key-a", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse limited = send("key-a", "10.0.0.2");
+        assertEquals(429, limited.getStatus());
+        assertNotNull(limited.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void requestsWithoutAKeyAreLimitedByAddress() throws Exception {
+        assertEquals(200, send(null, "10.0.0.1").getStatus());
+        assertEquals(429, send(null, "10.0.0.1").getStatus());
+        assertEquals(200, send(null, "10.0.0.2").getStatus());
+    }
+}
@@ -0,0 +1,58 @@
+package com.meinu.status.api.ingest.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void burstIsAllowedThenTheWaitIsAboutOneInterval() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1.0, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, limiter.tryAcquire("k"));
+        }
+        long wait = limiter.tryAcquire("k");
+        assertTrue(wait > 900_000_000L && wait <= 1_000_000_000L, "wait " + wait);
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1.0, 1);
+
+        assertEquals(0L, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0L, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void permitsComeBackAtTheConfiguredRate() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100.0, 1);
+        assertEquals(0L, limiter.tryAcquire("k"));
+        assertTrue(limiter.tryAcquire("k") > 0);
+
+        Thread.sleep(20);
+
+        assertEquals(0L, limiter.tryAcquire("k"));
+    }
+
+    @Test
+    void refilledBucketsAreEvicted() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1000.0, 1);
+        limiter.tryAcquire("k");
+
+        Thread.sleep(5);
+        limiter.evictIdle();
+
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0));
+    }
+}
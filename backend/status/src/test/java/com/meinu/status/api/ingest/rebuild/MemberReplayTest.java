@@ -0,0 +1,91 @@
+package com.meinu.status.api.ingest.rebuild;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MemberReplayTest {
+    private static final long TTL_MS = 600_000;
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 1);
+    private static final long START = DAY.atTime(12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private static MemberReplay replay() {
+        return new MemberReplay(TTL_MS, ZoneOffset.UTC, Map.of());
+    }
+
+    @Test
+    void deltasAreTakenPerSession() {
+        MemberReplay replay = replay();
+        replay.accept(1, START, "s1", 100, 1000);
+        replay.accept(2, START + 1000, "s2", 5, 50);
+        replay.accept(3, START + 2000, "s1", 130, 3000);
+        replay.accept(4, START + 3000, "s2", 15, 150);
+
+        // each session's first sample only sets its baseline
+        assertArrayEquals(new long[] {40, 2100}, replay.perDay().get(DAY));
+        assertEquals(4, replay.events());
+    }
+
+    @Test
+    void aCounterDropCountsTheSampleInFull() {
+        MemberReplay replay = replay();
+        replay.accept(1, START, "s1", 10, 100);
+        replay.accept(2, START + 1000, "s1", 30, 300);
+        replay.accept(3, START + 2000, "s1", 5, 40);
+
+        assertArrayEquals(new long[] {25, 240}, replay.perDay().get(DAY));
+    }
+
+    @Test
+    void aSessionQuietPastTheCounterTtlStartsOver() {
+        MemberReplay replay = replay();
+        replay.accept(1, START, "s1", 10, 100);
+        replay.accept(2, START + TTL_MS + 1, "s1", 50, 500);
+        replay.accept(3, START + TTL_MS + 1001, "s1", 60, 600);
+
+        assertArrayEquals(new long[] {10, 100}, replay.perDay().get(DAY));
+    }
+
+    @Test
+    void deltasLandOnTheDayOfTheirEvent() {
+        long midnight = DAY.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        MemberReplay replay = replay();
+        replay.accept(1, midnight - 2000, "s1", 0, 0);
+        replay.accept(2, midnight - 1000, "s1", 7, 70);
+        replay.accept(3, midnight + 1000, "s1", 10, 100);
+
+        assertArrayEquals(new long[] {7, 70}, replay.perDay().get(DAY));
+        assertArrayEquals(new long[] {3, 30}, replay.perDay().get(DAY.plusDays(1)));
+    }
+
+    @Test
+    void teamsCountOnlyEventsSinceTheMemberJoined() {
+        MemberReplay replay = new MemberReplay(TTL_MS, ZoneOffset.UTC,
+                Map.of(9L, Instant.ofEpochMilli(START + 1500)));
+        replay.accept(1, START, "s1", 0, 0);
+        replay.accept(2, START + 1000, "s1", 4, 40);
+        replay.accept(3, START + 2000, "s1", 10, 100);
+
+        assertArrayEquals(new long[] {10, 100}, replay.perDay().get(DAY));
+        assertArrayEquals(new long[] {6, 60}, replay.perTeamDay().get(9L).get(DAY));
+    }
+
+    @Test
+    void newestEventIsTheLatestTimestampWithTheLaterIdWinningTies() {
+        MemberReplay replay = replay();
+        replay.accept(1, START + 5000, "s1", 0, 0);
+        replay.accept(2, START, "s1", 0, 0);
+        replay.accept(3, START + 5000, "s2", 0, 0);
+
+        assertEquals(3, replay.newestId());
+        assertEquals(START + 5000, replay.newestAtMs());
+        assertNull(replay.perDay().get(DAY));
+    }
+}
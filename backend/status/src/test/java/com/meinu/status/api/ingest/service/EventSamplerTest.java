@@ -0,0 +1,70 @@
+package com.meinu.status.api.ingest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class EventSamplerTest {
+    private static final long CHECKPOINT_MS = 300_000;
+    private static final long NOW = 1_900_000_000_000L;
+
+    private static Map<String, Object> beat(String timestamp, String filePath) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", timestamp);
+        body.put("workspaceRoot", "/w");
+        body.put("filePath", filePath);
+        body.put("languageId", "java");
+        body.put("sessionId", "s1");
+        body.put("isIdle", false);
+        return body;
+    }
+
+    @Test
+    void heartbeatsThatOnlyExtendTheIntervalAreLeftOut() {
+        Map<String, Object> previous = beat("2027-01-15T08:00:10Z", "/w/A.java");
+        List<Map<String, Object>> bodies = List.of(beat("2027-01-15T08:00:40Z", "/w/A.java"),
+                beat("2027-01-15T08:01:10Z", "/w/A.java"));
+
+        assertArrayEquals(new boolean[]{false, false}, EventSampler.stored(previous, bodies, CHECKPOINT_MS, NOW));
+    }
+
+    @Test
+    void stateChangesCodeAndSessionsAreKept() {
+        Map<String, Object> previous = beat("2027-01-15T08:00:10Z", "/w/A.java");
+        Map<String, Object> withCode = beat("2027-01-15T08:00:50Z", "/w/B.java");
+        withCode.put("code", "class B {}");
+        Map<String, Object> idle = beat("2027-01-15T08:01:00Z", "/w/B.java");
+        idle.put("isIdle", true);
+        Map<String, Object> otherSession = beat("2027-01-15T08:01:10Z", "/w/B.java");
+        otherSession.put("isIdle", true);
+        otherSession.put("sessionId", "s2");
+        List<Map<String, Object>> bodies = List.of(beat("2027-01-15T08:00:40Z", "/w/B.java"), withCode, idle,
+                otherSession, beat("2027-01-15T08:01:20Z", "/w/B.java"));
+
+        assertArrayEquals(new boolean[]{true, true, true, true, true},
+                EventSampler.stored(previous, bodies, CHECKPOINT_MS, NOW));
+    }
+
+    @Test
+    void firstHeartbeatOfACheckpointPeriodIsKept() {
+        Map<String, Object> previous = beat("2027-01-15T08:04:30Z", "/w/A.java");
+        List<Map<String, Object>> bodies = List.of(beat("2027-01-15T08:05:00Z", "/w/A.java"),
+                beat("2027-01-15T08:05:30Z", "/w/A.java"));
+
+        assertArrayEquals(new boolean[]{true, false}, EventSampler.stored(previous, bodies, CHECKPOINT_MS, NOW));
+    }
+
+    @Test
+    void withoutAPreviousSnapshotOrCheckpointEverythingIsKept() {
+        List<Map<String, Object>> bodies = List.of(beat("2027-01-15T08:00:40Z", "/w/A.java"),
+                beat("2027-01-15T08:01:10Z", "/w/A.java"));
+
+        assertArrayEquals(new boolean[]{true, false}, EventSampler.stored(null, bodies, CHECKPOINT_MS, NOW));
+        assertArrayEquals(new boolean[]{true, true},
+                EventSampler.stored(bodies.get(0), bodies, 0, NOW));
+    }
+}
@@ -0,0 +1,54 @@
+package com.meinu.status.api.ingest.service;
+
+import com.meinu.status.api.ingest.dto.response.HeartbeatHint;
+import com.meinu.status.api.ingest.ratelimit.IngestRateLimitFilter;
+import com.meinu.status.api.status.watch.StatusWatchRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HeartbeatPacerTest {
+    private final StatusWatchRegistry watches = mock(StatusWatchRegistry.class);
+    private final IngestRateLimitFilter rateLimit = mock(IngestRateLimitFilter.class);
+    private final HeartbeatPacer pacer = new HeartbeatPacer(watches, rateLimit);
+
+    HeartbeatPacerTest() {
+        ReflectionTestUtils.setField(pacer, "watchedActiveSeconds", 10);
+        ReflectionTestUtils.setField(pacer, "watchedIdleSeconds", 30);
+        ReflectionTestUtils.setField(pacer, "unwatchedActiveSeconds", 60);
+        ReflectionTestUtils.setField(pacer, "unwatchedIdleSeconds", 180);
+        ReflectionTestUtils.setField(pacer, "maxIntervalSeconds", 270);
+        ReflectionTestUtils.setField(pacer, "loadThreshold", 0.5);
+        ReflectionTestUtils.setField(pacer, "maxLoadMultiplier", 4.0);
+    }
+
+    @Test
+    void watchedActiveMembersAreStreamed() {
+        when(watches.isWatched(1L)).thenReturn(true);
+
+        assertEquals(new HeartbeatHint(10, false), pacer.hint(1L, false));
+        assertEquals(new HeartbeatHint(30, true), pacer.hint(1L, true));
+    }
+
+    @Test
+    void unwatchedMembersOnlySendChangesPromptly() {
+        assertEquals(new HeartbeatHint(60, true), pacer.hint(1L, false));
+        assertEquals(new HeartbeatHint(180, true), pacer.hint(1L, true));
+    }
+
+    @Test
+    void intervalsStretchWithLoadUpToTheMaximum() {
+        when(watches.isWatched(1L)).thenReturn(true);
+
+        when(rateLimit.loadFactor()).thenReturn(0.5);
+        assertEquals(10, pacer.hint(1L, false).nextIntervalSeconds());
+        when(rateLimit.loadFactor()).thenReturn(0.75);
+        assertEquals(25, pacer.hint(1L, false).nextIntervalSeconds());
+        when(rateLimit.loadFactor()).thenReturn(1.0);
+        assertEquals(40, pacer.hint(1L, false).nextIntervalSeconds());
+        assertEquals(270, pacer.hint(2L, true).nextIntervalSeconds());
+    }
+}
@@ -0,0 +1,94 @@
+package com.meinu.status.api.ingest.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meinu.status.api.status.dto.response.BreakdownResponse;
+import com.meinu.status.api.status.dto.response.HistoryEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogEventStoreTest {
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @TempDir
+    Path dir;
+
+    private LogEventStore store() throws IOException {
+        return new LogEventStore(new ObjectMapper(), dir.toString());
+    }
+
+    private static List<Long> append(LogEventStore store, long memberId, Instant at, String... languages) {
+        List<Map<String, Object>> bodies = new ArrayList<>();
+        List<String> jsons = new ArrayList<>();
+        for (String language : languages) {
+            bodies.add(Map.of("languageId", language));
+            jsons.add("{\"languageId\":\"" + language + "\",\"workspaceRoot\":\"/w\"}");
+        }
+        return store.append(memberId, bodies, jsons, at);
+    }
+
+    @Test
+    void historyPagesByIdAndSkipsOtherMembers() throws IOException {
+        LogEventStore store = store();
+        List<Long> mine = new ArrayList<>(append(store, 1L, NOW.minusSeconds(10), "java", "go"));
+        append(store, 2L, NOW.minusSeconds(9), "rust");
+        mine.addAll(append(store, 1L, NOW.minusSeconds(8), "kotlin"));
+
+        List<HistoryEvent> first = store.history(1L, null, NOW.minusSeconds(60), 2);
+        assertEquals(List.of(mine.get(0), mine.get(1)), first.stream().map(HistoryEvent::id).toList());
+        assertEquals("java", first.get(0).languageId());
+        assertEquals("/w", first.get(0).workspaceRoot());
+
+        List<HistoryEvent> second = store.history(1L, first.get(1).id(), null, 2);
+        assertEquals(List.of(mine.get(2)), second.stream().map(HistoryEvent::id).toList());
+        assertEquals("kotlin", second.get(0).languageId());
+
+        assertTrue(store.history(1L, mine.get(2), null, 2).isEmpty());
+        store.close();
+    }
+
+    @Test
+    void historyStartsAtFromAndCrossesDays() throws IOException {
+        LogEventStore store = store();
+        Instant yesterday = NOW.minus(1, ChronoUnit.DAYS);
+        append(store, 1L, yesterday.minusSeconds(5), "old");
+        List<Long> yesterdays = append(store, 1L, yesterday, "java");
+        List<Long> todays = append(store, 1L, NOW, "go");
+
+        List<HistoryEvent> page = store.history(1L, null, yesterday, 10);
+        assertEquals(List.of(yesterdays.get(0), todays.get(0)), page.stream().map(HistoryEvent::id).toList());
+
+        List<HistoryEvent> rest = store.history(1L, yesterdays.get(0), null, 10);
+        assertEquals(List.of(todays.get(0)), rest.stream().map(HistoryEvent::id).toList());
+        store.close();
+    }
+
+    @Test
+    void breakdownTakesCounterDeltasPerSession() throws IOException {
+        LogEventStore store = store();
+        Instant at = NOW.minusSeconds(60);
+        String[][] beats = {{"a", "10"}, {"b", "5"}, {"a", "20"}, {"b", "8"}};
+        for (int i = 0; i < beats.length; i++) {
+            String json = "{\"sessionId\":\"" + beats[i][0] + "\",\"keystrokes\":" + beats[i][1]
+                    + ",\"languageId\":\"java\",\"workspaceRoot\":\"/w\",\"timestamp\":\""
+                    + at.plusSeconds(i) + "\"}";
+            store.append(1L, List.of(Map.of()), List.of(json), NOW);
+        }
+
+        List<BreakdownResponse> rows = store.breakdown(1L, "language", NOW.minusSeconds(120), NOW.plusSeconds(1));
+        assertEquals(1, rows.size());
+        // a: 20 - 10, b: 8 - 5; by workspace the interleaved sessions would look like resets
+        assertEquals(13, rows.get(0).keystrokes());
+        store.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.meinu.status.api.presence.service;
+
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.status.dto.response.StatusPatch;
+import com.meinu.status.api.status.longpoll.StatusLongPollRegistry;
+import com.meinu.status.api.status.service.StatusSnapshotService;
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import com.meinu.status.api.status.sse.SseEmitterRegistry;
+import com.meinu.status.api.team.service.TeamService;
+import com.meinu.status.api.webhook.service.WebhookNotifier;
+import com.meinu.status.global.store.InMemoryKeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OfflineDetectionServiceTest {
+    private static final long MAX_GRACE_MS = 900_000;
+
+    private final InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+    private final StatusSnapshotService snapshots = mock(StatusSnapshotService.class);
+    private final WebhookNotifier webhooks = mock(WebhookNotifier.class);
+    private final PresenceService presence = new PresenceService(store, mock(MemberRepository.class),
+            mock(TeamService.class));
+    private final OfflineDetectionService service = new OfflineDetectionService(store, snapshots,
+            mock(SseEmitterRegistry.class), mock(StatusLongPollRegistry.class), webhooks, presence, 1000, 64);
+
+    OfflineDetectionServiceTest() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxGraceMs", MAX_GRACE_MS);
+        ReflectionTestUtils.setField(service, "sweepBatchSize", 2);
+        when(snapshots.markOffline(anyLong(), anyString(), any()))
+                .thenReturn(new StatusPatch("v2", "v1", Map.of("isOffline", true), List.of()));
+    }
+
+    @AfterEach
+    void stop() {
+        service.shutdown();
+    }
+
+    private void seen(long memberId, long agoMs) {
+        store.pipeline(p -> presence.touch(p, memberId, false, System.currentTimeMillis() - agoMs));
+    }
+
+    private void snapshot(long memberId, Map<String, Object> fields) {
+        when(snapshots.getLatestFields(eq(memberId), any())).thenReturn(new VersionedSnapshot("v1", fields));
+    }
+
+    @Test
+    void memberOfAStoppedNodeIsMarkedOffline() {
+        seen(1L, MAX_GRACE_MS + 60_000);
+        snapshot(1L, Map.of());
+
+        service.sweepOrphans();
+
+        verify(snapshots).markOffline(eq(1L), eq("v1"), any());
+        verify(webhooks).wentOffline(eq(1L), any());
+    }
+
+    @Test
+    void membersWithinTheMaxGraceAreLeftToTheirDeadline() {
+        seen(1L, MAX_GRACE_MS - 60_000);
+        snapshot(1L, Map.of());
+
+        service.sweepOrphans();
+
+        verify(snapshots, never()).markOffline(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void snapshotsAlreadyOfflineAreSkipped() {
+        seen(1L, MAX_GRACE_MS + 60_000);
+        snapshot(1L, Map.of("isOffline", true));
+
+        service.sweepOrphans();
+
+        verify(snapshots, never()).markOffline(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void sweepsAfterStartupPageThroughEveryoneSeenWithinTheRetention() {
+        Set<Long> offline = new HashSet<>();
+        when(snapshots.getLatestFields(anyLong(), any())).thenAnswer(call -> new VersionedSnapshot("v1",
+                offline.contains(call.<Long>getArgument(0)) ? Map.of("isOffline", true) : Map.of()));
+        when(snapshots.markOffline(anyLong(), anyString(), any())).thenAnswer(call -> {
+            offline.add(call.getArgument(0));
+            return new StatusPatch("v2", "v1", Map.of("isOffline", true), List.of());
+        });
+        for (long id = 1; id <= 3; id++) {
+            seen(id, 86_400_000 + id * 1000);
+        }
+
+        service.sweepOrphans();
+        service.sweepOrphans();
+        service.sweepOrphans();
+
+        assertEquals(Set.of(1L, 2L, 3L), offline);
+        verify(snapshots, times(3)).markOffline(anyLong(), anyString(), any());
+    }
+}
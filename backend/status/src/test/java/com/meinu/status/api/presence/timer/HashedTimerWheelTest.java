@@ -0,0 +1,89 @@
+package com.meinu.status.api.presence.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimerWheelTest {
+    private static final long TICK = 10;
+    private static final int SLOTS = 8; // one revolution is 80 ms
+
+    private final HashedTimerWheel<String> wheel = new HashedTimerWheel<>(TICK, SLOTS, 0);
+
+    @Test
+    void keyExpiresOnceItsTickHasPassed() {
+        wheel.schedule("a", 25);
+        assertEquals(List.of(), wheel.expire(29));
+        assertEquals(List.of("a"), wheel.expire(30));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.expire(200));
+    }
+
+    @Test
+    void rescheduleReplacesTheDeadline() {
+        wheel.schedule("a", 25);
+        wheel.schedule("a", 55);
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.expire(50));
+        assertEquals(List.of("a"), wheel.expire(60));
+    }
+
+    @Test
+    void rescheduleOneRevolutionLaterStaysInTheSameSlot() {
+        wheel.schedule("a", 25);
+        wheel.schedule("a", 25 + TICK * SLOTS);
+        // slot 2 is visited at 30 and again at 110
+        assertEquals(List.of(), wheel.expire(30));
+        assertEquals(List.of(), wheel.expire(109));
+        assertEquals(List.of("a"), wheel.expire(110));
+    }
+
+    @Test
+    void rescheduleEarlierFromALaterRevolution() {
+        wheel.schedule("a", 1_000);
+        wheel.schedule("a", 15);
+        assertEquals(List.of("a"), wheel.expire(20));
+        assertEquals(List.of(), wheel.expire(1_010));
+    }
+
+    @Test
+    void deadlinesSeveralRevolutionsAheadWaitForTheirTurn() {
+        wheel.schedule("far", 1_000);
+        wheel.schedule("near", 45);
+        // both sit in slot 4, which comes round again a dozen times before "far" is due
+        assertEquals(List.of("near"), wheel.expire(500));
+        assertEquals(List.of(), wheel.expire(999));
+        assertEquals(List.of("far"), wheel.expire(1_010));
+    }
+
+    @Test
+    void overdueDeadlineExpiresOnTheNextTick() {
+        wheel.expire(50);
+        wheel.schedule("late", 10);
+        assertEquals(List.of("late"), wheel.expire(60));
+    }
+
+    @Test
+    void keysSharingASlotExpireTogether() {
+        wheel.schedule("a", 21);
+        wheel.schedule("b", 28);
+        wheel.schedule("c", 101); // same slot, next revolution
+        List<String> due = wheel.expire(30);
+        assertEquals(2, due.size());
+        assertTrue(due.containsAll(List.of("a", "b")));
+        assertEquals(List.of("c"), wheel.expire(110));
+    }
+
+    @Test
+    void cancelledKeysNeverExpire() {
+        wheel.schedule("a", 25);
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.expire(100));
+    }
+}
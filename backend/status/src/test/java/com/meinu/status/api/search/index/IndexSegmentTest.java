@@ -0,0 +1,106 @@
+package com.meinu.status.api.search.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IndexSegmentTest {
+    private static final long A = 1;
+    private static final long B = 2;
+    private static final long C = 3;
+
+    @TempDir
+    Path dir;
+
+    private static IndexSegment segment(int docs, Map<Long, int[]> postings) {
+        long[] eventIds = new long[docs];
+        long[] atMs = new long[docs];
+        String[] filePaths = new String[docs];
+        for (int i = 0; i < docs; i++) {
+            eventIds[i] = 100 + i;
+            atMs[i] = 1_000L * i;
+            filePaths[i] = i % 2 == 0 ? "src/F" + i + ".java" : null;
+        }
+        return new IndexSegment(eventIds, atMs, filePaths, postings);
+    }
+
+    @Test
+    void postingsSurviveTheVarintRoundTrip() throws IOException {
+        // gaps of 127, 128, 16383, 16384, 2^21 - 1, 2^21, 2^28 - 1 and 2^28, then a 5-byte one
+        int[] docs = {0, 127, 255, 16_638, 33_022, 2_130_173, 4_227_325, 272_662_780, 541_098_236,
+                Integer.MAX_VALUE};
+        Path file = dir.resolve("seg-1");
+        segment(3, Map.of(A, docs, B, new int[] {2})).write(file);
+
+        IndexSegment read = IndexSegment.read(file);
+        assertArrayEquals(docs, read.match(new long[] {A}));
+        assertArrayEquals(new int[] {2}, read.match(new long[] {B}));
+        assertEquals(3, read.size());
+        assertEquals(101, read.eventId(1));
+        assertEquals(2_000, read.atMs(2));
+        assertEquals("src/F0.java", read.filePath(0));
+        assertNull(read.filePath(1));
+    }
+
+    @Test
+    void writeLeavesNoTemporaryFile() throws IOException {
+        Path file = dir.resolve("seg-1");
+        segment(1, Map.of(A, new int[] {0})).write(file);
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("junk");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> IndexSegment.read(file));
+    }
+
+    @Test
+    void mergeShiftsOrdinalsOfLaterSegments() {
+        IndexSegment first = segment(3, Map.of(A, new int[] {0, 2}, B, new int[] {1}));
+        IndexSegment second = segment(2, Map.of(A, new int[] {1}, C, new int[] {0, 1}));
+
+        IndexSegment merged = IndexSegment.merge(List.of(first, second));
+        assertEquals(5, merged.size());
+        assertEquals(100, merged.eventId(3));
+        assertEquals(1_000, merged.atMs(4));
+        assertArrayEquals(new int[] {0, 2, 4}, merged.match(new long[] {A}));
+        assertArrayEquals(new int[] {1}, merged.match(new long[] {B}));
+        assertArrayEquals(new int[] {3, 4}, merged.match(new long[] {C}));
+        assertArrayEquals(new int[] {4}, merged.match(new long[] {A, C}));
+    }
+
+    @Test
+    void intersectKeepsDocumentsInEveryList() {
+        int[][] lists = {{1, 3, 5, 7, 9, 11}, {3, 4, 5, 11}, {0, 3, 11, 12}};
+        assertArrayEquals(new int[] {3, 11}, IndexSegment.intersect(lists));
+        assertArrayEquals(new int[] {3, 11}, IndexSegment.intersect(new int[][] {lists[2], lists[0], lists[1]}));
+        assertArrayEquals(new int[] {2}, IndexSegment.intersect(new int[][] {{2}}));
+    }
+
+    @Test
+    void intersectWithAMissingOrEmptyListIsEmpty() {
+        assertArrayEquals(new int[0], IndexSegment.intersect(new int[0][]));
+        assertArrayEquals(new int[0], IndexSegment.intersect(new int[][] {{1, 2}, null}));
+        assertArrayEquals(new int[0], IndexSegment.intersect(new int[][] {{1, 2}, {}}));
+        assertArrayEquals(new int[0], IndexSegment.intersect(new int[][] {{1, 2}, {3, 4}}));
+    }
+
+    @Test
+    void matchOfAnUnknownTrigramIsEmpty() {
+        assertArrayEquals(new int[0], segment(2, Map.of(A, new int[] {0, 1})).match(new long[] {A, C}));
+    }
+}
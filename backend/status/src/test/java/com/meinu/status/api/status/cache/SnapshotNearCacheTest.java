@@ -0,0 +1,107 @@
+package com.meinu.status.api.status.cache;
+
+import com.meinu.status.api.status.cache.SnapshotNearCache.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotNearCacheTest {
+    private final SnapshotNearCache cache = new SnapshotNearCache(100, 10_000);
+
+    private static Entry entry(String version, long weight, long sequence) {
+        return new Entry(Map.of("v", version), version, weight, 0L, false, sequence);
+    }
+
+    @Test
+    void aLoadOlderThanTheCachedWriteIsNotPutBack() {
+        long reader = cache.nextSequence();
+        cache.put(1L, entry("written", 100, cache.nextSequence()));
+
+        cache.put(1L, entry("loaded", 100, reader));
+
+        assertEquals("written", cache.get(1L).version());
+    }
+
+    @Test
+    void aLoadStartedBeforeAnInvalidationDoesNotClearTheStaleMark() {
+        cache.put(1L, entry("v1", 100, cache.nextSequence()));
+        long reader = cache.nextSequence();
+
+        cache.markStale(1L);
+        cache.put(1L, entry("v1", 100, reader));
+
+        assertTrue(cache.get(1L).stale());
+    }
+
+    @Test
+    void aLoadStartedBeforeAnInvalidationOfAnUncachedMemberIsNotCached() {
+        long reader = cache.nextSequence();
+
+        cache.markStale(1L);
+        cache.put(1L, entry("old", 100, reader));
+        assertNull(cache.get(1L));
+
+        cache.put(1L, entry("new", 100, cache.nextSequence()));
+        assertEquals("new", cache.get(1L).version());
+    }
+
+    @Test
+    void removeKeepsEntriesWrittenAfterTheReaderStarted() {
+        long reader = cache.nextSequence();
+        cache.put(1L, entry("written", 100, cache.nextSequence()));
+
+        cache.remove(1L, reader);
+
+        assertNotNull(cache.get(1L));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedByWeight() {
+        cache.put(1L, entry("a", 4_000, cache.nextSequence()));
+        cache.put(2L, entry("b", 4_000, cache.nextSequence()));
+        cache.get(1L);
+
+        cache.put(3L, entry("c", 4_000, cache.nextSequence()));
+
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+        assertEquals(8_000, cache.totalBytes());
+    }
+
+    @Test
+    void replacingAnEntryCountsOnlyItsNewWeight() {
+        cache.put(1L, entry("a", 4_000, cache.nextSequence()));
+        cache.put(1L, entry("b", 1_000, cache.nextSequence()));
+
+        assertEquals(1_000, cache.totalBytes());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void entriesAreEvictedByCount() {
+        SnapshotNearCache small = new SnapshotNearCache(2, 10_000);
+        small.put(1L, entry("a", 10, small.nextSequence()));
+        small.put(2L, entry("b", 10, small.nextSequence()));
+        small.put(3L, entry("c", 10, small.nextSequence()));
+
+        assertEquals(2, small.size());
+        assertNull(small.get(1L));
+        assertEquals(20, small.totalBytes());
+    }
+
+    @Test
+    void anEntryOverTheByteBudgetDropsTheCachedCopy() {
+        cache.put(1L, entry("small", 100, cache.nextSequence()));
+
+        cache.put(1L, entry("huge", 20_000, cache.nextSequence()));
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.totalBytes());
+    }
+}
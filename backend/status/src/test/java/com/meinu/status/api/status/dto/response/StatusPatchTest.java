@@ -0,0 +1,87 @@
+package com.meinu.status.api.status.dto.response;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusPatchTest {
+
+    private static VersionedSnapshot snapshot(String version, Map<String, Object> payload) {
+        return new VersionedSnapshot(version, payload);
+    }
+
+    @Test
+    void withoutABaseTheWholeSnapshotIsSet() {
+        Map<String, Object> payload = Map.of("language", "java", "isIdle", false);
+        VersionedSnapshot next = snapshot("v2", payload);
+
+        for (VersionedSnapshot previous : new VersionedSnapshot[] {null, VersionedSnapshot.EMPTY}) {
+            StatusPatch patch = StatusPatch.between(previous, next);
+            assertEquals("v2", patch.version());
+            assertNull(patch.base());
+            assertEquals(payload, patch.set());
+            assertEquals(List.of(), patch.unset());
+        }
+    }
+
+    @Test
+    void onlyChangedAndAddedFieldsAreSet() {
+        VersionedSnapshot previous = snapshot("v1", Map.of("language", "java", "file", "A.java", "keystrokes", 10));
+        VersionedSnapshot next = snapshot("v2",
+                Map.of("language", "java", "file", "B.java", "keystrokes", 10, "branch", "main"));
+
+        StatusPatch patch = StatusPatch.between(previous, next);
+        assertEquals("v2", patch.version());
+        assertEquals("v1", patch.base());
+        assertEquals(Map.of("file", "B.java", "branch", "main"), patch.set());
+        assertEquals(List.of(), patch.unset());
+    }
+
+    @Test
+    void removedFieldsAreUnset() {
+        VersionedSnapshot previous = snapshot("v1", Map.of("language", "java", "branch", "main", "code", "x"));
+        VersionedSnapshot next = snapshot("v2", Map.of("language", "java"));
+
+        StatusPatch patch = StatusPatch.between(previous, next);
+        assertTrue(patch.set().isEmpty());
+        assertEquals(2, patch.unset().size());
+        assertTrue(patch.unset().containsAll(List.of("branch", "code")));
+    }
+
+    @Test
+    void aFieldTurningNullIsSetNotUnset() {
+        Map<String, Object> nulled = new HashMap<>();
+        nulled.put("branch", null);
+        StatusPatch patch = StatusPatch.between(snapshot("v1", Map.of("branch", "main")), snapshot("v2", nulled));
+
+        assertTrue(patch.set().containsKey("branch"));
+        assertNull(patch.set().get("branch"));
+        assertEquals(List.of(), patch.unset());
+    }
+
+    @Test
+    void aNullFieldThatDisappearsIsUnset() {
+        Map<String, Object> nulled = new HashMap<>();
+        nulled.put("branch", null);
+        StatusPatch patch = StatusPatch.between(snapshot("v1", nulled), snapshot("v2", Map.of()));
+
+        assertTrue(patch.set().isEmpty());
+        assertEquals(List.of("branch"), patch.unset());
+    }
+
+    @Test
+    void nestedValuesAreComparedByValue() {
+        VersionedSnapshot previous = snapshot("v1", Map.of("git", Map.of("branch", "main"), "tags", List.of("a")));
+        VersionedSnapshot next = snapshot("v2", Map.of("git", Map.of("branch", "main"), "tags", List.of("a", "b")));
+
+        StatusPatch patch = StatusPatch.between(previous, next);
+        assertEquals(Map.of("tags", List.of("a", "b")), patch.set());
+    }
+}
@@ -0,0 +1,52 @@
+package com.meinu.status.api.status.dto.response;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TeammateStatusTest {
+
+    @Test
+    void snapshotKeepsOnlySharedFields() {
+        Map<String, Object> payload = Map.of("workspaceRoot", "/home/me/projects/stat-us/", "filePath", "/x/Secret.java",
+                "code", "class Secret {}", "codeLength", 15, "languageId", "java", "branch", "main", "isIdle", false,
+                "keystrokes", 42, "vscodeVersion", "1.95.0");
+
+        VersionedSnapshot shared = TeammateStatus.of(new VersionedSnapshot("v1", payload));
+        assertEquals("v1", shared.version());
+        assertEquals(Map.of("workspace", "stat-us", "languageId", "java", "branch", "main", "isIdle", false,
+                "keystrokes", 42), shared.payload());
+    }
+
+    @Test
+    void workspaceNameHandlesEitherSeparator() {
+        assertEquals("stat-us", TeammateStatus.workspaceName("C:\\work\\stat-us\\"));
+        assertEquals("stat-us", TeammateStatus.workspaceName("/work/stat-us"));
+        assertEquals("stat-us", TeammateStatus.workspaceName("stat-us"));
+    }
+
+    @Test
+    void patchDropsPrivateFieldsButKeepsItsVersions() {
+        StatusPatch patch = new StatusPatch("v2", "v1",
+                Map.of("code", "x", "filePath", "/a/B.java", "workspaceRoot", "/a", "keystrokes", 3),
+                List.of("branch", "codeLength"));
+
+        StatusPatch shared = TeammateStatus.of(patch);
+        assertEquals("v2", shared.version());
+        assertEquals("v1", shared.base());
+        assertEquals(Map.of("workspace", "a", "keystrokes", 3), shared.set());
+        assertEquals(List.of("branch"), shared.unset());
+    }
+
+    @Test
+    void removedWorkspaceRootUnsetsTheWorkspace() {
+        StatusPatch shared = TeammateStatus.of(new StatusPatch("v2", "v1", Map.of("code", "y"),
+                List.of("workspaceRoot", "filePath")));
+        assertEquals(Map.of(), shared.set());
+        assertEquals(List.of("workspace"), shared.unset());
+    }
+}
@@ -0,0 +1,40 @@
+package com.meinu.status.api.status.service;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusSnapshotServiceTest {
+
+    @Test
+    void versionIsSixtyFourBitsOfTheJson() {
+        String version = StatusSnapshotService.versionOf("{\"languageId\":\"java\"}");
+
+        assertTrue(version.matches("[0-9a-f]{16}"));
+        assertEquals(version, StatusSnapshotService.versionOf("{\"languageId\":\"java\"}"));
+    }
+
+    @Test
+    void stringHashCollisionsGetDistinctVersions() {
+        // "Aa" and "BB" share a String.hashCode
+        assertEquals("{\"b\":\"Aa\"}".hashCode(), "{\"b\":\"BB\"}".hashCode());
+        assertNotEquals(StatusSnapshotService.versionOf("{\"b\":\"Aa\"}"),
+                StatusSnapshotService.versionOf("{\"b\":\"BB\"}"));
+    }
+
+    @Test
+    void fieldsOfKeepsTheFullSnapshotsVersion() {
+        VersionedSnapshot full = new VersionedSnapshot("abc",
+                Map.of("languageId", "java", "code", "x", "branch", "main"));
+
+        VersionedSnapshot some = StatusSnapshotService.fieldsOf(full, List.of("branch", "languageId", "missing"));
+        assertEquals("abc", some.version());
+        assertEquals(Map.of("branch", "main", "languageId", "java"), some.payload());
+    }
+}
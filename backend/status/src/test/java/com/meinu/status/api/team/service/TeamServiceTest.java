@@ -0,0 +1,107 @@
+package com.meinu.status.api.team.service;
+
+import com.meinu.status.api.member.entity.Member;
+import com.meinu.status.api.member.repository.MemberRepository;
+import com.meinu.status.api.team.entity.Team;
+import com.meinu.status.api.team.entity.TeamInvitation;
+import com.meinu.status.api.team.entity.TeamMembership;
+import com.meinu.status.api.team.repository.TeamInvitationRepository;
+import com.meinu.status.api.team.repository.TeamMembershipRepository;
+import com.meinu.status.api.team.repository.TeamRepository;
+import com.meinu.status.global.common.base.BaseException;
+import com.meinu.status.global.common.base.BaseResponseStatus;
+import com.meinu.status.global.store.KeyValueStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TeamServiceTest {
+    private final TeamRepository teams = mock(TeamRepository.class);
+    private final TeamMembershipRepository memberships = mock(TeamMembershipRepository.class);
+    private final TeamInvitationRepository invitations = mock(TeamInvitationRepository.class);
+    private final MemberRepository members = mock(MemberRepository.class);
+    private final TeamService service = new TeamService(teams, memberships, invitations, members,
+            mock(KeyValueStore.class));
+
+    private final Member owner = Member.builder().id(1L).email("owner@example.com").build();
+    private final Member invitee = Member.builder().id(2L).email("invitee@example.com").build();
+    private final Team team = Team.builder().id(10L).name("team").owner(owner).build();
+
+    @Test
+    void inviteDoesNotMakeAMember() {
+        when(teams.findById(10L)).thenReturn(Optional.of(team));
+        when(members.findByEmail("invitee@example.com")).thenReturn(Optional.of(invitee));
+
+        service.invite(10L, owner, "invitee@example.com");
+
+        ArgumentCaptor<TeamInvitation> saved = ArgumentCaptor.forClass(TeamInvitation.class);
+        verify(invitations).save(saved.capture());
+        assertSame(invitee, saved.getValue().getMember());
+        verify(memberships, never()).save(any());
+    }
+
+    @Test
+    void onlyTheOwnerInvites() {
+        when(teams.findById(10L)).thenReturn(Optional.of(team));
+
+        BaseException e = assertThrows(BaseException.class,
+                () -> service.invite(10L, invitee, "someone@example.com"));
+        assertEquals(BaseResponseStatus.NOT_TEAM_OWNER, e.getStatus());
+        verify(invitations, never()).save(any());
+    }
+
+    @Test
+    void invitingTwiceIsAConflict() {
+        when(teams.findById(10L)).thenReturn(Optional.of(team));
+        when(members.findByEmail("invitee@example.com")).thenReturn(Optional.of(invitee));
+        when(invitations.existsByTeamIdAndMemberId(10L, 2L)).thenReturn(true);
+
+        BaseException e = assertThrows(BaseException.class,
+                () -> service.invite(10L, owner, "invitee@example.com"));
+        assertEquals(BaseResponseStatus.ALREADY_INVITED, e.getStatus());
+    }
+
+    @Test
+    void acceptingJoinsTheTeam() {
+        TeamInvitation invitation = TeamInvitation.builder().id(5L).team(team).member(invitee).build();
+        when(invitations.findByIdAndMemberId(5L, 2L)).thenReturn(Optional.of(invitation));
+
+        service.accept(5L, invitee);
+
+        verify(invitations).delete(invitation);
+        ArgumentCaptor<TeamMembership> saved = ArgumentCaptor.forClass(TeamMembership.class);
+        verify(memberships).save(saved.capture());
+        assertSame(team, saved.getValue().getTeam());
+        assertSame(invitee, saved.getValue().getMember());
+    }
+
+    @Test
+    void nobodyAcceptsAnotherMembersInvitation() {
+        when(invitations.findByIdAndMemberId(5L, 1L)).thenReturn(Optional.empty());
+
+        BaseException e = assertThrows(BaseException.class, () -> service.accept(5L, owner));
+        assertEquals(BaseResponseStatus.INVITATION_NOT_FOUND, e.getStatus());
+        verify(memberships, never()).save(any());
+    }
+
+    @Test
+    void decliningDropsTheInvitation() {
+        TeamInvitation invitation = TeamInvitation.builder().id(5L).team(team).member(invitee).build();
+        when(invitations.findByIdAndMemberId(5L, 2L)).thenReturn(Optional.of(invitation));
+
+        service.decline(5L, invitee);
+
+        verify(invitations).delete(invitation);
+        verify(memberships, never()).save(any());
+    }
+}
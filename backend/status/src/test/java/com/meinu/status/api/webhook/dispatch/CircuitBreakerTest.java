@@ -0,0 +1,58 @@
+package com.meinu.status.api.webhook.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private final CircuitBreaker circuit = new CircuitBreaker(3, 1000, 3000);
+
+    @Test
+    void opensAfterTheThresholdOfConsecutiveFailures() {
+        assertFalse(circuit.failure(0));
+        assertFalse(circuit.failure(0));
+        assertTrue(circuit.allows(0));
+
+        assertTrue(circuit.failure(0));
+        assertFalse(circuit.allows(999));
+        assertTrue(circuit.allows(1000));
+    }
+
+    @Test
+    void aSuccessResetsTheCount() {
+        circuit.failure(0);
+        circuit.failure(0);
+        circuit.success();
+
+        assertFalse(circuit.failure(0));
+        assertTrue(circuit.allows(0));
+    }
+
+    @Test
+    void aFailedTrialReopensForLongerUpToTheMaximum() {
+        for (int i = 0; i < 3; i++) {
+            circuit.failure(0);
+        }
+        assertEquals(1000, circuit.openUntilMs());
+
+        assertTrue(circuit.failure(1000));
+        assertEquals(3000, circuit.openUntilMs());
+
+        assertTrue(circuit.failure(3000));
+        assertEquals(6000, circuit.openUntilMs());
+    }
+
+    @Test
+    void aSuccessfulTrialCloses() {
+        for (int i = 0; i < 3; i++) {
+            circuit.failure(0);
+        }
+
+        circuit.success();
+
+        assertTrue(circuit.allows(0));
+        assertEquals(0, circuit.openUntilMs());
+    }
+}
@@ -0,0 +1,191 @@
+package com.meinu.status.api.webhook.dispatch;
+
+import com.meinu.status.api.webhook.entity.WebhookEndpoint;
+import com.meinu.status.api.webhook.outbox.WebhookOutbox;
+import com.meinu.status.api.webhook.repository.WebhookEndpointRepository;
+import com.meinu.status.api.webhook.service.WebhookUrlPolicy;
+import com.meinu.status.bench.WebhookStub;
+import com.meinu.status.global.id.TsidGenerator;
+import com.meinu.status.global.store.InMemoryKeyValueStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebhookDispatcherTest {
+    private static final String TABLE = "create table webhook_outbox (id bigint primary key,"
+            + " endpoint_id bigint not null, member_id bigint not null, type varchar(32) not null,"
+            + " payload varchar(4096) not null, created_at timestamp(6) not null,"
+            + " next_attempt_at timestamp(6) not null, attempts int not null, lease_owner varchar(64),"
+            + " lease_until timestamp(6), last_error varchar(255), dead boolean not null)";
+    private static final long ENDPOINT_ID = 1L;
+
+    private final WebhookStub stub;
+    private final JdbcTemplate jdbc;
+    private final WebhookOutbox outbox;
+    private final WebhookDispatcher dispatcher;
+
+    WebhookDispatcherTest() throws IOException {
+        stub = new WebhookStub();
+        stub.register("a", "s3cret");
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        jdbc.execute(TABLE);
+        outbox = new WebhookOutbox(jdbc, new TsidGenerator(1, new InMemoryKeyValueStore(), 60_000));
+        WebhookEndpointRepository endpoints = mock(WebhookEndpointRepository.class);
+        when(endpoints.findByIdIn(any())).thenReturn(List.of(WebhookEndpoint.builder()
+                .id(ENDPOINT_ID).url(stub.url("a")).secret("s3cret").build()));
+        dispatcher = new WebhookDispatcher(outbox, endpoints, new WebhookUrlPolicy(true), new SimpleMeterRegistry(),
+                2, 2000);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "claimLimit", 500);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "requestTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 10);
+        ReflectionTestUtils.setField(dispatcher, "backoffInitialMs", 0L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 600_000L);
+        ReflectionTestUtils.setField(dispatcher, "circuitFailureThreshold", 100);
+        ReflectionTestUtils.setField(dispatcher, "circuitOpenMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "circuitMaxOpenMs", 600_000L);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        dispatcher.shutdown();
+        stub.close();
+    }
+
+    private void enqueue(int count) {
+        List<WebhookOutbox.NewEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new WebhookOutbox.NewEntry(ENDPOINT_ID, 7L, "offline", id -> "{\"id\":\"" + id
+                    + "\",\"type\":\"offline\",\"memberId\":7,\"at\":\"" + Instant.now() + "\",\"data\":{}}"));
+        }
+        outbox.append(entries, Instant.now());
+    }
+
+    /** One poll, returning once the batches it started have been answered and recorded. */
+    private void dispatch() {
+        dispatcher.dispatch();
+        Set<?> inFlight = (Set<?>) ReflectionTestUtils.getField(dispatcher, "inFlight");
+        await(inFlight::isEmpty);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("select count(*) from webhook_outbox", Integer.class);
+    }
+
+    private Map<String, Object> row() {
+        return jdbc.queryForMap("select attempts, dead, last_error from webhook_outbox");
+    }
+
+    private long nextAttemptInMs() {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        return jdbc.query("select next_attempt_at from webhook_outbox",
+                (rs, i) -> rs.getTimestamp(1, utc).getTime()).get(0) - System.currentTimeMillis();
+    }
+
+    private void makeDue() {
+        jdbc.update("update webhook_outbox set next_attempt_at = ?", ps -> ps.setTimestamp(1,
+                Timestamp.from(Instant.now().minusSeconds(1)), Calendar.getInstance(TimeZone.getTimeZone("UTC"))));
+    }
+
+    @Test
+    void dueEventsGoOutInSignedBatches() {
+        enqueue(5);
+
+        for (int i = 0; i < 10 && rows() > 0; i++) {
+            dispatch();
+        }
+
+        assertEquals(0, rows());
+        assertEquals(3, stub.batches());
+        assertEquals(5, stub.events());
+        assertEquals(0, stub.badSignatures());
+    }
+
+    @Test
+    void failedBatchesAreRetriedAfterABackoff() {
+        ReflectionTestUtils.setField(dispatcher, "backoffInitialMs", 10_000L);
+        stub.answer(500, 0);
+        enqueue(1);
+
+        dispatch();
+        assertEquals(1, row().get("ATTEMPTS"));
+        assertEquals("HTTP 500", row().get("LAST_ERROR"));
+        long backoff = nextAttemptInMs();
+        assertTrue(backoff > 4_000 && backoff <= 10_000, "backoff " + backoff);
+
+        dispatch();
+        assertEquals(1, stub.batches());
+
+        stub.answer(200, 0);
+        makeDue();
+        dispatch();
+        assertEquals(2, stub.batches());
+        assertEquals(0, rows());
+    }
+
+    @Test
+    void batchesAreKeptAsDeadAfterMaxAttempts() {
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        stub.answer(500, 0);
+        enqueue(1);
+
+        for (int i = 0; i < 5; i++) {
+            dispatch();
+        }
+
+        assertEquals(3, stub.batches());
+        assertEquals(3, row().get("ATTEMPTS"));
+        assertEquals(true, row().get("DEAD"));
+    }
+
+    @Test
+    void consecutiveFailuresOpenTheCircuit() {
+        ReflectionTestUtils.setField(dispatcher, "circuitFailureThreshold", 2);
+        stub.answer(500, 0);
+        enqueue(1);
+
+        dispatch();
+        dispatch();
+        assertEquals(2, stub.batches());
+
+        dispatch();
+        assertEquals(2, stub.batches());
+        assertEquals(2, row().get("ATTEMPTS"));
+        assertTrue(nextAttemptInMs() > 50_000, "postponed while the circuit is open");
+    }
+}
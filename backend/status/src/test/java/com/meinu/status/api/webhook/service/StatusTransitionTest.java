@@ -0,0 +1,63 @@
+package com.meinu.status.api.webhook.service;
+
+import com.meinu.status.api.status.service.StatusSnapshotService.VersionedSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatusTransitionTest {
+    private static final Instant AT = Instant.parse("2026-03-01T12:00:00Z");
+
+    private static List<String> types(VersionedSnapshot previous, Map<String, Object> next) {
+        return StatusTransition.between(1L, previous, next, AT).stream().map(StatusTransition::type).toList();
+    }
+
+    private static VersionedSnapshot was(Map<String, Object> payload) {
+        return new VersionedSnapshot("v1", payload);
+    }
+
+    @Test
+    void codingStartsFromNoSnapshotIdleOrOffline() {
+        Map<String, Object> active = Map.of("isIdle", false);
+
+        assertEquals(List.of(StatusTransition.CODING_STARTED), types(VersionedSnapshot.EMPTY, active));
+        assertEquals(List.of(StatusTransition.CODING_STARTED), types(was(Map.of("isIdle", true)), active));
+        assertEquals(List.of(StatusTransition.CODING_STARTED), types(was(Map.of("isOffline", true)), active));
+        assertEquals(List.of(), types(was(Map.of("isIdle", false)), active));
+    }
+
+    @Test
+    void goingIdleIsReportedOnlyFromActive() {
+        Map<String, Object> idle = Map.of("isIdle", true);
+
+        assertEquals(List.of(StatusTransition.CODING_IDLE), types(was(Map.of("isIdle", false)), idle));
+        assertEquals(List.of(), types(was(Map.of("isIdle", true)), idle));
+        assertEquals(List.of(), types(was(Map.of("isOffline", true)), idle));
+    }
+
+    @Test
+    void workspaceSwitchCarriesNamesButNoPaths() {
+        VersionedSnapshot previous = was(Map.of("isIdle", false, "workspaceRoot", "/home/me/old-project"));
+        Map<String, Object> next = Map.of("isIdle", false, "workspaceRoot", "/home/me/new-project",
+                "languageId", "java", "branch", "main", "code", "secret", "fileName", "/home/me/new-project/A.java");
+
+        List<StatusTransition> out = StatusTransition.between(1L, previous, next, AT);
+
+        assertEquals(1, out.size());
+        assertEquals(StatusTransition.WORKSPACE_SWITCHED, out.get(0).type());
+        assertEquals(Map.of("workspace", "new-project", "languageId", "java", "branch", "main",
+                "previousWorkspace", "old-project"), out.get(0).data());
+    }
+
+    @Test
+    void noSwitchIsReportedWhenComingBackOnline() {
+        VersionedSnapshot previous = was(Map.of("isOffline", true, "workspaceRoot", "/a"));
+
+        assertEquals(List.of(StatusTransition.CODING_STARTED),
+                types(previous, Map.of("isIdle", false, "workspaceRoot", "/b")));
+    }
+}
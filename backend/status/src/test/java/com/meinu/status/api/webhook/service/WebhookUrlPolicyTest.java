@@ -0,0 +1,42 @@
+package com.meinu.status.api.webhook.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// IP literals only, so nothing here depends on DNS
+class WebhookUrlPolicyTest {
+    private final WebhookUrlPolicy publicOnly = new WebhookUrlPolicy(false);
+    private final WebhookUrlPolicy anyAddress = new WebhookUrlPolicy(true);
+
+    @Test
+    void publicAddressesAreAllowed() throws UnknownHostException {
+        assertTrue(publicOnly.allowed("https://93.184.215.14/hook"));
+        assertTrue(publicOnly.allowed("http://[2606:2800:21f:cb07:6820:80da:af6b:8b2c]/hook"));
+        assertEquals(1, publicOnly.resolveHost("93.184.215.14").length);
+    }
+
+    @Test
+    void privateAddressesAreRefusedUnlessAllowed() {
+        String[] urls = {"http://127.0.0.1/", "http://10.1.2.3/", "http://192.168.0.10:8123/",
+                "http://169.254.169.254/", "http://0.0.0.0/", "http://[::1]/", "http://[fd00::1]/", "http://[fe80::1]/"};
+        for (String url : urls) {
+            assertFalse(publicOnly.allowed(url), url);
+            assertTrue(anyAddress.allowed(url), url);
+        }
+        assertThrows(UnknownHostException.class, () -> publicOnly.resolveHost("10.0.0.1"));
+    }
+
+    @Test
+    void onlyHttpUrlsWithAHostAreAllowed() {
+        assertFalse(anyAddress.allowed("ftp://93.184.215.14/"));
+        assertFalse(anyAddress.allowed("file:///etc/passwd"));
+        assertFalse(anyAddress.allowed("http:///nohost"));
+        assertFalse(anyAddress.allowed("not a url"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.meinu.status.global.config;
+
+import com.meinu.status.global.datasource.ReadWriteRoutingDataSource;
+import com.meinu.status.global.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DataSourceRoutingConfigTest {
+    private final String primaryUrl = "jdbc:h2:mem:primary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private final String replicaUrl = "jdbc:h2:mem:replica-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(DataSourceRoutingConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues(
+                    "spring.datasource.url=" + primaryUrl,
+                    "spring.datasource.username=sa",
+                    "spring.datasource.hikari.maximum-pool-size=3",
+                    "spring.datasource.hikari.connection-timeout=1234",
+                    "app.datasource.replica-urls=" + replicaUrl,
+                    "app.datasource.replica-username=sa",
+                    "app.datasource.replica-password=",
+                    "app.datasource.replica-pool-size=2");
+
+    @Test
+    void poolsTakeTheHikariSettings() {
+        runner.run(context -> {
+            HikariDataSource primary = context.getBean("primaryDataSource", HikariDataSource.class);
+            HikariDataSource replica = (HikariDataSource) context.getBean(ReadWriteRoutingDataSource.class)
+                    .replicas().get("replica-0");
+
+            assertEquals(3, primary.getMaximumPoolSize());
+            assertEquals(1234, primary.getConnectionTimeout());
+            assertEquals(2, replica.getMaximumPoolSize());
+            assertEquals(1234, replica.getConnectionTimeout());
+            assertEquals(replicaUrl, replica.getJdbcUrl());
+        });
+    }
+
+    @Test
+    void readOnlyTransactionsGoToAReplicaWithinTheLagLimit() {
+        runner.run(context -> {
+            ReadWriteRoutingDataSource routing = context.getBean(ReadWriteRoutingDataSource.class);
+            JdbcTemplate primary = new JdbcTemplate(context.getBean("primaryDataSource", DataSource.class));
+            JdbcTemplate replica = new JdbcTemplate(routing.replicas().get("replica-0"));
+            primary.execute("create table whoami (name varchar(16))");
+            primary.update("insert into whoami values ('primary')");
+            replica.execute("create table whoami (name varchar(16))");
+            replica.update("insert into whoami values ('replica')");
+            replica.execute("create table replica_status (Seconds_Behind_Source bigint)");
+            replica.update("insert into replica_status values (0)");
+            ReplicaLagMonitor monitor = context.getBean(ReplicaLagMonitor.class);
+            ReflectionTestUtils.setField(monitor, "lagQuery", "select Seconds_Behind_Source from replica_status");
+
+            monitor.check();
+            assertEquals("replica", whoami(context, true));
+            assertEquals("primary", whoami(context, false));
+
+            replica.update("update replica_status set Seconds_Behind_Source = 60");
+            monitor.check();
+            assertEquals(0, routing.availableReplicas());
+            assertEquals("primary", whoami(context, true));
+        });
+    }
+
+    private static String whoami(ApplicationContext context, boolean readOnly) {
+        DataSource dataSource = context.getBean(DataSource.class);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from whoami",
+                String.class));
+    }
+}
@@ -0,0 +1,90 @@
+package com.meinu.status.global.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GzipRequestConfigTest {
+    private final GzipRequestConfig.GzipRequestFilter filter =
+            new GzipRequestConfig.GzipRequestFilter(64, new ObjectMapper());
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static MockHttpServletRequest request(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ingest/vscode");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(body);
+        return request;
+    }
+
+    @Test
+    void inflatesTheBodyAndHidesTheEncoding() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request(gzip("{\"a\":1}")), new MockHttpServletResponse(), chain);
+
+        ServletRequest passed = chain.getRequest();
+        assertArrayEquals("{\"a\":1}".getBytes(StandardCharsets.UTF_8), passed.getInputStream().readAllBytes());
+        assertNull(((HttpServletRequest) passed).getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void bodyWithoutAGzipHeaderIsABadRequest() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("{\"a\":1}".getBytes(StandardCharsets.UTF_8)), response, chain);
+
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"code\":400"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void truncatedHeaderIsABadRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request(new byte[]{0x1f, (byte) 0x8b}), response, new MockFilterChain());
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    void readingPastTheCapFails() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request(gzip("x".repeat(65))), new MockHttpServletResponse(), chain);
+
+        assertThrows(IOException.class, () -> chain.getRequest().getInputStream().readAllBytes());
+    }
+
+    @Test
+    void asyncReadsAreRefused() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request(gzip("{}")), new MockHttpServletResponse(), chain);
+
+        assertThrows(IllegalStateException.class, () -> chain.getRequest().getInputStream().setReadListener(null));
+    }
+}
@@ -0,0 +1,54 @@
+package com.meinu.status.global.config.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JwtAuthFilterTest {
+    private final JwtService jwtService;
+    private final SecurityConfig.JwtAuthFilter filter;
+
+    JwtAuthFilterTest() {
+        JwtProperties props = new JwtProperties();
+        props.setSecret("a-test-secret-that-is-at-least-256-bits-long-0123456789");
+        jwtService = new JwtService(props);
+        filter = new SecurityConfig.JwtAuthFilter(jwtService, Set.of("admin@example.com"));
+    }
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Set<String> rolesOf(String email) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/metrics");
+        String token = jwtService.generateAccessToken(email, Map.of("roles", List.of("ROLE_USER")));
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void listedEmailsAreAdmins() throws Exception {
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), rolesOf("Admin@Example.com"));
+    }
+
+    @Test
+    void otherMembersAreNot() throws Exception {
+        assertEquals(Set.of("ROLE_USER"), rolesOf("member@example.com"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.meinu.status.global.id;
+
+import com.meinu.status.global.store.InMemoryKeyValueStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TsidGeneratorTest {
+    private static final long TTL_MS = 60_000;
+
+    private final InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+
+    @Test
+    void configuredNodeIdTakesNoLease() {
+        TsidGenerator ids = new TsidGenerator(7, store, TTL_MS);
+
+        assertEquals(7, ids.nodeId());
+        assertNull(store.get("id:node:7"));
+    }
+
+    @Test
+    void nodeIdAboveTenBitsIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new TsidGenerator(1024, store, TTL_MS));
+    }
+
+    @Test
+    void instancesLeaseDistinctNodeIds() {
+        TsidGenerator a = new TsidGenerator(-1, store, TTL_MS);
+        TsidGenerator b = new TsidGenerator(-1, store, TTL_MS);
+
+        assertNotEquals(a.nodeId(), b.nodeId());
+        assertTrue(store.get("id:node:" + a.nodeId()) != null);
+        assertTrue(store.get("id:node:" + b.nodeId()) != null);
+    }
+
+    @Test
+    void releasedNodeIdCanBeLeasedAgain() {
+        TsidGenerator a = new TsidGenerator(-1, store, TTL_MS);
+        long node = a.nodeId();
+
+        a.releaseLease();
+        assertNull(store.get("id:node:" + node));
+    }
+
+    @Test
+    void lostLeaseSwitchesToAFreshNodeId() {
+        TsidGenerator a = new TsidGenerator(-1, store, TTL_MS);
+        long node = a.nodeId();
+        store.set("id:node:" + node, "someone-else", Duration.ofMillis(TTL_MS));
+
+        a.renewLease();
+        assertNotEquals(node, a.nodeId());
+        assertEquals("someone-else", store.get("id:node:" + node));
+    }
+
+    @Test
+    void releaseLeavesAnotherHoldersLeaseAlone() {
+        TsidGenerator a = new TsidGenerator(-1, store, TTL_MS);
+        long node = a.nodeId();
+        store.set("id:node:" + node, "someone-else", Duration.ofMillis(TTL_MS));
+
+        a.releaseLease();
+        assertEquals("someone-else", store.get("id:node:" + node));
+    }
+
+    @Test
+    void idsIncreaseAndCarryTheirTime() {
+        TsidGenerator ids = new TsidGenerator(3, store, TTL_MS);
+        Instant before = Instant.now();
+
+        long previous = ids.next();
+        for (int i = 0; i < 10_000; i++) {
+            long id = ids.next();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertFalse(TsidGenerator.timestampOf(previous).isBefore(before.minusMillis(1)));
+        assertTrue(TsidGenerator.lowerBound(before) <= previous);
+    }
+
+    @Test
+    void lowerBoundRoundTripsThroughTimestampOf() {
+        Instant at = Instant.parse("2026-03-01T12:00:00.123Z");
+
+        assertEquals(at, TsidGenerator.timestampOf(TsidGenerator.lowerBound(at)));
+        assertEquals(0, TsidGenerator.lowerBound(TsidGenerator.EPOCH.minusSeconds(1)));
+    }
+}
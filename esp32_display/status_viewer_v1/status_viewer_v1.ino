@@ -1,7 +1,7 @@
 /*
   ESP32 + ST7789(Adafruit) + HTTP GET(JSON) 상태 뷰어 (임시 하드코딩 버전)
   - WiFi SSID/PW, API Key, 백엔드 URL은 하드코딩합니다. (추후 AP 모드/설정 저장으로 대체)
-  - 백엔드: GET /api/status/latest/by-key  (x-api-key 헤더)
+  - 백엔드: GET /api/status/latest/by-key?fields=...  (x-api-key 헤더)
   - 응답 래핑: { code, isSuccess, message, result: {...스냅샷...} }
 
   배선(D라벨 기준)  ->  ESP32 GPIO
@@ -26,6 +26,8 @@ const char* WIFI_SSID = ""; // WiFi SSID
 const char* WIFI_PW   = ""; // WiFi PW
 const char* API_KEY   = "";  // 웹에서 발급한 API 키
 const char* BACKEND_URL = "http://192.168.0.2:8080/api/status/latest/by-key"; // 네트워크 환경에 맞게 수정
+// 화면에 그리는 필드만 요청합니다. code 같은 큰 필드가 빠져 응답이 2KB 버퍼에 들어갑니다.
+const char* FIELDS = "timestamp,languageId,filePath,branch,idleForMs,sessionActiveMs,keystrokes";
 
 // 패널 해상도 선택
 // #define PANEL_240x240
@@ -134,7 +136,7 @@ int fetchLatest(JsonDocument& doc, String& respBody) {
   if (WiFi.status() != WL_CONNECTED) return -1;
   HTTPClient http;
   http.setTimeout(8000);
-  http.begin(BACKEND_URL);
+  http.begin(String(BACKEND_URL) + "?fields=" + FIELDS);
   http.addHeader("x-api-key", API_KEY);
   int code = http.GET();
   respBody = http.getString();
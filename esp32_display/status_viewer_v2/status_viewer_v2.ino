@@ -1,7 +1,8 @@
 /*
   ESP32 + ST7789(Adafruit) + HTTP GET(JSON) 상태 뷰어 (임시 하드코딩 버전)
   - WiFi SSID/PW, API Key, 백엔드 URL은 하드코딩합니다. (추후 AP 모드/설정 저장으로 대체)
-  - 백엔드: GET /api/status/latest/by-key  (x-api-key 헤더)
+  - 백엔드: GET /api/status/latest/by-key/wait  (x-api-key 헤더, long-poll)
+    변경이 있을 때만 응답하고, 변경이 없으면 timeoutMs 후 304를 돌려줍니다.
   - 응답 래핑: { code, isSuccess, message, result: {...스냅샷...} }
 
   배선(D라벨 기준)  ->  ESP32 GPIO
@@ -25,7 +26,9 @@
 const char* WIFI_SSID = ""; // WiFi SSID
 const char* WIFI_PW   = ""; // WiFi PW
 const char* API_KEY   = "";  // 웹에서 발급한 API 키
-const char* BACKEND_URL = "http://192.168.0.2:8080/api/status/latest/by-key"; // 네트워크 환경에 맞게 수정
+const char* BACKEND_URL = "http://192.168.0.2:8080/api/status/latest/by-key/wait"; // 네트워크 환경에 맞게 수정
+const uint32_t LONG_POLL_MS = 25000; // 서버에서 대기할 최대 시간
+const char* FIELDS = "timestamp,workspaceRoot,languageId,filePath,branch,isIdle,idleForMs,isOffline,sessionActiveMs,keystrokes";
 
 // 패널 해상도 선택
 // #define PANEL_240x240
@@ -76,7 +79,7 @@ struct ViewState {
   long idleS = -1;
   long actS  = -1;
   long keys  = -1;
-  int8_t idleFlag = -1; // -1 unknown, 0 active, 1 idle
+  int8_t idleFlag = -1; // -1 unknown, 0 active, 1 idle, 2 offline
   bool drawn = false;
 } gPrev;
 
@@ -287,7 +290,7 @@ String pad2(int v) { char buf[4]; snprintf(buf, sizeof(buf), "%02d", v); return
 String pad3(int v) { char buf[5]; snprintf(buf, sizeof(buf), "%03d", v); return String(buf); }
 
 void drawKeysBar(long ks) {
-  uint16_t barBg = (gPrev.idleFlag == 1) ? THEME_KEYBAR_IDLE_BG : THEME_KEYBAR_ACTIVE_BG;
+  uint16_t barBg = (gPrev.idleFlag >= 1) ? THEME_KEYBAR_IDLE_BG : THEME_KEYBAR_ACTIVE_BG;
   tft.fillRect(0, tft.height()-20, tft.width(), 20, barBg);
   tft.setCursor(6, tft.height()-18);
   tft.setTextColor(THEME_KEYBAR_FG, barBg);
@@ -381,6 +384,9 @@ void updateFromSnapshot(const JsonObject& snap) {
   if (snap["isIdle"].is<bool>()) {
     isIdle = snap["isIdle"].as<bool>();
   }
+  // 서버가 하트비트 중단을 감지하면 isOffline을 붙인다
+  bool isOffline = snap["isOffline"].is<bool>() && snap["isOffline"].as<bool>();
+  int8_t idleFlag = isOffline ? 2 : (isIdle ? 1 : 0);
 
   // Time (두 줄, 부분 갱신) - KST(+9)로 변환, 소수초 미표시
   if (ts != gPrev.ts) {
@@ -461,13 +467,13 @@ void updateFromSnapshot(const JsonObject& snap) {
     gPrev.br = br;
   }
   // Idle (seconds + state label)
-  if (idleS != gPrev.idleS || (int8_t)(isIdle ? 1 : 0) != gPrev.idleFlag) {
+  if (idleS != gPrev.idleS || idleFlag != gPrev.idleFlag) {
     int8_t prevFlag = gPrev.idleFlag;
     clearValueArea(Y_IDLE, H_2X);
-    String state = isIdle ? "(IDLE)" : "(ACTIVE)";
+    String state = isOffline ? "(OFFLINE)" : (isIdle ? "(IDLE)" : "(ACTIVE)");
     printValue2x(Y_IDLE, String(idleS) + "s " + state);
     gPrev.idleS = idleS;
-    gPrev.idleFlag = isIdle ? 1 : 0;
+    gPrev.idleFlag = idleFlag;
     // idle 상태가 바뀌었을 때 키 바 색도 즉시 반영
     if (gPrev.drawn && prevFlag != gPrev.idleFlag) {
       drawKeysBar(ks);
@@ -526,17 +532,28 @@ void drawHttpError(int code, const String& body) {
   tft.print(line);
 }
 
+String gVersion = ""; // 마지막으로 받은 스냅샷 버전 (X-Status-Version)
+
 int fetchLatest(JsonDocument& doc, String& respBody) {
   if (WiFi.status() != WL_CONNECTED) return -1;
   HTTPClient http;
-  http.setTimeout(8000);
-  http.begin(BACKEND_URL);
+  http.setTimeout(LONG_POLL_MS + 5000);
+  String url = String(BACKEND_URL) + "?timeoutMs=" + LONG_POLL_MS + "&version=" + gVersion + "&fields=" + FIELDS;
+  http.begin(url);
   http.addHeader("x-api-key", API_KEY);
+  const char* headerKeys[] = {"X-Status-Version"};
+  http.collectHeaders(headerKeys, 1);
   int code = http.GET();
+  if (code == 304) { // 변경 없음
+    http.end();
+    return 304;
+  }
   respBody = http.getString();
+  String version = http.header("X-Status-Version");
   http.end();
   Serial.printf("HTTP %d, %u bytes\n", code, (unsigned)respBody.length());
   if (code != 200) return code;
+  gVersion = version;
   DeserializationError err = deserializeJson(doc, respBody);
   if (err) {
     Serial.printf("JSON parse error: %s\n", err.c_str());
@@ -600,12 +617,13 @@ void setup() {
   }
 }
 
-uint32_t lastPoll = 0;
-const uint32_t POLL_MS = 5000; // 5초마다 갱신
+uint32_t lastError = 0;
+bool hadError = false;
+const uint32_t ERROR_BACKOFF_MS = 5000; // 오류 시 5초 후 재시도
 
 void loop() {
-  if (WiFi.status() == WL_CONNECTED && millis() - lastPoll > POLL_MS) {
-    lastPoll = millis();
+  if (WiFi.status() == WL_CONNECTED && (!hadError || millis() - lastError > ERROR_BACKOFF_MS)) {
+    hadError = false;
     StaticJsonDocument<2048> doc; // result 필드 안 스냅샷을 고려한 여유 버퍼
     String body;
     int code = fetchLatest(doc, body);
@@ -619,8 +637,10 @@ void loop() {
         clearValueArea(Y_TIME, H_2X);
         printValue2x(Y_TIME, "No Data");
       }
-    } else {
+    } else if (code != 304) {
       drawHttpError(code, body);
+      hadError = true;
+      lastError = millis();
     }
   }
 }
@@ -1,6 +1,19 @@
 const vscode = require("vscode");
 const http = require("http");
 const https = require("https");
+const fs = require("fs/promises");
+const path = require("path");
+const zlib = require("zlib");
+const crypto = require("crypto");
+
+// Offline buffer: heartbeats that could not be delivered are appended here (JSON lines)
+// and flushed to <backendUrl>/batch once the backend is reachable again.
+const BUFFER_FILE = "outbox.jsonl";
+const BUFFER_MAX_LINES = 5000;
+const BATCH_MAX_SIZE = 200;
+// Lines this window believes the buffer holds; null until first counted. Appends
+// only bump it, so the file is read back for trimming once it passes the limit.
+let bufferedLines = null;
 
 // Internal state
 let intervalHandle = null;
@@ -8,10 +21,25 @@ let lastActivityAt = Date.now();
 let statusBarItem;
 let isRunning = false;
 let sessionStartedAt = Date.now();
+// Every heartbeat carries (sessionId, seq) so the server can drop retried duplicates
+let sessionId = crypto.randomUUID();
+let seq = 0;
 let gContext = null;
 let lastSampleAt = Date.now();
 let totalActiveMs = 0;
 let keystrokes = 0;
+let retryAfterUntil = 0; // epoch ms; set when the server answers 429/503 with Retry-After
+let sending = false;
+// Pacing advised by the server with every accepted heartbeat: post again after
+// nextIntervalSeconds, and with sendOnChange skip unchanged samples until then
+let serverIntervalSeconds = 0; // 0 = no advice, post every stat-us.intervalSeconds
+let sendOnChange = false;
+let nextSendAt = 0; // epoch ms
+let lastSentState = "";
+// Server snapshot version after the last directly posted heartbeat; while set,
+// the next heartbeat is sent as a patch of only the fields that changed
+let snapshotVersion = "";
+let lastAccepted = null;
 
 /**
  * @param {vscode.ExtensionContext} context
@@ -20,6 +48,8 @@ function activate(context) {
 	console.log("Stat-us extension activated");
 	gContext = context;
 	sessionStartedAt = Date.now();
+	sessionId = crypto.randomUUID();
+	seq = 0;
 
 	// Status bar
 	statusBarItem = vscode.window.createStatusBarItem(vscode.StatusBarAlignment.Left, 100);
@@ -140,21 +170,69 @@ async function startSending() {
 		console.warn("Stat-us: initial send failed", e);
 	}
 
-	// Set interval
-	intervalHandle = setInterval(async () => {
-		const cfgLoop = getConfig();
-		try {
-			const payload = await buildPayload();
+	scheduleTick();
+}
+
+// Samples at the configured interval (or the server's, if shorter) so a change
+// can go out promptly; whether a sample is posted follows the server's pacing.
+function scheduleTick() {
+	if (!isRunning) return;
+	const configured = Math.max(5, Number(getConfig().intervalSeconds || 60));
+	const seconds = serverIntervalSeconds > 0 ? Math.max(5, Math.min(configured, serverIntervalSeconds)) : configured;
+	intervalHandle = setTimeout(tick, seconds * 1000);
+}
+
+async function tick() {
+	const cfgLoop = getConfig();
+	try {
+		const payload = await buildPayload();
+		if (shouldSend(payload)) {
 			await sendPayload(cfgLoop, payload, false);
-		} catch (e) {
-			console.warn("Stat-us: periodic send failed", e);
 		}
-	}, Math.max(5, Number(cfg.intervalSeconds || 60)) * 1000);
+	} catch (e) {
+		console.warn("Stat-us: periodic send failed", e);
+	}
+	scheduleTick();
+}
+
+function shouldSend(payload) {
+	if (Date.now() >= nextSendAt) return true;
+	return sendOnChange && stateOf(payload) !== lastSentState;
+}
+
+// What viewers see; counters alone do not make a sample worth sending early
+function stateOf(payload) {
+	return JSON.stringify([payload.workspaceRoot, payload.filePath, payload.languageId, payload.branch, payload.isIdle]);
+}
+
+function resultOf(res) {
+	try {
+		return JSON.parse(res?.body || "{}")?.result;
+	} catch {
+		return undefined;
+	}
+}
+
+function applyPacing(res, payload) {
+	lastSentState = stateOf(payload);
+	const hint = resultOf(res);
+	const next = Number(hint?.nextIntervalSeconds);
+	if (!(next > 0)) {
+		// older server: plain fixed interval
+		serverIntervalSeconds = 0;
+		sendOnChange = false;
+		nextSendAt = 0;
+		return;
+	}
+	serverIntervalSeconds = next;
+	sendOnChange = hint.sendOnChange === true;
+	// a second early so a timer firing right on the boundary is not skipped
+	nextSendAt = Date.now() + next * 1000 - 1000;
 }
 
 function stopSending() {
 	if (intervalHandle) {
-		clearInterval(intervalHandle);
+		clearTimeout(intervalHandle);
 		intervalHandle = null;
 	}
 	isRunning = false;
@@ -207,6 +285,8 @@ async function buildPayload() {
 
 	const payload = {
 		timestamp: new Date().toISOString(),
+		sessionId,
+		seq: ++seq,
 		workspaceRoot,
 		filePath,
 		languageId,
@@ -259,31 +339,226 @@ async function readGitBranchSafe() {
 
 async function sendPayload(cfg, payload, showToastOnSuccess = false) {
 	if (!cfg.backendUrl) return;
+	const waitMs = retryAfterUntil - Date.now();
+	if (waitMs > 0) {
+		await bufferPayload(payload);
+		updateStatusBar("running", `대기 ${Math.ceil(waitMs / 1000)}s`);
+		if (showToastOnSuccess) {
+			vscode.window.showInformationMessage(`Stat-us: 서버 요청 제한으로 ${Math.ceil(waitMs / 1000)}초 후 다시 전송합니다.`);
+		}
+		return;
+	}
+	const headers = {};
+	if (cfg.apiKey) headers["x-api-key"] = cfg.apiKey;
+	if (sending) {
+		// a previous send/flush is still running; keep ordering by queueing behind it
+		await bufferPayload(payload);
+		return;
+	}
+	sending = true;
 	updateStatusBar("sending");
+	let queued = false;
 	try {
-		const headers = { "Content-Type": "application/json" };
-		if (cfg.apiKey) headers["x-api-key"] = cfg.apiKey;
-		const res = await postJson(cfg.backendUrl, payload, headers, 8000);
+		let res;
+		if (await hasBufferedPayloads()) {
+			// keep heartbeats in order: the live sample goes out after the backlog
+			await bufferPayload(payload);
+			queued = true;
+			res = await flushBuffer(cfg, headers);
+			// the batch's newest heartbeat may be a later one than this payload
+			rememberSnapshot(undefined, null);
+		} else {
+			res = await postHeartbeat(cfg.backendUrl, payload, headers);
+			rememberSnapshot(res, payload);
+		}
+		applyPacing(res, payload);
 		updateStatusBar("running", `ok ${new Date().toLocaleTimeString()}`);
 		if (showToastOnSuccess) {
-			vscode.window.showInformationMessage(`Stat-us 전송 성공 (${res.status})`);
+			vscode.window.showInformationMessage(`Stat-us 전송 성공 (${res?.status})`);
 		}
 	} catch (err) {
+		const status = err?.response?.status;
+		if ((isRetryable(status) || isAuthError(status)) && !queued) {
+			await bufferPayload(payload);
+		}
+		if (status === 429 || status === 503) {
+			// Server is shedding load: back off quietly for the advertised time
+			const retrySec = Math.max(1, Number(err.response.retryAfter) || 30);
+			retryAfterUntil = Date.now() + retrySec * 1000;
+			updateStatusBar("running", `대기 ${retrySec}s`);
+			console.warn(`Stat-us: server busy (${status}), retrying after ${retrySec}s`);
+			return;
+		}
 		updateStatusBar("error");
 		const msg = err?.response ? `${err.response.status} ${err.response.statusText}` : err?.message || String(err);
 		console.error("Stat-us send error:", msg);
-		vscode.window.showWarningMessage(`Stat-us 전송 실패: ${msg}`);
+		if (showToastOnSuccess || !isRetryable(status)) {
+			vscode.window.showWarningMessage(`Stat-us 전송 실패: ${msg}`);
+		}
 		throw err;
+	} finally {
+		sending = false;
+	}
+}
+
+// Posts only what changed since the last accepted heartbeat when the server's
+// snapshot version is known; 409 means that snapshot was replaced meanwhile
+// (another window, offline marking), so the heartbeat is sent whole.
+async function postHeartbeat(url, payload, headers) {
+	const patch = patchOf(payload);
+	if (patch === payload) return postJson(url, payload, headers, 8000);
+	try {
+		return await postJson(url, patch, headers, 8000);
+	} catch (err) {
+		if (err?.response?.status !== 409) throw err;
+		rememberSnapshot(undefined, null);
+		return postJson(url, payload, headers, 8000);
 	}
 }
 
-function postJson(urlStr, data, headers = {}, timeoutMs = 8000) {
+// Changed fields plus patchOf; null marks a field that is gone
+function patchOf(payload) {
+	if (!snapshotVersion || !lastAccepted) return payload;
+	const patch = { patchOf: snapshotVersion };
+	const keys = new Set([...Object.keys(lastAccepted), ...Object.keys(payload)]);
+	for (const key of keys) {
+		if (JSON.stringify(payload[key]) !== JSON.stringify(lastAccepted[key])) {
+			patch[key] = payload[key] === undefined ? null : payload[key];
+		}
+	}
+	return patch;
+}
+
+function rememberSnapshot(res, payload) {
+	const version = resultOf(res)?.version;
+	snapshotVersion = typeof version === "string" && payload ? version : "";
+	lastAccepted = snapshotVersion ? payload : null;
+}
+
+// Network errors, 5xx and 429 are worth retrying later; other 4xx (bad key/payload) are not.
+function isRetryable(status) {
+	return !status || status === 429 || status >= 500;
+}
+
+// A rejected API key says nothing about the heartbeats: keep them until the key is fixed.
+function isAuthError(status) {
+	return status === 401 || status === 403;
+}
+
+function bufferPath() {
+	const dir = gContext?.globalStorageUri?.fsPath;
+	return dir ? path.join(dir, BUFFER_FILE) : undefined;
+}
+
+async function readBuffer() {
+	const file = bufferPath();
+	if (!file) return [];
+	try {
+		const text = await fs.readFile(file, "utf8");
+		return text.split("\n").filter((line) => line.trim().length > 0);
+	} catch {
+		return [];
+	}
+}
+
+async function writeBuffer(lines) {
+	const file = bufferPath();
+	if (!file) return;
+	bufferedLines = lines.length;
+	if (lines.length === 0) {
+		await fs.rm(file, { force: true });
+		return;
+	}
+	await fs.mkdir(path.dirname(file), { recursive: true });
+	await fs.writeFile(file, lines.join("\n") + "\n", "utf8");
+}
+
+async function hasBufferedPayloads() {
+	const file = bufferPath();
+	if (!file) return false;
+	try {
+		const st = await fs.stat(file);
+		return st.size > 0;
+	} catch {
+		return false;
+	}
+}
+
+async function bufferPayload(payload) {
+	const file = bufferPath();
+	if (!file) return;
+	try {
+		if (bufferedLines === null) {
+			bufferedLines = (await readBuffer()).length;
+		}
+		await fs.mkdir(path.dirname(file), { recursive: true });
+		await fs.appendFile(file, JSON.stringify(payload) + "\n", "utf8");
+		bufferedLines++;
+		if (bufferedLines > BUFFER_MAX_LINES) {
+			// drop the oldest samples rather than grow without bound
+			const lines = await readBuffer();
+			await writeBuffer(lines.slice(Math.max(0, lines.length - BUFFER_MAX_LINES)));
+		}
+	} catch (e) {
+		console.warn("Stat-us: failed to buffer heartbeat", e);
+	}
+}
+
+// Sends buffered heartbeats oldest-first in gzip-compressed batches. Whatever was
+// not delivered stays in the buffer for the next attempt. Sent lines are removed
+// by content (each carries its sessionId/seq), since the buffer may have been
+// appended to or trimmed while the flush was running.
+async function flushBuffer(cfg, headers) {
+	const lines = await readBuffer();
+	const done = new Set();
+	let sent = 0;
+	let res;
+	try {
+		while (sent < lines.length) {
+			const chunk = lines.slice(sent, sent + BATCH_MAX_SIZE);
+			const batch = [];
+			for (const line of chunk) {
+				try {
+					batch.push(JSON.parse(line));
+				} catch {
+					// skip a corrupted line
+				}
+			}
+			if (batch.length > 0) {
+				try {
+					res = await postJson(batchUrl(cfg.backendUrl), batch, headers, 15000, true);
+				} catch (err) {
+					const status = err?.response?.status;
+					if (isRetryable(status) || isAuthError(status)) throw err;
+					// a batch the server rejects as invalid would block the buffer forever
+					console.warn("Stat-us: dropping rejected batch", err?.message);
+				}
+			}
+			chunk.forEach((line) => done.add(line));
+			sent += chunk.length;
+		}
+	} finally {
+		if (done.size > 0) {
+			// keep anything buffered while the flush was running
+			const latest = await readBuffer();
+			await writeBuffer(latest.filter((line) => !done.has(line)));
+		}
+	}
+	return res;
+}
+
+function batchUrl(backendUrl) {
+	return backendUrl.replace(/\/+$/, "") + "/batch";
+}
+
+function postJson(urlStr, data, headers = {}, timeoutMs = 8000, gzip = false) {
 	return new Promise((resolve, reject) => {
 		try {
 			const url = new URL(urlStr);
 			const isHttps = url.protocol === "https:";
 			const lib = isHttps ? https : http;
-			const body = Buffer.from(JSON.stringify(data));
+			const json = Buffer.from(JSON.stringify(data));
+			const body = gzip ? zlib.gzipSync(json) : json;
 			const options = {
 				method: "POST",
 				hostname: url.hostname,
@@ -292,6 +567,7 @@ function postJson(urlStr, data, headers = {}, timeoutMs = 8000) {
 				headers: {
 					"Content-Type": "application/json",
 					"Content-Length": body.length,
+					...(gzip ? { "Content-Encoding": "gzip" } : {}),
 					...headers,
 				},
 			};
@@ -305,7 +581,11 @@ function postJson(urlStr, data, headers = {}, timeoutMs = 8000) {
 					} else {
 						const err = new Error(`HTTP ${res.statusCode}: ${respBody}`);
 						// @ts-ignore add response for consistent error message above
-						err.response = { status: res.statusCode, statusText: res.statusMessage };
+						err.response = {
+							status: res.statusCode,
+							statusText: res.statusMessage,
+							retryAfter: res.headers["retry-after"],
+						};
 						reject(err);
 					}
 				});